@@ -13,6 +13,7 @@ plugins {
     `java-library`
     id("xyz.srnyx.gradle-galaxy") version "3.0.0"
     id("com.gradleup.shadow") version "9.4.2"
+    id("me.champeau.jmh") version "0.7.3"
 }
 
 setupJava(JavaSetupConfig(
@@ -25,6 +26,22 @@ repository(Repository.MAVEN_CENTRAL)
 dependencies {
     api("org.mongodb:mongodb-driver-sync:5.8.0")
     compileOnly("org.jetbrains:annotations:26.1.0")
+    jmh("org.jetbrains:annotations:26.1.0")
+    testCompileOnly("org.jetbrains:annotations:26.1.0")
+    testImplementation("org.junit.jupiter:junit-jupiter:5.11.4")
+    testRuntimeOnly("org.junit.platform:junit-platform-launcher")
+}
+
+tasks.test {
+    useJUnitPlatform()
+}
+
+// Benchmarks (./gradlew jmh)
+jmh {
+    jmhVersion.set("1.37")
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
 }
 
 setupPublishingEnv(publishingSimpleConfig(
@@ -0,0 +1,24 @@
+import xyz.srnyx.gradlegalaxy.data.config.JavaSetupConfig
+import xyz.srnyx.gradlegalaxy.enums.Repository
+import xyz.srnyx.gradlegalaxy.enums.repository
+import xyz.srnyx.gradlegalaxy.utility.setupJava
+
+
+plugins {
+    java
+    `java-library`
+    id("xyz.srnyx.gradle-galaxy")
+}
+
+setupJava(JavaSetupConfig(
+    group = "xyz.srnyx",
+    version = rootProject.version.toString(),
+    description = "Micrometer metrics for MagicMongo",
+    javaVersion = JavaVersion.VERSION_1_8))
+
+repository(Repository.MAVEN_CENTRAL)
+dependencies {
+    api(rootProject)
+    api("io.micrometer:micrometer-core:1.14.5")
+    compileOnly("org.jetbrains:annotations:26.1.0")
+}
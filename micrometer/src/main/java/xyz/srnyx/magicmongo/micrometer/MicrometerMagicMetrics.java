@@ -0,0 +1,223 @@
+package xyz.srnyx.magicmongo.micrometer;
+
+import com.mongodb.MongoNamespace;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import xyz.srnyx.magicmongo.metrics.MagicMetrics;
+import xyz.srnyx.magicmongo.metrics.MetricsCommandListener;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * A {@link MagicMetrics} that records into a Micrometer {@link MeterRegistry}
+ * <ul>
+ *     <li>{@code magicmongo.operation} ({@link Timer}, with a percentile histogram): tags {@code collection}, {@code operation}, {@code outcome}</li>
+ *     <li>{@code magicmongo.operation.documents} ({@link DistributionSummary}): tags {@code collection}, {@code operation}</li>
+ *     <li>{@code magicmongo.operation.errors} ({@link Counter}): tags {@code collection}, {@code operation}, {@code exception}</li>
+ *     <li>{@code magicmongo.command} ({@link Timer}, with a percentile histogram): tags {@code database}, {@code collection}, {@code command}, {@code outcome}</li>
+ *     <li>{@code magicmongo.command.bytes.out} and {@code magicmongo.command.bytes.in} ({@link DistributionSummary}): tags {@code database}, {@code collection}, {@code command}</li>
+ * </ul>
+ * Meters are cached per collection/operation and command, so recording doesn't look them up in the registry every time
+ */
+public class MicrometerMagicMetrics implements MagicMetrics {
+    /**
+     * The {@link MeterRegistry} to record into
+     */
+    @NotNull public final MeterRegistry registry;
+    /**
+     * The meters of each operation, by collection then operation name
+     */
+    @NotNull private final Map<MongoNamespace, Map<String, OperationMeters>> operations = new ConcurrentHashMap<>();
+    /**
+     * The meters of each command, by database, collection, and command name
+     */
+    @NotNull private final Map<String, CommandMeters> commands = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new {@link MicrometerMagicMetrics} instance
+     *
+     * @param   registry    {@link #registry}
+     */
+    public MicrometerMagicMetrics(@NotNull MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Creates a {@link MetricsCommandListener} that reports to this instance, to add to the client's settings
+     *
+     * @return  the new {@link MetricsCommandListener}
+     */
+    @NotNull
+    public MetricsCommandListener newCommandListener() {
+        return new MetricsCommandListener(this);
+    }
+
+    @Override
+    public void onOperation(@NotNull MongoNamespace namespace, @NotNull String operation, long durationNanos, long documents, @Nullable Throwable error) {
+        final OperationMeters meters = operations
+                .computeIfAbsent(namespace, key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(operation, key -> new OperationMeters(namespace.getFullName(), operation));
+        if (error != null) {
+            meters.failure.record(durationNanos, TimeUnit.NANOSECONDS);
+            Counter.builder("magicmongo.operation.errors")
+                    .tag("collection", meters.collection)
+                    .tag("operation", operation)
+                    .tag("exception", error.getClass().getSimpleName())
+                    .register(registry)
+                    .increment();
+            return;
+        }
+        meters.success.record(durationNanos, TimeUnit.NANOSECONDS);
+        meters.documents.record(documents);
+    }
+
+    @Override
+    public void onCommand(@NotNull String database, @Nullable String collection, @NotNull String command, long durationNanos, int bytesOut, int bytesIn, @Nullable Throwable error) {
+        final String collectionTag = collection == null ? "none" : collection;
+        final CommandMeters meters = commands.computeIfAbsent(database + '.' + collectionTag + '#' + command, key -> new CommandMeters(database, collectionTag, command));
+        (error == null ? meters.success : meters.failure).record(durationNanos, TimeUnit.NANOSECONDS);
+        if (bytesOut >= 0) meters.bytesOut.record(bytesOut);
+        if (bytesIn >= 0) meters.bytesIn.record(bytesIn);
+    }
+
+    /**
+     * The meters of an operation on a collection
+     */
+    private final class OperationMeters {
+        /**
+         * The full namespace of the collection
+         */
+        @NotNull private final String collection;
+        /**
+         * The latency of successful operations
+         */
+        @NotNull private final Timer success;
+        /**
+         * The latency of failed operations
+         */
+        @NotNull private final Timer failure;
+        /**
+         * The number of documents returned/written by successful operations
+         */
+        @NotNull private final DistributionSummary documents;
+
+        /**
+         * Creates a new {@link OperationMeters} instance
+         *
+         * @param   collection  {@link #collection}
+         * @param   operation   the name of the operation
+         */
+        private OperationMeters(@NotNull String collection, @NotNull String operation) {
+            this.collection = collection;
+            success = operationTimer(collection, operation, "success");
+            failure = operationTimer(collection, operation, "error");
+            documents = DistributionSummary.builder("magicmongo.operation.documents")
+                    .tag("collection", collection)
+                    .tag("operation", operation)
+                    .register(registry);
+        }
+
+        /**
+         * Registers an operation {@link Timer}
+         *
+         * @param   collection  the full namespace of the collection
+         * @param   operation   the name of the operation
+         * @param   outcome     the outcome
+         *
+         * @return              the {@link Timer}
+         */
+        @NotNull
+        private Timer operationTimer(@NotNull String collection, @NotNull String operation, @NotNull String outcome) {
+            return Timer.builder("magicmongo.operation")
+                    .tag("collection", collection)
+                    .tag("operation", operation)
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(registry);
+        }
+    }
+
+    /**
+     * The meters of a command
+     */
+    private final class CommandMeters {
+        /**
+         * The latency of successful commands
+         */
+        @NotNull private final Timer success;
+        /**
+         * The latency of failed commands
+         */
+        @NotNull private final Timer failure;
+        /**
+         * The size of the command documents
+         */
+        @NotNull private final DistributionSummary bytesOut;
+        /**
+         * The size of the reply documents
+         */
+        @NotNull private final DistributionSummary bytesIn;
+
+        /**
+         * Creates a new {@link CommandMeters} instance
+         *
+         * @param   database    the name of the database
+         * @param   collection  the name of the collection, or {@code none}
+         * @param   command     the name of the command
+         */
+        private CommandMeters(@NotNull String database, @NotNull String collection, @NotNull String command) {
+            success = commandTimer(database, collection, command, "success");
+            failure = commandTimer(database, collection, command, "error");
+            bytesOut = bytesSummary("magicmongo.command.bytes.out", database, collection, command);
+            bytesIn = bytesSummary("magicmongo.command.bytes.in", database, collection, command);
+        }
+
+        /**
+         * Registers a command {@link Timer}
+         *
+         * @param   database    the name of the database
+         * @param   collection  the name of the collection, or {@code none}
+         * @param   command     the name of the command
+         * @param   outcome     the outcome
+         *
+         * @return              the {@link Timer}
+         */
+        @NotNull
+        private Timer commandTimer(@NotNull String database, @NotNull String collection, @NotNull String command, @NotNull String outcome) {
+            return Timer.builder("magicmongo.command")
+                    .tag("database", database)
+                    .tag("collection", collection)
+                    .tag("command", command)
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(registry);
+        }
+
+        /**
+         * Registers a bytes {@link DistributionSummary}
+         *
+         * @param   name        the name of the meter
+         * @param   database    the name of the database
+         * @param   collection  the name of the collection, or {@code none}
+         * @param   command     the name of the command
+         *
+         * @return              the {@link DistributionSummary}
+         */
+        @NotNull
+        private DistributionSummary bytesSummary(@NotNull String name, @NotNull String database, @NotNull String collection, @NotNull String command) {
+            return DistributionSummary.builder(name)
+                    .baseUnit("bytes")
+                    .tag("database", database)
+                    .tag("collection", collection)
+                    .tag("command", command)
+                    .register(registry);
+        }
+    }
+}
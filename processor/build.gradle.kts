@@ -0,0 +1,31 @@
+import xyz.srnyx.gradlegalaxy.data.config.JavaSetupConfig
+import xyz.srnyx.gradlegalaxy.data.config.publishing.publishingSimpleConfig
+import xyz.srnyx.gradlegalaxy.data.pom.DeveloperData
+import xyz.srnyx.gradlegalaxy.data.pom.LicenseData
+import xyz.srnyx.gradlegalaxy.enums.Repository
+import xyz.srnyx.gradlegalaxy.enums.repository
+import xyz.srnyx.gradlegalaxy.utility.setupJava
+import xyz.srnyx.gradlegalaxy.utility.setupPublishingEnv
+
+
+plugins {
+    java
+    id("xyz.srnyx.gradle-galaxy")
+}
+
+setupJava(JavaSetupConfig(
+    group = "xyz.srnyx",
+    version = rootProject.version.toString(),
+    description = "Annotation processor generating MagicMongo codecs",
+    javaVersion = JavaVersion.VERSION_1_8))
+
+repository(Repository.MAVEN_CENTRAL)
+dependencies {
+    compileOnly("org.jetbrains:annotations:26.1.0")
+}
+
+setupPublishingEnv(publishingSimpleConfig(
+    artifactId = "magic-mongo-processor",
+    url = "https://github.com/srnyx/magic-mongo",
+    licenses = listOf(LicenseData.MIT),
+    developers = listOf(DeveloperData.srnyx)))
@@ -0,0 +1,326 @@
+package xyz.srnyx.magicmongo.processor;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
+
+
+/**
+ * Generates a {@code <ClassName>_MagicCodec} for every class annotated with {@code @GenerateCodec}
+ * <br>Classes that can't be handled are reported as warnings and skipped, so they keep using the {@code PojoCodecProvider}
+ */
+@SupportedAnnotationTypes(CodecProcessor.ANNOTATION)
+public class CodecProcessor extends AbstractProcessor {
+    /**
+     * The name of the {@code @GenerateCodec} annotation
+     */
+    @NotNull static final String ANNOTATION = "xyz.srnyx.magicmongo.codecs.GenerateCodec";
+    /**
+     * The package of the POJO annotations
+     */
+    @NotNull private static final String POJO_ANNOTATIONS = "org.bson.codecs.pojo.annotations.";
+    /**
+     * The POJO annotations that aren't supported on properties
+     */
+    @NotNull private static final Set<String> UNSUPPORTED_PROPERTY_ANNOTATIONS = new HashSet<>(Arrays.asList(POJO_ANNOTATIONS + "BsonRepresentation", POJO_ANNOTATIONS + "BsonExtraElements"));
+
+    /**
+     * Creates a new {@link CodecProcessor} instance
+     */
+    public CodecProcessor() {}
+
+    @Override @NotNull
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(@NotNull Set<? extends TypeElement> annotations, @NotNull RoundEnvironment round) {
+        for (final TypeElement annotation : annotations) for (final Element element : round.getElementsAnnotatedWith(annotation)) {
+            if (element.getKind() != ElementKind.CLASS) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "@GenerateCodec can only be used on classes", element);
+                continue;
+            }
+            final TypeElement type = (TypeElement) element;
+            try {
+                checkType(type);
+                write(type, findProperties(type));
+            } catch (final UnsupportedException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, "No codec generated: " + e.getMessage() + " (the PojoCodecProvider will be used instead)", e.element);
+            } catch (final IOException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Failed to write codec: " + e.getMessage(), type);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks that a class can have a codec generated
+     *
+     * @param   type                    the class
+     *
+     * @throws  UnsupportedException    if the class isn't supported
+     */
+    private void checkType(@NotNull TypeElement type) throws UnsupportedException {
+        if (type.getModifiers().contains(Modifier.ABSTRACT)) throw new UnsupportedException("abstract classes aren't supported", type);
+        if (!type.getTypeParameters().isEmpty()) throw new UnsupportedException("generic classes aren't supported", type);
+        if (hasAnnotation(type, POJO_ANNOTATIONS + "BsonDiscriminator")) throw new UnsupportedException("discriminators aren't supported", type);
+        for (Element enclosing = type; enclosing instanceof TypeElement; enclosing = enclosing.getEnclosingElement()) {
+            final TypeElement current = (TypeElement) enclosing;
+            if (current.getModifiers().contains(Modifier.PRIVATE)) throw new UnsupportedException("private classes aren't supported", type);
+            if (current.getNestingKind() == NestingKind.LOCAL || current.getNestingKind() == NestingKind.ANONYMOUS) throw new UnsupportedException("local classes aren't supported", type);
+            if (current.getNestingKind() == NestingKind.MEMBER && !current.getModifiers().contains(Modifier.STATIC)) throw new UnsupportedException("inner (non-static) classes aren't supported", type);
+        }
+
+        // Constructor
+        boolean hasConstructor = false;
+        for (final ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (hasAnnotation(constructor, POJO_ANNOTATIONS + "BsonCreator")) throw new UnsupportedException("@BsonCreator isn't supported", constructor);
+            if (constructor.getParameters().isEmpty() && !constructor.getModifiers().contains(Modifier.PRIVATE)) hasConstructor = true;
+        }
+        if (!hasConstructor) throw new UnsupportedException("a non-private constructor without parameters is required", type);
+    }
+
+    /**
+     * Finds the properties of a class, superclass properties first
+     *
+     * @param   type                    the class
+     *
+     * @return                          the properties
+     *
+     * @throws  UnsupportedException    if a property isn't supported
+     */
+    @NotNull
+    private List<Property> findProperties(@NotNull TypeElement type) throws UnsupportedException {
+        final Types types = processingEnv.getTypeUtils();
+        final Elements elements = processingEnv.getElementUtils();
+        final DeclaredType declared = (DeclaredType) type.asType();
+        final String packageName = elements.getPackageOf(type).getQualifiedName().toString();
+        final List<ExecutableElement> methods = ElementFilter.methodsIn(elements.getAllMembers(type));
+
+        // Class hierarchy, top first
+        final List<TypeElement> hierarchy = new ArrayList<>();
+        for (TypeElement current = type; current != null && !current.getQualifiedName().contentEquals("java.lang.Object"); current = current.getSuperclass().getKind() == TypeKind.DECLARED ? (TypeElement) ((DeclaredType) current.getSuperclass()).asElement() : null) hierarchy.add(0, current);
+
+        final List<Property> properties = new ArrayList<>();
+        boolean explicitId = false;
+        for (final TypeElement current : hierarchy) for (final VariableElement field : ElementFilter.fieldsIn(current.getEnclosedElements())) {
+            if (field.getModifiers().contains(Modifier.STATIC) || field.getModifiers().contains(Modifier.TRANSIENT)) continue;
+            final String name = field.getSimpleName().toString();
+            final TypeMirror fieldType = types.asMemberOf(declared, field);
+            final String capitalized = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+
+            // Accessors
+            ExecutableElement getter = null;
+            ExecutableElement setter = null;
+            for (final ExecutableElement method : methods) {
+                if (method.getModifiers().contains(Modifier.STATIC) || !isAccessible(method, packageName, elements)) continue;
+                final String methodName = method.getSimpleName().toString();
+                final TypeMirror methodType = types.asMemberOf(declared, method);
+                if (method.getParameters().isEmpty() && (methodName.equals("get" + capitalized) || (methodName.equals("is" + capitalized) && fieldType.getKind() == TypeKind.BOOLEAN))
+                        && types.isSameType(((ExecutableType) methodType).getReturnType(), fieldType)) getter = method;
+                if (method.getParameters().size() == 1 && methodName.equals("set" + capitalized)
+                        && types.isSameType(((ExecutableType) methodType).getParameterTypes().get(0), fieldType)) setter = method;
+            }
+            final List<Element> annotated = new ArrayList<>(3);
+            annotated.add(field);
+            if (getter != null) annotated.add(getter);
+            if (setter != null) annotated.add(setter);
+
+            // Annotations
+            boolean ignored = false;
+            boolean id = false;
+            String bsonName = null;
+            for (final Element element : annotated) {
+                if (hasAnnotation(element, POJO_ANNOTATIONS + "BsonIgnore")) ignored = true;
+                if (hasAnnotation(element, POJO_ANNOTATIONS + "BsonId")) id = true;
+                for (final String unsupported : UNSUPPORTED_PROPERTY_ANNOTATIONS) if (hasAnnotation(element, unsupported)) throw new UnsupportedException("@" + unsupported.substring(POJO_ANNOTATIONS.length()) + " isn't supported", element);
+                final String value = getAnnotationValue(element, POJO_ANNOTATIONS + "BsonProperty");
+                if (value != null && !value.isEmpty()) bsonName = value;
+            }
+            if (ignored) continue;
+
+            // Read and write
+            final boolean fieldAccessible = isAccessible(field, packageName, elements);
+            final String read = getter != null ? "value." + getter.getSimpleName() + "()" : fieldAccessible ? "value." + name : null;
+            if (read == null) continue;
+            final String write = setter != null ? "value." + setter.getSimpleName() + "(%s)" : fieldAccessible && !field.getModifiers().contains(Modifier.FINAL) ? "value." + name + " = %s" : null;
+
+            if (id) {
+                explicitId = true;
+                bsonName = "_id";
+            }
+            properties.add(new Property(name, bsonName, fieldType, read, write, field));
+        }
+
+        // Convention: id or _id is the ID if there's no @BsonId
+        final Set<String> bsonNames = new HashSet<>();
+        for (final Property property : properties) {
+            if (property.bsonName == null) property.bsonName = !explicitId && (property.name.equals("id") || property.name.equals("_id")) ? "_id" : property.name;
+            if (!bsonNames.add(property.bsonName)) throw new UnsupportedException("more than one property is named " + property.bsonName, property.element);
+            property.typeName = getTypeName(property.type, property.element);
+            property.codecExpression = getCodecExpression(property.type, property.element);
+        }
+        return properties;
+    }
+
+    /**
+     * Writes the codec source file for a class
+     *
+     * @param   type        the class
+     * @param   properties  the properties of the class
+     *
+     * @throws  IOException if writing fails
+     */
+    private void write(@NotNull TypeElement type, @NotNull List<Property> properties) throws IOException {
+        final Elements elements = processingEnv.getElementUtils();
+        final String packageName = elements.getPackageOf(type).getQualifiedName().toString();
+        final String binaryName = elements.getBinaryName(type).toString();
+        final String simpleName = (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1)) + "_MagicCodec";
+        final String typeName = type.getQualifiedName().toString();
+        final String source = new CodecWriter(packageName, simpleName, typeName, properties).write();
+        try (final Writer writer = processingEnv.getFiler().createSourceFile(binaryName + "_MagicCodec", type).openWriter()) {
+            writer.write(source);
+        }
+    }
+
+    /**
+     * Checks if a member can be accessed from the generated codec
+     *
+     * @param   element     the member
+     * @param   packageName the package of the generated codec
+     * @param   elements    the {@link Elements} utility
+     *
+     * @return              true if the member is public, or neither private nor in another package
+     */
+    private static boolean isAccessible(@NotNull Element element, @NotNull String packageName, @NotNull Elements elements) {
+        final Set<Modifier> modifiers = element.getModifiers();
+        if (modifiers.contains(Modifier.PUBLIC)) return true;
+        return !modifiers.contains(Modifier.PRIVATE) && elements.getPackageOf(element).getQualifiedName().contentEquals(packageName);
+    }
+
+    /**
+     * Gets the source name of a property type
+     *
+     * @param   type                    the type
+     * @param   element                 the element to report errors on
+     *
+     * @return                          the source name (using qualified names)
+     *
+     * @throws  UnsupportedException    if the type isn't supported
+     */
+    @NotNull
+    private String getTypeName(@NotNull TypeMirror type, @NotNull Element element) throws UnsupportedException {
+        if (type.getKind().isPrimitive()) return type.getKind().name().toLowerCase(Locale.ROOT);
+        if (type.getKind() == TypeKind.ARRAY) {
+            if (((ArrayType) type).getComponentType().getKind() == TypeKind.BYTE) return "byte[]";
+            throw new UnsupportedException("arrays other than byte[] aren't supported", element);
+        }
+        if (type.getKind() != TypeKind.DECLARED) throw new UnsupportedException("type " + type + " isn't supported", element);
+        final DeclaredType declared = (DeclaredType) type;
+        final StringBuilder builder = new StringBuilder(((TypeElement) declared.asElement()).getQualifiedName());
+        if (declared.getTypeArguments().isEmpty()) return builder.toString();
+        builder.append('<');
+        for (int i = 0; i < declared.getTypeArguments().size(); i++) {
+            final TypeMirror argument = declared.getTypeArguments().get(i);
+            if (argument.getKind() != TypeKind.DECLARED || !((DeclaredType) argument).getTypeArguments().isEmpty()) throw new UnsupportedException("type " + type + " isn't supported (only one level of type arguments without wildcards)", element);
+            if (i > 0) builder.append(", ");
+            builder.append(((TypeElement) ((DeclaredType) argument).asElement()).getQualifiedName());
+        }
+        return builder.append('>').toString();
+    }
+
+    /**
+     * Gets the expression that gets the codec for a property type from the {@code registry}
+     *
+     * @param   type                    the type
+     * @param   element                 the element to report errors on
+     *
+     * @return                          the expression
+     *
+     * @throws  UnsupportedException    if the type isn't supported
+     */
+    @NotNull
+    private String getCodecExpression(@NotNull TypeMirror type, @NotNull Element element) throws UnsupportedException {
+        if (type.getKind().isPrimitive()) return "registry.get(" + processingEnv.getTypeUtils().boxedClass((PrimitiveType) type).getQualifiedName() + ".class)";
+        if (type.getKind() == TypeKind.ARRAY) return "registry.get(byte[].class)";
+        final DeclaredType declared = (DeclaredType) type;
+        final String erasure = ((TypeElement) declared.asElement()).getQualifiedName() + ".class";
+        if (declared.getTypeArguments().isEmpty()) return "registry.get(" + erasure + ")";
+        final StringBuilder arguments = new StringBuilder();
+        for (final TypeMirror argument : declared.getTypeArguments()) {
+            if (arguments.length() > 0) arguments.append(", ");
+            arguments.append(((TypeElement) ((DeclaredType) argument).asElement()).getQualifiedName()).append(".class");
+        }
+        return "(org.bson.codecs.Codec<" + getTypeName(type, element) + ">) (org.bson.codecs.Codec<?>) registry.get(" + erasure + ", java.util.Arrays.<java.lang.reflect.Type>asList(" + arguments + "))";
+    }
+
+    /**
+     * Checks if an element has an annotation
+     *
+     * @param   element     the element
+     * @param   annotation  the qualified name of the annotation
+     *
+     * @return              true if the element has the annotation
+     */
+    private static boolean hasAnnotation(@NotNull Element element, @NotNull String annotation) {
+        for (final AnnotationMirror mirror : element.getAnnotationMirrors()) if (((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(annotation)) return true;
+        return false;
+    }
+
+    /**
+     * Gets the {@code value} of an annotation on an element
+     *
+     * @param   element     the element
+     * @param   annotation  the qualified name of the annotation
+     *
+     * @return              the value, or null if the element doesn't have the annotation or it has no value
+     */
+    @Nullable
+    private static String getAnnotationValue(@NotNull Element element, @NotNull String annotation) {
+        for (final AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            if (!((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(annotation)) continue;
+            for (final Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : mirror.getElementValues().entrySet()) if (entry.getKey().getSimpleName().contentEquals("value")) return String.valueOf(entry.getValue().getValue());
+        }
+        return null;
+    }
+
+    /**
+     * Thrown when a class can't have a codec generated
+     */
+    private static final class UnsupportedException extends Exception {
+        /**
+         * The element to report the warning on
+         */
+        @NotNull private final transient Element element;
+
+        /**
+         * Creates a new {@link UnsupportedException} instance
+         *
+         * @param   message the reason
+         * @param   element {@link #element}
+         */
+        private UnsupportedException(@NotNull String message, @NotNull Element element) {
+            super(message);
+            this.element = element;
+        }
+    }
+}
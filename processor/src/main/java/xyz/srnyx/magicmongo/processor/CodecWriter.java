@@ -0,0 +1,289 @@
+package xyz.srnyx.magicmongo.processor;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Writes the source of a generated codec
+ */
+final class CodecWriter {
+    /**
+     * The package of the codec
+     */
+    @NotNull private final String packageName;
+    /**
+     * The simple name of the codec
+     */
+    @NotNull private final String simpleName;
+    /**
+     * The qualified source name of the class the codec is for
+     */
+    @NotNull private final String typeName;
+    /**
+     * The properties of the class, with {@code _id} first
+     */
+    @NotNull private final List<Property> properties;
+    /**
+     * The source being written
+     */
+    @NotNull private final StringBuilder builder = new StringBuilder();
+
+    /**
+     * Creates a new {@link CodecWriter} instance
+     *
+     * @param   packageName {@link #packageName}
+     * @param   simpleName  {@link #simpleName}
+     * @param   typeName    {@link #typeName}
+     * @param   properties  the properties of the class
+     */
+    CodecWriter(@NotNull String packageName, @NotNull String simpleName, @NotNull String typeName, @NotNull List<Property> properties) {
+        this.packageName = packageName;
+        this.simpleName = simpleName;
+        this.typeName = typeName;
+        this.properties = new ArrayList<>(properties);
+        // Encode _id first, like the PojoCodecProvider
+        for (int i = 0; i < this.properties.size(); i++) if ("_id".equals(this.properties.get(i).bsonName)) {
+            this.properties.add(0, this.properties.remove(i));
+            break;
+        }
+    }
+
+    /**
+     * Writes the source of the codec
+     *
+     * @return  the source
+     */
+    @NotNull
+    String write() {
+        if (!packageName.isEmpty()) line(0, "package " + packageName + ";").line(0, "");
+        line(0, "/**");
+        line(0, " * Generated by the MagicMongo annotation processor for {@link " + typeName + "}, don't edit");
+        line(0, " */");
+        line(0, "public final class " + simpleName + " implements org.bson.codecs.Codec<" + typeName + "> {");
+        line(1, "private final org.bson.codecs.configuration.CodecRegistry registry;");
+        for (int i = 0; i < properties.size(); i++) line(1, "private org.bson.codecs.Codec<" + boxed(properties.get(i).typeName) + "> codec" + i + ";");
+        line(0, "");
+        line(1, "public " + simpleName + "(org.bson.codecs.configuration.CodecRegistry registry) {");
+        line(2, "this.registry = registry;");
+        line(1, "}");
+        writeEncode();
+        writeDecode();
+        line(0, "");
+        line(1, "@Override");
+        line(1, "public Class<" + typeName + "> getEncoderClass() {");
+        line(2, "return " + typeName + ".class;");
+        line(1, "}");
+        writeCodecGetters();
+        line(0, "}");
+        return builder.toString();
+    }
+
+    /**
+     * Writes the {@code encode} method
+     */
+    private void writeEncode() {
+        line(0, "");
+        line(1, "@Override");
+        line(1, "public void encode(org.bson.BsonWriter writer, " + typeName + " value, org.bson.codecs.EncoderContext encoderContext) {");
+        line(2, "writer.writeStartDocument();");
+        for (int i = 0; i < properties.size(); i++) {
+            final Property property = properties.get(i);
+            final FastPath fast = FastPath.of(property.typeName);
+            final String name = literal(property.bsonName);
+
+            // Primitives can't be null
+            if (isPrimitive(property.typeName)) {
+                if (fast != null) {
+                    line(2, "writer." + fast.write + "(" + name + ", " + property.read + ");");
+                } else {
+                    line(2, "writer.writeName(" + name + ");");
+                    line(2, "encoderContext.encodeWithChildContext(codec" + i + "(), writer, " + property.read + ");");
+                }
+                continue;
+            }
+
+            line(2, "{");
+            line(3, "final " + property.typeName + " property = " + property.read + ";");
+            line(3, "if (property != null) {");
+            if (fast != null) {
+                line(4, "writer." + fast.write + "(" + name + ", property);");
+            } else {
+                line(4, "writer.writeName(" + name + ");");
+                line(4, "encoderContext.encodeWithChildContext(codec" + i + "(), writer, property);");
+            }
+            line(3, "}");
+            line(2, "}");
+        }
+        line(2, "writer.writeEndDocument();");
+        line(1, "}");
+    }
+
+    /**
+     * Writes the {@code decode} method
+     */
+    private void writeDecode() {
+        line(0, "");
+        line(1, "@Override");
+        line(1, "public " + typeName + " decode(org.bson.BsonReader reader, org.bson.codecs.DecoderContext decoderContext) {");
+        line(2, "final " + typeName + " value = new " + typeName + "();");
+        line(2, "reader.readStartDocument();");
+        line(2, "while (reader.readBsonType() != org.bson.BsonType.END_OF_DOCUMENT) {");
+        line(3, "switch (reader.readName()) {");
+        for (int i = 0; i < properties.size(); i++) {
+            final Property property = properties.get(i);
+            if (property.write == null) continue;
+            final FastPath fast = FastPath.of(property.typeName);
+            final boolean primitive = isPrimitive(property.typeName);
+            line(4, "case " + literal(property.bsonName) + ":");
+            line(5, "if (reader.getCurrentBsonType() == org.bson.BsonType.NULL) {");
+            line(6, "reader.readNull();");
+            if (!primitive) line(6, String.format(property.write, "null") + ";");
+            if (fast != null) {
+                line(5, "} else if (reader.getCurrentBsonType() == org.bson.BsonType." + fast.bsonType + ") {");
+                line(6, String.format(property.write, "reader." + fast.read + "()") + ";");
+            }
+            line(5, "} else {");
+            line(6, String.format(property.write, "decoderContext.decodeWithChildContext(codec" + i + "(), reader)") + ";");
+            line(5, "}");
+            line(5, "break;");
+        }
+        line(4, "default:");
+        line(5, "reader.skipValue();");
+        line(3, "}");
+        line(2, "}");
+        line(2, "reader.readEndDocument();");
+        line(2, "return value;");
+        line(1, "}");
+    }
+
+    /**
+     * Writes the methods that lazily get the codecs of the properties, so that codecs for other generated/POJO classes are only looked up once the registry is complete
+     */
+    private void writeCodecGetters() {
+        for (int i = 0; i < properties.size(); i++) {
+            final Property property = properties.get(i);
+            final String codecType = "org.bson.codecs.Codec<" + boxed(property.typeName) + ">";
+            line(0, "");
+            if (property.codecExpression != null && property.codecExpression.startsWith("(")) line(1, "@SuppressWarnings(\"unchecked\")");
+            line(1, "private " + codecType + " codec" + i + "() {");
+            line(2, "if (codec" + i + " == null) codec" + i + " = " + property.codecExpression + ";");
+            line(2, "return codec" + i + ";");
+            line(1, "}");
+        }
+    }
+
+    /**
+     * Appends a line to the source
+     *
+     * @param   indent  the indentation level
+     * @param   line    the line
+     *
+     * @return          this {@link CodecWriter}
+     */
+    @NotNull
+    private CodecWriter line(int indent, @NotNull String line) {
+        for (int i = 0; i < indent; i++) builder.append("    ");
+        builder.append(line).append('\n');
+        return this;
+    }
+
+    /**
+     * Gets a Java string literal
+     *
+     * @param   value   the value
+     *
+     * @return          the escaped and quoted value
+     */
+    @NotNull
+    private static String literal(@Nullable String value) {
+        return "\"" + String.valueOf(value).replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    /**
+     * Checks if a source type name is a primitive
+     *
+     * @param   typeName    the type name
+     *
+     * @return              true if it's a primitive
+     */
+    private static boolean isPrimitive(@Nullable String typeName) {
+        return typeName != null && typeName.indexOf('.') == -1 && !typeName.endsWith("[]");
+    }
+
+    /**
+     * Gets the boxed source name of a type
+     *
+     * @param   typeName    the type name
+     *
+     * @return              the boxed type name, or the type name if it isn't a primitive
+     */
+    @NotNull
+    private static String boxed(@Nullable String typeName) {
+        if (typeName == null) return "java.lang.Object";
+        switch (typeName) {
+            case "int": return "java.lang.Integer";
+            case "char": return "java.lang.Character";
+            case "boolean": case "byte": case "short": case "long": case "float": case "double": return "java.lang." + Character.toUpperCase(typeName.charAt(0)) + typeName.substring(1);
+            default: return typeName;
+        }
+    }
+
+    /**
+     * Types that are read and written directly instead of through their codec
+     */
+    private enum FastPath {
+        INT32("readInt32", "writeInt32"),
+        INT64("readInt64", "writeInt64"),
+        DOUBLE("readDouble", "writeDouble"),
+        BOOLEAN("readBoolean", "writeBoolean"),
+        STRING("readString", "writeString");
+
+        /**
+         * The name of the {@code BsonType}
+         */
+        @NotNull private final String bsonType = name();
+        /**
+         * The {@code BsonReader} method
+         */
+        @NotNull private final String read;
+        /**
+         * The {@code BsonWriter} method (taking a name and a value)
+         */
+        @NotNull private final String write;
+
+        /**
+         * Creates a new {@link FastPath} instance
+         *
+         * @param   read    {@link #read}
+         * @param   write   {@link #write}
+         */
+        FastPath(@NotNull String read, @NotNull String write) {
+            this.read = read;
+            this.write = write;
+        }
+
+        /**
+         * Gets the {@link FastPath} of a type
+         *
+         * @param   typeName    the source name of the type
+         *
+         * @return              the {@link FastPath}, or null if the type goes through its codec
+         */
+        @Nullable
+        private static FastPath of(@Nullable String typeName) {
+            if (typeName == null) return null;
+            switch (typeName) {
+                case "int": case "java.lang.Integer": return INT32;
+                case "long": case "java.lang.Long": return INT64;
+                case "double": case "java.lang.Double": return DOUBLE;
+                case "boolean": case "java.lang.Boolean": return BOOLEAN;
+                case "java.lang.String": return STRING;
+                default: return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package xyz.srnyx.magicmongo.processor;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.type.TypeMirror;
+
+
+/**
+ * A property of a class that a codec is generated for
+ */
+final class Property {
+    /**
+     * The Java name of the property
+     */
+    @NotNull final String name;
+    /**
+     * The name of the property in the BSON document (null until resolved)
+     */
+    @Nullable String bsonName;
+    /**
+     * The type of the property
+     */
+    @NotNull final TypeMirror type;
+    /**
+     * The expression that reads the property from {@code value}
+     */
+    @NotNull final String read;
+    /**
+     * The format of the statement that writes the property to {@code value} ({@code %s} being the new value), or null if it's read-only
+     */
+    @Nullable final String write;
+    /**
+     * The field of the property
+     */
+    @NotNull final Element element;
+    /**
+     * The source name of {@link #type} (null until resolved)
+     */
+    @Nullable String typeName;
+    /**
+     * The expression that gets the codec of {@link #type} from {@code registry} (null until resolved)
+     */
+    @Nullable String codecExpression;
+
+    /**
+     * Creates a new {@link Property} instance
+     *
+     * @param   name        {@link #name}
+     * @param   bsonName    {@link #bsonName}
+     * @param   type        {@link #type}
+     * @param   read        {@link #read}
+     * @param   write       {@link #write}
+     * @param   element     {@link #element}
+     */
+    Property(@NotNull String name, @Nullable String bsonName, @NotNull TypeMirror type, @NotNull String read, @Nullable String write, @NotNull Element element) {
+        this.name = name;
+        this.bsonName = bsonName;
+        this.type = type;
+        this.read = read;
+        this.write = write;
+        this.element = element;
+    }
+}
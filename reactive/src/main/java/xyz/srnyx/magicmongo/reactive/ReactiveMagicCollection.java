@@ -0,0 +1,248 @@
+package xyz.srnyx.magicmongo.reactive;
+
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.model.*;
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.InsertOneResult;
+import com.mongodb.client.result.UpdateResult;
+import com.mongodb.reactivestreams.client.AggregatePublisher;
+import com.mongodb.reactivestreams.client.FindPublisher;
+import com.mongodb.reactivestreams.client.MongoCollection;
+import com.mongodb.reactivestreams.client.MongoDatabase;
+import org.bson.conversions.Bson;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.reactivestreams.Publisher;
+import xyz.srnyx.magicmongo.MagicCollection;
+
+import java.util.List;
+
+
+/**
+ * The Reactive Streams equivalent of {@link MagicCollection}
+ * <br>Results are backpressured {@link Publisher Publishers} instead of materialized lists, and nothing happens until they're subscribed to
+ * <br>Operations that don't have a convenience method here can be run on {@link #collection} directly
+ *
+ * @param   <T> the type of the collection
+ */
+public class ReactiveMagicCollection<T> {
+    /**
+     * The {@link MongoCollection} instance
+     */
+    @NotNull public final MongoCollection<T> collection;
+
+    /**
+     * Constructs a new {@link ReactiveMagicCollection} instance
+     *
+     * @param   database    the {@link MongoDatabase} instance
+     * @param   name        the name of the collection
+     * @param   clazz       the class of the collection
+     */
+    public ReactiveMagicCollection(@NotNull MongoDatabase database, @NotNull String name, @NotNull Class<T> clazz) {
+        collection = database.getCollection(name, clazz);
+    }
+
+    /**
+     * Finds one document in the collection
+     *
+     * @param   filter  the filter to apply
+     *
+     * @return          a {@link Publisher} of the document found, which completes empty if none was found
+     */
+    @NotNull
+    public Publisher<T> findOne(@NotNull Bson filter) {
+        return collection.find(filter).first();
+    }
+
+    /**
+     * Finds one document in the collection
+     *
+     * @param   field   the field to filter by
+     * @param   value   the value of the field to filter by
+     *
+     * @return          a {@link Publisher} of the document found, which completes empty if none was found
+     */
+    @NotNull
+    public Publisher<T> findOne(@NotNull String field, @Nullable Object value) {
+        return findOne(Filters.eq(field, value));
+    }
+
+    /**
+     * Finds multiple documents in the collection
+     *
+     * @param   filter  the filter to apply
+     *
+     * @return          a {@link FindPublisher} of the documents found, which can be further configured before subscribing
+     */
+    @NotNull
+    public FindPublisher<T> findMany(@NotNull Bson filter) {
+        return collection.find(filter);
+    }
+
+    /**
+     * Aggregates documents in the collection
+     *
+     * @param   pipeline    the aggregation pipeline
+     *
+     * @return              an {@link AggregatePublisher} of the results, which can be further configured before subscribing
+     */
+    @NotNull
+    public AggregatePublisher<T> aggregate(@NotNull List<? extends Bson> pipeline) {
+        return collection.aggregate(pipeline);
+    }
+
+    /**
+     * Aggregates documents in the collection
+     *
+     * @param   pipeline    the aggregation pipeline
+     * @param   clazz       the class to decode each result to
+     *
+     * @return              an {@link AggregatePublisher} of the results, which can be further configured before subscribing
+     *
+     * @param   <R>         the type of the results
+     */
+    @NotNull
+    public <R> AggregatePublisher<R> aggregate(@NotNull List<? extends Bson> pipeline, @NotNull Class<R> clazz) {
+        return collection.aggregate(pipeline, clazz);
+    }
+
+    /**
+     * Counts the documents in the collection
+     *
+     * @param   filter  the filter to apply
+     *
+     * @return          a {@link Publisher} of the number of matching documents
+     */
+    @NotNull
+    public Publisher<Long> countDocuments(@NotNull Bson filter) {
+        return collection.countDocuments(filter);
+    }
+
+    /**
+     * Inserts a document in the collection
+     *
+     * @param   t   the document to insert
+     *
+     * @return      a {@link Publisher} of the {@link InsertOneResult}
+     */
+    @NotNull
+    public Publisher<InsertOneResult> insertOne(@NotNull T t) {
+        return collection.insertOne(t);
+    }
+
+    /**
+     * Updates a document in the collection
+     *
+     * @param   filter  the filter to apply
+     * @param   update  the update to apply
+     *
+     * @return          a {@link Publisher} of the {@link UpdateResult}
+     */
+    @NotNull
+    public Publisher<UpdateResult> updateOne(@NotNull Bson filter, @NotNull Bson update) {
+        return collection.updateOne(filter, update);
+    }
+
+    /**
+     * Updates multiple documents in the collection
+     *
+     * @param   filter  the filter to apply
+     * @param   update  the update to apply
+     *
+     * @return          a {@link Publisher} of the {@link UpdateResult}
+     */
+    @NotNull
+    public Publisher<UpdateResult> updateMany(@NotNull Bson filter, @NotNull Bson update) {
+        return collection.updateMany(filter, update);
+    }
+
+    /**
+     * Updates or inserts a document in the collection
+     *
+     * @param   filter  the filter to apply
+     * @param   update  the update to apply
+     *
+     * @return          a {@link Publisher} of the {@link UpdateResult}
+     */
+    @NotNull
+    public Publisher<UpdateResult> upsertOne(@NotNull Bson filter, @NotNull Bson update) {
+        return collection.updateOne(filter, update, new UpdateOptions().upsert(true));
+    }
+
+    /**
+     * Finds a document in the collection, updates it, and returns the updated document
+     *
+     * @param   filter  the filter to apply
+     * @param   update  the update to apply
+     *
+     * @return          a {@link Publisher} of the updated document, which completes empty if none was found
+     */
+    @NotNull
+    public Publisher<T> findOneAndUpdateReturn(@NotNull Bson filter, @NotNull Bson update) {
+        return collection.findOneAndUpdate(filter, update, new FindOneAndUpdateOptions().returnDocument(ReturnDocument.AFTER));
+    }
+
+    /**
+     * Finds a document in the collection, updates or inserts it, and returns the updated or inserted document
+     *
+     * @param   filter  the filter to apply
+     * @param   update  the update to apply
+     *
+     * @return          a {@link Publisher} of the updated or inserted document
+     */
+    @NotNull
+    public Publisher<T> findOneAndUpsert(@NotNull Bson filter, @NotNull Bson update) {
+        return collection.findOneAndUpdate(filter, update, new FindOneAndUpdateOptions()
+                .returnDocument(ReturnDocument.AFTER)
+                .upsert(true));
+    }
+
+    /**
+     * Deletes a document in the collection
+     *
+     * @param   filter  the filter to apply
+     *
+     * @return          a {@link Publisher} of the {@link DeleteResult}
+     */
+    @NotNull
+    public Publisher<DeleteResult> deleteOne(@NotNull Bson filter) {
+        return collection.deleteOne(filter);
+    }
+
+    /**
+     * Deletes a document in the collection
+     *
+     * @param   field   the field to filter by
+     * @param   value   the value of the field to filter by
+     *
+     * @return          a {@link Publisher} of the {@link DeleteResult}
+     */
+    @NotNull
+    public Publisher<DeleteResult> deleteOne(@NotNull String field, @Nullable Object value) {
+        return deleteOne(Filters.eq(field, value));
+    }
+
+    /**
+     * Deletes multiple documents in the collection
+     *
+     * @param   filter  the filter to apply
+     *
+     * @return          a {@link Publisher} of the {@link DeleteResult}
+     */
+    @NotNull
+    public Publisher<DeleteResult> deleteMany(@NotNull Bson filter) {
+        return collection.deleteMany(filter);
+    }
+
+    /**
+     * Executes multiple writes in the collection
+     *
+     * @param   requests    the writes to execute
+     *
+     * @return              a {@link Publisher} of the {@link BulkWriteResult}
+     */
+    @NotNull
+    public Publisher<BulkWriteResult> bulkWrite(@NotNull List<? extends WriteModel<? extends T>> requests) {
+        return collection.bulkWrite(requests);
+    }
+}
@@ -0,0 +1,170 @@
+package xyz.srnyx.magicmongo.reactive;
+
+import com.mongodb.reactivestreams.client.MongoDatabase;
+import org.jetbrains.annotations.NotNull;
+import xyz.srnyx.magicmongo.MagicDatabase;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * The Reactive Streams equivalent of {@link MagicDatabase}
+ * <br>Operations that don't have a convenience method here can be run on {@link #database} directly
+ */
+public class ReactiveMagicDatabase {
+    /**
+     * The {@link MongoDatabase} instance for this {@link ReactiveMagicDatabase}
+     */
+    @NotNull public final MongoDatabase database;
+    /**
+     * A map of names to classes of collections for this database
+     */
+    @NotNull public final Map<String, Class<?>> nameToClass = new ConcurrentHashMap<>();
+    /**
+     * A map of {@link ReactiveMagicCollection reactive mongo collections} for this database, by class
+     * <br>If a class is used for several collections, this has the last one {@link #loadMagicCollection(String, Class) loaded} (or the first one {@link #getOrLoadMagicCollection(String, Class) got or loaded}), use {@link #collectionsByName} to get the others
+     */
+    @NotNull public final Map<Class<?>, ReactiveMagicCollection<?>> collections = new ConcurrentHashMap<>();
+    /**
+     * A map of {@link ReactiveMagicCollection reactive mongo collections} for this database, by name
+     */
+    @NotNull public final Map<String, ReactiveMagicCollection<?>> collectionsByName = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new {@link ReactiveMagicDatabase} instance
+     *
+     * @param   database    the {@link MongoDatabase} instance to use
+     */
+    public ReactiveMagicDatabase(@NotNull MongoDatabase database) {
+        this.database = database;
+    }
+
+    /**
+     * Constructs, but doesn't load, a new {@link ReactiveMagicCollection} with the given name and class
+     *
+     * @param   name    the name of the collection
+     * @param   clazz   the class of the collection
+     *
+     * @return          the new {@link ReactiveMagicCollection}
+     *
+     * @param   <T>     the type of the class
+     */
+    @NotNull
+    public <T> ReactiveMagicCollection<T> newMagicCollection(@NotNull String name, @NotNull Class<T> clazz) {
+        return new ReactiveMagicCollection<>(database, name, clazz);
+    }
+
+    /**
+     * Loads a new {@link ReactiveMagicCollection} with the given name and class
+     *
+     * @param   name    the name of the collection
+     * @param   clazz   the class of the collection
+     *
+     * @return          the new {@link ReactiveMagicCollection}
+     *
+     * @param   <T>     the type of the class
+     */
+    @NotNull
+    public <T> ReactiveMagicCollection<T> loadMagicCollection(@NotNull String name, @NotNull Class<T> clazz) {
+        final ReactiveMagicCollection<T> collection = newMagicCollection(name, clazz);
+        collectionsByName.put(name, collection);
+        collections.put(clazz, collection);
+        nameToClass.put(name, clazz);
+        return collection;
+    }
+
+    /**
+     * Gets the {@link ReactiveMagicCollection} with the given name, loading it with the given class if it isn't loaded yet
+     * <br>Safe to call from many threads at once: the collection is only created and registered once, and lookups of already loaded collections don't lock. A class can be used for any number of collections
+     *
+     * @param   name                        the name of the collection
+     * @param   clazz                       the class of the collection
+     *
+     * @return                              the loaded {@link ReactiveMagicCollection}
+     *
+     * @throws  IllegalArgumentException    if a {@link ReactiveMagicCollection} is already loaded with the name for a different class
+     *
+     * @param   <T>                         the type of the class
+     */
+    @NotNull
+    public <T> ReactiveMagicCollection<T> getOrLoadMagicCollection(@NotNull String name, @NotNull Class<T> clazz) {
+        ReactiveMagicCollection<?> existing = collectionsByName.get(name);
+        if (existing == null) existing = collectionsByName.computeIfAbsent(name, key -> {
+            final ReactiveMagicCollection<T> collection = newMagicCollection(name, clazz);
+            collections.putIfAbsent(clazz, collection);
+            nameToClass.put(name, clazz);
+            return collection;
+        });
+        return checkClass(existing, clazz);
+    }
+
+    /**
+     * Gets a {@link ReactiveMagicCollection} by class
+     *
+     * @param   clazz                       the class of the collection
+     *
+     * @return                              the {@link ReactiveMagicCollection}
+     *
+     * @param   <T>                         the type of the class
+     *
+     * @throws  IllegalArgumentException    if no {@link ReactiveMagicCollection} is found for the class
+     */
+    @NotNull @SuppressWarnings("unchecked")
+    public <T> ReactiveMagicCollection<T> getMagicCollection(@NotNull Class<T> clazz) {
+        final ReactiveMagicCollection<?> collection = collections.get(clazz);
+        if (collection == null) throw new IllegalArgumentException("No ReactiveMagicCollection found for class " + clazz.getName());
+        return (ReactiveMagicCollection<T>) collection;
+    }
+
+    /**
+     * Gets a {@link ReactiveMagicCollection} by name
+     *
+     * @param   name                        the name of the collection
+     *
+     * @return                              the {@link ReactiveMagicCollection}
+     *
+     * @throws  IllegalArgumentException    if no {@link ReactiveMagicCollection} is found with the name
+     */
+    @NotNull
+    public ReactiveMagicCollection<?> getMagicCollection(@NotNull String name) {
+        final ReactiveMagicCollection<?> collection = collectionsByName.get(name);
+        if (collection == null) throw new IllegalArgumentException("No ReactiveMagicCollection found with name " + name);
+        return collection;
+    }
+
+    /**
+     * Gets a {@link ReactiveMagicCollection} by name and class, for classes used for several collections
+     *
+     * @param   name                        the name of the collection
+     * @param   clazz                       the class of the collection
+     *
+     * @return                              the {@link ReactiveMagicCollection}
+     *
+     * @param   <T>                         the type of the class
+     *
+     * @throws  IllegalArgumentException    if no {@link ReactiveMagicCollection} is found with the name, or if it's for a different class
+     */
+    @NotNull
+    public <T> ReactiveMagicCollection<T> getMagicCollection(@NotNull String name, @NotNull Class<T> clazz) {
+        return checkClass(getMagicCollection(name), clazz);
+    }
+
+    /**
+     * Checks that a {@link ReactiveMagicCollection} is for the given class
+     *
+     * @param   collection                  the {@link ReactiveMagicCollection}
+     * @param   clazz                       the expected class
+     *
+     * @return                              the {@link ReactiveMagicCollection}
+     *
+     * @param   <T>                         the type of the class
+     *
+     * @throws  IllegalArgumentException    if the {@link ReactiveMagicCollection} is for a different class
+     */
+    @NotNull @SuppressWarnings("unchecked")
+    private static <T> ReactiveMagicCollection<T> checkClass(@NotNull ReactiveMagicCollection<?> collection, @NotNull Class<T> clazz) {
+        if (collection.collection.getDocumentClass() != clazz) throw new IllegalArgumentException("ReactiveMagicCollection " + collection.collection.getNamespace().getCollectionName() + " is for class " + collection.collection.getDocumentClass().getName() + ", not " + clazz.getName());
+        return (ReactiveMagicCollection<T>) collection;
+    }
+}
@@ -0,0 +1,144 @@
+package xyz.srnyx.magicmongo.reactive;
+
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoClients;
+import com.mongodb.reactivestreams.client.MongoDatabase;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import xyz.srnyx.magicmongo.MagicMongo;
+import xyz.srnyx.magicmongo.MongoProfile;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+
+/**
+ * The Reactive Streams equivalent of {@link MagicMongo}, for managing Mongo using {@link ReactiveMagicDatabase ReactiveMagicDatabases} and {@link ReactiveMagicCollection ReactiveMagicCollections}
+ */
+public class ReactiveMagicMongo {
+    /**
+     * The {@link ConnectionString} for the MongoDB connection
+     */
+    @NotNull public final ConnectionString connection;
+    /**
+     * The {@link MongoClientSettings} that {@link #client} was created with
+     */
+    @NotNull public final MongoClientSettings settings;
+    /**
+     * The {@link MongoClient} instance for the MongoDB connection
+     */
+    @NotNull public final MongoClient client;
+    /**
+     * The {@link CodecRegistry} to use when creating {@link ReactiveMagicDatabase ReactiveMagicDatabases}
+     */
+    @Nullable protected final CodecRegistry codecRegistry;
+    /**
+     * The {@link ReactiveMagicDatabase ReactiveMagicDatabases} that have been loaded
+     */
+    @NotNull public final Map<String, ReactiveMagicDatabase> databases = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new {@link ReactiveMagicMongo} instance with the specified {@link CodecRegistry} and {@link MongoClientSettings}
+     *
+     * @param   connectionUrl   the connection URL for the MongoDB database
+     * @param   codecRegistry   {@link #codecRegistry}
+     * @param   settings        applies additional settings (pool sizing, compressors, listeners, etc...), like a {@link MongoProfile}
+     *
+     * @see                     MagicMongo#MagicMongo(String, CodecRegistry, Consumer)
+     */
+    public ReactiveMagicMongo(@NotNull String connectionUrl, @Nullable CodecRegistry codecRegistry, @NotNull Consumer<MongoClientSettings.Builder> settings) {
+        connection = new ConnectionString(connectionUrl);
+        final MongoClientSettings.Builder builder = MongoClientSettings.builder().applyConnectionString(connection);
+        settings.accept(builder);
+        if (codecRegistry != null) builder.codecRegistry(codecRegistry);
+        this.settings = builder.build();
+        client = MongoClients.create(this.settings);
+        this.codecRegistry = codecRegistry;
+
+        // Load database if specified
+        final String databaseName = connection.getDatabase();
+        if (databaseName != null) loadMagicDatabase(databaseName);
+    }
+
+    /**
+     * Creates a new {@link ReactiveMagicMongo} instance with the specified {@link CodecRegistry}
+     *
+     * @param   connectionUrl   the connection URL for the MongoDB database
+     * @param   codecRegistry   {@link #codecRegistry}
+     */
+    public ReactiveMagicMongo(@NotNull String connectionUrl, @Nullable CodecRegistry codecRegistry) {
+        this(connectionUrl, codecRegistry, builder -> {});
+    }
+
+    /**
+     * Creates a new {@link ReactiveMagicMongo} instance with the {@link MagicMongo#getDefaultCodecRegistry() default CodecRegistry}
+     *
+     * @param   connectionUrl   the connection URL for the MongoDB database
+     */
+    public ReactiveMagicMongo(@NotNull String connectionUrl) {
+        this(connectionUrl, MagicMongo.getDefaultCodecRegistry());
+    }
+
+    /**
+     * Constructs a new {@link ReactiveMagicDatabase} with the specified name
+     *
+     * @param   name    the name of the database to create
+     *
+     * @return          the new {@link ReactiveMagicDatabase} instance
+     */
+    @NotNull
+    public ReactiveMagicDatabase newMagicDatabase(@NotNull String name) {
+        MongoDatabase database = client.getDatabase(name);
+        if (codecRegistry != null) database = database.withCodecRegistry(codecRegistry);
+        return new ReactiveMagicDatabase(database);
+    }
+
+    /**
+     * Constructs a new {@link ReactiveMagicDatabase} with the specified name and loads it
+     *
+     * @param   name    the name of the database to create
+     *
+     * @return          the new {@link ReactiveMagicDatabase} instance
+     */
+    @NotNull
+    public ReactiveMagicDatabase loadMagicDatabase(@NotNull String name) {
+        final ReactiveMagicDatabase database = newMagicDatabase(name);
+        databases.put(name, database);
+        return database;
+    }
+
+    /**
+     * Gets the {@link ReactiveMagicDatabase} with the specified name, loading it if it isn't loaded yet
+     * <br>Safe to call from many threads at once: the database is only created and registered once, and lookups of already loaded databases don't lock
+     *
+     * @param   name    the name of the database
+     *
+     * @return          the loaded {@link ReactiveMagicDatabase} instance
+     */
+    @NotNull
+    public ReactiveMagicDatabase getOrLoadMagicDatabase(@NotNull String name) {
+        final ReactiveMagicDatabase database = databases.get(name);
+        if (database != null) return database;
+        return databases.computeIfAbsent(name, this::newMagicDatabase);
+    }
+
+    /**
+     * Gets a {@link ReactiveMagicDatabase} by name
+     *
+     * @param   name                        the name of the database to get
+     *
+     * @return                              the {@link ReactiveMagicDatabase} instance
+     *
+     * @throws  IllegalArgumentException    if no {@link ReactiveMagicDatabase} is found with the specified name
+     */
+    @NotNull
+    public ReactiveMagicDatabase getMagicDatabase(@NotNull String name) {
+        final ReactiveMagicDatabase database = databases.get(name);
+        if (database == null) throw new IllegalArgumentException("No ReactiveMagicDatabase found with name " + name);
+        return database;
+    }
+}
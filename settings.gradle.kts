@@ -1 +1,4 @@
 rootProject.name = "MagicMongo"
+include("reactive")
+include("processor")
+include("micrometer")
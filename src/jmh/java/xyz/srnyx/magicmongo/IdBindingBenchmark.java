@@ -0,0 +1,121 @@
+package xyz.srnyx.magicmongo;
+
+import org.bson.BsonObjectId;
+import org.bson.codecs.pojo.annotations.BsonId;
+import org.bson.codecs.pojo.annotations.BsonProperty;
+import org.bson.types.ObjectId;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Compares setting the ID of an inserted document using {@link IdBinding} to the reflective field scan {@link MagicCollection#insertOneReturnObjectId(Object)} used before
+ * <br>Only the ID assignment is measured (the insert itself needs a server)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class IdBindingBenchmark {
+    /**
+     * The ID to set
+     */
+    @NotNull private final ObjectId id = new ObjectId();
+    /**
+     * {@link #id} as a {@link BsonObjectId}, as returned by the insert
+     */
+    @NotNull private final BsonObjectId bsonId = new BsonObjectId(id);
+    /**
+     * A document with an {@link BsonId}-annotated ID field
+     */
+    @NotNull private final AnnotatedDocument annotated = new AnnotatedDocument();
+    /**
+     * A document with an ID field found by its name (the last pass of the reflective scan)
+     */
+    @NotNull private final NamedDocument named = new NamedDocument();
+
+    @Benchmark
+    public Object annotatedReflective() throws IllegalAccessException {
+        return reflectiveScan(annotated, id);
+    }
+
+    @Benchmark
+    public Object annotatedBinding() {
+        return IdBinding.of(annotated.getClass()).set(annotated, bsonId);
+    }
+
+    @Benchmark
+    public Object namedReflective() throws IllegalAccessException {
+        return reflectiveScan(named, id);
+    }
+
+    @Benchmark
+    public Object namedBinding() {
+        return IdBinding.of(named.getClass()).set(named, bsonId);
+    }
+
+    /**
+     * The reflective scan {@link MagicCollection#insertOneReturnObjectId(Object)} used before {@link IdBinding}
+     *
+     * @param   document                the document
+     * @param   id                      the ID to set
+     *
+     * @return                          the ID
+     *
+     * @throws  IllegalAccessException  if a field isn't accessible
+     */
+    @NotNull
+    private static ObjectId reflectiveScan(@NotNull Object document, @NotNull ObjectId id) throws IllegalAccessException {
+        final Field[] fields = document.getClass().getFields();
+        // Get by BsonId annotation
+        for (final Field field : fields) if (field.isAnnotationPresent(BsonId.class) && field.getType().equals(ObjectId.class)) {
+            field.set(document, id);
+            return id;
+        }
+        // Get by BsonProperty annotation
+        for (final Field field : fields) {
+            if (!field.getType().equals(ObjectId.class)) continue;
+            final BsonProperty annotation = field.getAnnotation(BsonProperty.class);
+            if (annotation != null && annotation.value().equals("_id")) {
+                field.set(document, id);
+                return id;
+            }
+        }
+        // Get by field name
+        for (final Field field : fields) {
+            if (!field.getType().equals(ObjectId.class)) continue;
+            final String name = field.getName();
+            if (name.equals("_id") || name.equals("id")) {
+                field.set(document, id);
+                return id;
+            }
+        }
+        return id;
+    }
+
+    /**
+     * A document with an {@link BsonId}-annotated ID field
+     */
+    public static class AnnotatedDocument {
+        public String name;
+        public String email;
+        public int age;
+        public long createdAt;
+        public ObjectId owner;
+        @BsonId public ObjectId id;
+    }
+
+    /**
+     * A document with an ID field found by its name
+     */
+    public static class NamedDocument {
+        public String name;
+        public String email;
+        public int age;
+        public long createdAt;
+        public ObjectId owner;
+        public ObjectId id;
+    }
+}
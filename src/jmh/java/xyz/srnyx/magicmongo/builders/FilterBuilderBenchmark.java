@@ -0,0 +1,54 @@
+package xyz.srnyx.magicmongo.builders;
+
+import com.mongodb.MongoClientSettings;
+import com.mongodb.client.model.Filters;
+import org.bson.BsonDocument;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.conversions.Bson;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Compares building and rendering a filter of {@value #CRITERIA} criteria using {@link FilterBuilder#and(Bson)} to the nested {@link Filters#and(Bson...)} chain it built before
+ * <br>Both the building and the rendering (what the driver does before sending the filter) are measured
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class FilterBuilderBenchmark {
+    /**
+     * The number of criteria in the filter
+     */
+    private static final int CRITERIA = 20;
+
+    /**
+     * The {@link CodecRegistry} to render with
+     */
+    @NotNull private final CodecRegistry codecRegistry = MongoClientSettings.getDefaultCodecRegistry();
+    /**
+     * The criteria, alternating between {@code $eq} and {@code $gte} on distinct fields
+     */
+    @NotNull private final Bson[] criteria = new Bson[CRITERIA];
+
+    @Setup
+    public void setup() {
+        for (int i = 0; i < CRITERIA; i++) criteria[i] = i % 2 == 0 ? Filters.eq("field" + i, "value" + i) : Filters.gte("field" + i, i);
+    }
+
+    @Benchmark
+    public BsonDocument nested() {
+        Bson filter = null;
+        for (final Bson criterion : criteria) filter = filter == null ? criterion : Filters.and(filter, criterion);
+        return filter.toBsonDocument(BsonDocument.class, codecRegistry);
+    }
+
+    @Benchmark
+    public BsonDocument flat() {
+        final FilterBuilder builder = new FilterBuilder();
+        for (final Bson criterion : criteria) builder.and(criterion);
+        return builder.build().toBsonDocument(BsonDocument.class, codecRegistry);
+    }
+}
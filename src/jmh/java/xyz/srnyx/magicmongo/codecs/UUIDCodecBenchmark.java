@@ -0,0 +1,75 @@
+package xyz.srnyx.magicmongo.codecs;
+
+import org.bson.BsonBinaryWriter;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Compares parsing and formatting {@link UUID UUIDs} in {@link UUIDCodec} to the {@link UUID#fromString(String)} and {@link UUID#toString()} it used before
+ * <br>Formatting is measured by encoding a single-field document, since the codec writes straight to the {@link org.bson.BsonWriter}
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class UUIDCodecBenchmark {
+    /**
+     * The {@link EncoderContext} to encode with
+     */
+    @NotNull private static final EncoderContext ENCODER_CONTEXT = EncoderContext.builder().build();
+
+    /**
+     * The {@link UUIDCodec} to benchmark
+     */
+    @NotNull private final UUIDCodec codec = new UUIDCodec();
+    /**
+     * The UUID to format
+     */
+    @NotNull private final UUID uuid = UUID.randomUUID();
+    /**
+     * {@link #uuid} in its canonical form, to parse
+     */
+    @NotNull private final String string = uuid.toString();
+    /**
+     * The buffer to encode into, reused between invocations
+     */
+    @NotNull private final BasicOutputBuffer buffer = new BasicOutputBuffer(64);
+
+    @Benchmark
+    public UUID parseFromString() {
+        return UUID.fromString(string);
+    }
+
+    @Benchmark
+    public UUID parseCodec() {
+        return UUIDCodec.parse(string);
+    }
+
+    @Benchmark
+    public int formatToString() {
+        buffer.truncateToPosition(0);
+        try (final BsonBinaryWriter writer = new BsonBinaryWriter(buffer)) {
+            writer.writeStartDocument();
+            writer.writeString("uuid", uuid.toString());
+            writer.writeEndDocument();
+        }
+        return buffer.getPosition();
+    }
+
+    @Benchmark
+    public int formatCodec() {
+        buffer.truncateToPosition(0);
+        try (final BsonBinaryWriter writer = new BsonBinaryWriter(buffer)) {
+            writer.writeStartDocument();
+            writer.writeName("uuid");
+            codec.encode(writer, uuid, ENCODER_CONTEXT);
+            writer.writeEndDocument();
+        }
+        return buffer.getPosition();
+    }
+}
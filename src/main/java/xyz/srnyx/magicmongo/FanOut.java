@@ -0,0 +1,69 @@
+package xyz.srnyx.magicmongo;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+
+/**
+ * Scatter-gather helpers for running an operation on several collections (or clients) in parallel and gathering the results
+ *
+ * @see xyz.srnyx.magicmongo.bucket.MagicCollectionFamily
+ * @see xyz.srnyx.magicmongo.shard.ShardedMagicMongo
+ */
+public final class FanOut {
+    /**
+     * This class only has static methods
+     */
+    private FanOut() {}
+
+    /**
+     * Runs an operation on several targets in parallel and waits for every result
+     * <br>If an operation fails, its exception is rethrown (unwrapped if it's a {@link RuntimeException})
+     *
+     * @param   executor    the {@link Executor} to run the operation on
+     * @param   targets     the targets
+     * @param   operation   the operation to run
+     *
+     * @return              the results, in the same order as the targets
+     *
+     * @param   <K>         the type of the targets
+     * @param   <R>         the type of the results
+     */
+    @NotNull
+    public static <K, R> List<R> run(@NotNull Executor executor, @NotNull List<K> targets, @NotNull Function<K, R> operation) {
+        final List<CompletableFuture<R>> futures = new ArrayList<>(targets.size());
+        for (final K target : targets) futures.add(CompletableFuture.supplyAsync(() -> operation.apply(target), executor));
+        final List<R> results = new ArrayList<>(futures.size());
+        try {
+            for (final CompletableFuture<R> future : futures) results.add(future.join());
+        } catch (final CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw e;
+        }
+        return results;
+    }
+
+    /**
+     * Concatenates lists, like the results of {@link #run(Executor, List, Function)}
+     *
+     * @param   lists   the lists
+     *
+     * @return          a new list with every element of the lists, in order
+     *
+     * @param   <R>     the type of the elements
+     */
+    @NotNull
+    public static <R> List<R> flatten(@NotNull List<List<R>> lists) {
+        int size = 0;
+        for (final List<R> list : lists) size += list.size();
+        final List<R> result = new ArrayList<>(size);
+        for (final List<R> list : lists) result.addAll(list);
+        return result;
+    }
+}
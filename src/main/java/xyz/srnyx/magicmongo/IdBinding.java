@@ -0,0 +1,352 @@
+package xyz.srnyx.magicmongo;
+
+import org.bson.BsonBinarySubType;
+import org.bson.BsonValue;
+import org.bson.UuidRepresentation;
+import org.bson.codecs.pojo.annotations.BsonId;
+import org.bson.codecs.pojo.annotations.BsonProperty;
+import org.bson.types.ObjectId;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+
+/**
+ * A cached binding to the ID property of a document class
+ * <br>The ID property is resolved once per class (in this order) and then accessed using {@link MethodHandle MethodHandles}:
+ * <ol>
+ *     <li>A field or accessor annotated with {@link BsonId}</li>
+ *     <li>A field or accessor annotated with {@link BsonProperty BsonProperty("_id")}</li>
+ *     <li>A field named {@code _id} or {@code id}</li>
+ * </ol>
+ * Fields don't need to be public, and public getters/setters for the property are preferred over the field itself
+ */
+public final class IdBinding {
+    /**
+     * The {@link IdBinding} for classes without an ID property
+     */
+    @NotNull private static final IdBinding NONE = new IdBinding(null, null, null);
+    /**
+     * The resolved {@link IdBinding IdBindings} for each class
+     */
+    @NotNull private static final ClassValue<IdBinding> BINDINGS = new ClassValue<IdBinding>() {
+        @Override @NotNull
+        protected IdBinding computeValue(@NotNull Class<?> type) {
+            return resolve(type);
+        }
+    };
+    /**
+     * The {@link MethodType} of {@link #getter}
+     */
+    @NotNull private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    /**
+     * The {@link MethodType} of {@link #setter}
+     */
+    @NotNull private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    /**
+     * The type of the ID property, or null if the class has no ID property
+     */
+    @Nullable public final Class<?> type;
+    /**
+     * The getter of the ID property with the type {@code (Object)Object}
+     */
+    @Nullable private final MethodHandle getter;
+    /**
+     * The setter of the ID property with the type {@code (Object,Object)void}
+     */
+    @Nullable private final MethodHandle setter;
+
+    /**
+     * Creates a new {@link IdBinding} instance
+     *
+     * @param   type    {@link #type}
+     * @param   getter  the getter of the ID property, will be adapted to {@link #GETTER_TYPE}
+     * @param   setter  the setter of the ID property, will be adapted to {@link #SETTER_TYPE}
+     */
+    private IdBinding(@Nullable Class<?> type, @Nullable MethodHandle getter, @Nullable MethodHandle setter) {
+        this.type = type;
+        this.getter = getter == null ? null : getter.asType(GETTER_TYPE);
+        this.setter = setter == null ? null : setter.asType(SETTER_TYPE);
+    }
+
+    /**
+     * Gets the {@link IdBinding} for the given class, resolving it if it hasn't been resolved yet
+     *
+     * @param   clazz   the class to get the {@link IdBinding} for
+     *
+     * @return          the {@link IdBinding} for the class
+     */
+    @NotNull
+    public static IdBinding of(@NotNull Class<?> clazz) {
+        return BINDINGS.get(clazz);
+    }
+
+    /**
+     * Whether the ID property can be read
+     *
+     * @return  true if the ID property can be read
+     */
+    public boolean isReadable() {
+        return getter != null;
+    }
+
+    /**
+     * Whether the ID property can be written
+     *
+     * @return  true if the ID property can be written
+     */
+    public boolean isWritable() {
+        return setter != null;
+    }
+
+    /**
+     * Gets the ID of the given document
+     *
+     * @param   document    the document to get the ID of
+     *
+     * @return              the ID of the document, or null if it's not set or the ID property can't be read
+     */
+    @Nullable
+    public Object get(@NotNull Object document) {
+        if (getter == null) return null;
+        try {
+            return (Object) getter.invokeExact(document);
+        } catch (final RuntimeException | Error e) {
+            throw e;
+        } catch (final Throwable e) {
+            throw new IllegalStateException("Failed to get ID of " + document.getClass().getName(), e);
+        }
+    }
+
+    /**
+     * Sets the ID of the given document, converting the {@link BsonValue} to the {@link #type} of the ID property
+     *
+     * @param   document    the document to set the ID of
+     * @param   id          the ID to set
+     *
+     * @return              true if the ID was set, false if the ID property can't be written or the ID can't be converted to its type
+     */
+    public boolean set(@NotNull Object document, @NotNull BsonValue id) {
+        if (setter == null || type == null) return false;
+        final Object value = convert(id, type);
+        if (value == null) return false;
+        try {
+            setter.invokeExact(document, value);
+            return true;
+        } catch (final RuntimeException | Error e) {
+            throw e;
+        } catch (final Throwable e) {
+            throw new IllegalStateException("Failed to set ID of " + document.getClass().getName(), e);
+        }
+    }
+
+    /**
+     * Converts the given {@link BsonValue} to the given type
+     *
+     * @param   value   the {@link BsonValue} to convert
+     * @param   target  the type to convert to
+     *
+     * @return          the converted value, or null if the value can't be converted to the type
+     */
+    @Nullable
+    private static Object convert(@NotNull BsonValue value, @NotNull Class<?> target) {
+        // BsonValue properties take the value as-is (Object properties are converted below)
+        if (BsonValue.class.isAssignableFrom(target)) return target.isInstance(value) ? value : null;
+        if (target == ObjectId.class) return value.isObjectId() ? value.asObjectId().getValue() : null;
+        if (target == String.class) {
+            if (value.isString()) return value.asString().getValue();
+            return value.isObjectId() ? value.asObjectId().getValue().toHexString() : null;
+        }
+        if (target == Integer.class || target == int.class) return value.isInt32() ? value.asInt32().getValue() : null;
+        if (target == Long.class || target == long.class) return value.isInt64() || value.isInt32() ? value.asNumber().longValue() : null;
+        if (target == Double.class || target == double.class) return value.isNumber() ? value.asNumber().doubleValue() : null;
+        if (target == UUID.class) {
+            if (value.isString()) return UUID.fromString(value.asString().getValue());
+            if (!value.isBinary()) return null;
+            final byte subType = value.asBinary().getType();
+            if (subType == BsonBinarySubType.UUID_STANDARD.getValue()) return value.asBinary().asUuid();
+            if (subType == BsonBinarySubType.UUID_LEGACY.getValue()) return value.asBinary().asUuid(UuidRepresentation.JAVA_LEGACY);
+            return null;
+        }
+        if (target == Object.class) {
+            if (value.isObjectId()) return value.asObjectId().getValue();
+            if (value.isString()) return value.asString().getValue();
+            if (value.isInt32()) return value.asInt32().getValue();
+            if (value.isInt64()) return value.asInt64().getValue();
+            return value;
+        }
+        return null;
+    }
+
+    /**
+     * Resolves the {@link IdBinding} for the given class
+     *
+     * @param   type    the class to resolve the {@link IdBinding} for
+     *
+     * @return          the resolved {@link IdBinding}, or {@link #NONE} if the class has no ID property
+     */
+    @NotNull
+    private static IdBinding resolve(@NotNull Class<?> type) {
+        final List<Field> fields = new ArrayList<>();
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            for (final Field field : current.getDeclaredFields()) if (!Modifier.isStatic(field.getModifiers())) fields.add(field);
+        }
+        final Method[] methods = type.getMethods();
+
+        // Get by BsonId annotation
+        for (final Field field : fields) if (field.isAnnotationPresent(BsonId.class)) return forField(type, field);
+        for (final Method method : methods) if (method.isAnnotationPresent(BsonId.class)) {
+            final IdBinding binding = forAccessor(type, method);
+            if (binding != null) return binding;
+        }
+        // Get by BsonProperty annotation
+        for (final Field field : fields) if (isIdProperty(field)) return forField(type, field);
+        for (final Method method : methods) if (isIdProperty(method)) {
+            final IdBinding binding = forAccessor(type, method);
+            if (binding != null) return binding;
+        }
+        // Get by field name
+        for (final Field field : fields) {
+            final String name = field.getName();
+            if (name.equals("_id") || name.equals("id")) return forField(type, field);
+        }
+        return NONE;
+    }
+
+    /**
+     * Checks if the given element is annotated with {@link BsonProperty BsonProperty("_id")}
+     *
+     * @param   element the element to check
+     *
+     * @return          true if the element is annotated with {@link BsonProperty BsonProperty("_id")}
+     */
+    private static boolean isIdProperty(@NotNull AnnotatedElement element) {
+        final BsonProperty annotation = element.getAnnotation(BsonProperty.class);
+        return annotation != null && annotation.value().equals("_id");
+    }
+
+    /**
+     * Creates an {@link IdBinding} for the given field, preferring its public getter/setter if they exist
+     *
+     * @param   type    the class the field belongs to
+     * @param   field   the ID field
+     *
+     * @return          the {@link IdBinding} for the field
+     */
+    @NotNull
+    private static IdBinding forField(@NotNull Class<?> type, @NotNull Field field) {
+        final Class<?> fieldType = field.getType();
+        final String capitalized = capitalize(field.getName());
+        MethodHandle getter = unreflect(findMethod(type, "get" + capitalized, fieldType));
+        MethodHandle setter = unreflect(findMethod(type, "set" + capitalized, null, fieldType));
+        if (getter == null || setter == null) {
+            try {
+                field.setAccessible(true);
+            } catch (final RuntimeException ignored) {
+                // Field can't be made accessible (e.g. inaccessible module), only public accessors can be used
+            }
+            final MethodHandles.Lookup lookup = MethodHandles.lookup();
+            if (getter == null) try {
+                getter = lookup.unreflectGetter(field);
+            } catch (final IllegalAccessException ignored) {
+                // Not readable
+            }
+            if (setter == null && !Modifier.isFinal(field.getModifiers())) try {
+                setter = lookup.unreflectSetter(field);
+            } catch (final IllegalAccessException ignored) {
+                // Not writable
+            }
+        }
+        return new IdBinding(fieldType, getter, setter);
+    }
+
+    /**
+     * Creates an {@link IdBinding} for the given annotated getter or setter, finding its counterpart by name
+     *
+     * @param   type    the class the accessor belongs to
+     * @param   method  the annotated getter or setter
+     *
+     * @return          the {@link IdBinding} for the accessor, or null if the method isn't a getter or setter
+     */
+    @Nullable
+    private static IdBinding forAccessor(@NotNull Class<?> type, @NotNull Method method) {
+        final String name = method.getName();
+        if (Modifier.isStatic(method.getModifiers()) || name.length() <= 3) return null;
+        final String property = name.substring(3);
+
+        // Getter
+        if (name.startsWith("get") && method.getParameterCount() == 0 && method.getReturnType() != void.class) {
+            final Class<?> propertyType = method.getReturnType();
+            return new IdBinding(propertyType, unreflect(method), unreflect(findMethod(type, "set" + property, null, propertyType)));
+        }
+
+        // Setter
+        if (name.startsWith("set") && method.getParameterCount() == 1) {
+            final Class<?> propertyType = method.getParameterTypes()[0];
+            return new IdBinding(propertyType, unreflect(findMethod(type, "get" + property, propertyType)), unreflect(method));
+        }
+
+        return null;
+    }
+
+    /**
+     * Finds a public method with the given name and parameter types
+     *
+     * @param   type            the class to find the method in
+     * @param   name            the name of the method
+     * @param   returnType      the required return type, or null for any
+     * @param   parameterTypes  the parameter types of the method
+     *
+     * @return                  the method, or null if it doesn't exist or doesn't return the required type
+     */
+    @Nullable
+    private static Method findMethod(@NotNull Class<?> type, @NotNull String name, @Nullable Class<?> returnType, @NotNull Class<?>... parameterTypes) {
+        try {
+            final Method method = type.getMethod(name, parameterTypes);
+            if (Modifier.isStatic(method.getModifiers()) || (returnType != null && method.getReturnType() != returnType)) return null;
+            return method;
+        } catch (final NoSuchMethodException | SecurityException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Converts the given method to a {@link MethodHandle}
+     *
+     * @param   method  the method to convert
+     *
+     * @return          the {@link MethodHandle}, or null if the method is null or not accessible
+     */
+    @Nullable
+    private static MethodHandle unreflect(@Nullable Method method) {
+        if (method == null) return null;
+        try {
+            return MethodHandles.lookup().unreflect(method);
+        } catch (final IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Capitalizes the first character of the given string
+     *
+     * @param   string  the string to capitalize
+     *
+     * @return          the capitalized string
+     */
+    @NotNull
+    private static String capitalize(@NotNull String string) {
+        return Character.toUpperCase(string.charAt(0)) + string.substring(1);
+    }
+}
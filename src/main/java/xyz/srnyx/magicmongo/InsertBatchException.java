@@ -0,0 +1,44 @@
+package xyz.srnyx.magicmongo;
+
+import com.mongodb.MongoException;
+import org.bson.BsonValue;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * Thrown by {@link MagicCollection#insertManyReturnIds(List, InsertBatchOptions)} when a batch fails, carrying the IDs of the documents that were inserted anyway
+ * <br>It has the {@link #getCode() code} and {@link #getErrorLabels() error labels} of its {@link #getCause() cause}, which is the exception of the first failed batch
+ */
+public class InsertBatchException extends MongoException {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The IDs of the inserted documents, in the same order as the documents (null for documents that weren't inserted, unmodifiable)
+     */
+    @NotNull private final transient List<BsonValue> insertedIds;
+
+    /**
+     * Creates a new {@link InsertBatchException} instance
+     *
+     * @param   cause       the exception of the first failed batch
+     * @param   insertedIds {@link #insertedIds}
+     */
+    InsertBatchException(@NotNull MongoException cause, @NotNull List<BsonValue> insertedIds) {
+        super(cause.getCode(), "Failed to insert a batch: " + cause.getMessage(), cause);
+        for (final String label : cause.getErrorLabels()) addLabel(label);
+        this.insertedIds = Collections.unmodifiableList(insertedIds);
+    }
+
+    /**
+     * Gets the IDs of the inserted documents, so the documents that weren't inserted can be retried
+     *
+     * @return  the IDs of the inserted documents, in the same order as the documents (null for documents that weren't inserted)
+     */
+    @NotNull
+    public List<BsonValue> getInsertedIds() {
+        return insertedIds;
+    }
+}
@@ -0,0 +1,112 @@
+package xyz.srnyx.magicmongo;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+
+/**
+ * Options for {@link MagicCollection#insertManyReturnIds(List, InsertBatchOptions)}, which splits the documents into several {@code insertMany} calls
+ */
+public class InsertBatchOptions {
+    /**
+     * The maximum number of documents in a single batch
+     */
+    private int batchSize = 1000;
+    /**
+     * The maximum encoded size (in bytes) of a single batch, or 0 for no limit
+     */
+    private int maxBatchBytes = 0;
+    /**
+     * Whether the documents should be inserted in order
+     */
+    private boolean ordered = true;
+
+    /**
+     * Creates a new {@link InsertBatchOptions} instance with the default options
+     */
+    public InsertBatchOptions() {}
+
+    /**
+     * Gets the maximum number of documents in a single batch
+     * <br>Defaults to 1000
+     *
+     * @return  the maximum number of documents in a single batch
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Sets the maximum number of documents in a single batch
+     *
+     * @param   batchSize                   the maximum number of documents in a single batch
+     *
+     * @return                              this {@link InsertBatchOptions} instance
+     *
+     * @throws  IllegalArgumentException    if the batch size isn't positive
+     */
+    @NotNull
+    public InsertBatchOptions batchSize(int batchSize) {
+        if (batchSize <= 0) throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * Gets the maximum encoded size (in bytes) of a single batch
+     * <br>Defaults to 0 (no limit other than the driver's own)
+     *
+     * @return  the maximum encoded size of a single batch, or 0 for no limit
+     */
+    public int getMaxBatchBytes() {
+        return maxBatchBytes;
+    }
+
+    /**
+     * Sets the maximum encoded size (in bytes) of a single batch
+     * <br>A document larger than the limit is still sent, in a batch of its own
+     * <br><i>Documents are encoded an extra time to measure them, so only set this if needed</i>
+     *
+     * @param   maxBatchBytes               the maximum encoded size of a single batch, or 0 for no limit
+     *
+     * @return                              this {@link InsertBatchOptions} instance
+     *
+     * @throws  IllegalArgumentException    if the size is negative
+     */
+    @NotNull
+    public InsertBatchOptions maxBatchBytes(int maxBatchBytes) {
+        if (maxBatchBytes < 0) throw new IllegalArgumentException("Max batch bytes can't be negative: " + maxBatchBytes);
+        this.maxBatchBytes = maxBatchBytes;
+        return this;
+    }
+
+    /**
+     * Whether the documents should be inserted in order
+     * <br>Defaults to true
+     *
+     * @return  true if the documents should be inserted in order
+     */
+    public boolean isOrdered() {
+        return ordered;
+    }
+
+    /**
+     * Sets whether the documents should be inserted in order
+     * <br>If ordered, inserting stops at the first failed batch. If unordered, the remaining batches are still inserted and the first failure is thrown afterward
+     *
+     * @param   ordered whether the documents should be inserted in order
+     *
+     * @return          this {@link InsertBatchOptions} instance
+     */
+    @NotNull
+    public InsertBatchOptions ordered(boolean ordered) {
+        this.ordered = ordered;
+        return this;
+    }
+
+    @Override @NotNull
+    public String toString() {
+        return "InsertBatchOptions{batchSize=" + batchSize + ", maxBatchBytes=" + maxBatchBytes + ", ordered=" + ordered + "}";
+    }
+}
@@ -0,0 +1,285 @@
+package xyz.srnyx.magicmongo;
+
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.model.WriteModel;
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.InsertOneResult;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+
+/**
+ * A {@link CompletableFuture}-based facade for a {@link MagicCollection}
+ * <br>The blocking operations of the {@link #collection} are run on the {@link #executor}, so several of them can be started in parallel without blocking the calling thread
+ *
+ * @param   <T> the type of the collection
+ *
+ * @see     #newDefaultExecutor(int)
+ */
+public class MagicAsyncCollection<T> {
+    /**
+     * The {@link MagicCollection} to run operations on
+     */
+    @NotNull public final MagicCollection<T> collection;
+    /**
+     * The {@link Executor} to run operations on
+     */
+    @NotNull public final Executor executor;
+
+    /**
+     * Creates a new {@link MagicAsyncCollection} instance
+     *
+     * @param   collection  {@link #collection}
+     * @param   executor    {@link #executor}
+     *
+     * @see                 #newDefaultExecutor(int)
+     * @see                 MagicMongo#newAsyncExecutor()
+     */
+    public MagicAsyncCollection(@NotNull MagicCollection<T> collection, @NotNull Executor executor) {
+        this.collection = collection;
+        this.executor = executor;
+    }
+
+    /**
+     * Creates the default {@link ExecutorService} for {@link MagicAsyncCollection MagicAsyncCollections}
+     * <ul>
+     *     <li>Java 21+: a new virtual thread per operation (the connection pool still limits how many run at once)</li>
+     *     <li>Older versions: a pool of up to {@code maxThreads} daemon threads, which should match the maximum size of the connection pool</li>
+     * </ul>
+     *
+     * @param   maxThreads  the maximum number of threads if virtual threads aren't available
+     *
+     * @return              the new {@link ExecutorService}
+     */
+    @NotNull
+    public static ExecutorService newDefaultExecutor(int maxThreads) {
+        // Virtual threads (Java 21+)
+        try {
+            final Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (final ReflectiveOperationException | RuntimeException ignored) {
+            // Not available
+        }
+
+        // Bounded pool
+        final AtomicInteger count = new AtomicInteger();
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(maxThreads, maxThreads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            final Thread thread = new Thread(runnable, "MagicMongo-Async-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Runs any operation on the {@link #collection} using the {@link #executor}
+     *
+     * @param   operation   the operation to run
+     *
+     * @return              a {@link CompletableFuture} completed with the result of the operation
+     *
+     * @param   <R>         the type of the result
+     */
+    @NotNull
+    public <R> CompletableFuture<R> supplyAsync(@NotNull Function<MagicCollection<T>, R> operation) {
+        return CompletableFuture.supplyAsync(() -> operation.apply(collection), executor);
+    }
+
+    /**
+     * {@link MagicCollection#findOne(Bson)} asynchronously
+     *
+     * @param   filter  the filter to apply
+     *
+     * @return          a {@link CompletableFuture} completed with the document found, or empty if none was found
+     */
+    @NotNull
+    public CompletableFuture<Optional<T>> findOneAsync(@NotNull Bson filter) {
+        return supplyAsync(c -> c.findOne(filter));
+    }
+
+    /**
+     * {@link MagicCollection#findOne(String, Object)} asynchronously
+     *
+     * @param   field   the field to filter by
+     * @param   value   the value of the field to filter by
+     *
+     * @return          a {@link CompletableFuture} completed with the document found, or empty if none was found
+     */
+    @NotNull
+    public CompletableFuture<Optional<T>> findOneAsync(@NotNull String field, @Nullable Object value) {
+        return supplyAsync(c -> c.findOne(field, value));
+    }
+
+    /**
+     * {@link MagicCollection#findMany(Bson)} asynchronously
+     *
+     * @param   filter  the filter to apply
+     *
+     * @return          a {@link CompletableFuture} completed with the documents found
+     */
+    @NotNull
+    public CompletableFuture<List<T>> findManyAsync(@NotNull Bson filter) {
+        return supplyAsync(c -> c.findMany(filter));
+    }
+
+    /**
+     * {@link MagicCollection#countDocuments(Bson)} asynchronously
+     *
+     * @param   filter  the filter to apply
+     *
+     * @return          a {@link CompletableFuture} completed with the number of matching documents
+     */
+    @NotNull
+    public CompletableFuture<Long> countDocumentsAsync(@NotNull Bson filter) {
+        return supplyAsync(c -> c.countDocuments(filter));
+    }
+
+    /**
+     * {@link MagicCollection#insertOne(Object)} asynchronously
+     *
+     * @param   t   the document to insert
+     *
+     * @return      a {@link CompletableFuture} completed with the {@link InsertOneResult}
+     */
+    @NotNull
+    public CompletableFuture<InsertOneResult> insertOneAsync(@NotNull T t) {
+        return supplyAsync(c -> c.insertOne(t));
+    }
+
+    /**
+     * {@link MagicCollection#insertOneReturnObjectId(Object)} asynchronously
+     *
+     * @param   t   the document to insert
+     *
+     * @return      a {@link CompletableFuture} completed with the ID of the inserted document
+     */
+    @NotNull
+    public CompletableFuture<ObjectId> insertOneReturnObjectIdAsync(@NotNull T t) {
+        return supplyAsync(c -> c.insertOneReturnObjectId(t));
+    }
+
+    /**
+     * {@link MagicCollection#updateOne(Bson, Bson)} asynchronously
+     *
+     * @param   filter  the filter to apply
+     * @param   update  the update to apply
+     *
+     * @return          a {@link CompletableFuture} completed with the {@link UpdateResult}
+     */
+    @NotNull
+    public CompletableFuture<UpdateResult> updateOneAsync(@NotNull Bson filter, @NotNull Bson update) {
+        return supplyAsync(c -> c.updateOne(filter, update));
+    }
+
+    /**
+     * {@link MagicCollection#updateMany(Bson, Bson)} asynchronously
+     *
+     * @param   filter  the filter to apply
+     * @param   update  the update to apply
+     *
+     * @return          a {@link CompletableFuture} completed with the {@link UpdateResult}
+     */
+    @NotNull
+    public CompletableFuture<UpdateResult> updateManyAsync(@NotNull Bson filter, @NotNull Bson update) {
+        return supplyAsync(c -> c.updateMany(filter, update));
+    }
+
+    /**
+     * {@link MagicCollection#upsertOne(Bson, Bson)} asynchronously
+     *
+     * @param   filter  the filter to apply
+     * @param   update  the update to apply
+     *
+     * @return          a {@link CompletableFuture} completed with the {@link UpdateResult}
+     */
+    @NotNull
+    public CompletableFuture<UpdateResult> upsertOneAsync(@NotNull Bson filter, @NotNull Bson update) {
+        return supplyAsync(c -> c.upsertOne(filter, update));
+    }
+
+    /**
+     * {@link MagicCollection#findOneAndUpdateReturn(Bson, Bson)} asynchronously
+     *
+     * @param   filter  the filter to apply
+     * @param   update  the update to apply
+     *
+     * @return          a {@link CompletableFuture} completed with the updated document
+     */
+    @NotNull
+    public CompletableFuture<Optional<T>> findOneAndUpdateReturnAsync(@NotNull Bson filter, @NotNull Bson update) {
+        return supplyAsync(c -> c.findOneAndUpdateReturn(filter, update));
+    }
+
+    /**
+     * {@link MagicCollection#findOneAndUpsert(Bson, Bson)} asynchronously
+     *
+     * @param   filter  the filter to apply
+     * @param   update  the update to apply
+     *
+     * @return          a {@link CompletableFuture} completed with the updated or inserted document
+     */
+    @NotNull
+    public CompletableFuture<T> findOneAndUpsertAsync(@NotNull Bson filter, @NotNull Bson update) {
+        return supplyAsync(c -> c.findOneAndUpsert(filter, update));
+    }
+
+    /**
+     * {@link MagicCollection#deleteOne(Bson)} asynchronously
+     *
+     * @param   filter  the filter to apply
+     *
+     * @return          a {@link CompletableFuture} completed with the {@link DeleteResult}
+     */
+    @NotNull
+    public CompletableFuture<DeleteResult> deleteOneAsync(@NotNull Bson filter) {
+        return supplyAsync(c -> c.deleteOne(filter));
+    }
+
+    /**
+     * {@link MagicCollection#deleteOne(String, Object)} asynchronously
+     *
+     * @param   field   the field to filter by
+     * @param   value   the value of the field to filter by
+     *
+     * @return          a {@link CompletableFuture} completed with the {@link DeleteResult}
+     */
+    @NotNull
+    public CompletableFuture<DeleteResult> deleteOneAsync(@NotNull String field, @Nullable Object value) {
+        return supplyAsync(c -> c.deleteOne(field, value));
+    }
+
+    /**
+     * {@link MagicCollection#deleteMany(Bson)} asynchronously
+     *
+     * @param   filter  the filter to apply
+     *
+     * @return          a {@link CompletableFuture} completed with the {@link DeleteResult}
+     */
+    @NotNull
+    public CompletableFuture<DeleteResult> deleteManyAsync(@NotNull Bson filter) {
+        return supplyAsync(c -> c.deleteMany(filter));
+    }
+
+    /**
+     * {@link MagicCollection#bulkWrite(List)} asynchronously
+     *
+     * @param   requests    the writes to execute
+     *
+     * @return              a {@link CompletableFuture} completed with the {@link BulkWriteResult}
+     */
+    @NotNull
+    public CompletableFuture<BulkWriteResult> bulkWriteAsync(@NotNull List<? extends WriteModel<? extends T>> requests) {
+        return supplyAsync(c -> c.bulkWrite(requests));
+    }
+}
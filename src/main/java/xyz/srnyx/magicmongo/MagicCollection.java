@@ -1,9 +1,12 @@
 package xyz.srnyx.magicmongo;
 
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoException;
 import com.mongodb.MongoNamespace;
 import com.mongodb.ReadConcern;
 import com.mongodb.ReadPreference;
 import com.mongodb.WriteConcern;
+import com.mongodb.bulk.BulkWriteInsert;
 import com.mongodb.bulk.BulkWriteResult;
 import com.mongodb.client.*;
 import com.mongodb.client.model.*;
@@ -11,21 +14,38 @@ import com.mongodb.client.result.DeleteResult;
 import com.mongodb.client.result.InsertManyResult;
 import com.mongodb.client.result.InsertOneResult;
 import com.mongodb.client.result.UpdateResult;
+import org.bson.BsonBinaryWriter;
+import org.bson.BsonValue;
 import org.bson.Document;
+import org.bson.codecs.Codec;
+import org.bson.codecs.EncoderContext;
 import org.bson.codecs.configuration.CodecRegistry;
-import org.bson.codecs.pojo.annotations.BsonId;
-import org.bson.codecs.pojo.annotations.BsonProperty;
 import org.bson.conversions.Bson;
+import org.bson.io.BasicOutputBuffer;
 import org.bson.types.ObjectId;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import xyz.srnyx.magicmongo.metrics.MagicMetrics;
+import xyz.srnyx.magicmongo.profiler.QueryProfiler;
+import xyz.srnyx.magicmongo.scan.ParallelScan;
+import xyz.srnyx.magicmongo.scan.ParallelScanOptions;
+import xyz.srnyx.magicmongo.scan.ScanCheckpoint;
 
-import java.lang.reflect.Field;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 
 /**
@@ -34,10 +54,26 @@ import java.util.concurrent.TimeUnit;
  * @param   <T> the type of the collection
  */
 public class MagicCollection<T> implements MongoCollection<T> {
+    /**
+     * The {@link EncoderContext} to measure documents with, like the driver encodes them
+     */
+    @NotNull private static final EncoderContext COLLECTIBLE_ENCODER_CONTEXT = EncoderContext.builder().isEncodingCollectibleDocument(true).build();
+    /**
+     * The {@link MongoDatabase} of the collection
+     */
+    @NotNull public final MongoDatabase database;
     /**
      * The {@link MongoCollection} instance
      */
     @NotNull public final MongoCollection<T> collection;
+    /**
+     * The {@link MagicMetrics} to report operations to, or null to not report them
+     */
+    @Nullable private volatile MagicMetrics metrics;
+    /**
+     * The {@link QueryProfiler} to profile filters with, or null to not profile them
+     */
+    @Nullable private volatile QueryProfiler profiler;
 
     /**
      * Constructs a new {@link MagicCollection} instance
@@ -47,6 +83,7 @@ public class MagicCollection<T> implements MongoCollection<T> {
      * @param   clazz       the class of the collection
      */
     public MagicCollection(@NotNull MongoDatabase database, @NotNull String name, @NotNull Class<T> clazz) {
+        this.database = database;
         collection = database.getCollection(name, clazz);
     }
 
@@ -59,7 +96,7 @@ public class MagicCollection<T> implements MongoCollection<T> {
      */
     @NotNull
     public Optional<T> findOne(@NotNull Bson filter) {
-        return Optional.ofNullable(find(filter).first());
+        return record("findOne", filter, () -> Optional.ofNullable(find(filter).first()), document -> document.isPresent() ? 1 : 0);
     }
 
     /**
@@ -77,6 +114,7 @@ public class MagicCollection<T> implements MongoCollection<T> {
 
     /**
      * Finds multiple documents in the collection
+     * <br>All documents are loaded into memory at once, use {@link #streamMany(Bson)} or {@link #forEachBatch(Bson, int, Consumer)} for large results
      *
      * @param   filter  the filter to apply
      *
@@ -84,7 +122,109 @@ public class MagicCollection<T> implements MongoCollection<T> {
      */
     @NotNull
     public List<T> findMany(@NotNull Bson filter) {
-        return find(filter).into(new ArrayList<>());
+        return record("findMany", filter, () -> find(filter).into(new ArrayList<>()), List::size);
+    }
+
+    /**
+     * Streams the documents in the collection that match a filter, fetching them from the server in batches instead of loading all of them at once
+     * <br><b>The returned {@link Stream} must be closed</b> (e.g. using try-with-resources) to close the underlying {@link MongoCursor} if it isn't fully consumed
+     *
+     * @param   filter  the filter to apply
+     *
+     * @return          a {@link Stream} of the documents found
+     *
+     * @see             #streamMany(Bson, int, Bson)
+     */
+    @NotNull
+    public Stream<T> streamMany(@NotNull Bson filter) {
+        return streamMany(filter, 0, null);
+    }
+
+    /**
+     * Streams the documents in the collection that match a filter, fetching them from the server in batches instead of loading all of them at once
+     * <br><b>The returned {@link Stream} must be closed</b> (e.g. using try-with-resources) to close the underlying {@link MongoCursor} if it isn't fully consumed
+     *
+     * @param   filter      the filter to apply
+     * @param   batchSize   the number of documents to fetch per batch, or 0 to use the server's default
+     * @param   projection  the projection to apply, or null to return whole documents
+     *
+     * @return              a {@link Stream} of the documents found
+     */
+    @NotNull
+    public Stream<T> streamMany(@NotNull Bson filter, int batchSize, @Nullable Bson projection) {
+        final MongoCursor<T> cursor = findBatched(filter, batchSize, projection).iterator();
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(cursor, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(cursor::close);
+    }
+
+    /**
+     * Passes the documents in the collection that match a filter to a consumer in batches, so only one batch is held in memory at a time
+     *
+     * @param   filter      the filter to apply
+     * @param   batchSize   the maximum number of documents per batch (also used as the cursor's batch size)
+     * @param   consumer    the consumer of each batch, which must not keep a reference to the list
+     *
+     * @see                 #forEachBatch(Bson, int, Bson, Consumer)
+     */
+    public void forEachBatch(@NotNull Bson filter, int batchSize, @NotNull Consumer<List<T>> consumer) {
+        forEachBatch(filter, batchSize, null, consumer);
+    }
+
+    /**
+     * Passes the documents in the collection that match a filter to a consumer in batches, so only one batch is held in memory at a time
+     *
+     * @param   filter                      the filter to apply
+     * @param   batchSize                   the maximum number of documents per batch (also used as the cursor's batch size)
+     * @param   projection                  the projection to apply, or null to return whole documents
+     * @param   consumer                    the consumer of each batch, which must not keep a reference to the list
+     *
+     * @throws  IllegalArgumentException    if {@code batchSize} is less than 1
+     */
+    public void forEachBatch(@NotNull Bson filter, int batchSize, @Nullable Bson projection, @NotNull Consumer<List<T>> consumer) {
+        if (batchSize < 1) throw new IllegalArgumentException("batchSize must be at least 1");
+        final List<T> batch = new ArrayList<>(batchSize);
+        try (final MongoCursor<T> cursor = findBatched(filter, batchSize, projection).iterator()) {
+            while (cursor.hasNext()) {
+                batch.add(cursor.next());
+                if (batch.size() < batchSize) continue;
+                consumer.accept(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) consumer.accept(batch);
+    }
+
+    /**
+     * Scans the documents in the collection that match a filter with several cursors at once, splitting the {@code _id} range into partitions
+     *
+     * @param   filter      the filter to apply
+     * @param   parallelism the number of partitions to scan at once
+     * @param   consumer    the consumer of each document, which is called concurrently
+     *
+     * @return              the finished {@link ScanCheckpoint}
+     *
+     * @see                 #parallelScan(Bson, int, ParallelScanOptions, Consumer)
+     */
+    @NotNull
+    public ScanCheckpoint parallelScan(@NotNull Bson filter, int parallelism, @NotNull Consumer<? super T> consumer) {
+        return parallelScan(filter, parallelism, new ParallelScanOptions(), consumer);
+    }
+
+    /**
+     * Scans the documents in the collection that match a filter with several cursors at once, splitting the range of a field into partitions
+     *
+     * @param   filter      the filter to apply
+     * @param   parallelism the number of partitions to scan at once
+     * @param   options     the {@link ParallelScanOptions}, which can also be used to report progress and resume from a {@link ScanCheckpoint}
+     * @param   consumer    the consumer of each document, which is called concurrently
+     *
+     * @return              the finished {@link ScanCheckpoint}
+     *
+     * @see                 ParallelScan
+     */
+    @NotNull
+    public ScanCheckpoint parallelScan(@NotNull Bson filter, int parallelism, @NotNull ParallelScanOptions options, @NotNull Consumer<? super T> consumer) {
+        return ParallelScan.run(this, filter, parallelism, options, consumer);
     }
 
     /**
@@ -94,42 +234,168 @@ public class MagicCollection<T> implements MongoCollection<T> {
      * @param   t   the document to insert
      *
      * @return      the ID of the inserted document
+     *
+     * @see         #insertOneReturnId(Object)
      */
     @NotNull
     public ObjectId insertOneReturnObjectId(@NotNull T t) {
-        final ObjectId id = Objects.requireNonNull(insertOne(t).getInsertedId()).asObjectId().getValue();
-        // Use reflection to set ID of document object
-        final Field[] fields = t.getClass().getFields();
-        try {
-            // Get by BsonId annotation
-            for (final Field field : fields) {
-                if (field.isAnnotationPresent(BsonId.class) && field.getType().equals(ObjectId.class)) {
-                    field.set(t, id);
-                    return id;
-                }
-            }
-            // Get by BsonProperty annotation
-            for (final Field field : fields) {
-                if (!field.getType().equals(ObjectId.class)) continue;
-                final BsonProperty annotation = field.getAnnotation(BsonProperty.class);
-                if (annotation != null && annotation.value().equals("_id")) {
-                    field.set(t, id);
-                    return id;
+        return Objects.requireNonNull(insertOneReturnId(t)).asObjectId().getValue();
+    }
+
+    /**
+     * Inserts a document in the collection and returns the inserted document's ID, which doesn't have to be an {@link ObjectId}
+     * <br>If the document has an ID property, it will be set to the inserted ID using its {@link IdBinding}
+     *
+     * @param   t   the document to insert
+     *
+     * @return      the ID of the inserted document, or null if the server didn't report one
+     */
+    @Nullable
+    public BsonValue insertOneReturnId(@NotNull T t) {
+        return record("insertOne", null, () -> {
+            final BsonValue id = collection.insertOne(t).getInsertedId();
+            if (id != null) IdBinding.of(t.getClass()).set(t, id);
+            return id;
+        }, id -> 1);
+    }
+
+    /**
+     * Inserts many documents in the collection using {@link InsertBatchOptions default batching} and returns their IDs
+     *
+     * @param   documents   the documents to insert
+     *
+     * @return              the IDs of the inserted documents, in the same order as the documents
+     *
+     * @see                 #insertManyReturnIds(List, InsertBatchOptions)
+     */
+    @NotNull
+    public List<ObjectId> insertManyReturnObjectIds(@NotNull List<? extends T> documents) {
+        return insertManyReturnObjectIds(documents, new InsertBatchOptions());
+    }
+
+    /**
+     * Inserts many documents in the collection and returns their IDs
+     * <br>The documents' ID properties will be set to the inserted IDs
+     *
+     * @param   documents               the documents to insert
+     * @param   options                 the {@link InsertBatchOptions} to use
+     *
+     * @return                          the IDs of the inserted documents, in the same order as the documents
+     *
+     * @throws  InsertBatchException    if a batch fails, with the IDs of the documents that were inserted
+     *
+     * @see                             #insertManyReturnIds(List, InsertBatchOptions)
+     */
+    @NotNull
+    public List<ObjectId> insertManyReturnObjectIds(@NotNull List<? extends T> documents, @NotNull InsertBatchOptions options) {
+        final List<BsonValue> ids = insertManyReturnIds(documents, options);
+        final List<ObjectId> objectIds = new ArrayList<>(ids.size());
+        for (final BsonValue id : ids) objectIds.add(id == null ? null : id.asObjectId().getValue());
+        return objectIds;
+    }
+
+    /**
+     * Inserts many documents in the collection, split into batches of {@link InsertBatchOptions#getBatchSize()} documents and/or {@link InsertBatchOptions#getMaxBatchBytes()} bytes, and returns their IDs
+     * <br>Each batch is a single {@code insertMany} call, and the documents' ID properties will be set to the inserted IDs using their {@link IdBinding}
+     *
+     * @param   documents               the documents to insert
+     * @param   options                 the {@link InsertBatchOptions} to use
+     *
+     * @return                          the IDs of the inserted documents, in the same order as the documents
+     *
+     * @throws  InsertBatchException    if a batch fails (after the remaining batches have been inserted if {@link InsertBatchOptions#isOrdered() unordered}), with the IDs of the documents that were inserted
+     */
+    @NotNull
+    public List<BsonValue> insertManyReturnIds(@NotNull List<? extends T> documents, @NotNull InsertBatchOptions options) {
+        return record("insertMany", null, () -> insertBatches(documents, options), ids -> {
+            long inserted = 0;
+            for (final BsonValue id : ids) if (id != null) inserted++;
+            return inserted;
+        });
+    }
+
+    /**
+     * Inserts many documents in the collection in batches, see {@link #insertManyReturnIds(List, InsertBatchOptions)}
+     *
+     * @param   documents               the documents to insert
+     * @param   options                 the {@link InsertBatchOptions} to use
+     *
+     * @return                          the IDs of the inserted documents, in the same order as the documents
+     *
+     * @throws  InsertBatchException    if a batch fails
+     */
+    @NotNull
+    private List<BsonValue> insertBatches(@NotNull List<? extends T> documents, @NotNull InsertBatchOptions options) {
+        final int size = documents.size();
+        final List<BsonValue> ids = new ArrayList<>(Collections.nCopies(size, null));
+        final InsertManyOptions insertOptions = new InsertManyOptions().ordered(options.isOrdered());
+        final int maxBytes = options.getMaxBatchBytes();
+        final Codec<T> codec = maxBytes > 0 ? getCodecRegistry().get(getDocumentClass()) : null;
+        // Reused to measure every document
+        final BasicOutputBuffer buffer = codec != null ? new BasicOutputBuffer() : null;
+        final BsonBinaryWriter writer = buffer != null ? new BsonBinaryWriter(buffer) : null;
+
+        MongoException failure = null;
+        int start = 0;
+        while (start < size) {
+            // Find the end of the batch
+            int end = start;
+            long bytes = 0;
+            while (end < size && end - start < options.getBatchSize()) {
+                if (codec != null) {
+                    bytes += getEncodedSize(codec, writer, buffer, documents.get(end));
+                    if (bytes > maxBytes && end > start) break;
                 }
+                end++;
             }
-            // Get by field name
-            for (final Field field : fields) {
-                if (!field.getType().equals(ObjectId.class)) continue;
-                final String name = field.getName();
-                if (name.equals("_id") || name.equals("id")) {
-                    field.set(t, id);
-                    return id;
-                }
+
+            // Insert batch and set IDs
+            try {
+                final InsertManyResult result = insertMany(documents.subList(start, end), insertOptions);
+                for (final Map.Entry<Integer, BsonValue> entry : result.getInsertedIds().entrySet()) setInsertedId(documents, ids, start + entry.getKey(), entry.getValue());
+            } catch (final MongoBulkWriteException e) {
+                for (final BulkWriteInsert insert : e.getWriteResult().getInserts()) setInsertedId(documents, ids, start + insert.getIndex(), insert.getId());
+                if (failure == null) failure = e;
+            } catch (final MongoException e) {
+                if (failure == null) failure = e;
             }
-        } catch (final IllegalAccessException e) {
-            e.printStackTrace();
+            if (failure != null && options.isOrdered()) break;
+            start = end;
         }
-        return id;
+
+        if (writer != null) writer.close();
+        if (failure != null) throw new InsertBatchException(failure, ids);
+        return ids;
+    }
+
+    /**
+     * Records the ID of an inserted document and sets it on the document using its {@link IdBinding}
+     *
+     * @param   documents   the documents that were inserted
+     * @param   ids         the list of IDs to record the ID in
+     * @param   index       the index of the document
+     * @param   id          the ID of the document
+     */
+    private static void setInsertedId(@NotNull List<?> documents, @NotNull List<BsonValue> ids, int index, @NotNull BsonValue id) {
+        ids.set(index, id);
+        final Object document = documents.get(index);
+        IdBinding.of(document.getClass()).set(document, id);
+    }
+
+    /**
+     * Gets the encoded size of a document in bytes
+     *
+     * @param   codec       the {@link Codec} to encode the document with
+     * @param   writer      the {@link BsonBinaryWriter} to encode the document with, writing to the buffer
+     * @param   buffer      the buffer to encode the document into, which is cleared first
+     * @param   document    the document to measure
+     *
+     * @return              the encoded size of the document
+     */
+    private static <D> int getEncodedSize(@NotNull Codec<D> codec, @NotNull BsonBinaryWriter writer, @NotNull BasicOutputBuffer buffer, @NotNull D document) {
+        buffer.truncateToPosition(0);
+        codec.encode(writer, document, COLLECTIBLE_ENCODER_CONTEXT);
+        return buffer.getPosition();
     }
 
     /**
@@ -142,7 +408,7 @@ public class MagicCollection<T> implements MongoCollection<T> {
      */
     @NotNull
     public UpdateResult upsertOne(@NotNull Bson filter, @NotNull Bson update) {
-        return updateOne(filter, update, new UpdateOptions().upsert(true));
+        return record("upsertOne", filter, update, () -> updateOne(filter, update, new UpdateOptions().upsert(true)), result -> result.getModifiedCount() + (result.getUpsertedId() != null ? 1 : 0));
     }
 
     /**
@@ -155,8 +421,8 @@ public class MagicCollection<T> implements MongoCollection<T> {
      */
     @NotNull
     public Optional<T> findOneAndUpdateReturn(@NotNull Bson filter, @NotNull Bson update) {
-        return Optional.ofNullable(findOneAndUpdate(filter, update, new FindOneAndUpdateOptions()
-                .returnDocument(ReturnDocument.AFTER)));
+        return record("findOneAndUpdate", filter, update, () -> Optional.ofNullable(findOneAndUpdate(filter, update, new FindOneAndUpdateOptions()
+                .returnDocument(ReturnDocument.AFTER))), document -> document.isPresent() ? 1 : 0);
     }
 
     /**
@@ -169,9 +435,9 @@ public class MagicCollection<T> implements MongoCollection<T> {
      */
     @NotNull
     public T findOneAndUpsert(@NotNull Bson filter, @NotNull Bson update) {
-        return Objects.requireNonNull(findOneAndUpdate(filter, update, new FindOneAndUpdateOptions()
+        return record("findOneAndUpsert", filter, update, () -> Objects.requireNonNull(findOneAndUpdate(filter, update, new FindOneAndUpdateOptions()
                 .returnDocument(ReturnDocument.AFTER)
-                .upsert(true)));
+                .upsert(true))), document -> 1);
     }
 
     /**
@@ -187,10 +453,158 @@ public class MagicCollection<T> implements MongoCollection<T> {
         return deleteOne(Filters.eq(field, value));
     }
 
+    /**
+     * Creates a {@link MagicAsyncCollection} for this collection
+     *
+     * @param   executor    the {@link Executor} to run operations on
+     *
+     * @return              the new {@link MagicAsyncCollection}
+     *
+     * @see                 MagicMongo#newAsyncExecutor()
+     */
+    @NotNull
+    public MagicAsyncCollection<T> async(@NotNull Executor executor) {
+        return new MagicAsyncCollection<>(this, executor);
+    }
+
+    /**
+     * Gets the {@link MagicMetrics} that operations are reported to
+     *
+     * @return  the {@link MagicMetrics}, or null if operations aren't reported
+     */
+    @Nullable
+    public MagicMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Sets the {@link MagicMetrics} to report the operations of this collection to ({@code findOne}, {@code findMany}, {@code countDocuments}, {@code insertOne}, {@code insertMany}, {@code updateOne}, {@code updateMany}, {@code upsertOne}, {@code findOneAndUpdate}, {@code findOneAndUpsert}, {@code deleteOne}, {@code deleteMany}, and {@code bulkWrite})
+     * <br>Only this class's own methods and the basic overloads (without options or sessions) of those {@link MongoCollection} methods are reported. Use a {@link xyz.srnyx.magicmongo.metrics.MetricsCommandListener MetricsCommandListener} to see every command
+     *
+     * @param   metrics the {@link MagicMetrics}, or null to stop reporting operations
+     */
+    public void setMetrics(@Nullable MagicMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Gets the {@link QueryProfiler} that filters are profiled with
+     *
+     * @return  the {@link QueryProfiler}, or null if filters aren't profiled
+     */
+    @Nullable
+    public QueryProfiler getProfiler() {
+        return profiler;
+    }
+
+    /**
+     * Sets the {@link QueryProfiler} to profile the filters of this collection's operations with (the same operations as {@link #setMetrics(MagicMetrics)}, except the ones without a filter)
+     *
+     * @param   profiler    the {@link QueryProfiler}, or null to stop profiling
+     */
+    public void setProfiler(@Nullable QueryProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    /**
+     * Runs an operation, reporting it to {@link #metrics} and {@link #profiler} if set
+     *
+     * @param   operation   the name of the operation
+     * @param   filter      the filter of the operation, or null if it doesn't have one
+     * @param   action      the operation
+     * @param   documents   gets the number of documents returned/written from the result
+     *
+     * @return              the result of the operation
+     *
+     * @param   <R>         the type of the result
+     */
+    private <R> R record(@NotNull String operation, @Nullable Bson filter, @NotNull Supplier<R> action, @NotNull ToLongFunction<R> documents) {
+        return record(operation, filter, null, action, documents);
+    }
+
+    /**
+     * Runs an operation with an update, reporting it to {@link #metrics} and {@link #profiler} if set
+     * <br>Failures of the {@link #metrics} or {@link #profiler} never change the outcome of the operation: they're {@link Throwable#addSuppressed(Throwable) suppressed} into the operation's exception if it failed, otherwise printed (so a committed write isn't reported as failed and retried)
+     *
+     * @param   operation   the name of the operation
+     * @param   filter      the filter of the operation, or null if it doesn't have one
+     * @param   update      the update of the operation, or null if it doesn't have one
+     * @param   action      the operation
+     * @param   documents   gets the number of documents returned/written from the result
+     *
+     * @return              the result of the operation
+     *
+     * @param   <R>         the type of the result
+     */
+    private <R> R record(@NotNull String operation, @Nullable Bson filter, @Nullable Bson update, @NotNull Supplier<R> action, @NotNull ToLongFunction<R> documents) {
+        final MagicMetrics currentMetrics = metrics;
+        final QueryProfiler currentProfiler = filter == null ? null : profiler;
+        if (currentMetrics == null && currentProfiler == null) return action.get();
+        final long start = System.nanoTime();
+        final R result;
+        try {
+            result = action.get();
+        } catch (final RuntimeException e) {
+            final long duration = System.nanoTime() - start;
+            if (currentMetrics != null) try {
+                currentMetrics.onOperation(getNamespace(), operation, duration, 0, e);
+            } catch (final RuntimeException metricsException) {
+                e.addSuppressed(metricsException);
+            }
+            if (currentProfiler != null) try {
+                currentProfiler.record(this, operation, filter, update, duration);
+            } catch (final RuntimeException profilerException) {
+                e.addSuppressed(profilerException);
+            }
+            throw e;
+        }
+        final long duration = System.nanoTime() - start;
+        if (currentMetrics != null) try {
+            currentMetrics.onOperation(getNamespace(), operation, duration, documents.applyAsLong(result), null);
+        } catch (final RuntimeException metricsException) {
+            metricsException.printStackTrace();
+        }
+        if (currentProfiler != null) try {
+            currentProfiler.record(this, operation, filter, update, duration);
+        } catch (final RuntimeException profilerException) {
+            profilerException.printStackTrace();
+        }
+        return result;
+    }
+
+    /**
+     * Gets the number of documents written by a bulk write
+     *
+     * @param   result  the {@link BulkWriteResult}
+     *
+     * @return          the number of inserted, modified, deleted, and upserted documents
+     */
+    private static long getWriteCount(@NotNull BulkWriteResult result) {
+        if (!result.wasAcknowledged()) return 0;
+        return result.getInsertedCount() + result.getModifiedCount() + result.getDeletedCount() + result.getUpserts().size();
+    }
+
+    /**
+     * Creates a {@link FindIterable} with the specified batch size and projection
+     *
+     * @param   filter      the filter to apply
+     * @param   batchSize   the batch size, or 0 to use the server's default
+     * @param   projection  the projection to apply, or null to return whole documents
+     *
+     * @return              the {@link FindIterable}
+     */
+    @NotNull
+    private FindIterable<T> findBatched(@NotNull Bson filter, int batchSize, @Nullable Bson projection) {
+        FindIterable<T> iterable = find(filter);
+        if (batchSize > 0) iterable = iterable.batchSize(batchSize);
+        if (projection != null) iterable = iterable.projection(projection);
+        return iterable;
+    }
+
     // OVERRIDE METHODS FROM MongoCollection
     @Override @NotNull
     public UpdateResult updateOne(@NotNull Bson filter, @NotNull Bson update) {
-        return collection.updateOne(filter, update);
+        return record("updateOne", filter, update, () -> collection.updateOne(filter, update), UpdateResult::getModifiedCount);
     }
     @Override @NotNull
     public UpdateResult updateOne(@NotNull Bson filter, @NotNull Bson update, @NotNull UpdateOptions updateOptions) {
@@ -222,7 +636,7 @@ public class MagicCollection<T> implements MongoCollection<T> {
     }
     @Override @NotNull
     public UpdateResult updateMany(@NotNull Bson filter, @NotNull Bson update) {
-        return collection.updateMany(filter, update);
+        return record("updateMany", filter, update, () -> collection.updateMany(filter, update), UpdateResult::getModifiedCount);
     }
     @Override @NotNull
     public UpdateResult updateMany(@NotNull Bson filter, @NotNull Bson update, @NotNull UpdateOptions updateOptions) {
@@ -530,7 +944,7 @@ public class MagicCollection<T> implements MongoCollection<T> {
     }
     @Override
     public long countDocuments(@NotNull Bson filter) {
-        return collection.countDocuments(filter);
+        return record("countDocuments", filter, () -> collection.countDocuments(filter), count -> count);
     }
     @Override
     public long countDocuments(@NotNull Bson filter, @NotNull CountOptions options) {
@@ -670,11 +1084,11 @@ public class MagicCollection<T> implements MongoCollection<T> {
     }
     @Override @NotNull
     public BulkWriteResult bulkWrite(@NotNull List<? extends WriteModel<? extends T>> requests) {
-        return collection.bulkWrite(requests);
+        return record("bulkWrite", null, () -> collection.bulkWrite(requests), MagicCollection::getWriteCount);
     }
     @Override @NotNull
     public BulkWriteResult bulkWrite(@NotNull List<? extends WriteModel<? extends T>> requests, @NotNull BulkWriteOptions options) {
-        return collection.bulkWrite(requests, options);
+        return record("bulkWrite", null, () -> collection.bulkWrite(requests, options), MagicCollection::getWriteCount);
     }
     @Override @NotNull
     public BulkWriteResult bulkWrite(@NotNull ClientSession clientSession, @NotNull List<? extends WriteModel<? extends T>> requests) {
@@ -686,7 +1100,7 @@ public class MagicCollection<T> implements MongoCollection<T> {
     }
     @Override @NotNull
     public InsertOneResult insertOne(@NotNull T t) {
-        return collection.insertOne(t);
+        return record("insertOne", null, () -> collection.insertOne(t), result -> 1);
     }
     @Override @NotNull
     public InsertOneResult insertOne(@NotNull T t, @NotNull InsertOneOptions options) {
@@ -702,7 +1116,7 @@ public class MagicCollection<T> implements MongoCollection<T> {
     }
     @Override @NotNull
     public InsertManyResult insertMany(@NotNull List<? extends T> ts) {
-        return collection.insertMany(ts);
+        return record("insertMany", null, () -> collection.insertMany(ts), result -> result.getInsertedIds().size());
     }
     @Override @NotNull
     public InsertManyResult insertMany(@NotNull List<? extends T> ts, @NotNull InsertManyOptions options) {
@@ -718,7 +1132,7 @@ public class MagicCollection<T> implements MongoCollection<T> {
     }
     @Override @NotNull
     public DeleteResult deleteMany(@NotNull Bson filter) {
-        return collection.deleteMany(filter);
+        return record("deleteMany", filter, () -> collection.deleteMany(filter), DeleteResult::getDeletedCount);
     }
     @Override @NotNull
     public DeleteResult deleteMany(@NotNull Bson filter, @NotNull DeleteOptions options) {
@@ -734,7 +1148,7 @@ public class MagicCollection<T> implements MongoCollection<T> {
     }
     @Override @NotNull
     public DeleteResult deleteOne(@NotNull Bson filter) {
-        return collection.deleteOne(filter);
+        return record("deleteOne", filter, () -> collection.deleteOne(filter), DeleteResult::getDeletedCount);
     }
     @Override @NotNull
     public DeleteResult deleteOne(@NotNull Bson filter, @NotNull DeleteOptions options) {
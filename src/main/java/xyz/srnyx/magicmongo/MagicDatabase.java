@@ -11,10 +11,12 @@ import org.bson.codecs.configuration.CodecRegistry;
 import org.bson.conversions.Bson;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import xyz.srnyx.magicmongo.metrics.MagicMetrics;
 
-import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 
@@ -29,11 +31,20 @@ public class MagicDatabase implements MongoDatabase {
     /**
      * A map of names to classes of collections for this database
      */
-    @NotNull public final Map<String, Class<?>> nameToClass = new HashMap<>();
+    @NotNull public final Map<String, Class<?>> nameToClass = new ConcurrentHashMap<>();
     /**
-     * A map of {@link MagicCollection mongo collections} for this database
+     * A map of {@link MagicCollection mongo collections} for this database, by class
+     * <br>If a class is used for several collections, this has the last one {@link #loadMagicCollection(String, Class) loaded} (or the first one {@link #getOrLoadMagicCollection(String, Class) got or loaded}), use {@link #collectionsByName} to get the others
      */
-    @NotNull public final Map<Class<?>, MagicCollection<?>> collections = new HashMap<>();
+    @NotNull public final Map<Class<?>, MagicCollection<?>> collections = new ConcurrentHashMap<>();
+    /**
+     * A map of {@link MagicCollection mongo collections} for this database, by name
+     */
+    @NotNull public final Map<String, MagicCollection<?>> collectionsByName = new ConcurrentHashMap<>();
+    /**
+     * The {@link MagicMetrics} to set on new {@link MagicCollection MagicCollections}, or null to not set any
+     */
+    @Nullable private volatile MagicMetrics metrics;
 
     /**
      * Creates a new {@link MagicDatabase} instance
@@ -46,7 +57,7 @@ public class MagicDatabase implements MongoDatabase {
 
     /**
      * Constructs, but doesn't load, a new {@link MagicCollection} with the given name and class
-     * <br>Useful if you want to store collections in your own way (e.g. if a class is used for multiple collections)
+     * <br>Useful if you want to store collections in your own way
      *
      * @param   name    the name of the collection
      * @param   clazz   the class of the collection
@@ -57,7 +68,9 @@ public class MagicDatabase implements MongoDatabase {
      */
     @NotNull
     public <T> MagicCollection<T> newMagicCollection(@NotNull String name, @NotNull Class<T> clazz) {
-        return new MagicCollection<>(this, name, clazz);
+        final MagicCollection<T> collection = new MagicCollection<>(this, name, clazz);
+        collection.setMetrics(metrics);
+        return collection;
     }
 
     /**
@@ -73,11 +86,37 @@ public class MagicDatabase implements MongoDatabase {
     @NotNull
     public <T> MagicCollection<T> loadMagicCollection(@NotNull String name, @NotNull Class<T> clazz) {
         final MagicCollection<T> collection = newMagicCollection(name, clazz);
-        nameToClass.put(name, clazz);
+        collectionsByName.put(name, collection);
         collections.put(clazz, collection);
+        nameToClass.put(name, clazz);
         return collection;
     }
 
+    /**
+     * Gets the {@link MagicCollection} with the given name, loading it with the given class if it isn't loaded yet
+     * <br>Safe to call from many threads at once: the collection is only created and registered once, and lookups of already loaded collections don't lock. A class can be used for any number of collections
+     *
+     * @param   name                        the name of the collection
+     * @param   clazz                       the class of the collection
+     *
+     * @return                              the loaded {@link MagicCollection}
+     *
+     * @throws  IllegalArgumentException    if a {@link MagicCollection} is already loaded with the name for a different class
+     *
+     * @param   <T>                         the type of the class
+     */
+    @NotNull
+    public <T> MagicCollection<T> getOrLoadMagicCollection(@NotNull String name, @NotNull Class<T> clazz) {
+        MagicCollection<?> existing = collectionsByName.get(name);
+        if (existing == null) existing = collectionsByName.computeIfAbsent(name, key -> {
+            final MagicCollection<T> collection = newMagicCollection(name, clazz);
+            collections.putIfAbsent(clazz, collection);
+            nameToClass.put(name, clazz);
+            return collection;
+        });
+        return checkClass(existing, clazz);
+    }
+
     /**
      * Loads many new {@link MagicCollection MagicCollections} with the given names and classes
      *
@@ -109,19 +148,90 @@ public class MagicDatabase implements MongoDatabase {
 
     /**
      * Gets the {@link MagicCollection} with the given name
-     * <br><b>Recommended to use {@link #getMagicCollection(Class)} instead</b>
+     * <br><b>Recommended to use {@link #getMagicCollection(String, Class)} or {@link #getMagicCollection(Class)} instead</b>
      *
      * @param   name    the name of the {@link MagicCollection} to get
      *
      * @return          the {@link MagicCollection} with the given name
      *
-     * @see             #getMagicCollection(Class)
+     * @see             #getMagicCollection(String, Class)
      */
     @NotNull
     public MagicCollection<?> getMagicCollection(@NotNull String name) {
-        final Class<?> clazz = nameToClass.get(name);
-        if (clazz == null) throw new IllegalArgumentException("No MagicCollection found with name " + name);
-        return getMagicCollection(clazz);
+        final MagicCollection<?> collection = collectionsByName.get(name);
+        if (collection == null) throw new IllegalArgumentException("No MagicCollection found with name " + name);
+        return collection;
+    }
+
+    /**
+     * Gets the {@link MagicCollection} with the given name and class, for classes used for several collections
+     *
+     * @param   name                        the name of the {@link MagicCollection} to get
+     * @param   clazz                       the class of the {@link MagicCollection}
+     *
+     * @return                              the {@link MagicCollection} with the given name
+     *
+     * @throws  IllegalArgumentException    if no {@link MagicCollection} is found with the name, or if it's for a different class
+     *
+     * @param   <T>                         the type of the class
+     */
+    @NotNull
+    public <T> MagicCollection<T> getMagicCollection(@NotNull String name, @NotNull Class<T> clazz) {
+        return checkClass(getMagicCollection(name), clazz);
+    }
+
+    /**
+     * Checks that a {@link MagicCollection} is for the given class
+     *
+     * @param   collection                  the {@link MagicCollection}
+     * @param   clazz                       the expected class
+     *
+     * @return                              the {@link MagicCollection}
+     *
+     * @throws  IllegalArgumentException    if the {@link MagicCollection} is for a different class
+     *
+     * @param   <T>                         the type of the class
+     */
+    @NotNull
+    private static <T> MagicCollection<T> checkClass(@NotNull MagicCollection<?> collection, @NotNull Class<T> clazz) {
+        if (collection.getDocumentClass() != clazz) throw new IllegalArgumentException("MagicCollection " + collection.getNamespace().getCollectionName() + " is for class " + collection.getDocumentClass() + ", not " + clazz);
+        return (MagicCollection<T>) collection;
+    }
+
+    /**
+     * Sets the {@link MagicMetrics} of every loaded {@link MagicCollection} and of the ones created afterward by {@link #newMagicCollection(String, Class)}
+     *
+     * @param   metrics the {@link MagicMetrics}, or null to stop reporting operations
+     *
+     * @see             MagicCollection#setMetrics(MagicMetrics)
+     */
+    public void setMetrics(@Nullable MagicMetrics metrics) {
+        this.metrics = metrics;
+        for (final MagicCollection<?> collection : collectionsByName.values()) collection.setMetrics(metrics);
+    }
+
+    /**
+     * Warms up this database so the first requests don't pay for lazy initialization
+     * <ul>
+     *     <li>{@code codecs}: resolves the codecs of every class in {@link #nameToClass} (building their POJO class models)</li>
+     *     <li>{@code ping}: runs a {@code ping} command, which also selects a server and opens a connection</li>
+     * </ul>
+     *
+     * @return  the timings of each step
+     *
+     * @throws  com.mongodb.MongoException  if the {@code ping} fails
+     *
+     * @see     MagicMongo#warmUp()
+     */
+    @NotNull
+    public WarmUpReport warmUp() {
+        final WarmUpReport report = new WarmUpReport();
+        report.time("codecs", () -> {
+            final CodecRegistry registry = database.getCodecRegistry();
+            for (final Class<?> clazz : new HashSet<>(nameToClass.values())) registry.get(clazz);
+        });
+        report.time("ping", () -> database.runCommand(new Document("ping", 1)));
+        return report;
     }
 
     // OVERRIDE METHODS FROM MongoDatabase
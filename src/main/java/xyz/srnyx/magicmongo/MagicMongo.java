@@ -5,15 +5,22 @@ import com.mongodb.MongoClientSettings;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
 import com.mongodb.client.MongoDatabase;
+import com.mongodb.connection.ConnectionPoolSettings;
+import org.bson.Document;
+import org.bson.codecs.Codec;
 import org.bson.codecs.configuration.CodecRegistries;
 import org.bson.codecs.configuration.CodecRegistry;
 import org.bson.codecs.pojo.PojoCodecProvider;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import xyz.srnyx.magicmongo.codecs.BinaryUUIDCodec;
+import xyz.srnyx.magicmongo.codecs.GenerateCodec;
+import xyz.srnyx.magicmongo.codecs.GeneratedCodecProvider;
 import xyz.srnyx.magicmongo.codecs.UUIDCodec;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
 
 
 /**
@@ -22,10 +29,19 @@ import java.util.Map;
  * @see SingleMongo
  */
 public class MagicMongo {
+    /**
+     * The {@code ping} command
+     */
+    @NotNull private static final Document PING = new Document("ping", 1);
+
     /**
      * The {@link ConnectionString} for the MongoDB connection
      */
     @NotNull public final ConnectionString connection;
+    /**
+     * The {@link MongoClientSettings} that {@link #client} was created with
+     */
+    @NotNull public final MongoClientSettings settings;
     /**
      * The {@link MongoClient} instance for the MongoDB connection
      */
@@ -37,17 +53,23 @@ public class MagicMongo {
     /**
      * The {@link MagicDatabase MagicDatabases} that have been loaded
      */
-    @NotNull public final Map<String, MagicDatabase> databases = new HashMap<>();
+    @NotNull public final Map<String, MagicDatabase> databases = new ConcurrentHashMap<>();
 
     /**
-     * Creates a new {@link MagicMongo} instance with the specified {@link CodecRegistry}
+     * Creates a new {@link MagicMongo} instance with the specified {@link CodecRegistry} and {@link MongoClientSettings}
+     * <br>The settings are built from the connection URL, then {@code settings} is applied (so it overrides the URL's options), and then the {@link CodecRegistry} is set if not null
      *
      * @param   connectionUrl   the connection URL for the MongoDB database
      * @param   codecRegistry   {@link #codecRegistry}
+     * @param   settings        applies additional settings (pool sizing, compressors, listeners, etc...), like a {@link MongoProfile}
      */
-    public MagicMongo(@NotNull String connectionUrl, @Nullable CodecRegistry codecRegistry) {
+    public MagicMongo(@NotNull String connectionUrl, @Nullable CodecRegistry codecRegistry, @NotNull Consumer<MongoClientSettings.Builder> settings) {
         connection = new ConnectionString(connectionUrl);
-        client = MongoClients.create(connection);
+        final MongoClientSettings.Builder builder = MongoClientSettings.builder().applyConnectionString(connection);
+        settings.accept(builder);
+        if (codecRegistry != null) builder.codecRegistry(codecRegistry);
+        this.settings = builder.build();
+        client = MongoClients.create(this.settings);
         this.codecRegistry = codecRegistry;
 
         // Load database if specified
@@ -55,6 +77,16 @@ public class MagicMongo {
         if (databaseName != null) loadMagicDatabase(databaseName);
     }
 
+    /**
+     * Creates a new {@link MagicMongo} instance with the specified {@link CodecRegistry}
+     *
+     * @param   connectionUrl   the connection URL for the MongoDB database
+     * @param   codecRegistry   {@link #codecRegistry}
+     */
+    public MagicMongo(@NotNull String connectionUrl, @Nullable CodecRegistry codecRegistry) {
+        this(connectionUrl, codecRegistry, builder -> {});
+    }
+
     /**
      * Creates a new {@link MagicMongo} instance with the default {@link CodecRegistry}
      *
@@ -92,6 +124,21 @@ public class MagicMongo {
         return database;
     }
 
+    /**
+     * Gets the {@link MagicDatabase} with the specified name, loading it if it isn't loaded yet
+     * <br>Safe to call from many threads at once: the database is only created and registered once, and lookups of already loaded databases don't lock
+     *
+     * @param   name    the name of the database
+     *
+     * @return          the loaded {@link MagicDatabase} instance
+     */
+    @NotNull
+    public MagicDatabase getOrLoadMagicDatabase(@NotNull String name) {
+        final MagicDatabase database = databases.get(name);
+        if (database != null) return database;
+        return databases.computeIfAbsent(name, this::newMagicDatabase);
+    }
+
     /**
      * Constructs new {@link MagicDatabase MagicDatabases} with the specified names and loads them
      *
@@ -134,11 +181,73 @@ public class MagicMongo {
         return collection;
     }
 
+    /**
+     * Warms up the connection and every loaded {@link MagicDatabase} so the first requests don't pay for lazy initialization, which is useful to gate readiness probes on
+     * <ul>
+     *     <li>{@code ping}: runs a {@code ping} command on the {@code admin} database, which selects a server and opens the first connection</li>
+     *     <li>{@code connections}: opens the {@link ConnectionPoolSettings#getMinSize() minimum number of connections} of the pool by running that many {@code ping} commands at once (skipped if it's 1 or less)</li>
+     *     <li>{@code <database>.codecs} and {@code <database>.ping}: {@link MagicDatabase#warmUp() warms up} each {@link #databases database}</li>
+     * </ul>
+     *
+     * @return  the timings of each step
+     *
+     * @throws  com.mongodb.MongoException  if a {@code ping} fails
+     */
+    @NotNull
+    public WarmUpReport warmUp() {
+        final WarmUpReport report = new WarmUpReport();
+        final MongoDatabase admin = client.getDatabase("admin");
+        report.time("ping", () -> admin.runCommand(PING));
+
+        // Connections
+        final int minPoolSize = settings.getConnectionPoolSettings().getMinSize();
+        if (minPoolSize > 1) report.time("connections", () -> {
+            final ExecutorService executor = Executors.newFixedThreadPool(minPoolSize);
+            try {
+                final CountDownLatch start = new CountDownLatch(1);
+                final List<Future<?>> pings = new ArrayList<>(minPoolSize);
+                for (int i = 0; i < minPoolSize; i++) pings.add(executor.submit(() -> {
+                    start.await();
+                    return admin.runCommand(PING);
+                }));
+                start.countDown();
+                for (final Future<?> ping : pings) ping.get();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while opening connections", e);
+            } catch (final ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+                throw new IllegalStateException(e.getCause());
+            } finally {
+                executor.shutdownNow();
+            }
+        });
+
+        // Databases
+        for (final Map.Entry<String, MagicDatabase> entry : databases.entrySet()) report.add(entry.getKey() + ".", entry.getValue().warmUp());
+        return report;
+    }
+
+    /**
+     * Creates an {@link ExecutorService} for {@link MagicAsyncCollection MagicAsyncCollections} using this connection
+     * <br>Uses virtual threads if available, otherwise a pool bounded by the {@link ConnectionPoolSettings#getMaxSize() maximum size of the connection pool} (100 if it's unlimited)
+     *
+     * @return  the new {@link ExecutorService}, which should be shut down by the caller when no longer needed
+     *
+     * @see     MagicAsyncCollection#newDefaultExecutor(int)
+     */
+    @NotNull
+    public ExecutorService newAsyncExecutor() {
+        final int maxPoolSize = settings.getConnectionPoolSettings().getMaxSize();
+        return MagicAsyncCollection.newDefaultExecutor(maxPoolSize > 0 ? maxPoolSize : 100);
+    }
+
     /**
      * Gets the default {@link CodecRegistry}
      * <ul>
      *     <li>{@link UUIDCodec}</li>
      *     <li>{@link MongoClientSettings#getDefaultCodecRegistry()}</li>
+     *     <li>{@link GeneratedCodecProvider} (for classes annotated with {@link GenerateCodec @GenerateCodec})</li>
      *     <li>{@link PojoCodecProvider#builder() PojoCodecProvider.builder().automatic(true).build()}</li>
      * </ul>
      *
@@ -146,9 +255,27 @@ public class MagicMongo {
      */
     @NotNull
     public static CodecRegistry getDefaultCodecRegistry() {
+        return getDefaultCodecRegistry(new UUIDCodec());
+    }
+
+    /**
+     * Gets the default {@link CodecRegistry} with the specified {@link UUID} {@link Codec}
+     * <ul>
+     *     <li>{@code uuidCodec}</li>
+     *     <li>{@link MongoClientSettings#getDefaultCodecRegistry()}</li>
+     *     <li>{@link GeneratedCodecProvider} (for classes annotated with {@link GenerateCodec @GenerateCodec})</li>
+     *     <li>{@link PojoCodecProvider#builder() PojoCodecProvider.builder().automatic(true).build()}</li>
+     * </ul>
+     *
+     * @param   uuidCodec   the {@link Codec} to use for {@link UUID UUIDs}, like {@link UUIDCodec} (strings) or {@link BinaryUUIDCodec} (binary)
+     *
+     * @return              the default {@link CodecRegistry} with the specified {@link UUID} {@link Codec}
+     */
+    @NotNull
+    public static CodecRegistry getDefaultCodecRegistry(@NotNull Codec<UUID> uuidCodec) {
         return CodecRegistries.fromRegistries(
-                CodecRegistries.fromCodecs(new UUIDCodec()),
+                CodecRegistries.fromCodecs(uuidCodec),
                 MongoClientSettings.getDefaultCodecRegistry(),
-                CodecRegistries.fromProviders(PojoCodecProvider.builder().automatic(true).build()));
+                CodecRegistries.fromProviders(new GeneratedCodecProvider(), PojoCodecProvider.builder().automatic(true).build()));
     }
 }
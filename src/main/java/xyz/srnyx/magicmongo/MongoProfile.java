@@ -0,0 +1,66 @@
+package xyz.srnyx.magicmongo;
+
+import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoCompressor;
+import com.mongodb.connection.ServerMonitoringMode;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+
+/**
+ * Named tuning profiles for {@link MongoClientSettings}, to pass to {@link MagicMongo#MagicMongo(String, CodecRegistry, Consumer)}
+ * <br>Profiles are applied after the connection URL, so they override its options. To change a profile's option, apply the profile and then the option:
+ * <pre>{@code new MagicMongo(url, MagicMongo.getDefaultCodecRegistry(), MongoProfile.LOW_LATENCY.andThen(builder -> builder.applyToConnectionPoolSettings(pool -> pool.minSize(20))))}</pre>
+ */
+public enum MongoProfile implements Consumer<MongoClientSettings.Builder> {
+    /**
+     * For latency-sensitive request/response workloads with small documents
+     * <ul>
+     *     <li>Keeps 10 connections open (up to 100), opening up to 4 at once, and fails after waiting 2 seconds for one</li>
+     *     <li>Fails to connect after 2 seconds</li>
+     *     <li>{@link ServerMonitoringMode#STREAM Streams} server monitoring so topology changes are noticed sooner</li>
+     *     <li>No compression, since it costs more CPU time than it saves for small documents</li>
+     * </ul>
+     */
+    LOW_LATENCY {
+        @Override
+        public void accept(@NotNull MongoClientSettings.Builder builder) {
+            builder
+                    .applyToConnectionPoolSettings(pool -> pool
+                            .minSize(10)
+                            .maxSize(100)
+                            .maxConnecting(4)
+                            .maxWaitTime(2, TimeUnit.SECONDS))
+                    .applyToSocketSettings(socket -> socket.connectTimeout(2, TimeUnit.SECONDS))
+                    .applyToServerSettings(server -> server.serverMonitoringMode(ServerMonitoringMode.STREAM))
+                    .compressorList(Collections.emptyList());
+        }
+    },
+    /**
+     * For bulk workloads (imports, exports, migrations) moving large batches over few connections
+     * <ul>
+     *     <li>Uses up to 20 connections, and waits up to 2 minutes for one</li>
+     *     <li>Uses 1 MiB socket buffers and no read timeout</li>
+     *     <li>Compresses with zlib (zstd and snappy would need extra dependencies, add them with {@link MongoClientSettings.Builder#compressorList(java.util.List)} if available)</li>
+     * </ul>
+     */
+    BULK_THROUGHPUT {
+        @Override
+        public void accept(@NotNull MongoClientSettings.Builder builder) {
+            builder
+                    .applyToConnectionPoolSettings(pool -> pool
+                            .minSize(0)
+                            .maxSize(20)
+                            .maxWaitTime(2, TimeUnit.MINUTES))
+                    .applyToSocketSettings(socket -> socket
+                            .receiveBufferSize(1024 * 1024)
+                            .sendBufferSize(1024 * 1024)
+                            .readTimeout(0, TimeUnit.MILLISECONDS))
+                    .compressorList(Collections.singletonList(MongoCompressor.createZlibCompressor().withProperty(MongoCompressor.LEVEL, 6)));
+        }
+    }
+}
@@ -1,10 +1,12 @@
 package xyz.srnyx.magicmongo;
 
+import com.mongodb.MongoClientSettings;
 import org.bson.codecs.configuration.CodecRegistry;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.Objects;
+import java.util.function.Consumer;
 
 
 /**
@@ -16,6 +18,20 @@ public class SingleMongo extends MagicMongo {
      */
     @NotNull public final MagicDatabase database;
 
+    /**
+     * Creates a new {@link SingleMongo} instance with the specified {@link CodecRegistry} and {@link MongoClientSettings}
+     *
+     * @param   connectionUrl   the connection URL for the MongoDB database
+     * @param   codecRegistry   {@link MagicMongo#codecRegistry}
+     * @param   settings        applies additional settings (pool sizing, compressors, listeners, etc...), like a {@link MongoProfile}
+     *
+     * @see                     MagicMongo#MagicMongo(String, CodecRegistry, Consumer)
+     */
+    public SingleMongo(@NotNull String connectionUrl, @Nullable CodecRegistry codecRegistry, @NotNull Consumer<MongoClientSettings.Builder> settings) {
+        super(connectionUrl, codecRegistry, settings);
+        database = Objects.requireNonNull(databases.get(connection.getDatabase()), "Database name not specified in connection URL: " + connectionUrl);
+    }
+
     /**
      * Creates a new {@link SingleMongo} instance with the specified {@link CodecRegistry}
      *
@@ -23,8 +39,7 @@ public class SingleMongo extends MagicMongo {
      * @param   codecRegistry   {@link MagicMongo#codecRegistry}
      */
     public SingleMongo(@NotNull String connectionUrl, @Nullable CodecRegistry codecRegistry) {
-        super(connectionUrl, codecRegistry);
-        database = Objects.requireNonNull(databases.get(connection.getDatabase()), "Database name not specified in connection URL: " + connectionUrl);
+        this(connectionUrl, codecRegistry, builder -> {});
     }
 
     /**
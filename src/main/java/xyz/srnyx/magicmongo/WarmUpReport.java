@@ -0,0 +1,94 @@
+package xyz.srnyx.magicmongo;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * The timings of the steps of a {@link MagicMongo#warmUp() warm-up}, in the order they ran
+ *
+ * @see MagicMongo#warmUp()
+ * @see MagicDatabase#warmUp()
+ */
+public class WarmUpReport {
+    /**
+     * The duration of each step, in nanoseconds
+     */
+    @NotNull private final Map<String, Long> steps = new LinkedHashMap<>();
+
+    /**
+     * Creates a new empty {@link WarmUpReport} instance
+     */
+    WarmUpReport() {}
+
+    /**
+     * Runs a step and records how long it took
+     *
+     * @param   step    the name of the step
+     * @param   action  the step to run
+     */
+    void time(@NotNull String step, @NotNull Runnable action) {
+        final long start = System.nanoTime();
+        action.run();
+        steps.put(step, System.nanoTime() - start);
+    }
+
+    /**
+     * Adds the steps of another report, prefixing their names
+     *
+     * @param   prefix  the prefix for the names of the steps
+     * @param   report  the report to add
+     */
+    void add(@NotNull String prefix, @NotNull WarmUpReport report) {
+        report.steps.forEach((step, nanos) -> steps.put(prefix + step, nanos));
+    }
+
+    /**
+     * Gets the duration of each step, in the order they ran
+     *
+     * @return  an unmodifiable map of step names to durations
+     */
+    @NotNull
+    public Map<String, Duration> getSteps() {
+        final Map<String, Duration> result = new LinkedHashMap<>();
+        steps.forEach((step, nanos) -> result.put(step, Duration.ofNanos(nanos)));
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * Gets the duration of a step
+     *
+     * @param   step    the name of the step
+     *
+     * @return          the duration, or null if the step didn't run
+     */
+    @Nullable
+    public Duration getDuration(@NotNull String step) {
+        final Long nanos = steps.get(step);
+        return nanos == null ? null : Duration.ofNanos(nanos);
+    }
+
+    /**
+     * Gets the total duration of all steps
+     *
+     * @return  the total duration
+     */
+    @NotNull
+    public Duration getTotal() {
+        long total = 0;
+        for (final long nanos : steps.values()) total += nanos;
+        return Duration.ofNanos(total);
+    }
+
+    @Override @NotNull
+    public String toString() {
+        final StringBuilder builder = new StringBuilder("WarmUpReport{");
+        steps.forEach((step, nanos) -> builder.append(step).append('=').append(nanos / 1_000_000.0).append("ms, "));
+        return builder.append("total=").append(getTotal().toNanos() / 1_000_000.0).append("ms}").toString();
+    }
+}
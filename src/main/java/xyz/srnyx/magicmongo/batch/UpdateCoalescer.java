@@ -0,0 +1,413 @@
+package xyz.srnyx.magicmongo.batch;
+
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.WriteModel;
+import org.bson.*;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.conversions.Bson;
+import org.bson.types.Decimal128;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+
+/**
+ * Merges {@link UpdateOneModel UpdateOneModels} that share the same {@code {_id: value}} filter into a single {@link UpdateOneModel}
+ * <br>Supported operators and how they're merged:
+ * <ul>
+ *     <li>{@code $inc}: the amounts are summed</li>
+ *     <li>{@code $set}: the last value wins</li>
+ *     <li>{@code $setOnInsert}: the first value wins</li>
+ *     <li>{@code $push}: the pushed values are concatenated (only plain values or a lone {@code $each})</li>
+ * </ul>
+ * Updates aren't merged if they use any other operator, an update pipeline, or {@link UpdateOptions} other than {@link UpdateOptions#upsert(boolean) upsert}, or if the same path (or a parent/child path) is touched by different operators. Such updates are kept as they are, in order
+ * <br>Only updates filtering by an exact {@code _id} are merged: with any other filter, an update can change which documents the next one matches (e.g. two {@code {state: "queued"}} updates setting {@code state: "claimed"} claim two documents, not one)
+ * <br>An update is only merged into an earlier one if it can't change the outcome of the writes between them, meaning that everything in between must be an update with a different {@code {_id: value}} filter
+ * <br>IDs are compared the way the server matches them, so numerically equal IDs of different types (like {@code 1}, {@code NumberLong(1)}, and {@code 1.0}) are the same document
+ */
+public final class UpdateCoalescer {
+    /**
+     * The operators that can be merged
+     */
+    @NotNull private static final Set<String> MERGEABLE_OPERATORS = new HashSet<>(Arrays.asList("$inc", "$set", "$setOnInsert", "$push"));
+
+    /**
+     * This class only has static methods
+     */
+    private UpdateCoalescer() {}
+
+    /**
+     * Coalesces the given {@link WriteModel WriteModels}, merging updates with the same {@code {_id: value}} filter where it's safe
+     *
+     * @param   models          the {@link WriteModel WriteModels} to coalesce, in order
+     * @param   codecRegistry   the {@link CodecRegistry} to render filters and updates with
+     *
+     * @return                  the coalesced {@link WriteModel WriteModels}, in order (the same list if nothing was merged)
+     *
+     * @param   <T>             the type of the collection
+     */
+    @NotNull
+    public static <T> List<WriteModel<T>> coalesce(@NotNull List<WriteModel<T>> models, @NotNull CodecRegistry codecRegistry) {
+        final List<Object> output = new ArrayList<>(models.size());
+        final Map<Object, Group<T>> open = new HashMap<>();
+        boolean merged = false;
+
+        for (final WriteModel<T> model : models) {
+            // Non-updates might affect any document
+            if (!(model instanceof UpdateOneModel)) {
+                open.clear();
+                output.add(model);
+                continue;
+            }
+            final UpdateOneModel<T> update = (UpdateOneModel<T>) model;
+            final BsonDocument filter = render(update.getFilter(), codecRegistry);
+
+            // Updates not filtering by _id might affect any document, and are never merged
+            if (filter == null || !isIdOnly(filter)) {
+                open.clear();
+                output.add(model);
+                continue;
+            }
+            final Object id = normalize(filter.get("_id"));
+            final Group<T> candidate = Group.of(update, filter, codecRegistry);
+
+            // Merge into open group of the same document
+            if (candidate != null) {
+                final Group<T> group = open.get(id);
+                if (group != null && group.merge(candidate)) {
+                    merged = true;
+                    continue;
+                }
+            }
+
+            // Close the group of the same document
+            open.remove(id);
+
+            // Open new group
+            if (candidate == null) {
+                output.add(model);
+                continue;
+            }
+            open.put(id, candidate);
+            output.add(candidate);
+        }
+        if (!merged) return models;
+
+        final List<WriteModel<T>> result = new ArrayList<>(output.size());
+        for (final Object item : output) result.add(item instanceof Group ? ((Group<T>) item).toModel() : (WriteModel<T>) item);
+        return result;
+    }
+
+    /**
+     * Checks if a filter only matches by an exact {@code _id}, meaning filters with different values can't match the same document
+     *
+     * @param   filter  the rendered filter
+     *
+     * @return          true if the filter is {@code {_id: value}}
+     */
+    private static boolean isIdOnly(@NotNull BsonDocument filter) {
+        if (filter.size() != 1) return false;
+        final BsonValue id = filter.get("_id");
+        if (id == null || id.isRegularExpression() || id.isArray()) return false;
+        return !id.isDocument() || !isOperatorDocument(id.asDocument());
+    }
+
+    /**
+     * Normalizes an ID so that IDs matching the same document are equal
+     * <br>Numbers become their exact {@link BigDecimal} value (without trailing zeros), or a {@link Double} for NaN and infinities, and documents become a list of their keys and normalized values (in order, since field order matters when matching documents)
+     *
+     * @param   id  the ID
+     *
+     * @return      the normalized ID
+     */
+    @NotNull
+    static Object normalize(@NotNull BsonValue id) {
+        if (id.isDocument()) {
+            final List<Object> entries = new ArrayList<>(id.asDocument().size() * 2);
+            for (final Map.Entry<String, BsonValue> entry : id.asDocument().entrySet()) {
+                entries.add(entry.getKey());
+                entries.add(normalize(entry.getValue()));
+            }
+            return entries;
+        }
+        final BigDecimal number;
+        if (id.isInt32() || id.isInt64()) {
+            number = BigDecimal.valueOf(id.asNumber().longValue());
+        } else if (id.isDouble()) {
+            final double value = id.asDouble().getValue();
+            if (Double.isNaN(value) || Double.isInfinite(value)) return value;
+            number = new BigDecimal(value);
+        } else if (id.isDecimal128()) {
+            final Decimal128 value = id.asDecimal128().getValue();
+            if (value.isNaN()) return Double.NaN;
+            if (value.isInfinite()) return value.isNegative() ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+            try {
+                number = value.bigDecimalValue();
+            } catch (final ArithmeticException e) {
+                // Negative zero
+                return BigDecimal.ZERO;
+            }
+        } else {
+            return id;
+        }
+        return number.signum() == 0 ? BigDecimal.ZERO : number.stripTrailingZeros();
+    }
+
+    /**
+     * Checks if a document's keys are operators (start with {@code $})
+     *
+     * @param   document    the document to check
+     *
+     * @return              true if the document has a key starting with {@code $}
+     */
+    private static boolean isOperatorDocument(@NotNull BsonDocument document) {
+        for (final String key : document.keySet()) if (key.startsWith("$")) return true;
+        return false;
+    }
+
+    /**
+     * Renders a {@link Bson} to a {@link BsonDocument}
+     *
+     * @param   bson            the {@link Bson} to render
+     * @param   codecRegistry   the {@link CodecRegistry} to render with
+     *
+     * @return                  the rendered {@link BsonDocument}, or null if it couldn't be rendered
+     */
+    @Nullable
+    private static BsonDocument render(@Nullable Bson bson, @NotNull CodecRegistry codecRegistry) {
+        if (bson == null) return null;
+        try {
+            return bson.toBsonDocument(BsonDocument.class, codecRegistry);
+        } catch (final RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Sums two numbers the way {@code $inc} would
+     *
+     * @param   a   the first number
+     * @param   b   the second number
+     *
+     * @return      the sum, or null if they can't be summed safely
+     */
+    @Nullable
+    private static BsonValue add(@NotNull BsonValue a, @NotNull BsonValue b) {
+        if (!a.isNumber() || !b.isNumber()) return null;
+        if (a.isDouble() || b.isDouble()) return new BsonDouble(a.asNumber().doubleValue() + b.asNumber().doubleValue());
+        final long sum;
+        try {
+            sum = Math.addExact(a.asNumber().longValue(), b.asNumber().longValue());
+        } catch (final ArithmeticException e) {
+            return null;
+        }
+        if (a.isInt32() && b.isInt32() && sum >= Integer.MIN_VALUE && sum <= Integer.MAX_VALUE) return new BsonInt32((int) sum);
+        return new BsonInt64(sum);
+    }
+
+    /**
+     * One or more updates with the same filter, merged into a single update
+     *
+     * @param   <T> the type of the collection
+     */
+    private static final class Group<T> {
+        /**
+         * The first update of the group, used as-is if nothing was merged into it
+         */
+        @NotNull private final UpdateOneModel<T> first;
+        /**
+         * The rendered filter
+         */
+        @NotNull private final BsonDocument filter;
+        /**
+         * Whether the updates are upserts
+         */
+        private final boolean upsert;
+        /**
+         * The merged operators, mapped to their fields and values ({@code $push} values are always a {@link BsonArray} of items)
+         */
+        @NotNull private final Map<String, BsonDocument> operators;
+        /**
+         * The paths touched by the group, mapped to the operator touching them
+         */
+        @NotNull private final Map<String, String> paths;
+        /**
+         * The number of updates in the group
+         */
+        private int count = 1;
+
+        /**
+         * Creates a new {@link Group} instance
+         *
+         * @param   first       {@link #first}
+         * @param   filter      {@link #filter}
+         * @param   upsert      {@link #upsert}
+         * @param   operators   {@link #operators}
+         * @param   paths       {@link #paths}
+         */
+        private Group(@NotNull UpdateOneModel<T> first, @NotNull BsonDocument filter, boolean upsert, @NotNull Map<String, BsonDocument> operators, @NotNull Map<String, String> paths) {
+            this.first = first;
+            this.filter = filter;
+            this.upsert = upsert;
+            this.operators = operators;
+            this.paths = paths;
+        }
+
+        /**
+         * Creates a {@link Group} for a single update
+         *
+         * @param   update          the update
+         * @param   filter          the rendered filter of the update
+         * @param   codecRegistry   the {@link CodecRegistry} to render the update with
+         *
+         * @return                  the {@link Group}, or null if the update can't be merged with others
+         *
+         * @param   <T>             the type of the collection
+         */
+        @Nullable
+        private static <T> Group<T> of(@NotNull UpdateOneModel<T> update, @NotNull BsonDocument filter, @NotNull CodecRegistry codecRegistry) {
+            final UpdateOptions options = update.getOptions();
+            if (options.getCollation() != null || options.getArrayFilters() != null || options.getHint() != null || options.getHintString() != null || options.getBypassDocumentValidation() != null || options.getComment() != null || options.getLet() != null || options.getSort() != null) return null;
+            final BsonDocument document = render(update.getUpdate(), codecRegistry);
+            if (document == null || document.isEmpty()) return null;
+
+            final Map<String, BsonDocument> operators = new LinkedHashMap<>();
+            final Map<String, String> paths = new HashMap<>();
+            for (final Map.Entry<String, BsonValue> operator : document.entrySet()) {
+                final String name = operator.getKey();
+                if (!MERGEABLE_OPERATORS.contains(name) || !operator.getValue().isDocument()) return null;
+                final BsonDocument fields = new BsonDocument();
+                for (final Map.Entry<String, BsonValue> field : operator.getValue().asDocument().entrySet()) {
+                    final String path = field.getKey();
+                    if (conflicts(paths, path, name)) return null;
+                    BsonValue value = field.getValue();
+                    if (name.equals("$inc") && !value.isNumber()) return null;
+                    if (name.equals("$push")) {
+                        value = getPushItems(value);
+                        if (value == null) return null;
+                    }
+                    fields.put(path, value);
+                    paths.put(path, name);
+                }
+                operators.put(name, fields);
+            }
+            return new Group<>(update, filter, options.isUpsert(), operators, paths);
+        }
+
+        /**
+         * Gets the items pushed by a {@code $push} value
+         *
+         * @param   value   the {@code $push} value
+         *
+         * @return          the pushed items, or null if the value uses modifiers other than {@code $each}
+         */
+        @Nullable
+        private static BsonArray getPushItems(@NotNull BsonValue value) {
+            if (!value.isDocument() || !isOperatorDocument(value.asDocument())) return new BsonArray(Collections.singletonList(value));
+            final BsonDocument document = value.asDocument();
+            final BsonValue each = document.get("$each");
+            if (document.size() != 1 || each == null || !each.isArray()) return null;
+            return new BsonArray(each.asArray().getValues());
+        }
+
+        /**
+         * Checks if a path conflicts with the given paths, meaning it's a parent/child of one of them or it's touched by a different operator
+         *
+         * @param   paths       the paths mapped to their operators
+         * @param   path        the path to check
+         * @param   operator    the operator touching the path
+         *
+         * @return              true if the path conflicts
+         */
+        private static boolean conflicts(@NotNull Map<String, String> paths, @NotNull String path, @NotNull String operator) {
+            final String existing = paths.get(path);
+            if (existing != null) return !existing.equals(operator);
+            for (final String other : paths.keySet()) if (other.startsWith(path + ".") || path.startsWith(other + ".")) return true;
+            return false;
+        }
+
+        /**
+         * Merges another group (with the same filter) into this one
+         * <br>Nothing is changed if the groups can't be merged
+         *
+         * @param   other   the group to merge
+         *
+         * @return          true if the group was merged
+         */
+        private boolean merge(@NotNull Group<T> other) {
+            if (other.upsert != upsert) return false;
+
+            // Check
+            final Map<String, BsonValue> sums = new HashMap<>();
+            for (final Map.Entry<String, BsonDocument> operator : other.operators.entrySet()) {
+                final String name = operator.getKey();
+                for (final Map.Entry<String, BsonValue> field : operator.getValue().entrySet()) {
+                    final String path = field.getKey();
+                    if (conflicts(paths, path, name)) return false;
+                    if (!name.equals("$inc")) continue;
+                    final BsonDocument incs = operators.get("$inc");
+                    final BsonValue current = incs == null ? null : incs.get(path);
+                    if (current == null) continue;
+                    final BsonValue sum = add(current, field.getValue());
+                    if (sum == null) return false;
+                    sums.put(path, sum);
+                }
+            }
+
+            // Apply
+            for (final Map.Entry<String, BsonDocument> operator : other.operators.entrySet()) {
+                final String name = operator.getKey();
+                final BsonDocument fields = operators.computeIfAbsent(name, key -> new BsonDocument());
+                for (final Map.Entry<String, BsonValue> field : operator.getValue().entrySet()) {
+                    final String path = field.getKey();
+                    final BsonValue current = fields.get(path);
+                    paths.put(path, name);
+                    if (current == null) {
+                        fields.put(path, field.getValue());
+                        continue;
+                    }
+                    switch (name) {
+                        case "$inc":
+                            fields.put(path, sums.get(path));
+                            break;
+                        case "$set":
+                            fields.put(path, field.getValue());
+                            break;
+                        case "$push":
+                            current.asArray().addAll(field.getValue().asArray());
+                            break;
+                        default:
+                            // $setOnInsert keeps the first value
+                            break;
+                    }
+                }
+            }
+            count += other.count;
+            return true;
+        }
+
+        /**
+         * Converts the group to a {@link WriteModel}
+         *
+         * @return  the original update if nothing was merged into it, otherwise the merged {@link UpdateOneModel}
+         */
+        @NotNull
+        private WriteModel<T> toModel() {
+            if (count == 1) return first;
+            final BsonDocument update = new BsonDocument();
+            for (final Map.Entry<String, BsonDocument> operator : operators.entrySet()) {
+                if (!operator.getKey().equals("$push")) {
+                    update.put(operator.getKey(), operator.getValue());
+                    continue;
+                }
+                final BsonDocument push = new BsonDocument();
+                for (final Map.Entry<String, BsonValue> field : operator.getValue().entrySet()) push.put(field.getKey(), new BsonDocument("$each", field.getValue()));
+                update.put("$push", push);
+            }
+            return new UpdateOneModel<>(filter, update, new UpdateOptions().upsert(upsert));
+        }
+    }
+}
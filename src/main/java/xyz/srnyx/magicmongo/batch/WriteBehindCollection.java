@@ -0,0 +1,424 @@
+package xyz.srnyx.magicmongo.batch;
+
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.model.*;
+import org.bson.conversions.Bson;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import xyz.srnyx.magicmongo.MagicCollection;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+
+
+/**
+ * A write-behind buffer in front of a {@link MagicCollection}
+ * <br>Writes are queued and return immediately, and a background thread flushes them as {@link MagicCollection#bulkWrite(List, BulkWriteOptions) bulkWrite} batches once a batch is {@link WriteBehindOptions#getBatchSize() full} or its {@link WriteBehindOptions#getFlushInterval(TimeUnit) flush interval} has passed
+ * <br>Updates to the same document can be merged before each batch is written (see {@link WriteBehindOptions#coalesceUpdates(boolean)})
+ * <br>When the queue is full, callers are blocked until there's space again (see {@link WriteBehindOptions#getEnqueueTimeout(TimeUnit)})
+ * <br><b>Queued writes are lost if the JVM exits without {@link #close() closing} this instance!</b>
+ *
+ * @param   <T> the type of the collection
+ */
+public class WriteBehindCollection<T> implements AutoCloseable {
+    /**
+     * The {@link MagicCollection} that writes are flushed to
+     */
+    @NotNull public final MagicCollection<T> collection;
+    /**
+     * {@link WriteBehindOptions#getBatchSize()}
+     */
+    private final int batchSize;
+    /**
+     * {@link WriteBehindOptions#getFlushInterval(TimeUnit)} in nanoseconds
+     */
+    private final long flushIntervalNanos;
+    /**
+     * {@link WriteBehindOptions#getEnqueueTimeout(TimeUnit)} in nanoseconds
+     */
+    private final long enqueueTimeoutNanos;
+    /**
+     * The {@link BulkWriteOptions} to flush batches with
+     */
+    @NotNull private final BulkWriteOptions bulkWriteOptions;
+    /**
+     * {@link WriteBehindOptions#isCoalesceUpdates()}
+     */
+    private final boolean coalesceUpdates;
+    /**
+     * {@link WriteBehindOptions#getOnResult()}
+     */
+    @Nullable private final BiConsumer<List<WriteModel<T>>, BulkWriteResult> onResult;
+    /**
+     * {@link WriteBehindOptions#getOnError()}
+     */
+    @Nullable private final BiConsumer<List<WriteModel<T>>, Throwable> onError;
+    /**
+     * The queue of pending writes and flush requests
+     */
+    @NotNull private final BlockingQueue<Pending<T>> queue;
+    /**
+     * The background thread that flushes the queue
+     */
+    @NotNull private final Thread worker;
+    /**
+     * Held (shared) while checking {@link #closed} and queueing an entry, and (exclusively) by the {@link #worker} before its last drain, so nothing can be queued after it
+     */
+    @NotNull private final ReadWriteLock enqueueLock = new ReentrantReadWriteLock();
+    /**
+     * Whether this instance has been {@link #close() closed}
+     */
+    private volatile boolean closed = false;
+
+    /**
+     * Creates a new {@link WriteBehindCollection} instance with the default {@link WriteBehindOptions}
+     *
+     * @param   collection  {@link #collection}
+     */
+    public WriteBehindCollection(@NotNull MagicCollection<T> collection) {
+        this(collection, new WriteBehindOptions<>());
+    }
+
+    /**
+     * Creates a new {@link WriteBehindCollection} instance and starts its background thread
+     *
+     * @param   collection  {@link #collection}
+     * @param   options     the {@link WriteBehindOptions} to use
+     */
+    public WriteBehindCollection(@NotNull MagicCollection<T> collection, @NotNull WriteBehindOptions<T> options) {
+        this.collection = collection;
+        this.batchSize = options.getBatchSize();
+        this.flushIntervalNanos = options.getFlushInterval(TimeUnit.NANOSECONDS);
+        this.enqueueTimeoutNanos = options.getEnqueueTimeout(TimeUnit.NANOSECONDS);
+        this.bulkWriteOptions = new BulkWriteOptions().ordered(options.isOrdered());
+        this.coalesceUpdates = options.isCoalesceUpdates();
+        this.onResult = options.getOnResult();
+        this.onError = options.getOnError();
+        this.queue = new ArrayBlockingQueue<>(options.getQueueCapacity());
+        worker = new Thread(this::run, "MagicMongo-WriteBehind-" + collection.getNamespace().getFullName());
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Queues an insert of a document
+     *
+     * @param   t   the document to insert
+     */
+    public void insertOne(@NotNull T t) {
+        enqueue(new InsertOneModel<>(t));
+    }
+
+    /**
+     * Queues an update of a document
+     *
+     * @param   filter  the filter to apply
+     * @param   update  the update to apply
+     */
+    public void updateOne(@NotNull Bson filter, @NotNull Bson update) {
+        enqueue(new UpdateOneModel<>(filter, update));
+    }
+
+    /**
+     * Queues an update of a document
+     *
+     * @param   filter  the filter to apply
+     * @param   update  the update to apply
+     * @param   options the {@link UpdateOptions} to apply
+     */
+    public void updateOne(@NotNull Bson filter, @NotNull Bson update, @NotNull UpdateOptions options) {
+        enqueue(new UpdateOneModel<>(filter, update, options));
+    }
+
+    /**
+     * Queues an upsert of a document
+     *
+     * @param   filter  the filter to apply
+     * @param   update  the update to apply
+     *
+     * @see             MagicCollection#upsertOne(Bson, Bson)
+     */
+    public void upsertOne(@NotNull Bson filter, @NotNull Bson update) {
+        enqueue(new UpdateOneModel<>(filter, update, new UpdateOptions().upsert(true)));
+    }
+
+    /**
+     * Queues a deletion of a document
+     *
+     * @param   filter  the filter to apply
+     */
+    public void deleteOne(@NotNull Bson filter) {
+        enqueue(new DeleteOneModel<>(filter));
+    }
+
+    /**
+     * Queues a deletion of a document
+     *
+     * @param   field   the field to filter by
+     * @param   value   the value of the field to filter by
+     *
+     * @see             MagicCollection#deleteOne(String, Object)
+     */
+    public void deleteOne(@NotNull String field, @Nullable Object value) {
+        deleteOne(Filters.eq(field, value));
+    }
+
+    /**
+     * Queues any {@link WriteModel}
+     *
+     * @param   model                   the {@link WriteModel} to queue
+     *
+     * @throws  IllegalStateException   if this instance is closed, the queue stayed full for longer than the {@link WriteBehindOptions#getEnqueueTimeout(TimeUnit) enqueue timeout}, or the calling thread was interrupted
+     */
+    public void enqueue(@NotNull WriteModel<T> model) {
+        if (!putIfOpen(new Pending<>(model, null, false))) throw new IllegalStateException("WriteBehindCollection is closed");
+    }
+
+    /**
+     * Gets the number of writes and flush requests that are currently queued
+     *
+     * @return  the number of queued entries
+     */
+    public int getPendingCount() {
+        return queue.size();
+    }
+
+    /**
+     * Flushes all writes that were queued before this call and waits for them to be written
+     * <br>If this instance is closed, waits for the background thread to finish flushing instead
+     *
+     * @throws  IllegalStateException   if the calling thread was interrupted
+     */
+    public void flush() {
+        if (Thread.currentThread() == worker) return;
+        final CountDownLatch latch = new CountDownLatch(1);
+        if (!putIfOpen(new Pending<>(null, latch, false))) {
+            join();
+            return;
+        }
+        await(latch);
+    }
+
+    /**
+     * Flushes all queued writes, stops the background thread, and waits for it to finish
+     * <br>Writes queued after this call are rejected, and writes that were already being queued (e.g. blocked on a full queue) are still flushed
+     *
+     * @throws  IllegalStateException   if the calling thread was interrupted
+     */
+    @Override
+    public void close() {
+        closed = true;
+        if (Thread.currentThread() == worker) return;
+        // Wakes up the background thread, which also notices on its own if the queue is full
+        queue.offer(new Pending<>(null, null, true));
+        join();
+    }
+
+    /**
+     * Puts an entry in the queue unless this instance is {@link #closed}
+     *
+     * @param   pending the entry to put
+     *
+     * @return          true if the entry was queued, false if this instance is closed
+     */
+    private boolean putIfOpen(@NotNull Pending<T> pending) {
+        enqueueLock.readLock().lock();
+        try {
+            if (closed) return false;
+            put(pending);
+            return true;
+        } finally {
+            enqueueLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Puts an entry in the queue, blocking for up to the enqueue timeout if it's full
+     *
+     * @param   pending the entry to put
+     */
+    private void put(@NotNull Pending<T> pending) {
+        try {
+            if (enqueueTimeoutNanos == Long.MAX_VALUE) {
+                queue.put(pending);
+                return;
+            }
+            if (!queue.offer(pending, enqueueTimeoutNanos, TimeUnit.NANOSECONDS)) throw new IllegalStateException("WriteBehindCollection queue is full (" + queue.size() + " pending)");
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while queueing write", e);
+        }
+    }
+
+    /**
+     * Waits for the given latch to be released
+     *
+     * @param   latch   the latch to wait for
+     */
+    private void await(@NotNull CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for flush", e);
+        }
+    }
+
+    /**
+     * Waits for the {@link #worker background thread} to stop
+     */
+    private void join() {
+        try {
+            worker.join();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for close", e);
+        }
+    }
+
+    /**
+     * The loop of the {@link #worker background thread}
+     */
+    private void run() {
+        final List<CountDownLatch> latches = new ArrayList<>();
+        boolean stop = false;
+        while (!stop) {
+            final List<WriteModel<T>> batch = new ArrayList<>();
+            try {
+                // Wait for the first entry
+                Pending<T> next = queue.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+
+                // Collect entries until the batch is full, the interval has passed, or a flush was requested
+                final long deadline = System.nanoTime() + flushIntervalNanos;
+                while (next != null) {
+                    if (next.model != null) {
+                        batch.add(next.model);
+                    } else {
+                        if (next.latch != null) latches.add(next.latch);
+                        stop = next.stop;
+                        break;
+                    }
+                    if (batch.size() >= batchSize) break;
+                    final long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) break;
+                    next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                }
+            } catch (final InterruptedException e) {
+                stop = true;
+            }
+
+            // Writes that raced with close() are flushed too
+            if (closed) stop = true;
+            if (stop) drainClosed(batch, latches);
+
+            write(batch);
+            for (final CountDownLatch latch : latches) latch.countDown();
+            latches.clear();
+        }
+    }
+
+    /**
+     * Drains the queue once this instance is {@link #closed}, until nothing else can be queued
+     * <br>Callers that checked {@link #closed} before it was set hold the read lock of the {@link #enqueueLock} until their entry is queued, so once the write lock is acquired, the queue can't grow anymore
+     *
+     * @param   batch   the batch to add the writes to
+     * @param   latches the list to add the flush latches to
+     */
+    private void drainClosed(@NotNull List<WriteModel<T>> batch, @NotNull List<CountDownLatch> latches) {
+        while (true) {
+            drain(batch, latches);
+            if (enqueueLock.writeLock().tryLock()) try {
+                drain(batch, latches);
+                return;
+            } finally {
+                enqueueLock.writeLock().unlock();
+            }
+            // A caller is still queueing (possibly blocked on a full queue, which was just drained)
+            Thread.yield();
+        }
+    }
+
+    /**
+     * Removes every entry currently in the queue
+     *
+     * @param   batch   the batch to add the writes to
+     * @param   latches the list to add the flush latches to
+     */
+    private void drain(@NotNull List<WriteModel<T>> batch, @NotNull List<CountDownLatch> latches) {
+        for (Pending<T> pending = queue.poll(); pending != null; pending = queue.poll()) {
+            if (pending.model != null) batch.add(pending.model);
+            if (pending.latch != null) latches.add(pending.latch);
+        }
+    }
+
+    /**
+     * Writes a batch using {@link MagicCollection#bulkWrite(List, BulkWriteOptions)} and calls the callbacks
+     * <br>Batches larger than {@link #batchSize} (only when closing) are split
+     *
+     * @param   batch   the batch to write
+     */
+    private void write(@NotNull List<WriteModel<T>> batch) {
+        if (coalesceUpdates && batch.size() > 1) batch = UpdateCoalescer.coalesce(batch, collection.getCodecRegistry());
+        for (int start = 0; start < batch.size(); start += batchSize) {
+            final List<WriteModel<T>> chunk = batch.subList(start, Math.min(batch.size(), start + batchSize));
+            final BulkWriteResult result;
+            try {
+                result = collection.bulkWrite(chunk, bulkWriteOptions);
+            } catch (final Throwable e) {
+                if (onError == null) {
+                    e.printStackTrace();
+                } else try {
+                    onError.accept(chunk, e);
+                } catch (final Throwable callbackError) {
+                    callbackError.printStackTrace();
+                }
+                continue;
+            }
+            if (onResult != null) try {
+                onResult.accept(chunk, result);
+            } catch (final Throwable callbackError) {
+                callbackError.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * An entry in the {@link #queue}, either a write or a flush request
+     *
+     * @param   <T> the type of the collection
+     */
+    private static class Pending<T> {
+        /**
+         * The write, or null if this is a flush request
+         */
+        @Nullable private final WriteModel<T> model;
+        /**
+         * The latch to release once everything before this entry has been written
+         */
+        @Nullable private final CountDownLatch latch;
+        /**
+         * Whether the background thread should stop after this entry
+         */
+        private final boolean stop;
+
+        /**
+         * Creates a new {@link Pending} instance
+         *
+         * @param   model   {@link #model}
+         * @param   latch   {@link #latch}
+         * @param   stop    {@link #stop}
+         */
+        private Pending(@Nullable WriteModel<T> model, @Nullable CountDownLatch latch, boolean stop) {
+            this.model = model;
+            this.latch = latch;
+            this.stop = stop;
+        }
+    }
+}
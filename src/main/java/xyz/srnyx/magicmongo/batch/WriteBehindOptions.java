@@ -0,0 +1,265 @@
+package xyz.srnyx.magicmongo.batch;
+
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.model.WriteModel;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+
+/**
+ * Options for a {@link WriteBehindCollection}
+ *
+ * @param   <T> the type of the collection
+ */
+public class WriteBehindOptions<T> {
+    /**
+     * The maximum number of writes in a single {@code bulkWrite}
+     */
+    private int batchSize = 500;
+    /**
+     * The maximum time (in nanoseconds) a write waits for its batch to fill up before it's flushed
+     */
+    private long flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(100);
+    /**
+     * The maximum number of writes that can be queued before callers are blocked
+     */
+    private int queueCapacity = 10000;
+    /**
+     * The maximum time (in nanoseconds) a caller is blocked when the queue is full, or {@link Long#MAX_VALUE} to block indefinitely
+     */
+    private long enqueueTimeoutNanos = Long.MAX_VALUE;
+    /**
+     * Whether batches should be written in order
+     */
+    private boolean ordered = true;
+    /**
+     * Whether updates with the same {@code {_id: value}} filter should be merged before each batch is written
+     */
+    private boolean coalesceUpdates = false;
+    /**
+     * The callback for each successfully written batch
+     */
+    @Nullable private BiConsumer<List<WriteModel<T>>, BulkWriteResult> onResult;
+    /**
+     * The callback for each batch that failed to be written
+     */
+    @Nullable private BiConsumer<List<WriteModel<T>>, Throwable> onError;
+
+    /**
+     * Creates a new {@link WriteBehindOptions} instance with the default options
+     */
+    public WriteBehindOptions() {}
+
+    /**
+     * Gets the maximum number of writes in a single {@code bulkWrite}
+     * <br>Defaults to 500
+     *
+     * @return  the maximum number of writes in a single batch
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Sets the maximum number of writes in a single {@code bulkWrite}
+     * <br>A batch is flushed as soon as it reaches this size
+     *
+     * @param   batchSize                   the maximum number of writes in a single batch
+     *
+     * @return                              this {@link WriteBehindOptions} instance
+     *
+     * @throws  IllegalArgumentException    if the batch size isn't positive
+     */
+    @NotNull
+    public WriteBehindOptions<T> batchSize(int batchSize) {
+        if (batchSize <= 0) throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * Gets the maximum time a write waits for its batch to fill up before it's flushed
+     * <br>Defaults to 100 milliseconds
+     *
+     * @param   unit    the {@link TimeUnit} to get the interval in
+     *
+     * @return          the flush interval
+     */
+    public long getFlushInterval(@NotNull TimeUnit unit) {
+        return unit.convert(flushIntervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Sets the maximum time a write waits for its batch to fill up before it's flushed
+     *
+     * @param   interval                    the flush interval
+     * @param   unit                        the {@link TimeUnit} of the interval
+     *
+     * @return                              this {@link WriteBehindOptions} instance
+     *
+     * @throws  IllegalArgumentException    if the interval isn't positive
+     */
+    @NotNull
+    public WriteBehindOptions<T> flushInterval(long interval, @NotNull TimeUnit unit) {
+        if (interval <= 0) throw new IllegalArgumentException("Flush interval must be positive: " + interval);
+        this.flushIntervalNanos = unit.toNanos(interval);
+        return this;
+    }
+
+    /**
+     * Gets the maximum number of writes that can be queued before callers are blocked
+     * <br>Defaults to 10000
+     *
+     * @return  the capacity of the queue
+     */
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * Sets the maximum number of writes that can be queued before callers are blocked
+     *
+     * @param   queueCapacity               the capacity of the queue
+     *
+     * @return                              this {@link WriteBehindOptions} instance
+     *
+     * @throws  IllegalArgumentException    if the capacity isn't positive
+     */
+    @NotNull
+    public WriteBehindOptions<T> queueCapacity(int queueCapacity) {
+        if (queueCapacity <= 0) throw new IllegalArgumentException("Queue capacity must be positive: " + queueCapacity);
+        this.queueCapacity = queueCapacity;
+        return this;
+    }
+
+    /**
+     * Gets the maximum time a caller is blocked when the queue is full
+     * <br>Defaults to {@link Long#MAX_VALUE} (block indefinitely)
+     *
+     * @param   unit    the {@link TimeUnit} to get the timeout in
+     *
+     * @return          the enqueue timeout
+     */
+    public long getEnqueueTimeout(@NotNull TimeUnit unit) {
+        return enqueueTimeoutNanos == Long.MAX_VALUE ? Long.MAX_VALUE : unit.convert(enqueueTimeoutNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Sets the maximum time a caller is blocked when the queue is full
+     * <br>If the timeout elapses, the write is rejected with an {@link IllegalStateException}
+     *
+     * @param   timeout                     the enqueue timeout, or 0 to reject immediately
+     * @param   unit                        the {@link TimeUnit} of the timeout
+     *
+     * @return                              this {@link WriteBehindOptions} instance
+     *
+     * @throws  IllegalArgumentException    if the timeout is negative
+     */
+    @NotNull
+    public WriteBehindOptions<T> enqueueTimeout(long timeout, @NotNull TimeUnit unit) {
+        if (timeout < 0) throw new IllegalArgumentException("Enqueue timeout can't be negative: " + timeout);
+        this.enqueueTimeoutNanos = unit.toNanos(timeout);
+        return this;
+    }
+
+    /**
+     * Whether batches should be written in order
+     * <br>Defaults to true
+     *
+     * @return  true if batches should be written in order
+     */
+    public boolean isOrdered() {
+        return ordered;
+    }
+
+    /**
+     * Sets whether batches should be written in order
+     *
+     * @param   ordered whether batches should be written in order
+     *
+     * @return          this {@link WriteBehindOptions} instance
+     */
+    @NotNull
+    public WriteBehindOptions<T> ordered(boolean ordered) {
+        this.ordered = ordered;
+        return this;
+    }
+
+    /**
+     * Whether updates with the same {@code {_id: value}} filter should be merged before each batch is written
+     * <br>Defaults to false
+     *
+     * @return  true if updates should be coalesced
+     *
+     * @see     UpdateCoalescer
+     */
+    public boolean isCoalesceUpdates() {
+        return coalesceUpdates;
+    }
+
+    /**
+     * Sets whether updates with the same {@code {_id: value}} filter should be merged (using {@link UpdateCoalescer}) before each batch is written
+     * <br>The {@link #getOnResult() result callback} then receives the merged writes
+     *
+     * @param   coalesceUpdates whether updates should be coalesced
+     *
+     * @return                  this {@link WriteBehindOptions} instance
+     */
+    @NotNull
+    public WriteBehindOptions<T> coalesceUpdates(boolean coalesceUpdates) {
+        this.coalesceUpdates = coalesceUpdates;
+        return this;
+    }
+
+    /**
+     * Gets the callback for each successfully written batch
+     *
+     * @return  the callback, or null if none is set
+     */
+    @Nullable
+    public BiConsumer<List<WriteModel<T>>, BulkWriteResult> getOnResult() {
+        return onResult;
+    }
+
+    /**
+     * Sets the callback for each successfully written batch
+     * <br>It's called on the background thread, so it should be fast
+     *
+     * @param   onResult    the callback, or null for none
+     *
+     * @return              this {@link WriteBehindOptions} instance
+     */
+    @NotNull
+    public WriteBehindOptions<T> onResult(@Nullable BiConsumer<List<WriteModel<T>>, BulkWriteResult> onResult) {
+        this.onResult = onResult;
+        return this;
+    }
+
+    /**
+     * Gets the callback for each batch that failed to be written
+     *
+     * @return  the callback, or null if none is set (failures are printed)
+     */
+    @Nullable
+    public BiConsumer<List<WriteModel<T>>, Throwable> getOnError() {
+        return onError;
+    }
+
+    /**
+     * Sets the callback for each batch that failed to be written
+     * <br>It's called on the background thread, so it should be fast
+     *
+     * @param   onError the callback, or null to print failures
+     *
+     * @return          this {@link WriteBehindOptions} instance
+     */
+    @NotNull
+    public WriteBehindOptions<T> onError(@Nullable BiConsumer<List<WriteModel<T>>, Throwable> onError) {
+        this.onError = onError;
+        return this;
+    }
+}
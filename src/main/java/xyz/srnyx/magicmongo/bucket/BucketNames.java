@@ -0,0 +1,140 @@
+package xyz.srnyx.magicmongo.bucket;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import xyz.srnyx.magicmongo.MagicDatabase;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * A cache of the names of the existing buckets with a prefix, so reads don't have to list the collections of the database every time
+ * <br>The names are listed on first use and every {@link #REFRESH_INTERVAL_NANOS} after that (to see buckets created or dropped elsewhere), and buckets created or dropped through this process are {@link #add(String) added}/{@link #remove(String) removed} right away
+ * <br>Names are sorted newest first, which is the reverse of their natural order since suffixes sort chronologically
+ */
+final class BucketNames {
+    /**
+     * How long the listed names are used before listing them again, in nanoseconds
+     */
+    static final long REFRESH_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    /**
+     * The {@link MagicDatabase} the buckets are in
+     */
+    @NotNull private final MagicDatabase database;
+    /**
+     * The prefix of the names of the buckets, with the {@code _} separator
+     */
+    @NotNull private final String start;
+    /**
+     * The length of the buckets
+     */
+    @NotNull private final BucketPeriod period;
+    /**
+     * The names of the existing buckets (newest first), or null if they weren't listed yet
+     */
+    @Nullable private volatile NavigableSet<String> names;
+    /**
+     * When the names were last listed, from {@link System#nanoTime()}
+     */
+    private volatile long listedAt;
+
+    /**
+     * Creates a new {@link BucketNames} instance
+     *
+     * @param   database    the {@link MagicDatabase} the buckets are in
+     * @param   prefix      the prefix of the names of the buckets (without the {@code _} separator)
+     * @param   period      the length of the buckets
+     */
+    BucketNames(@NotNull MagicDatabase database, @NotNull String prefix, @NotNull BucketPeriod period) {
+        this.database = database;
+        this.start = prefix + '_';
+        this.period = period;
+    }
+
+    /**
+     * Gets the names of the existing buckets, listing them if they weren't listed yet or are too old
+     *
+     * @return  the names of the buckets, newest first (a copy)
+     */
+    @NotNull
+    List<String> get() {
+        return new ArrayList<>(getSet());
+    }
+
+    /**
+     * Gets the names of the existing buckets between two names, listing them if they weren't listed yet or are too old
+     *
+     * @param   first   the name of the oldest bucket (inclusive)
+     * @param   last    the name of the newest bucket (inclusive)
+     *
+     * @return          the names of the buckets, newest first (a copy)
+     */
+    @NotNull
+    List<String> get(@NotNull String first, @NotNull String last) {
+        if (first.compareTo(last) > 0) return new ArrayList<>();
+        return new ArrayList<>(getSet().subSet(last, true, first, true));
+    }
+
+    /**
+     * Gets the names of the existing buckets, listing them if they weren't listed yet or are too old
+     *
+     * @return  the names of the buckets, newest first
+     */
+    @NotNull
+    private NavigableSet<String> getSet() {
+        final NavigableSet<String> current = names;
+        if (current != null && System.nanoTime() - listedAt < REFRESH_INTERVAL_NANOS) return current;
+        synchronized (this) {
+            final NavigableSet<String> recheck = names;
+            if (recheck != null && recheck != current) return recheck;
+            return refresh();
+        }
+    }
+
+    /**
+     * Lists the names of the existing buckets again
+     *
+     * @return  the names of the buckets, newest first
+     */
+    @NotNull
+    synchronized NavigableSet<String> refresh() {
+        final NavigableSet<String> listed = new ConcurrentSkipListSet<>(Comparator.reverseOrder());
+        for (final String name : database.listCollectionNames()) if (name.startsWith(start) && period.parse(name.substring(start.length())) != null) listed.add(name);
+        names = listed;
+        listedAt = System.nanoTime();
+        return listed;
+    }
+
+    /**
+     * Adds the name of a bucket that was (or is about to be) created
+     * <br>Only locks if the name is new, so it's cheap to call on every write
+     *
+     * @param   name    the name of the bucket
+     */
+    void add(@NotNull String name) {
+        final NavigableSet<String> current = names;
+        if (current != null && current.contains(name)) return;
+        synchronized (this) {
+            final NavigableSet<String> locked = names;
+            if (locked != null) locked.add(name);
+        }
+    }
+
+    /**
+     * Removes the name of a bucket that was dropped
+     *
+     * @param   name    the name of the bucket
+     */
+    synchronized void remove(@NotNull String name) {
+        final NavigableSet<String> current = names;
+        if (current != null) current.remove(name);
+    }
+
+    @Override @NotNull
+    public String toString() {
+        return "BucketNames{prefix=" + start + ", period=" + period + ", names=" + names + "}";
+    }
+}
@@ -0,0 +1,146 @@
+package xyz.srnyx.magicmongo.bucket;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.time.format.SignStyle;
+import java.time.temporal.ChronoField;
+import java.time.temporal.IsoFields;
+import java.time.temporal.TemporalAdjusters;
+
+
+/**
+ * The length of the buckets of a {@link MagicCollectionFamily}, which decides the suffix of the name of each bucket
+ * <br>Suffixes are zero-padded, so sorting bucket names alphabetically also sorts them chronologically
+ */
+public enum BucketPeriod {
+    /**
+     * One bucket per day, named like {@code events_2026_10_16}
+     */
+    DAY(new DateTimeFormatterBuilder()
+            .appendValue(ChronoField.YEAR, 4, 10, SignStyle.EXCEEDS_PAD).appendLiteral('_')
+            .appendValue(ChronoField.MONTH_OF_YEAR, 2).appendLiteral('_')
+            .appendValue(ChronoField.DAY_OF_MONTH, 2)
+            .toFormatter(), "\\d{4,}_\\d{2}_\\d{2}") {
+        @Override @NotNull
+        public LocalDate getStart(@NotNull LocalDate date) {
+            return date;
+        }
+
+        @Override @NotNull
+        public LocalDate getNext(@NotNull LocalDate start) {
+            return start.plusDays(1);
+        }
+    },
+    /**
+     * One bucket per ISO week (starting on Monday), named like {@code events_2026_w42}
+     * <br>The year is the ISO week-based year, so the first days of January may be in the last week of the previous year
+     */
+    WEEK(new DateTimeFormatterBuilder()
+            .appendValue(IsoFields.WEEK_BASED_YEAR, 4, 10, SignStyle.EXCEEDS_PAD).appendLiteral("_w")
+            .appendValue(IsoFields.WEEK_OF_WEEK_BASED_YEAR, 2)
+            .parseDefaulting(ChronoField.DAY_OF_WEEK, 1)
+            .toFormatter(), "\\d{4,}_w\\d{2}") {
+        @Override @NotNull
+        public LocalDate getStart(@NotNull LocalDate date) {
+            return date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        }
+
+        @Override @NotNull
+        public LocalDate getNext(@NotNull LocalDate start) {
+            return start.plusWeeks(1);
+        }
+    },
+    /**
+     * One bucket per month, named like {@code events_2026_10}
+     */
+    MONTH(new DateTimeFormatterBuilder()
+            .appendValue(ChronoField.YEAR, 4, 10, SignStyle.EXCEEDS_PAD).appendLiteral('_')
+            .appendValue(ChronoField.MONTH_OF_YEAR, 2)
+            .parseDefaulting(ChronoField.DAY_OF_MONTH, 1)
+            .toFormatter(), "\\d{4,}_\\d{2}") {
+        @Override @NotNull
+        public LocalDate getStart(@NotNull LocalDate date) {
+            return date.withDayOfMonth(1);
+        }
+
+        @Override @NotNull
+        public LocalDate getNext(@NotNull LocalDate start) {
+            return start.plusMonths(1);
+        }
+    };
+
+    /**
+     * The formatter of the suffixes
+     */
+    @NotNull private final DateTimeFormatter formatter;
+    /**
+     * The regular expression matching the suffixes
+     */
+    @NotNull public final String regex;
+
+    /**
+     * Creates a new {@link BucketPeriod}
+     *
+     * @param   formatter   {@link #formatter}
+     * @param   regex       {@link #regex}
+     */
+    BucketPeriod(@NotNull DateTimeFormatter formatter, @NotNull String regex) {
+        this.formatter = formatter;
+        this.regex = regex;
+    }
+
+    /**
+     * Gets the first day of the bucket containing a date
+     *
+     * @param   date    the date
+     *
+     * @return          the first day of its bucket
+     */
+    @NotNull
+    public abstract LocalDate getStart(@NotNull LocalDate date);
+
+    /**
+     * Gets the first day of the bucket after a bucket
+     *
+     * @param   start   the first day of the bucket
+     *
+     * @return          the first day of the next bucket
+     */
+    @NotNull
+    public abstract LocalDate getNext(@NotNull LocalDate start);
+
+    /**
+     * Formats the suffix of the bucket containing a date
+     *
+     * @param   date    the date
+     *
+     * @return          the suffix, for example {@code 2026_10} for {@link #MONTH}
+     */
+    @NotNull
+    public String format(@NotNull LocalDate date) {
+        return formatter.format(getStart(date));
+    }
+
+    /**
+     * Parses the suffix of a bucket
+     *
+     * @param   suffix  the suffix
+     *
+     * @return          the first day of the bucket, or null if the suffix isn't valid for this period
+     */
+    @Nullable
+    public LocalDate parse(@NotNull String suffix) {
+        if (!suffix.matches(regex)) return null;
+        try {
+            return getStart(LocalDate.parse(suffix, formatter));
+        } catch (final DateTimeParseException e) {
+            return null;
+        }
+    }
+}
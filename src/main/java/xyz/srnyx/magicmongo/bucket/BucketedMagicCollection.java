@@ -0,0 +1,404 @@
+package xyz.srnyx.magicmongo.bucket;
+
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.result.InsertManyResult;
+import com.mongodb.client.result.InsertOneResult;
+import org.bson.conversions.Bson;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import xyz.srnyx.magicmongo.FanOut;
+import xyz.srnyx.magicmongo.MagicCollection;
+import xyz.srnyx.magicmongo.MagicDatabase;
+import xyz.srnyx.magicmongo.MagicMongo;
+
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+
+/**
+ * A time-series collection split into one {@link MagicCollection} (bucket) per {@link BucketPeriod period}, named {@code <prefix>_<suffix>} (for example {@code events_2026_10_16})
+ * <br>Unlike a {@link MagicCollectionFamily}, documents are routed by their own timestamp (not the current time), so:
+ * <ul>
+ *     <li>Range queries only hit the buckets overlapping the range, run on them in parallel (on the {@link #executor}), and k-way merge their sorted results</li>
+ *     <li>Expired data is removed by {@link #dropExpired() dropping whole buckets}, instead of deleting (and reindexing) documents one by one like a TTL index</li>
+ * </ul>
+ * Buckets are created using {@link MagicDatabase#newMagicCollection(String, Class)} and aren't registered in the {@link #database}
+ * <br>The names of the existing buckets are cached, and listed again every minute to see buckets created or dropped elsewhere (or on {@link #refreshBucketNames()})
+ *
+ * @param   <T> the type of the collection
+ */
+public class BucketedMagicCollection<T> {
+    /**
+     * The {@link MagicDatabase} the buckets are in
+     */
+    @NotNull public final MagicDatabase database;
+    /**
+     * The prefix of the names of the buckets (without the {@code _} separator)
+     */
+    @NotNull public final String prefix;
+    /**
+     * The class of the collection
+     */
+    @NotNull public final Class<T> clazz;
+    /**
+     * The length of the buckets
+     */
+    @NotNull public final BucketPeriod period;
+    /**
+     * The name of the timestamp field, which should be stored as a BSON date
+     */
+    @NotNull public final String timestampField;
+    /**
+     * The function getting the timestamp of a document (the value of {@link #timestampField})
+     */
+    @NotNull public final Function<? super T, Instant> timestamp;
+    /**
+     * How long buckets are kept after they end, or null to keep them forever
+     */
+    @Nullable public final Duration retention;
+    /**
+     * The time zone the buckets start and end in
+     */
+    @NotNull public final ZoneId zone;
+    /**
+     * The {@link Clock} used to find expired buckets
+     */
+    @NotNull public final Clock clock;
+    /**
+     * The {@link Executor} to run range queries on
+     */
+    @NotNull public final Executor executor;
+    /**
+     * The buckets created so far, by name
+     */
+    @NotNull private final Map<String, MagicCollection<T>> buckets = new ConcurrentHashMap<>();
+    /**
+     * The names of the existing buckets
+     */
+    @NotNull private final BucketNames names;
+
+    /**
+     * Creates a new {@link BucketedMagicCollection} instance
+     *
+     * @param   database                    {@link #database}
+     * @param   prefix                      {@link #prefix}
+     * @param   clazz                       {@link #clazz}
+     * @param   period                      {@link #period}
+     * @param   timestampField              {@link #timestampField}
+     * @param   timestamp                   {@link #timestamp}
+     * @param   retention                   {@link #retention}
+     * @param   zone                        {@link #zone}
+     * @param   clock                       {@link #clock}
+     * @param   executor                    {@link #executor}
+     *
+     * @throws  IllegalArgumentException    if the retention is negative
+     *
+     * @see                                 MagicMongo#newAsyncExecutor()
+     */
+    public BucketedMagicCollection(@NotNull MagicDatabase database, @NotNull String prefix, @NotNull Class<T> clazz, @NotNull BucketPeriod period, @NotNull String timestampField, @NotNull Function<? super T, Instant> timestamp, @Nullable Duration retention, @NotNull ZoneId zone, @NotNull Clock clock, @NotNull Executor executor) {
+        if (retention != null && retention.isNegative()) throw new IllegalArgumentException("Retention must not be negative: " + retention);
+        this.database = database;
+        this.prefix = prefix;
+        this.clazz = clazz;
+        this.period = period;
+        this.timestampField = timestampField;
+        this.timestamp = timestamp;
+        this.retention = retention;
+        this.zone = zone;
+        this.clock = clock;
+        this.executor = executor;
+        this.names = new BucketNames(database, prefix, period);
+    }
+
+    /**
+     * Creates a new {@link BucketedMagicCollection} instance with buckets in UTC
+     *
+     * @param   database                    {@link #database}
+     * @param   prefix                      {@link #prefix}
+     * @param   clazz                       {@link #clazz}
+     * @param   period                      {@link #period}
+     * @param   timestampField              {@link #timestampField}
+     * @param   timestamp                   {@link #timestamp}
+     * @param   retention                   {@link #retention}
+     * @param   executor                    {@link #executor}
+     *
+     * @throws  IllegalArgumentException    if the retention is negative
+     *
+     * @see                                 MagicMongo#newAsyncExecutor()
+     */
+    public BucketedMagicCollection(@NotNull MagicDatabase database, @NotNull String prefix, @NotNull Class<T> clazz, @NotNull BucketPeriod period, @NotNull String timestampField, @NotNull Function<? super T, Instant> timestamp, @Nullable Duration retention, @NotNull Executor executor) {
+        this(database, prefix, clazz, period, timestampField, timestamp, retention, ZoneOffset.UTC, Clock.systemUTC(), executor);
+    }
+
+    /**
+     * Gets the name of the bucket containing a time
+     *
+     * @param   time    the time
+     *
+     * @return          the name of the bucket
+     */
+    @NotNull
+    public String getBucketName(@NotNull Instant time) {
+        return prefix + '_' + period.format(time.atZone(zone).toLocalDate());
+    }
+
+    /**
+     * Gets the bucket containing a time
+     *
+     * @param   time    the time
+     *
+     * @return          the bucket
+     */
+    @NotNull
+    public MagicCollection<T> getBucket(@NotNull Instant time) {
+        return getBucket(getBucketName(time));
+    }
+
+    /**
+     * Gets a bucket by name, creating its {@link MagicCollection} if it wasn't created yet
+     *
+     * @param   name    the name of the bucket
+     *
+     * @return          the bucket
+     */
+    @NotNull
+    private MagicCollection<T> getBucket(@NotNull String name) {
+        final MagicCollection<T> bucket = buckets.get(name);
+        if (bucket != null) return bucket;
+        return buckets.computeIfAbsent(name, key -> database.newMagicCollection(key, clazz));
+    }
+
+    /**
+     * Gets the names of the existing buckets (cached)
+     *
+     * @return  the names of the buckets, newest first
+     */
+    @NotNull
+    public List<String> getBucketNames() {
+        return names.get();
+    }
+
+    /**
+     * Lists the names of the existing buckets again, to see buckets created or dropped elsewhere right away
+     */
+    public void refreshBucketNames() {
+        names.refresh();
+    }
+
+    /**
+     * Inserts a document in the bucket of its timestamp
+     *
+     * @param   document    the document to insert
+     *
+     * @return              the {@link InsertOneResult} of the operation
+     */
+    @NotNull
+    public InsertOneResult insertOne(@NotNull T document) {
+        final String name = getBucketName(timestamp.apply(document));
+        final InsertOneResult result = getBucket(name).insertOne(document);
+        names.add(name);
+        return result;
+    }
+
+    /**
+     * Inserts documents in the buckets of their timestamps, with one {@code insertMany} per bucket
+     *
+     * @param   documents   the documents to insert
+     *
+     * @return              the {@link InsertManyResult} of each bucket, by name
+     */
+    @NotNull
+    public Map<String, InsertManyResult> insertMany(@NotNull List<? extends T> documents) {
+        final Map<String, List<T>> byBucket = new LinkedHashMap<>();
+        for (final T document : documents) byBucket.computeIfAbsent(getBucketName(timestamp.apply(document)), key -> new ArrayList<>()).add(document);
+        final Map<String, InsertManyResult> results = new LinkedHashMap<>();
+        for (final Map.Entry<String, List<T>> entry : byBucket.entrySet()) {
+            results.put(entry.getKey(), getBucket(entry.getKey()).insertMany(entry.getValue()));
+            names.add(entry.getKey());
+        }
+        return results;
+    }
+
+    /**
+     * Finds the documents with a timestamp in a range, sorted by timestamp (oldest first)
+     *
+     * @param   filter  the filter to apply
+     * @param   from    the start of the range (inclusive)
+     * @param   to      the end of the range (exclusive)
+     *
+     * @return          the documents found
+     *
+     * @see             #findRange(Bson, Instant, Instant, Bson, Comparator, int)
+     */
+    @NotNull
+    public List<T> findRange(@NotNull Bson filter, @NotNull Instant from, @NotNull Instant to) {
+        return findRange(filter, from, to, Sorts.ascending(timestampField), Comparator.comparing(timestamp), 0);
+    }
+
+    /**
+     * Finds the documents with a timestamp in a range
+     * <br>Only the buckets overlapping the range are queried, in parallel. Each bucket sorts its results using {@code sort}, and they're k-way merged using {@code comparator}, so both must define the same order
+     *
+     * @param   filter                      the filter to apply
+     * @param   from                        the start of the range (inclusive)
+     * @param   to                          the end of the range (exclusive)
+     * @param   sort                        the sort applied by each bucket
+     * @param   comparator                  the comparator equivalent to {@code sort}
+     * @param   limit                       the maximum number of documents, or 0 for no limit (each bucket returns at most this many)
+     *
+     * @return                              the documents found, sorted
+     *
+     * @throws  IllegalArgumentException    if the limit is negative
+     */
+    @NotNull
+    public List<T> findRange(@NotNull Bson filter, @NotNull Instant from, @NotNull Instant to, @NotNull Bson sort, @NotNull Comparator<? super T> comparator, int limit) {
+        if (limit < 0) throw new IllegalArgumentException("Limit must not be negative: " + limit);
+        final Bson rangeFilter = getRangeFilter(filter, from, to);
+        final List<List<T>> results = FanOut.run(executor, getBucketNames(from, to), name -> {
+            final FindIterable<T> find = getBucket(name).find(rangeFilter).sort(sort);
+            if (limit > 0) find.limit(limit);
+            return find.into(new ArrayList<>());
+        });
+        return merge(results, comparator, limit);
+    }
+
+    /**
+     * Counts the documents with a timestamp in a range
+     * <br>Only the buckets overlapping the range are queried, in parallel
+     *
+     * @param   filter  the filter to apply
+     * @param   from    the start of the range (inclusive)
+     * @param   to      the end of the range (exclusive)
+     *
+     * @return          the number of documents
+     */
+    public long countRange(@NotNull Bson filter, @NotNull Instant from, @NotNull Instant to) {
+        final Bson rangeFilter = getRangeFilter(filter, from, to);
+        final List<Long> counts = FanOut.run(executor, getBucketNames(from, to), name -> getBucket(name).countDocuments(rangeFilter));
+        long count = 0;
+        for (final long bucketCount : counts) count += bucketCount;
+        return count;
+    }
+
+    /**
+     * Drops the buckets that ended more than {@link #retention} ago
+     *
+     * @return  the names of the dropped buckets
+     */
+    @NotNull
+    public List<String> dropExpired() {
+        if (retention == null) return Collections.emptyList();
+        final Instant cutoff = clock.instant().minus(retention);
+        final List<String> dropped = new ArrayList<>();
+        for (final String name : names.refresh()) {
+            final LocalDate start = period.parse(name.substring(prefix.length() + 1));
+            if (start == null || period.getNext(start).atStartOfDay(zone).toInstant().isAfter(cutoff)) continue;
+            getBucket(name).drop();
+            buckets.remove(name);
+            names.remove(name);
+            dropped.add(name);
+        }
+        return dropped;
+    }
+
+    /**
+     * Gets the names of the existing buckets overlapping a time range, without listing the collections of the {@link #database} (unless the cached names are too old)
+     * <br>The names of the first and last overlapping buckets are computed from the range, and the cached names between them (inclusive) are the existing overlapping buckets
+     *
+     * @param   from    the start of the range (inclusive)
+     * @param   to      the end of the range (exclusive)
+     *
+     * @return          the names of the buckets, newest first
+     */
+    @NotNull
+    private List<String> getBucketNames(@NotNull Instant from, @NotNull Instant to) {
+        if (!from.isBefore(to)) return Collections.emptyList();
+        return names.get(getBucketName(from), getBucketName(to.minusNanos(1)));
+    }
+
+    /**
+     * Combines a filter with a timestamp range
+     *
+     * @param   filter  the filter
+     * @param   from    the start of the range (inclusive)
+     * @param   to      the end of the range (exclusive)
+     *
+     * @return          the combined filter
+     */
+    @NotNull
+    private Bson getRangeFilter(@NotNull Bson filter, @NotNull Instant from, @NotNull Instant to) {
+        return Filters.and(filter, Filters.gte(timestampField, Date.from(from)), Filters.lt(timestampField, Date.from(to)));
+    }
+
+    /**
+     * K-way merges sorted lists
+     *
+     * @param   lists       the lists, each sorted using {@code comparator}
+     * @param   comparator  the comparator
+     * @param   limit       the maximum number of elements, or 0 for no limit
+     *
+     * @return              the merged list
+     *
+     * @param   <R>         the type of the elements
+     */
+    @NotNull
+    private static <R> List<R> merge(@NotNull List<List<R>> lists, @NotNull Comparator<? super R> comparator, int limit) {
+        int size = 0;
+        for (final List<R> list : lists) size += list.size();
+        if (limit > 0) size = Math.min(size, limit);
+        final List<R> merged = new ArrayList<>(size);
+        final PriorityQueue<Cursor<R>> queue = new PriorityQueue<>(Math.max(1, lists.size()), (a, b) -> comparator.compare(a.current(), b.current()));
+        for (final List<R> list : lists) if (!list.isEmpty()) queue.add(new Cursor<>(list));
+        while (merged.size() < size) {
+            final Cursor<R> cursor = queue.poll();
+            if (cursor == null) break;
+            merged.add(cursor.current());
+            if (++cursor.index < cursor.list.size()) queue.add(cursor);
+        }
+        return merged;
+    }
+
+    @Override @NotNull
+    public String toString() {
+        return "BucketedMagicCollection{database=" + database.getName() + ", prefix=" + prefix + ", class=" + clazz.getName() + ", period=" + period + ", timestampField=" + timestampField + ", retention=" + retention + ", zone=" + zone + "}";
+    }
+
+    /**
+     * A position in a sorted list being merged
+     *
+     * @param   <R> the type of the elements
+     */
+    private static final class Cursor<R> {
+        /**
+         * The list
+         */
+        @NotNull private final List<R> list;
+        /**
+         * The index of the current element
+         */
+        private int index;
+
+        /**
+         * Creates a new {@link Cursor} instance at the start of a list
+         *
+         * @param   list    {@link #list}
+         */
+        private Cursor(@NotNull List<R> list) {
+            this.list = list;
+        }
+
+        /**
+         * Gets the current element
+         *
+         * @return  the current element
+         */
+        private R current() {
+            return list.get(index);
+        }
+    }
+}
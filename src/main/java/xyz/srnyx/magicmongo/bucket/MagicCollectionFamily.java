@@ -0,0 +1,322 @@
+package xyz.srnyx.magicmongo.bucket;
+
+import com.mongodb.client.result.InsertManyResult;
+import com.mongodb.client.result.InsertOneResult;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.conversions.Bson;
+import org.jetbrains.annotations.NotNull;
+import xyz.srnyx.magicmongo.FanOut;
+import xyz.srnyx.magicmongo.MagicCollection;
+import xyz.srnyx.magicmongo.MagicDatabase;
+import xyz.srnyx.magicmongo.MagicMongo;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+
+/**
+ * A rolling family of {@link MagicCollection MagicCollections} of the same class, with one collection (bucket) per {@link BucketPeriod period}, named {@code <prefix>_<suffix>} (for example {@code events_2026_10})
+ * <br>Writes go to the bucket of the current time, and reads are run on every bucket in parallel (on the {@link #executor}), which keeps the indexes of each bucket small for high-volume time-series data
+ * <br>Buckets are registered in the {@link #database} when written to (like any other collection), so they can also be used directly using {@link #forTime(Instant)} or {@link MagicDatabase#getMagicCollection(String, Class)}. Reads use the family's own handles, so reading old buckets doesn't register them
+ * <br>The names of the existing buckets are cached, and listed again every minute to see buckets created or dropped elsewhere (or on {@link #refreshBucketNames()})
+ *
+ * @param   <T> the type of the collections
+ */
+public class MagicCollectionFamily<T> {
+    /**
+     * The {@link MagicDatabase} the buckets are in
+     */
+    @NotNull public final MagicDatabase database;
+    /**
+     * The prefix of the names of the buckets (without the {@code _} separator)
+     */
+    @NotNull public final String prefix;
+    /**
+     * The class of the collections
+     */
+    @NotNull public final Class<T> clazz;
+    /**
+     * The length of the buckets
+     */
+    @NotNull public final BucketPeriod period;
+    /**
+     * The time zone the buckets start and end in
+     */
+    @NotNull public final ZoneId zone;
+    /**
+     * The {@link Clock} used to get the current bucket
+     */
+    @NotNull public final Clock clock;
+    /**
+     * The {@link Executor} to run reads on
+     */
+    @NotNull public final Executor executor;
+    /**
+     * The names of the existing buckets
+     */
+    @NotNull private final BucketNames names;
+    /**
+     * The handles of the buckets read so far, by name (pruned when the buckets no longer exist)
+     */
+    @NotNull private final Map<String, MagicCollection<T>> handles = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new {@link MagicCollectionFamily} instance
+     *
+     * @param   database    {@link #database}
+     * @param   prefix      {@link #prefix}
+     * @param   clazz       {@link #clazz}
+     * @param   period      {@link #period}
+     * @param   zone        {@link #zone}
+     * @param   clock       {@link #clock}
+     * @param   executor    {@link #executor}
+     *
+     * @see                 MagicMongo#newAsyncExecutor()
+     */
+    public MagicCollectionFamily(@NotNull MagicDatabase database, @NotNull String prefix, @NotNull Class<T> clazz, @NotNull BucketPeriod period, @NotNull ZoneId zone, @NotNull Clock clock, @NotNull Executor executor) {
+        this.database = database;
+        this.prefix = prefix;
+        this.clazz = clazz;
+        this.period = period;
+        this.zone = zone;
+        this.clock = clock;
+        this.executor = executor;
+        this.names = new BucketNames(database, prefix, period);
+    }
+
+    /**
+     * Creates a new {@link MagicCollectionFamily} instance with buckets in UTC
+     *
+     * @param   database    {@link #database}
+     * @param   prefix      {@link #prefix}
+     * @param   clazz       {@link #clazz}
+     * @param   period      {@link #period}
+     * @param   executor    {@link #executor}
+     *
+     * @see                 MagicMongo#newAsyncExecutor()
+     */
+    public MagicCollectionFamily(@NotNull MagicDatabase database, @NotNull String prefix, @NotNull Class<T> clazz, @NotNull BucketPeriod period, @NotNull Executor executor) {
+        this(database, prefix, clazz, period, ZoneOffset.UTC, Clock.systemUTC(), executor);
+    }
+
+    /**
+     * Gets the name of the bucket containing a time
+     *
+     * @param   time    the time
+     *
+     * @return          the name of the bucket
+     */
+    @NotNull
+    public String getBucketName(@NotNull Instant time) {
+        return getBucketName(time.atZone(zone).toLocalDate());
+    }
+
+    /**
+     * Gets the name of the bucket containing a date
+     *
+     * @param   date    the date
+     *
+     * @return          the name of the bucket
+     */
+    @NotNull
+    private String getBucketName(@NotNull LocalDate date) {
+        return prefix + '_' + period.format(date);
+    }
+
+    /**
+     * Gets the bucket containing a time, loading it if it isn't loaded yet
+     *
+     * @param   time    the time
+     *
+     * @return          the bucket
+     */
+    @NotNull
+    public MagicCollection<T> forTime(@NotNull Instant time) {
+        return database.getOrLoadMagicCollection(getBucketName(time), clazz);
+    }
+
+    /**
+     * Gets the bucket of the current time (according to the {@link #clock}), loading it if it isn't loaded yet
+     *
+     * @return  the current bucket
+     */
+    @NotNull
+    public MagicCollection<T> current() {
+        return forTime(clock.instant());
+    }
+
+    /**
+     * Inserts a document in the {@link #current() current bucket}
+     *
+     * @param   document    the document to insert
+     *
+     * @return              the {@link InsertOneResult} of the operation
+     */
+    @NotNull
+    public InsertOneResult insertOne(@NotNull T document) {
+        final MagicCollection<T> bucket = current();
+        final InsertOneResult result = bucket.insertOne(document);
+        names.add(bucket.getNamespace().getCollectionName());
+        return result;
+    }
+
+    /**
+     * Inserts documents in the {@link #current() current bucket}
+     *
+     * @param   documents   the documents to insert
+     *
+     * @return              the {@link InsertManyResult} of the operation
+     */
+    @NotNull
+    public InsertManyResult insertMany(@NotNull List<? extends T> documents) {
+        final MagicCollection<T> bucket = current();
+        final InsertManyResult result = bucket.insertMany(documents);
+        names.add(bucket.getNamespace().getCollectionName());
+        return result;
+    }
+
+    /**
+     * Upserts a document in the {@link #current() current bucket}
+     * <br>Documents in older buckets aren't updated
+     *
+     * @param   filter  the filter to apply
+     * @param   update  the update to apply
+     *
+     * @return          the {@link UpdateResult} of the operation
+     */
+    @NotNull
+    public UpdateResult upsertOne(@NotNull Bson filter, @NotNull Bson update) {
+        final MagicCollection<T> bucket = current();
+        final UpdateResult result = bucket.upsertOne(filter, update);
+        names.add(bucket.getNamespace().getCollectionName());
+        return result;
+    }
+
+    /**
+     * Gets the names of the existing buckets of this family (cached)
+     *
+     * @return  the names of the buckets, newest first
+     */
+    @NotNull
+    public List<String> getBucketNames() {
+        return names.get();
+    }
+
+    /**
+     * Lists the names of the existing buckets again, to see buckets created or dropped elsewhere right away
+     */
+    public void refreshBucketNames() {
+        names.refresh();
+    }
+
+    /**
+     * Lists the names of the existing buckets of this family that overlap a time range
+     *
+     * @param   from    the start of the range (inclusive)
+     * @param   to      the end of the range (inclusive)
+     *
+     * @return          the names of the buckets, newest first
+     */
+    @NotNull
+    public List<String> getBucketNames(@NotNull Instant from, @NotNull Instant to) {
+        return names.get(getBucketName(from), getBucketName(to));
+    }
+
+    /**
+     * Finds one document in the buckets, in parallel
+     *
+     * @param   filter  the filter to apply
+     *
+     * @return          the document found in the newest bucket that has one, or empty if none was found
+     */
+    @NotNull
+    public Optional<T> findOne(@NotNull Bson filter) {
+        final List<Optional<T>> results = fanOut(getBucketNames(), collection -> collection.findOne(filter));
+        for (final Optional<T> result : results) if (result.isPresent()) return result;
+        return Optional.empty();
+    }
+
+    /**
+     * Finds multiple documents in every bucket, in parallel
+     *
+     * @param   filter  the filter to apply
+     *
+     * @return          the documents found, from the newest bucket to the oldest
+     */
+    @NotNull
+    public List<T> findMany(@NotNull Bson filter) {
+        return FanOut.flatten(fanOut(getBucketNames(), collection -> collection.findMany(filter)));
+    }
+
+    /**
+     * Finds multiple documents in the buckets overlapping a time range, in parallel
+     * <br>Only buckets are filtered by the range, so {@code filter} should also filter by the time field if documents outside of the range shouldn't be returned
+     *
+     * @param   filter  the filter to apply
+     * @param   from    the start of the range (inclusive)
+     * @param   to      the end of the range (inclusive)
+     *
+     * @return          the documents found, from the newest bucket to the oldest
+     */
+    @NotNull
+    public List<T> findMany(@NotNull Bson filter, @NotNull Instant from, @NotNull Instant to) {
+        return FanOut.flatten(fanOut(getBucketNames(from, to), collection -> collection.findMany(filter)));
+    }
+
+    /**
+     * Counts the documents in every bucket, in parallel
+     *
+     * @param   filter  the filter to apply
+     *
+     * @return          the total number of documents
+     */
+    public long countDocuments(@NotNull Bson filter) {
+        final List<Long> counts = fanOut(getBucketNames(), collection -> collection.countDocuments(filter));
+        long count = 0;
+        for (final long bucketCount : counts) count += bucketCount;
+        return count;
+    }
+
+    /**
+     * Runs an operation on buckets in parallel, on the {@link #executor}
+     *
+     * @param   names       the names of the buckets
+     * @param   operation   the operation to run
+     *
+     * @return              the results, in the same order as the names
+     *
+     * @param   <R>         the type of the results
+     */
+    @NotNull
+    private <R> List<R> fanOut(@NotNull List<String> names, @NotNull Function<MagicCollection<T>, R> operation) {
+        return FanOut.run(executor, names, name -> operation.apply(getHandle(name)));
+    }
+
+    /**
+     * Gets the handle to read a bucket with, without registering it in the {@link #database}
+     *
+     * @param   name    the name of the bucket
+     *
+     * @return          the bucket
+     */
+    @NotNull
+    private MagicCollection<T> getHandle(@NotNull String name) {
+        final MagicCollection<T> handle = handles.get(name);
+        if (handle != null) return handle;
+        // Forget the handles of buckets that no longer exist
+        handles.keySet().retainAll(new HashSet<>(names.get()));
+        return handles.computeIfAbsent(name, key -> database.newMagicCollection(key, clazz));
+    }
+
+    @Override @NotNull
+    public String toString() {
+        return "MagicCollectionFamily{database=" + database.getName() + ", prefix=" + prefix + ", class=" + clazz.getName() + ", period=" + period + ", zone=" + zone + "}";
+    }
+}
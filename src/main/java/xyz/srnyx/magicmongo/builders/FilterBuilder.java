@@ -1,6 +1,7 @@
 package xyz.srnyx.magicmongo.builders;
 
 import com.mongodb.client.model.Filters;
+import org.bson.codecs.configuration.CodecRegistry;
 import org.bson.conversions.Bson;
 import org.jetbrains.annotations.NotNull;
 
@@ -9,6 +10,7 @@ import java.util.function.BinaryOperator;
 
 /**
  * A simple builder for {@link Filters MongoDB filters}
+ * <br>{@link #and(Bson)} and {@link #or(Bson)} keep their clauses in a single flat list, so building a filter from many criteria doesn't result in a deeply nested tree. When rendered, clauses are merged where it's safe (see {@link FlatFilter})
  */
 public class FilterBuilder extends MongoBsonBuilder<FilterBuilder> {
     /**
@@ -58,7 +60,8 @@ public class FilterBuilder extends MongoBsonBuilder<FilterBuilder> {
     }
 
     /**
-     * Adds a new {@link Bson filter} to the current filter using {@link Filters#and(Bson...)}
+     * Adds a new {@link Bson filter} to the current filter using {@code $and}
+     * <br>If the current filter is already an {@code $and} from this builder, the new filter is appended to its clauses instead of nesting it
      *
      * @param   newFilter   the new {@link Bson filter} to add
      *
@@ -66,11 +69,12 @@ public class FilterBuilder extends MongoBsonBuilder<FilterBuilder> {
      */
     @NotNull
     public FilterBuilder and(@NotNull Bson newFilter) {
-        return add(Filters::and, newFilter);
+        return set(FlatFilter.combine("$and", bson, newFilter));
     }
 
     /**
-     * Adds a new {@link Bson filter} to the current filter using {@link Filters#or(Bson...)}
+     * Adds a new {@link Bson filter} to the current filter using {@code $or}
+     * <br>If the current filter is already an {@code $or} from this builder, the new filter is appended to its clauses instead of nesting it
      *
      * @param   newFilter   the new {@link Bson filter} to add
      *
@@ -78,11 +82,12 @@ public class FilterBuilder extends MongoBsonBuilder<FilterBuilder> {
      */
     @NotNull
     public FilterBuilder or(@NotNull Bson newFilter) {
-        return add(Filters::or, newFilter);
+        return set(FlatFilter.combine("$or", bson, newFilter));
     }
 
     /**
-     * Adds a new {@link Bson filter} to the current filter using {@link Filters#nor(Bson...)}
+     * Adds a new {@link Bson filter} to the current filter using {@code $nor}
+     * <br>Since {@code $nor} isn't associative, the current filter is always nested
      *
      * @param   newFilter   the new {@link Bson filter} to add
      *
@@ -90,6 +95,18 @@ public class FilterBuilder extends MongoBsonBuilder<FilterBuilder> {
      */
     @NotNull
     public FilterBuilder nor(@NotNull Bson newFilter) {
-        return add(Filters::nor, newFilter);
+        return set(FlatFilter.combine("$nor", bson, newFilter));
+    }
+
+    /**
+     * {@link #build() Builds} the filter and {@link PreparedFilter#compile(Bson, CodecRegistry) compiles} it into a {@link PreparedFilter}, for filters containing {@link PreparedFilter#param(String) placeholders}
+     *
+     * @param   codecRegistry   the {@link CodecRegistry} to render the filter and encode bound values with
+     *
+     * @return                  the {@link PreparedFilter}
+     */
+    @NotNull
+    public PreparedFilter prepare(@NotNull CodecRegistry codecRegistry) {
+        return PreparedFilter.compile(build(), codecRegistry);
     }
 }
@@ -0,0 +1,250 @@
+package xyz.srnyx.magicmongo.builders;
+
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.conversions.Bson;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+
+/**
+ * An immutable {@code $and}, {@code $or}, or {@code $nor} filter that keeps its clauses in a flat list instead of nesting a new filter for every clause
+ * <br>When rendered:
+ * <ul>
+ *     <li>{@code $and}: clauses are merged into a single document where their fields (or operators on the same field) don't overlap, and duplicates are removed. Only the clauses that can't be merged end up in an {@code $and} array</li>
+ *     <li>{@code $or}: duplicates are removed, and equality clauses on the same field are merged into a single {@code $in}</li>
+ *     <li>{@code $nor}: rendered as is, since it isn't associative</li>
+ * </ul>
+ * Nested {@code $and}/{@code $or} clauses with the same operator are flattened as well
+ *
+ * @see FilterBuilder
+ */
+final class FlatFilter implements Bson {
+    /**
+     * The operator ({@code $and}, {@code $or}, or {@code $nor})
+     */
+    @NotNull final String operator;
+    /**
+     * The clauses (unmodifiable)
+     */
+    @NotNull final List<Bson> clauses;
+
+    /**
+     * Creates a new {@link FlatFilter} instance
+     *
+     * @param   operator    {@link #operator}
+     * @param   clauses     {@link #clauses}, which must not be modified afterward
+     */
+    private FlatFilter(@NotNull String operator, @NotNull List<Bson> clauses) {
+        this.operator = operator;
+        this.clauses = Collections.unmodifiableList(clauses);
+    }
+
+    /**
+     * Combines a filter with a new clause, appending to the filter's clauses if it's a {@link FlatFilter} with the same (associative) operator
+     *
+     * @param   operator    the operator ({@code $and}, {@code $or}, or {@code $nor})
+     * @param   current     the current filter, or null if there isn't one
+     * @param   clause      the new clause
+     *
+     * @return              the combined filter ({@code clause} if {@code current} is null)
+     */
+    @NotNull
+    static Bson combine(@NotNull String operator, @Nullable Bson current, @NotNull Bson clause) {
+        if (current == null) return clause;
+        final List<Bson> clauses = new ArrayList<>();
+        if (operator.equals("$nor")) {
+            clauses.add(current);
+            clauses.add(clause);
+            return new FlatFilter(operator, clauses);
+        }
+        addClauses(clauses, operator, current);
+        addClauses(clauses, operator, clause);
+        return new FlatFilter(operator, clauses);
+    }
+
+    /**
+     * Adds a filter to a list of clauses, adding its clauses instead if it's a {@link FlatFilter} with the same operator
+     *
+     * @param   clauses     the list of clauses
+     * @param   operator    the operator
+     * @param   filter      the filter to add
+     */
+    private static void addClauses(@NotNull List<Bson> clauses, @NotNull String operator, @NotNull Bson filter) {
+        if (filter instanceof FlatFilter && ((FlatFilter) filter).operator.equals(operator)) {
+            clauses.addAll(((FlatFilter) filter).clauses);
+            return;
+        }
+        clauses.add(filter);
+    }
+
+    @Override @NotNull
+    public <TDocument> BsonDocument toBsonDocument(@NotNull Class<TDocument> documentClass, @NotNull CodecRegistry codecRegistry) {
+        // Render clauses, flattening nested ones with the same operator
+        final List<BsonDocument> rendered = new ArrayList<>(clauses.size());
+        for (final Bson clause : clauses) {
+            final BsonDocument document = clause.toBsonDocument(documentClass, codecRegistry);
+            final BsonValue nested = document.size() == 1 && !operator.equals("$nor") ? document.get(operator) : null;
+            if (nested != null && nested.isArray()) {
+                for (final BsonValue value : nested.asArray()) rendered.add(value.asDocument());
+                continue;
+            }
+            rendered.add(document);
+        }
+
+        switch (operator) {
+            case "$and": return renderAnd(rendered);
+            case "$or": return renderOr(rendered);
+            default: return new BsonDocument(operator, new BsonArray(rendered));
+        }
+    }
+
+    /**
+     * Renders {@code $and} clauses, merging them into as few documents as possible
+     *
+     * @param   rendered    the rendered clauses
+     *
+     * @return              the merged document, or an {@code $and} of the documents that couldn't be merged
+     */
+    @NotNull
+    private static BsonDocument renderAnd(@NotNull List<BsonDocument> rendered) {
+        final List<BsonDocument> merged = new ArrayList<>();
+        outer: for (final BsonDocument clause : rendered) {
+            for (final BsonDocument target : merged) if (tryMerge(target, clause)) continue outer;
+            merged.add(clause.clone());
+        }
+        if (merged.size() == 1) return merged.get(0);
+        return new BsonDocument("$and", new BsonArray(merged));
+    }
+
+    /**
+     * Merges a clause into a document if none of its fields conflict
+     *
+     * @param   target  the document to merge into
+     * @param   clause  the clause to merge
+     *
+     * @return          true if merged, false if {@code target} was left unchanged
+     */
+    private static boolean tryMerge(@NotNull BsonDocument target, @NotNull BsonDocument clause) {
+        // Check
+        for (final Map.Entry<String, BsonValue> entry : clause.entrySet()) {
+            final BsonValue existing = target.get(entry.getKey());
+            if (existing == null || existing.equals(entry.getValue())) continue;
+            if (entry.getKey().startsWith("$") || !isOperatorDocument(existing) || !isOperatorDocument(entry.getValue())) return false;
+            for (final String operator : entry.getValue().asDocument().keySet()) if (existing.asDocument().containsKey(operator)) return false;
+        }
+
+        // Merge
+        for (final Map.Entry<String, BsonValue> entry : clause.entrySet()) {
+            final BsonValue existing = target.get(entry.getKey());
+            if (existing == null) {
+                target.put(entry.getKey(), entry.getValue());
+            } else if (!existing.equals(entry.getValue())) {
+                final BsonDocument operators = existing.asDocument().clone();
+                operators.putAll(entry.getValue().asDocument());
+                target.put(entry.getKey(), operators);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Renders {@code $or} clauses, removing duplicates and merging equality clauses on the same field into an {@code $in}
+     *
+     * @param   rendered    the rendered clauses
+     *
+     * @return              the single remaining clause, or an {@code $or} of the remaining clauses
+     */
+    @NotNull
+    private static BsonDocument renderOr(@NotNull List<BsonDocument> rendered) {
+        // Group equality values by field
+        final Map<String, Set<BsonValue>> equalities = new HashMap<>();
+        final Map<String, Integer> counts = new HashMap<>();
+        for (final BsonDocument clause : rendered) {
+            final String field = getEqualityField(clause);
+            if (field == null) continue;
+            equalities.computeIfAbsent(field, key -> new LinkedHashSet<>()).addAll(getEqualityValues(clause, field));
+            counts.merge(field, 1, Integer::sum);
+        }
+
+        // Replace each field's first equality clause with an $in of all its values, and drop the rest
+        final Set<BsonDocument> result = new LinkedHashSet<>();
+        final Set<String> written = new HashSet<>();
+        for (final BsonDocument clause : rendered) {
+            final String field = getEqualityField(clause);
+            if (field == null || counts.get(field) == 1) {
+                result.add(clause);
+                continue;
+            }
+            if (written.add(field)) result.add(new BsonDocument(field, new BsonDocument("$in", new BsonArray(new ArrayList<>(equalities.get(field))))));
+        }
+
+        if (result.size() == 1) return result.iterator().next();
+        return new BsonDocument("$or", new BsonArray(new ArrayList<>(result)));
+    }
+
+    /**
+     * Gets the field of an equality clause ({@code {field: value}}, {@code {field: {$eq: value}}}, or {@code {field: {$in: [...]}}})
+     * <br>Clauses with regular expressions aren't considered equalities, since {@code $eq} matches them exactly while {@code $in} matches them as patterns
+     *
+     * @param   clause  the clause
+     *
+     * @return          the field, or null if the clause isn't a single equality
+     */
+    @Nullable
+    private static String getEqualityField(@NotNull BsonDocument clause) {
+        if (clause.size() != 1) return null;
+        final String field = clause.getFirstKey();
+        if (field.startsWith("$")) return null;
+        final BsonValue value = clause.get(field);
+        if (!isOperatorDocument(value)) return value.isRegularExpression() ? null : field;
+        final BsonDocument operators = value.asDocument();
+        if (operators.size() != 1) return null;
+        final BsonValue eq = operators.get("$eq");
+        if (eq != null) return eq.isRegularExpression() ? null : field;
+        final BsonValue in = operators.get("$in");
+        if (in == null || !in.isArray()) return null;
+        for (final BsonValue element : in.asArray()) if (element.isRegularExpression()) return null;
+        return field;
+    }
+
+    /**
+     * Gets the values of an equality clause
+     *
+     * @param   clause  the clause, which must be an equality according to {@link #getEqualityField(BsonDocument)}
+     * @param   field   the field of the clause
+     *
+     * @return          the values
+     */
+    @NotNull
+    private static List<BsonValue> getEqualityValues(@NotNull BsonDocument clause, @NotNull String field) {
+        final BsonValue value = clause.get(field);
+        if (!isOperatorDocument(value)) return Collections.singletonList(value);
+        final BsonDocument operators = value.asDocument();
+        final BsonValue eq = operators.get("$eq");
+        if (eq != null) return Collections.singletonList(eq);
+        return operators.getArray("$in").getValues();
+    }
+
+    /**
+     * Checks if a value is a document of query operators (as opposed to a document to match exactly)
+     *
+     * @param   value   the value
+     *
+     * @return          true if the value is a non-empty document whose keys all start with {@code $}
+     */
+    private static boolean isOperatorDocument(@NotNull BsonValue value) {
+        if (!value.isDocument() || value.asDocument().isEmpty()) return false;
+        for (final String key : value.asDocument().keySet()) if (!key.startsWith("$")) return false;
+        return true;
+    }
+
+    @Override @NotNull
+    public String toString() {
+        return "FlatFilter{operator=" + operator + ", clauses=" + clauses + "}";
+    }
+}
@@ -0,0 +1,239 @@
+package xyz.srnyx.magicmongo.builders;
+
+import com.mongodb.MongoClientSettings;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.codecs.configuration.CodecConfigurationException;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.conversions.Bson;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+
+/**
+ * An immutable combination of updates that keeps them in a flat list instead of nesting a new combined update for every update
+ * <br>It's rendered into a single document with one entry per operator, and the result is cached per {@link CodecRegistry} so reusing it doesn't render it again (values are captured when first rendered, so later changes to mutable values aren't picked up)
+ * <br>Combining fails with an {@link IllegalArgumentException} if the updates conflict in a way the server would reject: the same path under different operators, or a path and one of its parents/children (e.g. {@code a} and {@code a.b}). The same path under the same operator is allowed, and the last value wins
+ * <br>To find the paths, each update is rendered once with the {@link MongoClientSettings#getDefaultCodecRegistry() default CodecRegistry} when it's combined. If one of its values needs another codec, the paths are only checked when the whole update is rendered (with the real {@link CodecRegistry})
+ *
+ * @see UpdateBuilder
+ */
+final class FlatUpdate implements Bson {
+    /**
+     * The updates (unmodifiable)
+     */
+    @NotNull final List<Bson> updates;
+    /**
+     * The paths updated by {@link #updates} and their operators, or null if an update couldn't be rendered with the default {@link CodecRegistry} (must not be modified)
+     */
+    @Nullable private final Map<String, String> paths;
+    /**
+     * The last rendered document, along with what it was rendered with
+     */
+    @Nullable private volatile Rendered rendered;
+
+    /**
+     * Creates a new {@link FlatUpdate} instance
+     *
+     * @param   updates {@link #updates}, which must not be modified afterward
+     * @param   paths   {@link #paths}, which must not be modified afterward
+     */
+    private FlatUpdate(@NotNull List<Bson> updates, @Nullable Map<String, String> paths) {
+        this.updates = Collections.unmodifiableList(updates);
+        this.paths = paths;
+    }
+
+    /**
+     * Combines updates into a {@link FlatUpdate}, adding the updates of any {@link FlatUpdate} instead of nesting it
+     *
+     * @param   updates the updates to combine
+     *
+     * @return          the {@link FlatUpdate}
+     *
+     * @throws  IllegalArgumentException    if an update isn't made of update operators, or if the updates conflict
+     */
+    @NotNull
+    static FlatUpdate of(@NotNull Iterable<? extends Bson> updates) {
+        final List<Bson> list = new ArrayList<>();
+        Map<String, String> paths = new HashMap<>();
+        for (final Bson update : updates) paths = addUpdates(list, paths, update);
+        return new FlatUpdate(list, paths);
+    }
+
+    /**
+     * Combines an update with a new update, appending to its updates if it's a {@link FlatUpdate}
+     *
+     * @param   current the current update, or null if there isn't one
+     * @param   update  the new update
+     *
+     * @return          the combined update
+     *
+     * @throws  IllegalArgumentException    if the new update isn't made of update operators, or if it conflicts with the current one
+     */
+    @NotNull
+    static FlatUpdate combine(@Nullable Bson current, @NotNull Bson update) {
+        final List<Bson> list = new ArrayList<>();
+        Map<String, String> paths = new HashMap<>();
+        if (current != null) paths = addUpdates(list, paths, current);
+        paths = addUpdates(list, paths, update);
+        return new FlatUpdate(list, paths);
+    }
+
+    /**
+     * Adds an update to a list of updates (adding its updates instead if it's a {@link FlatUpdate}) and claims its paths
+     *
+     * @param   list    the list of updates
+     * @param   paths   the paths that are already updated and their operators, or null if they're unknown
+     * @param   update  the update to add
+     *
+     * @return          the paths including the ones of the update, or null if they're unknown
+     *
+     * @throws  IllegalArgumentException    if the update isn't made of update operators, or if it conflicts with the paths
+     */
+    @Nullable
+    private static Map<String, String> addUpdates(@NotNull List<Bson> list, @Nullable Map<String, String> paths, @NotNull Bson update) {
+        if (update instanceof FlatUpdate) {
+            final FlatUpdate flat = (FlatUpdate) update;
+            list.addAll(flat.updates);
+            if (paths == null || flat.paths == null) return null;
+            for (final Map.Entry<String, String> entry : flat.paths.entrySet()) claim(paths, entry.getValue(), entry.getKey());
+            return paths;
+        }
+        list.add(update);
+        if (paths == null) return null;
+        final BsonDocument document;
+        try {
+            document = update.toBsonDocument(BsonDocument.class, MongoClientSettings.getDefaultCodecRegistry());
+        } catch (final CodecConfigurationException e) {
+            // Needs the real CodecRegistry, checked when rendered
+            return null;
+        }
+        claimAll(paths, document, null);
+        return paths;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <br>The returned document is cached and shared, so it must not be modified
+     *
+     * @throws  IllegalArgumentException    if an update isn't made of update operators, or if the updates conflict
+     */
+    @Override @NotNull
+    public <TDocument> BsonDocument toBsonDocument(@NotNull Class<TDocument> documentClass, @NotNull CodecRegistry codecRegistry) {
+        final Rendered cached = rendered;
+        if (cached != null && cached.documentClass == documentClass && cached.codecRegistry == codecRegistry) return cached.document;
+        final BsonDocument document = render(documentClass, codecRegistry);
+        rendered = new Rendered(documentClass, codecRegistry, document);
+        return document;
+    }
+
+    /**
+     * Renders the updates into a single document
+     *
+     * @param   documentClass   the document class
+     * @param   codecRegistry   the {@link CodecRegistry}
+     *
+     * @return                  the rendered document
+     *
+     * @throws  IllegalArgumentException    if an update isn't made of update operators, or if the updates conflict
+     */
+    @NotNull
+    private BsonDocument render(@NotNull Class<?> documentClass, @NotNull CodecRegistry codecRegistry) {
+        final BsonDocument result = new BsonDocument();
+        // Paths were already checked when combined
+        final Map<String, String> claimed = this.paths == null ? new HashMap<>() : null;
+        for (final Bson update : updates) claimAll(claimed, update.toBsonDocument(documentClass, codecRegistry), result);
+        return result;
+    }
+
+    /**
+     * Claims the paths of a rendered update, optionally merging it into a result document
+     *
+     * @param   paths       the paths that are already updated and their operators, or null to not check them
+     * @param   update      the rendered update
+     * @param   result      the document to merge the update into, or null to only claim its paths
+     *
+     * @throws  IllegalArgumentException    if the update isn't made of update operators, or if it conflicts with the paths
+     */
+    private static void claimAll(@Nullable Map<String, String> paths, @NotNull BsonDocument update, @Nullable BsonDocument result) {
+        for (final Map.Entry<String, BsonValue> entry : update.entrySet()) {
+            final String operator = entry.getKey();
+            if (!operator.startsWith("$") || !entry.getValue().isDocument()) throw new IllegalArgumentException("Not an update operator: " + operator);
+            BsonDocument fields = null;
+            if (result != null) {
+                fields = result.getDocument(operator, null);
+                if (fields == null) {
+                    fields = new BsonDocument();
+                    result.put(operator, fields);
+                }
+            }
+            for (final Map.Entry<String, BsonValue> field : entry.getValue().asDocument().entrySet()) {
+                if (paths != null) {
+                    claim(paths, operator, field.getKey());
+                    if (operator.equals("$rename") && field.getValue().isString()) claim(paths, operator, field.getValue().asString().getValue());
+                }
+                if (fields != null) fields.put(field.getKey(), field.getValue());
+            }
+        }
+    }
+
+    /**
+     * Registers a path as being updated by an operator
+     *
+     * @param   paths       the paths that are already updated, and their operators
+     * @param   operator    the operator
+     * @param   path        the path
+     *
+     * @throws  IllegalArgumentException    if the path conflicts with a path that's already updated
+     */
+    private static void claim(@NotNull Map<String, String> paths, @NotNull String operator, @NotNull String path) {
+        final String existing = paths.get(path);
+        if (existing != null) {
+            if (!existing.equals(operator)) throw new IllegalArgumentException("Conflicting update: " + path + " is updated by both " + existing + " and " + operator);
+            return;
+        }
+        for (final Map.Entry<String, String> entry : paths.entrySet()) {
+            final String other = entry.getKey();
+            if (other.startsWith(path + ".") || path.startsWith(other + ".")) throw new IllegalArgumentException("Conflicting update: " + path + " (" + operator + ") overlaps with " + other + " (" + entry.getValue() + ")");
+        }
+        paths.put(path, operator);
+    }
+
+    @Override @NotNull
+    public String toString() {
+        return "FlatUpdate{updates=" + updates + "}";
+    }
+
+    /**
+     * A rendered document along with what it was rendered with
+     */
+    private static final class Rendered {
+        /**
+         * The document class it was rendered with
+         */
+        @NotNull private final Class<?> documentClass;
+        /**
+         * The {@link CodecRegistry} it was rendered with
+         */
+        @NotNull private final CodecRegistry codecRegistry;
+        /**
+         * The rendered document
+         */
+        @NotNull private final BsonDocument document;
+
+        /**
+         * Creates a new {@link Rendered} instance
+         *
+         * @param   documentClass   {@link #documentClass}
+         * @param   codecRegistry   {@link #codecRegistry}
+         * @param   document        {@link #document}
+         */
+        private Rendered(@NotNull Class<?> documentClass, @NotNull CodecRegistry codecRegistry, @NotNull BsonDocument document) {
+            this.documentClass = documentClass;
+            this.codecRegistry = codecRegistry;
+            this.document = document;
+        }
+    }
+}
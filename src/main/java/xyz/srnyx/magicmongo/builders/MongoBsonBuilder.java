@@ -1,5 +1,9 @@
 package xyz.srnyx.magicmongo.builders;
 
+import org.bson.BsonDocument;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+import org.bson.codecs.configuration.CodecRegistry;
 import org.bson.conversions.Bson;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -15,12 +19,18 @@ import java.util.Optional;
  * @see     FilterBuilder
  * @see     UpdateBuilder
  * @see     SortBuilder
+ * @see     ProjectionBuilder
+ * @see     IndexBuilder
  */
 public abstract class MongoBsonBuilder<T extends MongoBsonBuilder<T>> {
     /**
      * The {@link Bson} to build
      */
     @Nullable protected Bson bson;
+    /**
+     * The {@link #freeze(CodecRegistry) frozen} form of the {@link #build() built} {@link Bson}, cleared when {@link #set(Bson) set}
+     */
+    @Nullable private volatile Frozen frozen;
 
     /**
      * Creates a new {@link MongoBsonBuilder} instance with no starting {@link #bson}
@@ -98,6 +108,50 @@ public abstract class MongoBsonBuilder<T extends MongoBsonBuilder<T>> {
     @NotNull
     public T set(@Nullable Bson bson) {
         this.bson = bson;
+        frozen = null;
         return (T) this;
     }
+
+    /**
+     * {@link #build() Builds} the {@link Bson} and renders it into an immutable {@link RawBsonDocument}, which is cached until the builder is changed
+     * <br>Useful for sorts, projections, filters, etc. that are reused for many operations, since the driver copies the {@link RawBsonDocument} as is instead of rendering the {@link Bson} through the {@link CodecRegistry} every time
+     * <br>Subclasses must change the {@link #bson} using {@link #set(Bson)} for the cache to be cleared
+     *
+     * @param   codecRegistry   the {@link CodecRegistry} to render with
+     *
+     * @return                  the shared {@link RawBsonDocument}
+     */
+    @NotNull
+    public RawBsonDocument freeze(@NotNull CodecRegistry codecRegistry) {
+        final Frozen current = frozen;
+        if (current != null && current.codecRegistry == codecRegistry) return current.document;
+        final RawBsonDocument document = new RawBsonDocument(build().toBsonDocument(BsonDocument.class, codecRegistry), new BsonDocumentCodec());
+        frozen = new Frozen(codecRegistry, document);
+        return document;
+    }
+
+    /**
+     * A {@link #freeze(CodecRegistry) frozen} {@link RawBsonDocument} along with the {@link CodecRegistry} it was rendered with
+     */
+    private static final class Frozen {
+        /**
+         * The {@link CodecRegistry} it was rendered with
+         */
+        @NotNull private final CodecRegistry codecRegistry;
+        /**
+         * The rendered document
+         */
+        @NotNull private final RawBsonDocument document;
+
+        /**
+         * Creates a new {@link Frozen} instance
+         *
+         * @param   codecRegistry   {@link #codecRegistry}
+         * @param   document        {@link #document}
+         */
+        private Frozen(@NotNull CodecRegistry codecRegistry, @NotNull RawBsonDocument document) {
+            this.codecRegistry = codecRegistry;
+            this.document = document;
+        }
+    }
 }
@@ -0,0 +1,482 @@
+package xyz.srnyx.magicmongo.builders;
+
+import org.bson.*;
+import org.bson.codecs.BsonDocumentCodec;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.conversions.Bson;
+import org.bson.io.BasicOutputBuffer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+
+/**
+ * A filter with named placeholders, compiled once into pre-encoded BSON so that {@link #bind(Object...) binding} values only has to encode the values themselves
+ * <br>Placeholders are created with {@link #param(String)} and used like any other value:
+ * <pre>{@code
+ * PreparedFilter filter = new FilterBuilder()
+ *         .and(Filters.eq("guild", PreparedFilter.param("guild")))
+ *         .and(Filters.eq("user", PreparedFilter.param("user")))
+ *         .prepare(codecRegistry);
+ * collection.findOne(filter.bind(guildId, userId));
+ * }</pre>
+ * A placeholder stands for a single value, so for operators that take an array (like {@code $in}) the placeholder should be the whole array (e.g. {@code new Document("$in", param("ids"))}) and bound to a {@link List}
+ *
+ * @see FilterBuilder#prepare(CodecRegistry)
+ */
+public final class PreparedFilter {
+    /**
+     * The key of the document that a {@link Param} is encoded as while compiling
+     */
+    @NotNull private static final String PARAM_KEY = "__magicmongo_param__";
+    /**
+     * The {@link EncoderContext} to encode bound values with
+     */
+    @NotNull private static final EncoderContext ENCODER_CONTEXT = EncoderContext.builder().build();
+
+    /**
+     * The {@link CodecRegistry} to encode bound values with
+     */
+    @NotNull public final CodecRegistry codecRegistry;
+    /**
+     * The names of the placeholders, in the order {@link #bind(Object...)} expects them
+     */
+    @NotNull private final List<String> names;
+    /**
+     * The compiled root document
+     */
+    @NotNull private final Container root;
+
+    /**
+     * Creates a new {@link PreparedFilter} instance
+     *
+     * @param   codecRegistry   {@link #codecRegistry}
+     * @param   names           {@link #names}
+     * @param   root            {@link #root}
+     */
+    private PreparedFilter(@NotNull CodecRegistry codecRegistry, @NotNull List<String> names, @NotNull Container root) {
+        this.codecRegistry = codecRegistry;
+        this.names = Collections.unmodifiableList(names);
+        this.root = root;
+    }
+
+    /**
+     * Creates a placeholder to use as a value in a filter that will be {@link #compile(Bson, CodecRegistry) compiled}
+     *
+     * @param   name    the name of the placeholder, which can be used more than once to bind the same value in several places
+     *
+     * @return          the placeholder
+     */
+    @NotNull
+    public static Param param(@NotNull String name) {
+        return new Param(name);
+    }
+
+    /**
+     * Compiles a filter containing {@link #param(String) placeholders}
+     *
+     * @param   filter          the filter
+     * @param   codecRegistry   the {@link CodecRegistry} to render the filter and encode bound values with
+     *
+     * @return                  the {@link PreparedFilter}
+     */
+    @NotNull
+    public static PreparedFilter compile(@NotNull Bson filter, @NotNull CodecRegistry codecRegistry) {
+        final CodecRegistry compileRegistry = CodecRegistries.fromRegistries(CodecRegistries.fromCodecs(new ParamCodec()), codecRegistry);
+        final List<String> names = new ArrayList<>();
+        final Container root = compileDocument(new byte[0], filter.toBsonDocument(BsonDocument.class, compileRegistry), names);
+        return new PreparedFilter(codecRegistry, names, root);
+    }
+
+    /**
+     * Gets the names of the placeholders, in the order {@link #bind(Object...)} expects them (the order they first appear in the rendered filter)
+     *
+     * @return  the names of the placeholders (unmodifiable)
+     */
+    @NotNull
+    public List<String> getParameterNames() {
+        return names;
+    }
+
+    /**
+     * Binds values to the placeholders
+     *
+     * @param   values                      the values (which can be null), in the order of {@link #getParameterNames()}
+     *
+     * @return                              the filter with the values bound
+     *
+     * @throws  IllegalArgumentException    if the number of values doesn't match the number of placeholders
+     */
+    @NotNull
+    public RawBsonDocument bind(@NotNull Object... values) {
+        if (values.length != names.size()) throw new IllegalArgumentException("Expected " + names.size() + " values " + names + ", got " + values.length);
+        final BasicOutputBuffer output = new BasicOutputBuffer(root.estimatedSize);
+        root.write(output, new BasicOutputBuffer(64), values, codecRegistry);
+        return new RawBsonDocument(output.getInternalBuffer(), 0, output.getPosition());
+    }
+
+    /**
+     * Binds values to the placeholders by name
+     *
+     * @param   values                      the values by placeholder name
+     *
+     * @return                              the filter with the values bound
+     *
+     * @throws  IllegalArgumentException    if a placeholder has no value
+     */
+    @NotNull
+    public RawBsonDocument bind(@NotNull Map<String, ?> values) {
+        final Object[] array = new Object[names.size()];
+        for (int i = 0; i < array.length; i++) {
+            final String name = names.get(i);
+            if (!values.containsKey(name)) throw new IllegalArgumentException("No value for placeholder " + name);
+            array[i] = values.get(name);
+        }
+        return bind(array);
+    }
+
+    @Override @NotNull
+    public String toString() {
+        return "PreparedFilter{parameters=" + names + "}";
+    }
+
+    /**
+     * Compiles a document (or array) into parts
+     *
+     * @param   header      the type and name of the element holding the document (empty for the root)
+     * @param   document    the document, or the array as a document with index keys
+     * @param   names       the names of the placeholders found so far
+     *
+     * @return              the compiled {@link Container}
+     */
+    @NotNull
+    private static Container compileDocument(@NotNull byte[] header, @NotNull BsonDocument document, @NotNull List<String> names) {
+        final List<Part> parts = new ArrayList<>();
+        final BasicOutputBuffer pending = new BasicOutputBuffer();
+        for (final Map.Entry<String, BsonValue> entry : document.entrySet()) {
+            final String name = entry.getKey();
+            final BsonValue value = entry.getValue();
+
+            // Placeholder
+            final String param = getParamName(value);
+            if (param != null) {
+                flushStatic(pending, parts);
+                int index = names.indexOf(param);
+                if (index == -1) {
+                    index = names.size();
+                    names.add(param);
+                }
+                parts.add(new Slot(name, index));
+                continue;
+            }
+
+            // Document/array containing placeholders
+            if (containsParam(value)) {
+                flushStatic(pending, parts);
+                parts.add(compileDocument(getHeader(value.getBsonType(), name), value.isArray() ? toIndexedDocument(value.asArray()) : value.asDocument(), names));
+                continue;
+            }
+
+            // Static
+            writeElement(pending, new BsonDocument(name, value));
+        }
+        flushStatic(pending, parts);
+        return new Container(header, parts);
+    }
+
+    /**
+     * Adds the pending static bytes as a {@link Static} part and clears them
+     *
+     * @param   pending the pending static bytes
+     * @param   parts   the parts to add to
+     */
+    private static void flushStatic(@NotNull BasicOutputBuffer pending, @NotNull List<Part> parts) {
+        if (pending.getPosition() == 0) return;
+        parts.add(new Static(pending.toByteArray()));
+        pending.truncateToPosition(0);
+    }
+
+    /**
+     * Writes the elements of a document (without its length and terminator)
+     *
+     * @param   output      the output to write to
+     * @param   document    the document
+     */
+    private static void writeElement(@NotNull BasicOutputBuffer output, @NotNull BsonDocument document) {
+        final BasicOutputBuffer buffer = new BasicOutputBuffer();
+        try (final BsonBinaryWriter writer = new BsonBinaryWriter(buffer)) {
+            new BsonDocumentCodec().encode(writer, document, ENCODER_CONTEXT);
+        }
+        output.write(buffer.getInternalBuffer(), 4, buffer.getPosition() - 5);
+    }
+
+    /**
+     * Creates the header (type and name) of a document or array element
+     *
+     * @param   type    the type of the element
+     * @param   name    the name of the element
+     *
+     * @return          the header
+     */
+    @NotNull
+    private static byte[] getHeader(@NotNull BsonType type, @NotNull String name) {
+        final byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        final byte[] header = new byte[nameBytes.length + 2];
+        header[0] = (byte) type.getValue();
+        System.arraycopy(nameBytes, 0, header, 1, nameBytes.length);
+        return header;
+    }
+
+    /**
+     * Converts an array to a document with index keys, as arrays are encoded in BSON
+     *
+     * @param   array   the array
+     *
+     * @return          the document
+     */
+    @NotNull
+    private static BsonDocument toIndexedDocument(@NotNull BsonArray array) {
+        final BsonDocument document = new BsonDocument();
+        for (int i = 0; i < array.size(); i++) document.put(String.valueOf(i), array.get(i));
+        return document;
+    }
+
+    /**
+     * Gets the placeholder name if a value is an encoded {@link Param}
+     *
+     * @param   value   the value
+     *
+     * @return          the placeholder name, or null if the value isn't a placeholder
+     */
+    @Nullable
+    private static String getParamName(@NotNull BsonValue value) {
+        if (!value.isDocument()) return null;
+        final BsonDocument document = value.asDocument();
+        if (document.size() != 1) return null;
+        final BsonValue name = document.get(PARAM_KEY);
+        return name != null && name.isString() ? name.asString().getValue() : null;
+    }
+
+    /**
+     * Checks if a value contains a placeholder
+     *
+     * @param   value   the value
+     *
+     * @return          true if the value is or contains a placeholder
+     */
+    private static boolean containsParam(@NotNull BsonValue value) {
+        if (getParamName(value) != null) return true;
+        if (value.isDocument()) {
+            for (final BsonValue child : value.asDocument().values()) if (containsParam(child)) return true;
+        } else if (value.isArray()) {
+            for (final BsonValue child : value.asArray()) if (containsParam(child)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * A placeholder for a value, see {@link #param(String)}
+     */
+    public static final class Param {
+        /**
+         * The name of the placeholder
+         */
+        @NotNull public final String name;
+
+        /**
+         * Creates a new {@link Param} instance
+         *
+         * @param   name    {@link #name}
+         */
+        private Param(@NotNull String name) {
+            this.name = name;
+        }
+
+        @Override @NotNull
+        public String toString() {
+            return "?" + name;
+        }
+    }
+
+    /**
+     * Encodes a {@link Param} as a marker document while compiling
+     */
+    private static final class ParamCodec implements Codec<Param> {
+        @Override
+        public void encode(@NotNull BsonWriter writer, @NotNull Param value, @NotNull EncoderContext encoderContext) {
+            writer.writeStartDocument();
+            writer.writeString(PARAM_KEY, value.name);
+            writer.writeEndDocument();
+        }
+
+        @Override @NotNull
+        public Param decode(@NotNull BsonReader reader, @NotNull DecoderContext decoderContext) {
+            throw new UnsupportedOperationException("Placeholders can't be decoded");
+        }
+
+        @Override @NotNull
+        public Class<Param> getEncoderClass() {
+            return Param.class;
+        }
+    }
+
+    /**
+     * A compiled part of a document
+     */
+    private interface Part {
+        /**
+         * Writes this part
+         *
+         * @param   output          the output to write to
+         * @param   scratch         a buffer to encode values in
+         * @param   values          the bound values
+         * @param   codecRegistry   the {@link CodecRegistry} to encode values with
+         */
+        void write(@NotNull BasicOutputBuffer output, @NotNull BasicOutputBuffer scratch, @NotNull Object[] values, @NotNull CodecRegistry codecRegistry);
+
+        /**
+         * Gets the estimated size of this part when written
+         *
+         * @return  the estimated size
+         */
+        int getEstimatedSize();
+    }
+
+    /**
+     * Pre-encoded elements without placeholders
+     */
+    private static final class Static implements Part {
+        /**
+         * The encoded elements
+         */
+        @NotNull private final byte[] bytes;
+
+        /**
+         * Creates a new {@link Static} instance
+         *
+         * @param   bytes   {@link #bytes}
+         */
+        private Static(@NotNull byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public void write(@NotNull BasicOutputBuffer output, @NotNull BasicOutputBuffer scratch, @NotNull Object[] values, @NotNull CodecRegistry codecRegistry) {
+            output.write(bytes);
+        }
+
+        @Override
+        public int getEstimatedSize() {
+            return bytes.length;
+        }
+    }
+
+    /**
+     * An element whose value is a placeholder
+     */
+    private static final class Slot implements Part {
+        /**
+         * The name of the element, pre-encoded as a cstring
+         */
+        @NotNull private final byte[] name;
+        /**
+         * The index of the bound value
+         */
+        private final int index;
+
+        /**
+         * Creates a new {@link Slot} instance
+         *
+         * @param   name    the name of the element
+         * @param   index   {@link #index}
+         */
+        private Slot(@NotNull String name, int index) {
+            final byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            this.name = Arrays.copyOf(bytes, bytes.length + 1);
+            this.index = index;
+        }
+
+        @Override @SuppressWarnings("unchecked")
+        public void write(@NotNull BasicOutputBuffer output, @NotNull BasicOutputBuffer scratch, @NotNull Object[] values, @NotNull CodecRegistry codecRegistry) {
+            final Object value = values[index];
+
+            // Null
+            if (value == null) {
+                output.write(BsonType.NULL.getValue());
+                output.write(name);
+                return;
+            }
+
+            // Encode as a single-element document with an empty name, then copy only the type and value
+            scratch.truncateToPosition(0);
+            try (final BsonBinaryWriter writer = new BsonBinaryWriter(scratch)) {
+                writer.writeStartDocument();
+                writer.writeName("");
+                ENCODER_CONTEXT.encodeWithChildContext((Codec<Object>) codecRegistry.get(value.getClass()), writer, value);
+                writer.writeEndDocument();
+            }
+            final byte[] encoded = scratch.getInternalBuffer();
+            output.write(encoded[4]);
+            output.write(name);
+            output.write(encoded, 6, scratch.getPosition() - 7);
+        }
+
+        @Override
+        public int getEstimatedSize() {
+            return name.length + 16;
+        }
+    }
+
+    /**
+     * A document or array containing placeholders
+     */
+    private static final class Container implements Part {
+        /**
+         * The type and name of the element (empty for the root document)
+         */
+        @NotNull private final byte[] header;
+        /**
+         * The parts of the document
+         */
+        @NotNull private final Part[] parts;
+        /**
+         * The estimated size of the document when written
+         */
+        private final int estimatedSize;
+
+        /**
+         * Creates a new {@link Container} instance
+         *
+         * @param   header  {@link #header}
+         * @param   parts   {@link #parts}
+         */
+        private Container(@NotNull byte[] header, @NotNull List<Part> parts) {
+            this.header = header;
+            this.parts = parts.toArray(new Part[0]);
+            int size = header.length + 5;
+            for (final Part part : parts) size += part.getEstimatedSize();
+            estimatedSize = size;
+        }
+
+        @Override
+        public void write(@NotNull BasicOutputBuffer output, @NotNull BasicOutputBuffer scratch, @NotNull Object[] values, @NotNull CodecRegistry codecRegistry) {
+            output.write(header);
+            final int start = output.getPosition();
+            output.writeInt32(0);
+            for (final Part part : parts) part.write(output, scratch, values, codecRegistry);
+            output.write(0);
+            output.writeInt32(start, output.getPosition() - start);
+        }
+
+        @Override
+        public int getEstimatedSize() {
+            return estimatedSize;
+        }
+    }
+}
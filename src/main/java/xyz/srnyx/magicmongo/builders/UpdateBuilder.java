@@ -1,14 +1,19 @@
 package xyz.srnyx.magicmongo.builders;
 
 import com.mongodb.client.model.Updates;
+import org.bson.BsonDocument;
+import org.bson.codecs.configuration.CodecRegistry;
 import org.bson.conversions.Bson;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 
 /**
  * A simple builder for {@link Updates MongoDB updates}
+ * <br>Updates are kept in a single flat list and rendered into one document with an entry per operator, which is cached so reusing a built update doesn't render it again. Conflicting paths are rejected as soon as the conflicting update is added (see {@link FlatUpdate})
  */
 public class UpdateBuilder extends MongoBsonBuilder<UpdateBuilder> {
     /**
@@ -19,28 +24,34 @@ public class UpdateBuilder extends MongoBsonBuilder<UpdateBuilder> {
     /**
      * Creates a new {@link UpdateBuilder} instance with the given update
      *
-     * @param   update  the {@link Bson update} to start with
+     * @param   update                      the {@link Bson update} to start with
+     *
+     * @throws  IllegalArgumentException    if the update isn't made of update operators, or if it conflicts with itself
      */
     public UpdateBuilder(@NotNull Bson update) {
-        super(update);
+        super(FlatUpdate.of(Collections.singletonList(update)));
     }
 
     /**
      * Creates a new {@link UpdateBuilder} instance with the given updates
      *
-     * @param   updates the {@link Bson updates} to start with
+     * @param   updates                     the {@link Bson updates} to start with
+     *
+     * @throws  IllegalArgumentException    if an update isn't made of update operators, or if the updates conflict
      */
     public UpdateBuilder(@NotNull Bson... updates) {
-        super(Updates.combine(updates));
+        super(FlatUpdate.of(Arrays.asList(updates)));
     }
 
     /**
      * Creates a new {@link UpdateBuilder} instance with the given {@link List} of updates
      *
-     * @param   updates the {@link List} of {@link Bson updates} to start with
+     * @param   updates                     the {@link List} of {@link Bson updates} to start with
+     *
+     * @throws  IllegalArgumentException    if an update isn't made of update operators, or if the updates conflict
      */
     public UpdateBuilder(@NotNull List<Bson> updates) {
-        super(Updates.combine(updates));
+        super(FlatUpdate.of(updates));
     }
 
     /**
@@ -64,13 +75,30 @@ public class UpdateBuilder extends MongoBsonBuilder<UpdateBuilder> {
 
     /**
      * Combines the given {@link Bson update} with the current update
+     * <br>The update is appended to the current updates rather than nesting them in a new combined update
      *
-     * @param   newUpdate   the {@link Bson update} to add
+     * @param   newUpdate                   the {@link Bson update} to add
      *
-     * @return              the current {@link UpdateBuilder} instance
+     * @return                              the current {@link UpdateBuilder} instance
+     *
+     * @throws  IllegalArgumentException    if the update isn't made of update operators, or if it conflicts with the current update
      */
     @NotNull
     public UpdateBuilder add(@NotNull Bson newUpdate) {
-        return set(bson == null ? newUpdate : Updates.combine(bson, newUpdate));
+        return set(FlatUpdate.combine(bson, newUpdate));
+    }
+
+    /**
+     * {@link #build() Builds} the update and renders it into a single {@link BsonDocument}
+     *
+     * @param   codecRegistry               the {@link CodecRegistry} to encode values with
+     *
+     * @return                              the rendered update, which is cached and must not be modified
+     *
+     * @throws  IllegalArgumentException    if the updates conflict
+     */
+    @NotNull
+    public BsonDocument toBsonDocument(@NotNull CodecRegistry codecRegistry) {
+        return build().toBsonDocument(BsonDocument.class, codecRegistry);
     }
 }
@@ -0,0 +1,72 @@
+package xyz.srnyx.magicmongo.cache;
+
+import org.bson.BsonValue;
+import org.jetbrains.annotations.NotNull;
+
+
+/**
+ * The key of a cached document: the namespace of its collection and the field/value it was looked up by
+ */
+public final class CacheKey {
+    /**
+     * The full namespace of the collection ({@code database.collection})
+     */
+    @NotNull public final String namespace;
+    /**
+     * The field the document was looked up by
+     */
+    @NotNull public final String field;
+    /**
+     * The value the document was looked up by
+     */
+    @NotNull public final BsonValue value;
+    /**
+     * The precomputed hash code
+     */
+    private final int hash;
+
+    /**
+     * Creates a new {@link CacheKey} instance
+     *
+     * @param   namespace   {@link #namespace}
+     * @param   field       {@link #field}
+     * @param   value       {@link #value}
+     */
+    public CacheKey(@NotNull String namespace, @NotNull String field, @NotNull BsonValue value) {
+        this.namespace = namespace;
+        this.field = field;
+        this.value = value;
+        this.hash = 31 * (31 * namespace.hashCode() + field.hashCode()) + value.hashCode();
+    }
+
+    /**
+     * Creates a {@link CacheKey} for a document's {@code _id}
+     *
+     * @param   namespace   {@link #namespace}
+     * @param   id          the ID of the document
+     *
+     * @return              the {@link CacheKey}
+     */
+    @NotNull
+    public static CacheKey ofId(@NotNull String namespace, @NotNull BsonValue id) {
+        return new CacheKey(namespace, "_id", id);
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (this == object) return true;
+        if (!(object instanceof CacheKey)) return false;
+        final CacheKey other = (CacheKey) object;
+        return hash == other.hash && namespace.equals(other.namespace) && field.equals(other.field) && value.equals(other.value);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override @NotNull
+    public String toString() {
+        return "CacheKey{namespace=" + namespace + ", field=" + field + ", value=" + value + "}";
+    }
+}
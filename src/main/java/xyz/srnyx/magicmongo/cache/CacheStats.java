@@ -0,0 +1,56 @@
+package xyz.srnyx.magicmongo.cache;
+
+import org.jetbrains.annotations.NotNull;
+
+
+/**
+ * A snapshot of the counters of an {@link EntityCache}
+ */
+public final class CacheStats {
+    /**
+     * The number of lookups that found a cached document
+     */
+    public final long hits;
+    /**
+     * The number of lookups that didn't find a cached document
+     */
+    public final long misses;
+    /**
+     * The number of documents removed because the cache was full or they expired
+     */
+    public final long evictions;
+    /**
+     * The number of documents currently cached
+     */
+    public final long size;
+
+    /**
+     * Creates a new {@link CacheStats} instance
+     *
+     * @param   hits        {@link #hits}
+     * @param   misses      {@link #misses}
+     * @param   evictions   {@link #evictions}
+     * @param   size        {@link #size}
+     */
+    public CacheStats(long hits, long misses, long evictions, long size) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.size = size;
+    }
+
+    /**
+     * Gets the ratio of lookups that found a cached document
+     *
+     * @return  the hit rate between 0 and 1, or 0 if there were no lookups
+     */
+    public double getHitRate() {
+        final long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    @Override @NotNull
+    public String toString() {
+        return "CacheStats{hits=" + hits + ", misses=" + misses + ", evictions=" + evictions + ", size=" + size + "}";
+    }
+}
@@ -0,0 +1,495 @@
+package xyz.srnyx.magicmongo.cache;
+
+import com.mongodb.MongoNamespace;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.ClientSession;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.*;
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import xyz.srnyx.magicmongo.IdBinding;
+import xyz.srnyx.magicmongo.MagicCollection;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+
+/**
+ * A {@link MagicCollection} with a read-through {@link EntityCache} in front of {@link #findOne(String, Object)}
+ * <br>Documents are cached by (collection, field, value) and indexed by their {@code _id} (read using their {@link IdBinding}). Missing documents aren't cached
+ * <br>Every write made through this instance invalidates the entries it might affect:
+ * <ul>
+ *     <li>{@code {_id: value}} filters invalidate every entry of that document</li>
+ *     <li>Other single-field equality filters invalidate the entry cached under that field/value and every entry of this collection cached under other fields, since the filter can match several documents (e.g. {@code updateMany} or a non-unique field)</li>
+ *     <li>Any other filter (and drops/renames) invalidate the whole collection</li>
+ * </ul>
+ * <b>Writes made elsewhere (other instances, other nodes, the shell) aren't seen!</b> Use a TTL short enough for that, or a {@link ChangeStreamInvalidator}
+ * <br>Writes in a transaction invalidate entries before the transaction commits, so a concurrent read can cache the old document until it expires
+ *
+ * @param   <T> the type of the collection
+ */
+public class CachingMagicCollection<T> extends MagicCollection<T> {
+    /**
+     * The {@link EntityCache} to cache documents in
+     */
+    @NotNull public final EntityCache cache;
+    /**
+     * The full namespace of the collection, used in {@link CacheKey CacheKeys}
+     */
+    @NotNull public final String namespace;
+    /**
+     * The number of writes made through this instance, used to avoid caching documents that were read before a concurrent write
+     */
+    @NotNull private final AtomicLong writes = new AtomicLong();
+
+    /**
+     * Constructs a new {@link CachingMagicCollection} instance
+     *
+     * @param   database    the {@link MongoDatabase} instance
+     * @param   name        the name of the collection
+     * @param   clazz       the class of the collection
+     * @param   cache       {@link #cache}
+     */
+    public CachingMagicCollection(@NotNull MongoDatabase database, @NotNull String name, @NotNull Class<T> clazz, @NotNull EntityCache cache) {
+        super(database, name, clazz);
+        this.cache = cache;
+        this.namespace = getNamespace().getFullName();
+    }
+
+    /**
+     * Finds one document in the collection, returning the cached document if there is one
+     *
+     * @param   field   the field to filter by
+     * @param   value   the value of the field to filter by
+     *
+     * @return          the document found, or null if none was found
+     */
+    @Override @NotNull
+    public Optional<T> findOne(@NotNull String field, @Nullable Object value) {
+        final CacheKey key = new CacheKey(namespace, field, toBsonValue(value));
+        final Object cached = cache.get(key);
+        if (cached != null) return Optional.of((T) cached);
+
+        // Load and cache if no write happened in the meantime
+        final long writesBefore = writes.get();
+        final Optional<T> document = super.findOne(field, value);
+        if (document.isPresent() && writes.get() == writesBefore) {
+            final T t = document.get();
+            final Object id = IdBinding.of(t.getClass()).get(t);
+            cache.put(key, t, id == null ? null : toBsonValue(id));
+            // A write between the check and the put might have invalidated before the put landed
+            if (writes.get() != writesBefore) cache.invalidate(key);
+        }
+        return document;
+    }
+
+    /**
+     * Gets a snapshot of the {@link #cache}'s counters
+     *
+     * @return  the {@link CacheStats}
+     */
+    @NotNull
+    public CacheStats getCacheStats() {
+        return cache.getStats();
+    }
+
+    /**
+     * Removes all cached documents of this collection
+     */
+    public void invalidateAll() {
+        writes.incrementAndGet();
+        cache.invalidateNamespace(namespace);
+    }
+
+    /**
+     * Removes the cached documents that might be affected by a write with the given filter
+     *
+     * @param   filter  the filter of the write
+     */
+    public void invalidate(@NotNull Bson filter) {
+        writes.incrementAndGet();
+        final BsonDocument document;
+        try {
+            document = filter.toBsonDocument(BsonDocument.class, getCodecRegistry());
+        } catch (final RuntimeException e) {
+            cache.invalidateNamespace(namespace);
+            return;
+        }
+
+        // Single-field equality
+        if (document.size() == 1) {
+            final String field = document.getFirstKey();
+            BsonValue value = document.get(field);
+            if (value.isDocument() && value.asDocument().size() == 1 && value.asDocument().containsKey("$eq")) value = value.asDocument().get("$eq");
+            if (!field.startsWith("$") && !value.isRegularExpression() && !isOperatorDocument(value)) {
+                invalidateEquality(field, value);
+                return;
+            }
+        }
+
+        cache.invalidateNamespace(namespace);
+    }
+
+    /**
+     * Removes the cached documents that might be affected by a write with the filter {@code {field: value}}
+     *
+     * @param   field   the field of the filter
+     * @param   value   the value of the filter
+     */
+    private void invalidateEquality(@NotNull String field, @NotNull BsonValue value) {
+        if (field.equals("_id")) {
+            cache.invalidateId(namespace, value);
+            return;
+        }
+        cache.invalidate(new CacheKey(namespace, field, value));
+        // Any document matching the filter might be cached under another field
+        cache.invalidateIf(key -> key.namespace.equals(namespace) && !key.field.equals(field));
+    }
+
+    /**
+     * Runs a write and then invalidates the cached documents it might have affected (even if it failed)
+     *
+     * @param   filter  the filter of the write
+     * @param   write   the write to run
+     *
+     * @return          the result of the write
+     *
+     * @param   <R>     the type of the result
+     */
+    private <R> R write(@NotNull Bson filter, @NotNull Supplier<R> write) {
+        try {
+            return write.get();
+        } finally {
+            invalidate(filter);
+        }
+    }
+
+    /**
+     * Runs a bulk write and then invalidates the cached documents each of its requests might have affected (even if it failed)
+     *
+     * @param   requests    the requests of the bulk write
+     * @param   write       the bulk write to run
+     *
+     * @return              the {@link BulkWriteResult}
+     */
+    @NotNull
+    private BulkWriteResult writeAll(@NotNull List<? extends WriteModel<? extends T>> requests, @NotNull Supplier<BulkWriteResult> write) {
+        try {
+            return write.get();
+        } finally {
+            for (final WriteModel<? extends T> request : requests) {
+                final Bson filter = getFilter(request);
+                if (filter != null) invalidate(filter);
+            }
+        }
+    }
+
+    /**
+     * Gets the filter of a {@link WriteModel}
+     *
+     * @param   request the {@link WriteModel}
+     *
+     * @return          the filter, or null if the request is an insert
+     */
+    @Nullable
+    private static Bson getFilter(@NotNull WriteModel<?> request) {
+        if (request instanceof UpdateOneModel) return ((UpdateOneModel<?>) request).getFilter();
+        if (request instanceof UpdateManyModel) return ((UpdateManyModel<?>) request).getFilter();
+        if (request instanceof ReplaceOneModel) return ((ReplaceOneModel<?>) request).getFilter();
+        if (request instanceof DeleteOneModel) return ((DeleteOneModel<?>) request).getFilter();
+        if (request instanceof DeleteManyModel) return ((DeleteManyModel<?>) request).getFilter();
+        return null;
+    }
+
+    /**
+     * Checks if a value is a document of operators (has a key starting with {@code $})
+     *
+     * @param   value   the value to check
+     *
+     * @return          true if the value is an operator document
+     */
+    private static boolean isOperatorDocument(@NotNull BsonValue value) {
+        if (!value.isDocument()) return false;
+        for (final String key : value.asDocument().keySet()) if (key.startsWith("$")) return true;
+        return false;
+    }
+
+    /**
+     * Converts a value to a {@link BsonValue} the same way it's encoded in a filter
+     *
+     * @param   value   the value to convert
+     *
+     * @return          the {@link BsonValue}
+     */
+    @NotNull
+    private BsonValue toBsonValue(@Nullable Object value) {
+        if (value instanceof BsonValue) return (BsonValue) value;
+        return new Document("v", value).toBsonDocument(BsonDocument.class, getCodecRegistry()).get("v");
+    }
+
+    // OVERRIDE WRITE METHODS FROM MagicCollection
+    @Override @NotNull
+    public UpdateResult updateOne(@NotNull Bson filter, @NotNull Bson update) {
+        return write(filter, () -> super.updateOne(filter, update));
+    }
+    @Override @NotNull
+    public UpdateResult updateOne(@NotNull Bson filter, @NotNull Bson update, @NotNull UpdateOptions updateOptions) {
+        return write(filter, () -> super.updateOne(filter, update, updateOptions));
+    }
+    @Override @NotNull
+    public UpdateResult updateOne(@NotNull ClientSession clientSession, @NotNull Bson filter, @NotNull Bson update) {
+        return write(filter, () -> super.updateOne(clientSession, filter, update));
+    }
+    @Override @NotNull
+    public UpdateResult updateOne(@NotNull ClientSession clientSession, @NotNull Bson filter, @NotNull Bson update, @NotNull UpdateOptions updateOptions) {
+        return write(filter, () -> super.updateOne(clientSession, filter, update, updateOptions));
+    }
+    @Override @NotNull
+    public UpdateResult updateOne(@NotNull Bson filter, @NotNull List<? extends Bson> update) {
+        return write(filter, () -> super.updateOne(filter, update));
+    }
+    @Override @NotNull
+    public UpdateResult updateOne(@NotNull Bson filter, @NotNull List<? extends Bson> update, @NotNull UpdateOptions updateOptions) {
+        return write(filter, () -> super.updateOne(filter, update, updateOptions));
+    }
+    @Override @NotNull
+    public UpdateResult updateOne(@NotNull ClientSession clientSession, @NotNull Bson filter, @NotNull List<? extends Bson> update) {
+        return write(filter, () -> super.updateOne(clientSession, filter, update));
+    }
+    @Override @NotNull
+    public UpdateResult updateOne(@NotNull ClientSession clientSession, @NotNull Bson filter, @NotNull List<? extends Bson> update, @NotNull UpdateOptions updateOptions) {
+        return write(filter, () -> super.updateOne(clientSession, filter, update, updateOptions));
+    }
+    @Override @NotNull
+    public UpdateResult updateMany(@NotNull Bson filter, @NotNull Bson update) {
+        return write(filter, () -> super.updateMany(filter, update));
+    }
+    @Override @NotNull
+    public UpdateResult updateMany(@NotNull Bson filter, @NotNull Bson update, @NotNull UpdateOptions updateOptions) {
+        return write(filter, () -> super.updateMany(filter, update, updateOptions));
+    }
+    @Override @NotNull
+    public UpdateResult updateMany(@NotNull ClientSession clientSession, @NotNull Bson filter, @NotNull Bson update) {
+        return write(filter, () -> super.updateMany(clientSession, filter, update));
+    }
+    @Override @NotNull
+    public UpdateResult updateMany(@NotNull ClientSession clientSession, @NotNull Bson filter, @NotNull Bson update, @NotNull UpdateOptions updateOptions) {
+        return write(filter, () -> super.updateMany(clientSession, filter, update, updateOptions));
+    }
+    @Override @NotNull
+    public UpdateResult updateMany(@NotNull Bson filter, @NotNull List<? extends Bson> update) {
+        return write(filter, () -> super.updateMany(filter, update));
+    }
+    @Override @NotNull
+    public UpdateResult updateMany(@NotNull Bson filter, @NotNull List<? extends Bson> update, @NotNull UpdateOptions updateOptions) {
+        return write(filter, () -> super.updateMany(filter, update, updateOptions));
+    }
+    @Override @NotNull
+    public UpdateResult updateMany(@NotNull ClientSession clientSession, @NotNull Bson filter, @NotNull List<? extends Bson> update) {
+        return write(filter, () -> super.updateMany(clientSession, filter, update));
+    }
+    @Override @NotNull
+    public UpdateResult updateMany(@NotNull ClientSession clientSession, @NotNull Bson filter, @NotNull List<? extends Bson> update, @NotNull UpdateOptions updateOptions) {
+        return write(filter, () -> super.updateMany(clientSession, filter, update, updateOptions));
+    }
+    @Override @Nullable
+    public T findOneAndDelete(@NotNull Bson filter) {
+        return write(filter, () -> super.findOneAndDelete(filter));
+    }
+    @Override @Nullable
+    public T findOneAndDelete(@NotNull Bson filter, @NotNull FindOneAndDeleteOptions options) {
+        return write(filter, () -> super.findOneAndDelete(filter, options));
+    }
+    @Override @Nullable
+    public T findOneAndDelete(@NotNull ClientSession clientSession, @NotNull Bson filter) {
+        return write(filter, () -> super.findOneAndDelete(clientSession, filter));
+    }
+    @Override @Nullable
+    public T findOneAndDelete(@NotNull ClientSession clientSession, @NotNull Bson filter, @NotNull FindOneAndDeleteOptions options) {
+        return write(filter, () -> super.findOneAndDelete(clientSession, filter, options));
+    }
+    @Override @Nullable
+    public T findOneAndReplace(@NotNull Bson filter, @NotNull T replacement) {
+        return write(filter, () -> super.findOneAndReplace(filter, replacement));
+    }
+    @Override @Nullable
+    public T findOneAndReplace(@NotNull Bson filter, @NotNull T replacement, @NotNull FindOneAndReplaceOptions options) {
+        return write(filter, () -> super.findOneAndReplace(filter, replacement, options));
+    }
+    @Override @Nullable
+    public T findOneAndReplace(@NotNull ClientSession clientSession, @NotNull Bson filter, @NotNull T replacement) {
+        return write(filter, () -> super.findOneAndReplace(clientSession, filter, replacement));
+    }
+    @Override @Nullable
+    public T findOneAndReplace(@NotNull ClientSession clientSession, @NotNull Bson filter, @NotNull T replacement, @NotNull FindOneAndReplaceOptions options) {
+        return write(filter, () -> super.findOneAndReplace(clientSession, filter, replacement, options));
+    }
+    @Override @Nullable
+    public T findOneAndUpdate(@NotNull Bson filter, @NotNull Bson update) {
+        return write(filter, () -> super.findOneAndUpdate(filter, update));
+    }
+    @Override @Nullable
+    public T findOneAndUpdate(@NotNull Bson filter, @NotNull Bson update, @NotNull FindOneAndUpdateOptions options) {
+        return write(filter, () -> super.findOneAndUpdate(filter, update, options));
+    }
+    @Override @Nullable
+    public T findOneAndUpdate(@NotNull ClientSession clientSession, @NotNull Bson filter, @NotNull Bson update) {
+        return write(filter, () -> super.findOneAndUpdate(clientSession, filter, update));
+    }
+    @Override @Nullable
+    public T findOneAndUpdate(@NotNull ClientSession clientSession, @NotNull Bson filter, @NotNull Bson update, @NotNull FindOneAndUpdateOptions options) {
+        return write(filter, () -> super.findOneAndUpdate(clientSession, filter, update, options));
+    }
+    @Override @Nullable
+    public T findOneAndUpdate(@NotNull Bson filter, @NotNull List<? extends Bson> update) {
+        return write(filter, () -> super.findOneAndUpdate(filter, update));
+    }
+    @Override @Nullable
+    public T findOneAndUpdate(@NotNull Bson filter, @NotNull List<? extends Bson> update, @NotNull FindOneAndUpdateOptions options) {
+        return write(filter, () -> super.findOneAndUpdate(filter, update, options));
+    }
+    @Override @Nullable
+    public T findOneAndUpdate(@NotNull ClientSession clientSession, @NotNull Bson filter, @NotNull List<? extends Bson> update) {
+        return write(filter, () -> super.findOneAndUpdate(clientSession, filter, update));
+    }
+    @Override @Nullable
+    public T findOneAndUpdate(@NotNull ClientSession clientSession, @NotNull Bson filter, @NotNull List<? extends Bson> update, @NotNull FindOneAndUpdateOptions options) {
+        return write(filter, () -> super.findOneAndUpdate(clientSession, filter, update, options));
+    }
+    @Override
+    public void drop() {
+        try {
+            super.drop();
+        } finally {
+            invalidateAll();
+        }
+    }
+    @Override
+    public void drop(@NotNull ClientSession clientSession) {
+        try {
+            super.drop(clientSession);
+        } finally {
+            invalidateAll();
+        }
+    }
+    @Override
+    public void drop(@NotNull DropCollectionOptions dropCollectionOptions) {
+        try {
+            super.drop(dropCollectionOptions);
+        } finally {
+            invalidateAll();
+        }
+    }
+    @Override
+    public void drop(@NotNull ClientSession clientSession, @NotNull DropCollectionOptions dropCollectionOptions) {
+        try {
+            super.drop(clientSession, dropCollectionOptions);
+        } finally {
+            invalidateAll();
+        }
+    }
+    @Override
+    public void renameCollection(@NotNull MongoNamespace newCollectionNamespace) {
+        try {
+            super.renameCollection(newCollectionNamespace);
+        } finally {
+            invalidateAll();
+        }
+    }
+    @Override
+    public void renameCollection(@NotNull MongoNamespace newCollectionNamespace, @NotNull RenameCollectionOptions renameCollectionOptions) {
+        try {
+            super.renameCollection(newCollectionNamespace, renameCollectionOptions);
+        } finally {
+            invalidateAll();
+        }
+    }
+    @Override
+    public void renameCollection(@NotNull ClientSession clientSession, @NotNull MongoNamespace newCollectionNamespace) {
+        try {
+            super.renameCollection(clientSession, newCollectionNamespace);
+        } finally {
+            invalidateAll();
+        }
+    }
+    @Override
+    public void renameCollection(@NotNull ClientSession clientSession, @NotNull MongoNamespace newCollectionNamespace, @NotNull RenameCollectionOptions renameCollectionOptions) {
+        try {
+            super.renameCollection(clientSession, newCollectionNamespace, renameCollectionOptions);
+        } finally {
+            invalidateAll();
+        }
+    }
+    @Override @NotNull
+    public BulkWriteResult bulkWrite(@NotNull List<? extends WriteModel<? extends T>> requests) {
+        return writeAll(requests, () -> super.bulkWrite(requests));
+    }
+    @Override @NotNull
+    public BulkWriteResult bulkWrite(@NotNull List<? extends WriteModel<? extends T>> requests, @NotNull BulkWriteOptions options) {
+        return writeAll(requests, () -> super.bulkWrite(requests, options));
+    }
+    @Override @NotNull
+    public BulkWriteResult bulkWrite(@NotNull ClientSession clientSession, @NotNull List<? extends WriteModel<? extends T>> requests) {
+        return writeAll(requests, () -> super.bulkWrite(clientSession, requests));
+    }
+    @Override @NotNull
+    public BulkWriteResult bulkWrite(@NotNull ClientSession clientSession, @NotNull List<? extends WriteModel<? extends T>> requests, @NotNull BulkWriteOptions options) {
+        return writeAll(requests, () -> super.bulkWrite(clientSession, requests, options));
+    }
+    @Override @NotNull
+    public DeleteResult deleteMany(@NotNull Bson filter) {
+        return write(filter, () -> super.deleteMany(filter));
+    }
+    @Override @NotNull
+    public DeleteResult deleteMany(@NotNull Bson filter, @NotNull DeleteOptions options) {
+        return write(filter, () -> super.deleteMany(filter, options));
+    }
+    @Override @NotNull
+    public DeleteResult deleteMany(@NotNull ClientSession clientSession, @NotNull Bson filter) {
+        return write(filter, () -> super.deleteMany(clientSession, filter));
+    }
+    @Override @NotNull
+    public DeleteResult deleteMany(@NotNull ClientSession clientSession, @NotNull Bson filter, @NotNull DeleteOptions options) {
+        return write(filter, () -> super.deleteMany(clientSession, filter, options));
+    }
+    @Override @NotNull
+    public DeleteResult deleteOne(@NotNull Bson filter) {
+        return write(filter, () -> super.deleteOne(filter));
+    }
+    @Override @NotNull
+    public DeleteResult deleteOne(@NotNull Bson filter, @NotNull DeleteOptions options) {
+        return write(filter, () -> super.deleteOne(filter, options));
+    }
+    @Override @NotNull
+    public DeleteResult deleteOne(@NotNull ClientSession clientSession, @NotNull Bson filter) {
+        return write(filter, () -> super.deleteOne(clientSession, filter));
+    }
+    @Override @NotNull
+    public DeleteResult deleteOne(@NotNull ClientSession clientSession, @NotNull Bson filter, @NotNull DeleteOptions options) {
+        return write(filter, () -> super.deleteOne(clientSession, filter, options));
+    }
+    @Override @NotNull
+    public UpdateResult replaceOne(@NotNull Bson filter, @NotNull T replacement) {
+        return write(filter, () -> super.replaceOne(filter, replacement));
+    }
+    @Override @NotNull
+    public UpdateResult replaceOne(@NotNull Bson filter, @NotNull T replacement, @NotNull ReplaceOptions replaceOptions) {
+        return write(filter, () -> super.replaceOne(filter, replacement, replaceOptions));
+    }
+    @Override @NotNull
+    public UpdateResult replaceOne(@NotNull ClientSession clientSession, @NotNull Bson filter, @NotNull T replacement) {
+        return write(filter, () -> super.replaceOne(clientSession, filter, replacement));
+    }
+    @Override @NotNull
+    public UpdateResult replaceOne(@NotNull ClientSession clientSession, @NotNull Bson filter, @NotNull T replacement, @NotNull ReplaceOptions replaceOptions) {
+        return write(filter, () -> super.replaceOne(clientSession, filter, replacement, replaceOptions));
+    }
+}
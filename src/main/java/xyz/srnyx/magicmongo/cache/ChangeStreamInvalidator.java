@@ -0,0 +1,274 @@
+package xyz.srnyx.magicmongo.cache;
+
+import com.mongodb.MongoException;
+import com.mongodb.MongoNamespace;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import xyz.srnyx.magicmongo.MagicCollection;
+import xyz.srnyx.magicmongo.MagicDatabase;
+
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+
+/**
+ * Keeps an {@link EntityCache} coherent with writes made by other nodes by following a change stream on a background thread
+ * <br>Each change evicts (or, if {@link #refresh enabled}, refreshes) the entries of the changed document using its {@code documentKey}, and drops/renames/invalidations evict everything in scope
+ * <br>The resume token is saved to a {@link ResumeTokenStore} so the stream continues where it left off after a reconnect or restart. If there's no token (or it's too old to resume from), everything in scope is evicted first since changes might have been missed
+ *
+ * @param   <T> the type of the documents in the change stream
+ */
+public class ChangeStreamInvalidator<T> implements AutoCloseable {
+    /**
+     * The number of changes after which the resume token is saved, even if the stream isn't idle
+     */
+    private static final int SAVE_EVERY = 100;
+    /**
+     * The maximum time (in milliseconds) to wait before reopening the stream after an error
+     */
+    private static final long MAX_BACKOFF_MILLIS = 30000;
+    /**
+     * The maximum time (in milliseconds) to wait before polling the stream again while it's idle
+     * <br>The wait starts at 1 millisecond and doubles up to this while there are no changes, so an idle stream doesn't spin (if the server doesn't wait for changes itself) and a busy one isn't delayed
+     */
+    static final long MAX_IDLE_MILLIS = 100;
+
+    /**
+     * The {@link EntityCache} to keep coherent
+     */
+    @NotNull public final EntityCache cache;
+    /**
+     * Opens the change stream, resuming after the given token (null to start from now)
+     */
+    @NotNull private final Function<BsonDocument, ChangeStreamIterable<T>> streams;
+    /**
+     * The {@link ResumeTokenStore} to persist the resume token in
+     */
+    @NotNull public final ResumeTokenStore tokenStore;
+    /**
+     * Which namespaces (as in {@link CacheKey#namespace}) this instance is responsible for
+     */
+    @NotNull private final Predicate<String> scope;
+    /**
+     * Whether changed documents should be put back into the cache (under their {@code _id}) instead of only being evicted
+     * <br>Requires the stream's {@link ChangeStreamDocument#getFullDocument() full documents} to be of the cached class
+     */
+    public final boolean refresh;
+    /**
+     * Called with errors from the change stream, which is then reopened
+     */
+    @NotNull private final Consumer<Throwable> onError;
+    /**
+     * The background thread following the change stream
+     */
+    @NotNull private final Thread thread;
+    /**
+     * Whether the background thread should keep running
+     */
+    private volatile boolean running = true;
+
+    /**
+     * Creates a new {@link ChangeStreamInvalidator} instance and starts its background thread
+     * <br>Use {@link #forCollection(MagicCollection, EntityCache, ResumeTokenStore, boolean)} or {@link #forDatabase(MagicDatabase, EntityCache, ResumeTokenStore)} unless the change stream needs to be customized (or stubbed)
+     *
+     * @param   cache       {@link #cache}
+     * @param   streams     opens the change stream, resuming after the given token (null to start from now)
+     * @param   tokenStore  {@link #tokenStore}
+     * @param   scope       which namespaces this instance is responsible for
+     * @param   refresh     {@link #refresh}
+     * @param   onError     called with errors from the change stream (which is then reopened), or null to print them
+     */
+    public ChangeStreamInvalidator(@NotNull EntityCache cache, @NotNull Function<BsonDocument, ChangeStreamIterable<T>> streams, @NotNull ResumeTokenStore tokenStore, @NotNull Predicate<String> scope, boolean refresh, @Nullable Consumer<Throwable> onError) {
+        this.cache = cache;
+        this.streams = streams;
+        this.tokenStore = tokenStore;
+        this.scope = scope;
+        this.refresh = refresh;
+        this.onError = onError != null ? onError : Throwable::printStackTrace;
+        thread = new Thread(this::run, "MagicMongo-ChangeStreamInvalidator");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Creates a {@link ChangeStreamInvalidator} following {@link MagicCollection#watch()}
+     *
+     * @param   collection  the collection to follow
+     * @param   cache       {@link #cache}
+     * @param   tokenStore  {@link #tokenStore}
+     * @param   refresh     {@link #refresh}
+     *
+     * @return              the started {@link ChangeStreamInvalidator}
+     *
+     * @param   <T>         the type of the collection
+     */
+    @NotNull
+    public static <T> ChangeStreamInvalidator<T> forCollection(@NotNull MagicCollection<T> collection, @NotNull EntityCache cache, @NotNull ResumeTokenStore tokenStore, boolean refresh) {
+        final String namespace = collection.getNamespace().getFullName();
+        return new ChangeStreamInvalidator<>(cache, token -> {
+            ChangeStreamIterable<T> stream = collection.watch();
+            if (refresh) stream = stream.fullDocument(FullDocument.UPDATE_LOOKUP);
+            if (token != null) stream = stream.resumeAfter(token);
+            return stream;
+        }, tokenStore, namespace::equals, refresh, null);
+    }
+
+    /**
+     * Creates a {@link ChangeStreamInvalidator} following {@link MagicDatabase#watch()}, for every collection {@link MagicDatabase#loadMagicCollection(String, Class) loaded} in the database
+     *
+     * @param   database    the database to follow
+     * @param   cache       {@link #cache}
+     * @param   tokenStore  {@link #tokenStore}
+     *
+     * @return              the started {@link ChangeStreamInvalidator}
+     */
+    @NotNull
+    public static ChangeStreamInvalidator<Document> forDatabase(@NotNull MagicDatabase database, @NotNull EntityCache cache, @NotNull ResumeTokenStore tokenStore) {
+        final String prefix = database.getName() + ".";
+        return new ChangeStreamInvalidator<>(cache, token -> {
+            final ChangeStreamIterable<Document> stream = database.watch();
+            return token != null ? stream.resumeAfter(token) : stream;
+        }, tokenStore, namespace -> namespace.startsWith(prefix) && database.nameToClass.containsKey(namespace.substring(prefix.length())), false, null);
+    }
+
+    /**
+     * Stops the background thread and saves the last resume token
+     * <br>The thread is interrupted so it doesn't finish waiting to poll or reopen the stream first
+     */
+    @Override
+    public void close() {
+        running = false;
+        if (Thread.currentThread() == thread) return;
+        thread.interrupt();
+        try {
+            thread.join();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * The loop of the {@link #thread background thread}
+     */
+    private void run() {
+        BsonDocument token = tokenStore.load();
+        if (token == null) evictScope();
+        long backoff = 100;
+        while (running) {
+            try (final MongoChangeStreamCursor<ChangeStreamDocument<T>> cursor = streams.apply(token).cursor()) {
+                backoff = 100;
+                long idle = 1;
+                int unsaved = 0;
+                while (running) {
+                    final ChangeStreamDocument<T> change = cursor.tryNext();
+
+                    // Idle, save latest token and wait before polling again
+                    if (change == null) {
+                        final BsonDocument latest = cursor.getResumeToken();
+                        if (latest != null && !latest.equals(token)) {
+                            token = latest;
+                            tokenStore.save(token);
+                            unsaved = 0;
+                        }
+                        try {
+                            Thread.sleep(idle);
+                        } catch (final InterruptedException e) {
+                            break;
+                        }
+                        idle = Math.min(idle * 2, MAX_IDLE_MILLIS);
+                        continue;
+                    }
+                    idle = 1;
+
+                    // Stream was invalidated, start a new one
+                    if (change.getOperationType() == OperationType.INVALIDATE) {
+                        evictScope();
+                        token = null;
+                        tokenStore.save(null);
+                        break;
+                    }
+
+                    handle(change);
+                    token = change.getResumeToken();
+                    if (++unsaved >= SAVE_EVERY) {
+                        tokenStore.save(token);
+                        unsaved = 0;
+                    }
+                }
+            } catch (final RuntimeException e) {
+                if (!running) break;
+                // Token is too old to resume from (ChangeStreamHistoryLost)
+                if (token != null && e instanceof MongoException && ((MongoException) e).getCode() == 286) {
+                    evictScope();
+                    token = null;
+                }
+                onError.accept(e);
+                if (!running) break;
+                try {
+                    Thread.sleep(backoff);
+                } catch (final InterruptedException interrupted) {
+                    break;
+                }
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+            }
+        }
+        // Closed while talking to the server, clear the interrupt so the token can still be saved
+        Thread.interrupted();
+        try {
+            tokenStore.save(token);
+        } catch (final RuntimeException e) {
+            onError.accept(e);
+        }
+    }
+
+    /**
+     * Evicts or refreshes the entries affected by a change
+     *
+     * @param   change  the change
+     */
+    private void handle(@NotNull ChangeStreamDocument<T> change) {
+        final MongoNamespace mongoNamespace = change.getNamespace();
+
+        // Whole database dropped
+        if (mongoNamespace == null) {
+            final String database = change.getDatabaseName();
+            if (database == null) {
+                evictScope();
+                return;
+            }
+            final String prefix = database + ".";
+            cache.invalidateIf(key -> key.namespace.startsWith(prefix) && scope.test(key.namespace));
+            return;
+        }
+        final String namespace = mongoNamespace.getFullName();
+        if (!scope.test(namespace)) return;
+
+        // Single document changed
+        final BsonDocument documentKey = change.getDocumentKey();
+        final BsonValue id = documentKey == null ? null : documentKey.get("_id");
+        if (id == null) {
+            cache.invalidateNamespace(namespace);
+            return;
+        }
+        cache.invalidateId(namespace, id);
+        if (!refresh) return;
+        final T document = change.getFullDocument();
+        if (document != null) cache.put(CacheKey.ofId(namespace, id), document, id);
+    }
+
+    /**
+     * Evicts every entry this instance is responsible for
+     */
+    private void evictScope() {
+        cache.invalidateIf(key -> scope.test(key.namespace));
+    }
+}
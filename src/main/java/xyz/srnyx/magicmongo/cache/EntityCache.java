@@ -0,0 +1,84 @@
+package xyz.srnyx.magicmongo.cache;
+
+import org.bson.BsonValue;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.function.Predicate;
+
+
+/**
+ * A cache of documents used by {@link CachingMagicCollection}
+ * <br>Implementations must be thread-safe. Entries can be indexed by the {@code _id} of their document so that every key caching the same document can be {@link #invalidateId(String, BsonValue) invalidated} at once
+ *
+ * @see StripedLruCache
+ */
+public interface EntityCache {
+    /**
+     * Gets a cached document
+     *
+     * @param   key the key of the document
+     *
+     * @return      the cached document, or null if it isn't cached (or expired)
+     */
+    @Nullable
+    Object get(@NotNull CacheKey key);
+
+    /**
+     * Caches a document
+     *
+     * @param   key     the key of the document
+     * @param   value   the document
+     * @param   id      the {@code _id} of the document to index the entry by, or null if it's unknown
+     */
+    void put(@NotNull CacheKey key, @NotNull Object value, @Nullable BsonValue id);
+
+    /**
+     * Removes a cached document
+     *
+     * @param   key the key of the document
+     *
+     * @return      the {@code _id} the removed entry was indexed by, or null if there was no entry or it wasn't indexed
+     */
+    @Nullable
+    BsonValue invalidate(@NotNull CacheKey key);
+
+    /**
+     * Removes all cached entries of the document with the given {@code _id}
+     *
+     * @param   namespace   the namespace of the document's collection
+     * @param   id          the {@code _id} of the document
+     */
+    void invalidateId(@NotNull String namespace, @NotNull BsonValue id);
+
+    /**
+     * Removes all cached documents whose key matches the given {@link Predicate}
+     *
+     * @param   predicate   the {@link Predicate} to test keys with
+     */
+    void invalidateIf(@NotNull Predicate<CacheKey> predicate);
+
+    /**
+     * Removes all cached documents of a collection
+     *
+     * @param   namespace   the namespace of the collection
+     */
+    default void invalidateNamespace(@NotNull String namespace) {
+        invalidateIf(key -> key.namespace.equals(namespace));
+    }
+
+    /**
+     * Removes all cached documents
+     */
+    default void clear() {
+        invalidateIf(key -> true);
+    }
+
+    /**
+     * Gets a snapshot of the cache's counters
+     *
+     * @return  the {@link CacheStats}
+     */
+    @NotNull
+    CacheStats getStats();
+}
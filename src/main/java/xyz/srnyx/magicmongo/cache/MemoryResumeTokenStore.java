@@ -0,0 +1,30 @@
+package xyz.srnyx.magicmongo.cache;
+
+import org.bson.BsonDocument;
+import org.jetbrains.annotations.Nullable;
+
+
+/**
+ * A {@link ResumeTokenStore} that only keeps the resume token in memory, so it survives reconnects but not process restarts
+ */
+public class MemoryResumeTokenStore implements ResumeTokenStore {
+    /**
+     * The saved resume token
+     */
+    @Nullable private volatile BsonDocument token;
+
+    /**
+     * Creates a new {@link MemoryResumeTokenStore} instance without a resume token
+     */
+    public MemoryResumeTokenStore() {}
+
+    @Override @Nullable
+    public BsonDocument load() {
+        return token;
+    }
+
+    @Override
+    public void save(@Nullable BsonDocument token) {
+        this.token = token;
+    }
+}
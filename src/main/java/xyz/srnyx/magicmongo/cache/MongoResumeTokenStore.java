@@ -0,0 +1,65 @@
+package xyz.srnyx.magicmongo.cache;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.ReplaceOptions;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+
+/**
+ * A {@link ResumeTokenStore} that keeps the resume token in a MongoDB collection, as {@code {_id: name, token: {...}}}
+ */
+public class MongoResumeTokenStore implements ResumeTokenStore {
+    /**
+     * The collection to store resume tokens in
+     */
+    @NotNull public final MongoCollection<BsonDocument> collection;
+    /**
+     * The {@code _id} of the document holding this store's resume token
+     */
+    @NotNull public final String name;
+
+    /**
+     * Creates a new {@link MongoResumeTokenStore} instance
+     *
+     * @param   collection  {@link #collection}
+     * @param   name        {@link #name}, should be unique per node if each node has its own cache
+     */
+    public MongoResumeTokenStore(@NotNull MongoCollection<BsonDocument> collection, @NotNull String name) {
+        this.collection = collection;
+        this.name = name;
+    }
+
+    /**
+     * Creates a new {@link MongoResumeTokenStore} instance
+     *
+     * @param   database        the database of the collection
+     * @param   collectionName  the name of the collection to store resume tokens in
+     * @param   name            {@link #name}, should be unique per node if each node has its own cache
+     */
+    public MongoResumeTokenStore(@NotNull MongoDatabase database, @NotNull String collectionName, @NotNull String name) {
+        this(database.getCollection(collectionName, BsonDocument.class), name);
+    }
+
+    @Override @Nullable
+    public BsonDocument load() {
+        final BsonDocument document = collection.find(Filters.eq("_id", name)).first();
+        if (document == null) return null;
+        final BsonValue token = document.get("token");
+        return token != null && token.isDocument() ? token.asDocument() : null;
+    }
+
+    @Override
+    public void save(@Nullable BsonDocument token) {
+        if (token == null) {
+            collection.deleteOne(Filters.eq("_id", name));
+            return;
+        }
+        collection.replaceOne(Filters.eq("_id", name), new BsonDocument("_id", new BsonString(name)).append("token", token), new ReplaceOptions().upsert(true));
+    }
+}
@@ -0,0 +1,28 @@
+package xyz.srnyx.magicmongo.cache;
+
+import org.bson.BsonDocument;
+import org.jetbrains.annotations.Nullable;
+
+
+/**
+ * Persists the resume token of a {@link ChangeStreamInvalidator} so it can continue where it left off after a restart
+ *
+ * @see MemoryResumeTokenStore
+ * @see MongoResumeTokenStore
+ */
+public interface ResumeTokenStore {
+    /**
+     * Loads the last saved resume token
+     *
+     * @return  the resume token, or null if there isn't one
+     */
+    @Nullable
+    BsonDocument load();
+
+    /**
+     * Saves a resume token, replacing the previous one
+     *
+     * @param   token   the resume token, or null to remove the saved one
+     */
+    void save(@Nullable BsonDocument token);
+}
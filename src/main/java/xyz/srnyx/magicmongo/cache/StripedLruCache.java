@@ -0,0 +1,262 @@
+package xyz.srnyx.magicmongo.cache;
+
+import org.bson.BsonValue;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+
+/**
+ * The default {@link EntityCache}: a size- and TTL-bounded LRU cache, split into several independently locked segments to reduce contention
+ * <br>Each segment holds up to {@code maxSize / stripes} entries and evicts its least recently used entry when full
+ */
+public class StripedLruCache implements EntityCache {
+    /**
+     * The segments of the cache
+     */
+    @NotNull private final Segment[] segments;
+    /**
+     * {@link #segments}{@code .length - 1}, used to pick a segment from a hash
+     */
+    private final int mask;
+    /**
+     * The time-to-live of entries in nanoseconds, or 0 for no expiry
+     */
+    private final long ttlNanos;
+    /**
+     * The keys of the cached entries of each document, keyed by {@link CacheKey#ofId(String, BsonValue)}
+     */
+    @NotNull private final Map<CacheKey, Set<CacheKey>> idIndex = new ConcurrentHashMap<>();
+    /**
+     * {@link CacheStats#hits}
+     */
+    @NotNull private final LongAdder hits = new LongAdder();
+    /**
+     * {@link CacheStats#misses}
+     */
+    @NotNull private final LongAdder misses = new LongAdder();
+    /**
+     * {@link CacheStats#evictions}
+     */
+    @NotNull private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Creates a new {@link StripedLruCache} instance with 16 segments
+     *
+     * @param   maxSize the maximum number of cached documents
+     * @param   ttl     the time-to-live of cached documents, or 0 for no expiry
+     * @param   unit    the {@link TimeUnit} of the time-to-live
+     */
+    public StripedLruCache(int maxSize, long ttl, @NotNull TimeUnit unit) {
+        this(maxSize, ttl, unit, 16);
+    }
+
+    /**
+     * Creates a new {@link StripedLruCache} instance
+     *
+     * @param   maxSize                     the maximum number of cached documents
+     * @param   ttl                         the time-to-live of cached documents, or 0 for no expiry
+     * @param   unit                        the {@link TimeUnit} of the time-to-live
+     * @param   stripes                     the number of segments, rounded up to a power of two
+     *
+     * @throws  IllegalArgumentException    if the size or stripes aren't positive, or the time-to-live is negative
+     */
+    public StripedLruCache(int maxSize, long ttl, @NotNull TimeUnit unit, int stripes) {
+        if (maxSize <= 0) throw new IllegalArgumentException("Max size must be positive: " + maxSize);
+        if (stripes <= 0) throw new IllegalArgumentException("Stripes must be positive: " + stripes);
+        if (ttl < 0) throw new IllegalArgumentException("TTL can't be negative: " + ttl);
+        int count = 1;
+        while (count < stripes && count < maxSize) count <<= 1;
+        segments = new Segment[count];
+        final int segmentSize = (maxSize + count - 1) / count;
+        for (int i = 0; i < count; i++) segments[i] = new Segment(segmentSize);
+        mask = count - 1;
+        ttlNanos = unit.toNanos(ttl);
+    }
+
+    @Override @Nullable
+    public Object get(@NotNull CacheKey key) {
+        final Segment segment = segmentFor(key);
+        final Entry entry;
+        synchronized (segment) {
+            entry = segment.get(key);
+            if (entry != null && entry.isExpired()) {
+                segment.remove(key);
+                unindex(key, entry);
+                evictions.increment();
+                misses.increment();
+                return null;
+            }
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.value;
+    }
+
+    @Override
+    public void put(@NotNull CacheKey key, @NotNull Object value, @Nullable BsonValue id) {
+        final CacheKey idKey = id == null ? null : CacheKey.ofId(key.namespace, id);
+        final Entry entry = new Entry(value, idKey, ttlNanos == 0 ? Long.MAX_VALUE : System.nanoTime() + ttlNanos);
+        final Segment segment = segmentFor(key);
+        synchronized (segment) {
+            final Entry previous = segment.put(key, entry);
+            if (previous != null) unindex(key, previous);
+            if (idKey != null) idIndex.compute(idKey, (k, keys) -> {
+                if (keys == null) keys = new HashSet<>();
+                keys.add(key);
+                return keys;
+            });
+        }
+    }
+
+    @Override @Nullable
+    public BsonValue invalidate(@NotNull CacheKey key) {
+        final Segment segment = segmentFor(key);
+        final Entry entry;
+        synchronized (segment) {
+            entry = segment.remove(key);
+            if (entry != null) unindex(key, entry);
+        }
+        return entry == null || entry.idKey == null ? null : entry.idKey.value;
+    }
+
+    @Override
+    public void invalidateId(@NotNull String namespace, @NotNull BsonValue id) {
+        final CacheKey idKey = CacheKey.ofId(namespace, id);
+        final Set<CacheKey> keys = idIndex.remove(idKey);
+        if (keys == null) {
+            invalidate(idKey);
+            return;
+        }
+        for (final CacheKey key : keys) invalidate(key);
+    }
+
+    @Override
+    public void invalidateIf(@NotNull Predicate<CacheKey> predicate) {
+        for (final Segment segment : segments) synchronized (segment) {
+            final Iterator<Map.Entry<CacheKey, Entry>> iterator = segment.entrySet().iterator();
+            while (iterator.hasNext()) {
+                final Map.Entry<CacheKey, Entry> entry = iterator.next();
+                if (!predicate.test(entry.getKey())) continue;
+                iterator.remove();
+                unindex(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    @Override @NotNull
+    public CacheStats getStats() {
+        long size = 0;
+        for (final Segment segment : segments) synchronized (segment) {
+            size += segment.size();
+        }
+        return new CacheStats(hits.sum(), misses.sum(), evictions.sum(), size);
+    }
+
+    /**
+     * Gets the segment for a key
+     *
+     * @param   key the key
+     *
+     * @return      the segment the key belongs to
+     */
+    @NotNull
+    private Segment segmentFor(@NotNull CacheKey key) {
+        final int hash = key.hashCode();
+        return segments[(hash ^ (hash >>> 16)) & mask];
+    }
+
+    /**
+     * Removes a key from the {@link #idIndex}
+     *
+     * @param   key     the key to remove
+     * @param   entry   the entry of the key
+     */
+    private void unindex(@NotNull CacheKey key, @NotNull Entry entry) {
+        if (entry.idKey != null) idIndex.computeIfPresent(entry.idKey, (k, keys) -> {
+            keys.remove(key);
+            return keys.isEmpty() ? null : keys;
+        });
+    }
+
+    /**
+     * A cached document
+     */
+    private static final class Entry {
+        /**
+         * The cached document
+         */
+        @NotNull private final Object value;
+        /**
+         * The {@link CacheKey#ofId(String, BsonValue) ID key} the entry is indexed by, or null if it isn't indexed
+         */
+        @Nullable private final CacheKey idKey;
+        /**
+         * The {@link System#nanoTime()} at which the entry expires
+         */
+        private final long expiresAt;
+
+        /**
+         * Creates a new {@link Entry} instance
+         *
+         * @param   value       {@link #value}
+         * @param   idKey       {@link #idKey}
+         * @param   expiresAt   {@link #expiresAt}
+         */
+        private Entry(@NotNull Object value, @Nullable CacheKey idKey, long expiresAt) {
+            this.value = value;
+            this.idKey = idKey;
+            this.expiresAt = expiresAt;
+        }
+
+        /**
+         * Checks if the entry has expired
+         *
+         * @return  true if the entry has expired
+         */
+        private boolean isExpired() {
+            return expiresAt != Long.MAX_VALUE && System.nanoTime() - expiresAt >= 0;
+        }
+    }
+
+    /**
+     * A segment of the cache: an access-ordered {@link LinkedHashMap} that evicts its eldest entry when full
+     * <br>Must only be accessed while synchronized on it
+     */
+    private final class Segment extends LinkedHashMap<CacheKey, Entry> {
+        /**
+         * The maximum number of entries in this segment
+         */
+        private final int maxSize;
+
+        /**
+         * Creates a new {@link Segment} instance
+         *
+         * @param   maxSize {@link #maxSize}
+         */
+        private Segment(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(@NotNull Map.Entry<CacheKey, Entry> eldest) {
+            if (size() <= maxSize) return false;
+            unindex(eldest.getKey(), eldest.getValue());
+            evictions.increment();
+            return true;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package xyz.srnyx.magicmongo.codecs;
+
+import com.mongodb.client.model.Filters;
+import org.bson.*;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.conversions.Bson;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.UUID;
+
+
+/**
+ * A {@link Codec} for encoding and decoding {@link UUID UUIDs} to and from {@link BsonBinarySubType#UUID_STANDARD standard binary UUIDs}, which are less than half the size of {@link UUIDCodec strings}
+ * <br>If {@link #readStrings} is enabled, {@link UUIDCodec string UUIDs} are also accepted when decoding, so a collection can be {@link UUIDMigration migrated} gradually
+ * <br><b>{@link #readStrings} only affects decoding:</b> UUIDs in filters are still encoded as binary, so a filter like {@code Filters.eq("uuid", id)} doesn't match documents that haven't been migrated yet. Use {@link #eq(String, UUID)} to match both forms until the migration is done
+ */
+public class BinaryUUIDCodec implements Codec<UUID> {
+    /**
+     * Whether {@link UUIDCodec string UUIDs} are also accepted when decoding
+     */
+    public final boolean readStrings;
+
+    /**
+     * Creates a new {@link BinaryUUIDCodec} instance that only accepts binary UUIDs
+     */
+    public BinaryUUIDCodec() {
+        this(false);
+    }
+
+    /**
+     * Creates a new {@link BinaryUUIDCodec} instance
+     *
+     * @param   readStrings {@link #readStrings}
+     */
+    public BinaryUUIDCodec(boolean readStrings) {
+        this.readStrings = readStrings;
+    }
+
+    /**
+     * Creates a filter matching a UUID stored either as a binary UUID or as a {@link UUIDCodec string}, for collections that are being {@link UUIDMigration migrated}
+     *
+     * @param   field   the field
+     * @param   value   the UUID
+     *
+     * @return          the filter ({@code {field: {$in: [binary, string]}}})
+     */
+    @NotNull
+    public static Bson eq(@NotNull String field, @NotNull UUID value) {
+        return Filters.in(field, new BsonBinary(value), new BsonString(value.toString()));
+    }
+
+    @Override
+    public void encode(@NotNull BsonWriter writer, @NotNull UUID value, EncoderContext encoderContext) {
+        writer.writeBinaryData(new BsonBinary(value));
+    }
+
+    @Override @NotNull
+    public UUID decode(@NotNull BsonReader reader, DecoderContext decoderContext) {
+        final BsonType type = reader.getCurrentBsonType();
+        if (type == BsonType.STRING && readStrings) return UUIDCodec.parse(reader.readString());
+        if (type != BsonType.BINARY) throw new BsonInvalidOperationException("Expected a binary UUID" + (readStrings ? " or a string" : "") + ", got " + type);
+        final BsonBinary binary = reader.readBinaryData();
+        if (binary.getType() != BsonBinarySubType.UUID_STANDARD.getValue()) throw new BsonInvalidOperationException("Expected a binary UUID with subtype " + BsonBinarySubType.UUID_STANDARD.getValue() + ", got " + binary.getType());
+        return binary.asUuid();
+    }
+
+    @Override
+    public Class<UUID> getEncoderClass() {
+        return UUID.class;
+    }
+}
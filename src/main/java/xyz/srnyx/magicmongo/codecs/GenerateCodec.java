@@ -0,0 +1,14 @@
+package xyz.srnyx.magicmongo.codecs;
+
+import java.lang.annotation.*;
+
+
+/**
+ * Marks a class to have a {@link org.bson.codecs.Codec Codec} generated for it by the {@code magic-mongo-processor} annotation processor, which has to be added to the annotation processor path (e.g. {@code annotationProcessor("xyz.srnyx:magic-mongo-processor:VERSION")} with Gradle)
+ * <br>The generated codec (named {@code <ClassName>_MagicCodec}, in the same package) reads and writes the properties directly instead of through reflection, and is picked up by {@link GeneratedCodecProvider} before the automatic {@link org.bson.codecs.pojo.PojoCodecProvider PojoCodecProvider}
+ * <br>Properties follow the same conventions as the {@link org.bson.codecs.pojo.PojoCodecProvider PojoCodecProvider}: public/package-private fields or getters and setters, {@code null} values are skipped, and {@code id}/{@code _id}, {@link org.bson.codecs.pojo.annotations.BsonId @BsonId}, {@link org.bson.codecs.pojo.annotations.BsonProperty @BsonProperty} and {@link org.bson.codecs.pojo.annotations.BsonIgnore @BsonIgnore} are respected. If the class uses anything else (discriminators, creators, type variables, etc.), nothing is generated and a warning is reported, so it keeps using the {@link org.bson.codecs.pojo.PojoCodecProvider PojoCodecProvider}
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface GenerateCodec {}
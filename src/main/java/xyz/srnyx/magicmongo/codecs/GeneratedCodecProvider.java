@@ -0,0 +1,53 @@
+package xyz.srnyx.magicmongo.codecs;
+
+import org.bson.codecs.Codec;
+import org.bson.codecs.configuration.CodecConfigurationException;
+import org.bson.codecs.configuration.CodecProvider;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.Constructor;
+
+
+/**
+ * A {@link CodecProvider} for the codecs generated for classes annotated with {@link GenerateCodec @GenerateCodec}
+ * <br>The generated codec class is looked up once per class, after which creating the codec is a plain constructor call
+ */
+public class GeneratedCodecProvider implements CodecProvider {
+    /**
+     * The suffix of the generated codec classes
+     */
+    @NotNull public static final String SUFFIX = "_MagicCodec";
+
+    /**
+     * The constructors of the generated codecs per class (null if a class doesn't have one)
+     */
+    @NotNull private static final ClassValue<Constructor<?>> CONSTRUCTORS = new ClassValue<Constructor<?>>() {
+        @Override @Nullable
+        protected Constructor<?> computeValue(@NotNull Class<?> type) {
+            if (type.isPrimitive() || type.isArray()) return null;
+            try {
+                return Class.forName(type.getName() + SUFFIX, true, type.getClassLoader()).getConstructor(CodecRegistry.class);
+            } catch (final ClassNotFoundException | NoSuchMethodException | LinkageError e) {
+                return null;
+            }
+        }
+    };
+
+    /**
+     * Creates a new {@link GeneratedCodecProvider} instance
+     */
+    public GeneratedCodecProvider() {}
+
+    @Override @Nullable @SuppressWarnings("unchecked")
+    public <T> Codec<T> get(@NotNull Class<T> clazz, @NotNull CodecRegistry registry) {
+        final Constructor<?> constructor = CONSTRUCTORS.get(clazz);
+        if (constructor == null) return null;
+        try {
+            return (Codec<T>) constructor.newInstance(registry);
+        } catch (final ReflectiveOperationException e) {
+            throw new CodecConfigurationException("Failed to create generated codec for " + clazz.getName(), e);
+        }
+    }
+}
@@ -12,20 +12,83 @@ import java.util.UUID;
 
 /**
  * A {@link Codec} for encoding and decoding {@link UUID UUIDs} to and from {@link String Strings}
+ * <br>The canonical 36-character form is parsed and formatted directly, without going through {@link UUID#fromString(String)} or {@link UUID#toString()}
+ *
+ * @see BinaryUUIDCodec
  */
 public class UUIDCodec implements Codec<UUID> {
+    /**
+     * The lowercase hexadecimal digits
+     */
+    @NotNull private static final char[] DIGITS = "0123456789abcdef".toCharArray();
+
     @Override
     public void encode(@NotNull BsonWriter writer, @NotNull UUID value, EncoderContext encoderContext) {
-        writer.writeString(value.toString());
+        final char[] chars = new char[36];
+        formatHex(chars, 0, value.getMostSignificantBits() >>> 32, 8);
+        chars[8] = '-';
+        formatHex(chars, 9, value.getMostSignificantBits() >>> 16, 4);
+        chars[13] = '-';
+        formatHex(chars, 14, value.getMostSignificantBits(), 4);
+        chars[18] = '-';
+        formatHex(chars, 19, value.getLeastSignificantBits() >>> 48, 4);
+        chars[23] = '-';
+        formatHex(chars, 24, value.getLeastSignificantBits(), 12);
+        writer.writeString(new String(chars));
     }
 
     @Override @NotNull
     public UUID decode(@NotNull BsonReader reader, DecoderContext decoderContext) {
-        return UUID.fromString(reader.readString());
+        return parse(reader.readString());
     }
 
     @Override
     public Class<UUID> getEncoderClass() {
         return UUID.class;
     }
-}
\ No newline at end of file
+
+    /**
+     * Parses a {@link UUID} from a string
+     * <br>The canonical form ({@code xxxxxxxx-xxxx-xxxx-xxxx-xxxxxxxxxxxx}) is parsed directly into the two halves, anything else falls back to {@link UUID#fromString(String)}
+     *
+     * @param   string                      the string to parse
+     *
+     * @return                              the {@link UUID}
+     *
+     * @throws  IllegalArgumentException    if the string isn't a valid {@link UUID}
+     */
+    @NotNull
+    static UUID parse(@NotNull String string) {
+        if (string.length() != 36 || string.charAt(8) != '-' || string.charAt(13) != '-' || string.charAt(18) != '-' || string.charAt(23) != '-') return UUID.fromString(string);
+        long most = 0;
+        long least = 0;
+        int invalid = 0;
+        for (int i = 0; i < 36; i++) {
+            if (i == 8 || i == 13 || i == 18 || i == 23) continue;
+            final int digit = Character.digit(string.charAt(i), 16);
+            invalid |= digit;
+            if (i < 18) {
+                most = most << 4 | digit;
+            } else {
+                least = least << 4 | digit;
+            }
+        }
+        if (invalid < 0) return UUID.fromString(string);
+        return new UUID(most, least);
+    }
+
+    /**
+     * Writes the lowest bits of a value as lowercase hexadecimal digits
+     *
+     * @param   chars   the buffer to write to
+     * @param   offset  the index to write the first digit at
+     * @param   value   the value
+     * @param   digits  the number of digits to write
+     */
+    private static void formatHex(@NotNull char[] chars, int offset, long value, int digits) {
+        for (int i = offset + digits - 1; i >= offset; i--) {
+            chars[i] = DIGITS[(int) (value & 0xF)];
+            value >>>= 4;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package xyz.srnyx.magicmongo.codecs;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.WriteModel;
+import org.bson.BsonBinary;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.conversions.Bson;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+
+/**
+ * Rewrites {@link UUIDCodec string UUIDs} in a collection as {@link BinaryUUIDCodec binary UUIDs}
+ * <br>Read the collection with a {@link BinaryUUIDCodec#BinaryUUIDCodec(boolean) dual-read BinaryUUIDCodec} while migrating, since documents are converted in batches while the application keeps running
+ */
+public final class UUIDMigration {
+    /**
+     * This class only has static methods
+     */
+    private UUIDMigration() {}
+
+    /**
+     * Rewrites the string UUIDs of some fields as binary UUIDs, in batches
+     * <br>Each document is only updated if the field still has the same string, so concurrent writes aren't overwritten. Strings that aren't UUIDs and values in arrays are left as they are
+     *
+     * @param   collection                  the collection to migrate
+     * @param   batchSize                   the number of documents to read and update per batch
+     * @param   fields                      the (dotted) paths of the fields to migrate
+     *
+     * @return                              the number of documents that were modified
+     *
+     * @throws  IllegalArgumentException    if {@code batchSize} isn't positive or no fields are given
+     */
+    public static long migrateToBinary(@NotNull MongoCollection<?> collection, int batchSize, @NotNull String... fields) {
+        if (batchSize <= 0) throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        if (fields.length == 0) throw new IllegalArgumentException("No fields to migrate");
+        final MongoCollection<BsonDocument> documents = collection.withDocumentClass(BsonDocument.class);
+
+        // Find documents with any string field
+        final List<Bson> stringFilters = new ArrayList<>(fields.length);
+        for (final String field : fields) stringFilters.add(Filters.type(field, "string"));
+        final List<String> projection = new ArrayList<>(fields.length + 1);
+        projection.add("_id");
+        for (final String field : fields) projection.add(field);
+
+        long modified = 0;
+        final List<WriteModel<BsonDocument>> batch = new ArrayList<>(batchSize);
+        try (final MongoCursor<BsonDocument> cursor = documents.find(stringFilters.size() == 1 ? stringFilters.get(0) : Filters.or(stringFilters))
+                .projection(Projections.include(projection))
+                .batchSize(batchSize)
+                .iterator()) {
+            while (cursor.hasNext()) {
+                final WriteModel<BsonDocument> update = toUpdate(cursor.next(), fields);
+                if (update == null) continue;
+                batch.add(update);
+                if (batch.size() < batchSize) continue;
+                modified += write(documents, batch);
+            }
+        }
+        if (!batch.isEmpty()) modified += write(documents, batch);
+        return modified;
+    }
+
+    /**
+     * Creates the update that converts the string UUIDs of a document
+     *
+     * @param   document    the document
+     * @param   fields      the paths of the fields to convert
+     *
+     * @return              the update, or null if there's nothing to convert
+     */
+    @Nullable
+    private static WriteModel<BsonDocument> toUpdate(@NotNull BsonDocument document, @NotNull String[] fields) {
+        final BsonValue id = document.get("_id");
+        if (id == null) return null;
+        final List<Bson> filters = new ArrayList<>();
+        filters.add(Filters.eq("_id", id));
+        final BsonDocument set = new BsonDocument();
+        for (final String field : fields) {
+            final BsonValue value = getPath(document, field);
+            if (value == null || !value.isString()) continue;
+            final UUID uuid;
+            try {
+                uuid = UUID.fromString(value.asString().getValue());
+            } catch (final IllegalArgumentException e) {
+                continue;
+            }
+            filters.add(Filters.eq(field, value));
+            set.put(field, new BsonBinary(uuid));
+        }
+        if (set.isEmpty()) return null;
+        return new UpdateOneModel<>(Filters.and(filters), new BsonDocument("$set", set));
+    }
+
+    /**
+     * Writes and clears a batch of updates
+     *
+     * @param   collection  the collection
+     * @param   batch       the updates
+     *
+     * @return              the number of documents that were modified
+     */
+    private static long write(@NotNull MongoCollection<BsonDocument> collection, @NotNull List<WriteModel<BsonDocument>> batch) {
+        final int modified = collection.bulkWrite(batch, new BulkWriteOptions().ordered(false)).getModifiedCount();
+        batch.clear();
+        return modified;
+    }
+
+    /**
+     * Gets the value at a dotted path in a document
+     *
+     * @param   document    the document
+     * @param   path        the dotted path
+     *
+     * @return              the value, or null if missing
+     */
+    @Nullable
+    private static BsonValue getPath(@NotNull BsonDocument document, @NotNull String path) {
+        BsonValue value = document;
+        for (final String part : path.split("\\.")) {
+            if (!value.isDocument()) return null;
+            value = value.asDocument().get(part);
+            if (value == null) return null;
+        }
+        return value;
+    }
+}
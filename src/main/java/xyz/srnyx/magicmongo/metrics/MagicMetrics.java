@@ -0,0 +1,43 @@
+package xyz.srnyx.magicmongo.metrics;
+
+import com.mongodb.MongoNamespace;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import xyz.srnyx.magicmongo.MagicCollection;
+
+
+/**
+ * Receives latency and throughput metrics for {@link MagicCollection} operations and driver commands
+ * <br>Implementations are called on the thread that ran the operation/command, so they must be thread-safe and fast (e.g. record into a metrics library, don't do I/O)
+ * <ul>
+ *     <li>Operations: set with {@link MagicCollection#setMetrics(MagicMetrics)} (or {@link xyz.srnyx.magicmongo.MagicDatabase#setMetrics(MagicMetrics)} for all of a database's collections)</li>
+ *     <li>Commands: add a {@link MetricsCommandListener} to the client's settings</li>
+ * </ul>
+ * Collections without metrics only pay for a null check
+ */
+public interface MagicMetrics {
+    /**
+     * Called when a {@link MagicCollection} operation completes or fails
+     *
+     * @param   namespace       the namespace of the collection
+     * @param   operation       the name of the operation (e.g. {@code findOne}, {@code findMany}, {@code upsertOne}, {@code bulkWrite})
+     * @param   durationNanos   how long the operation took, in nanoseconds
+     * @param   documents       the number of documents returned/written, or 0 if it failed
+     * @param   error           the error, or null if it succeeded
+     */
+    void onOperation(@NotNull MongoNamespace namespace, @NotNull String operation, long durationNanos, long documents, @Nullable Throwable error);
+
+    /**
+     * Called by a {@link MetricsCommandListener} when a driver command completes or fails
+     * <br>Does nothing by default
+     *
+     * @param   database        the name of the database
+     * @param   collection      the name of the collection the command is for, or null if it isn't for one
+     * @param   command         the name of the command (e.g. {@code find}, {@code update}, {@code getMore})
+     * @param   durationNanos   how long the command took, as reported by the driver, in nanoseconds
+     * @param   bytesOut        the size of the command document in bytes, or -1 if not measured
+     * @param   bytesIn         the size of the reply document in bytes, or -1 if not measured (or if it failed)
+     * @param   error           the error, or null if it succeeded
+     */
+    default void onCommand(@NotNull String database, @Nullable String collection, @NotNull String command, long durationNanos, int bytesOut, int bytesIn, @Nullable Throwable error) {}
+}
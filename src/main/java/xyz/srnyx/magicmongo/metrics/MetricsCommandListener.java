@@ -0,0 +1,134 @@
+package xyz.srnyx.magicmongo.metrics;
+
+import com.mongodb.MongoClientSettings;
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * A {@link CommandListener} that reports every driver command to {@link MagicMetrics#onCommand(String, String, String, long, int, int, Throwable)}
+ * <br>Add it to the client's settings, for example: {@code new MagicMongo(url, registry, builder -> builder.addCommandListener(new MetricsCommandListener(metrics)))}
+ */
+public class MetricsCommandListener implements CommandListener {
+    /**
+     * The {@link BsonDocumentCodec} used to measure documents that aren't already raw
+     */
+    @NotNull private static final BsonDocumentCodec CODEC = new BsonDocumentCodec();
+
+    /**
+     * The {@link MagicMetrics} to report to
+     */
+    @NotNull public final MagicMetrics metrics;
+    /**
+     * Whether the sizes of commands and replies are measured, which re-encodes documents the driver doesn't expose as raw bytes
+     */
+    public final boolean measureBytes;
+    /**
+     * The commands that have started but not completed yet, by request ID
+     */
+    @NotNull private final Map<Integer, Started> started = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new {@link MetricsCommandListener} instance
+     *
+     * @param   metrics         {@link #metrics}
+     * @param   measureBytes    {@link #measureBytes}
+     */
+    public MetricsCommandListener(@NotNull MagicMetrics metrics, boolean measureBytes) {
+        this.metrics = metrics;
+        this.measureBytes = measureBytes;
+    }
+
+    /**
+     * Creates a new {@link MetricsCommandListener} instance that measures the sizes of commands and replies
+     *
+     * @param   metrics {@link #metrics}
+     *
+     * @see             MongoClientSettings.Builder#addCommandListener(CommandListener)
+     */
+    public MetricsCommandListener(@NotNull MagicMetrics metrics) {
+        this(metrics, true);
+    }
+
+    @Override
+    public void commandStarted(@NotNull CommandStartedEvent event) {
+        final BsonDocument command = event.getCommand();
+        started.put(event.getRequestId(), new Started(getCollection(command, event.getCommandName()), measureBytes ? sizeOf(command) : -1));
+    }
+
+    @Override
+    public void commandSucceeded(@NotNull CommandSucceededEvent event) {
+        final Started command = started.remove(event.getRequestId());
+        final BsonDocument response = event.getResponse();
+        metrics.onCommand(event.getDatabaseName(), command == null ? null : command.collection, event.getCommandName(), event.getElapsedTime(TimeUnit.NANOSECONDS), command == null ? -1 : command.bytes, measureBytes && response != null ? sizeOf(response) : -1, null);
+    }
+
+    @Override
+    public void commandFailed(@NotNull CommandFailedEvent event) {
+        final Started command = started.remove(event.getRequestId());
+        metrics.onCommand(event.getDatabaseName(), command == null ? null : command.collection, event.getCommandName(), event.getElapsedTime(TimeUnit.NANOSECONDS), command == null ? -1 : command.bytes, -1, event.getThrowable());
+    }
+
+    /**
+     * Gets the name of the collection a command is for
+     *
+     * @param   command     the command document
+     * @param   name        the name of the command
+     *
+     * @return              the value of the command's first field (or of its {@code collection} field, for {@code getMore}) if it's a string, otherwise null
+     */
+    @Nullable
+    private static String getCollection(@NotNull BsonDocument command, @NotNull String name) {
+        final BsonValue value = command.get(name.equals("getMore") ? "collection" : name);
+        return value != null && value.isString() ? value.asString().getValue() : null;
+    }
+
+    /**
+     * Gets the encoded size of a document
+     *
+     * @param   document    the document
+     *
+     * @return              the size in bytes
+     */
+    private static int sizeOf(@NotNull BsonDocument document) {
+        final RawBsonDocument raw = document instanceof RawBsonDocument ? (RawBsonDocument) document : new RawBsonDocument(document, CODEC);
+        return raw.getByteBuffer().remaining();
+    }
+
+    /**
+     * What's remembered about a command until it completes
+     */
+    private static final class Started {
+        /**
+         * The name of the collection the command is for, or null if it isn't for one
+         */
+        @Nullable private final String collection;
+        /**
+         * The size of the command document in bytes, or -1 if not measured
+         */
+        private final int bytes;
+
+        /**
+         * Creates a new {@link Started} instance
+         *
+         * @param   collection  {@link #collection}
+         * @param   bytes       {@link #bytes}
+         */
+        private Started(@Nullable String collection, int bytes) {
+            this.collection = collection;
+            this.bytes = bytes;
+        }
+    }
+}
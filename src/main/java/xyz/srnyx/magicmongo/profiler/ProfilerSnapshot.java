@@ -0,0 +1,103 @@
+package xyz.srnyx.magicmongo.profiler;
+
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+
+/**
+ * A snapshot of a {@link QueryProfiler}, which can be exported using {@link #toBsonDocument()}
+ */
+public final class ProfilerSnapshot {
+    /**
+     * The tracked shapes (the most frequent and the slowest), most frequent first (unmodifiable)
+     */
+    @NotNull private final List<ShapeStats> shapes;
+    /**
+     * The last slow calls, oldest first (unmodifiable)
+     */
+    @NotNull private final List<SlowQuery> slowQueries;
+
+    /**
+     * Creates a new {@link ProfilerSnapshot} instance
+     *
+     * @param   shapes      the tracked shapes, in any order
+     * @param   slowQueries {@link #slowQueries}
+     */
+    ProfilerSnapshot(@NotNull List<ShapeStats> shapes, @NotNull List<SlowQuery> slowQueries) {
+        final List<ShapeStats> sorted = new ArrayList<>(shapes);
+        sorted.sort(Comparator.comparingLong(ShapeStats::getCount).reversed());
+        this.shapes = Collections.unmodifiableList(sorted);
+        this.slowQueries = Collections.unmodifiableList(slowQueries);
+    }
+
+    /**
+     * Gets the tracked shapes, most frequent first
+     *
+     * @return  the tracked shapes
+     */
+    @NotNull
+    public List<ShapeStats> getShapes() {
+        return shapes;
+    }
+
+    /**
+     * Gets the most frequent shapes
+     *
+     * @param   limit   the maximum number of shapes
+     *
+     * @return          the most frequent shapes, most frequent first
+     */
+    @NotNull
+    public List<ShapeStats> getTopByCount(int limit) {
+        return shapes.subList(0, Math.min(limit, shapes.size()));
+    }
+
+    /**
+     * Gets the shapes with the highest 99th percentile latency
+     *
+     * @param   limit   the maximum number of shapes
+     *
+     * @return          the slowest shapes, slowest first
+     */
+    @NotNull
+    public List<ShapeStats> getTopByP99(int limit) {
+        final List<ShapeStats> sorted = new ArrayList<>(shapes);
+        sorted.sort(Comparator.comparingLong(ShapeStats::getP99Nanos).reversed());
+        return sorted.subList(0, Math.min(limit, sorted.size()));
+    }
+
+    /**
+     * Gets the last slow calls
+     *
+     * @return  the last slow calls, oldest first
+     */
+    @NotNull
+    public List<SlowQuery> getSlowQueries() {
+        return slowQueries;
+    }
+
+    /**
+     * Converts this snapshot to a {@link BsonDocument}
+     *
+     * @return  the {@link BsonDocument}, with {@code shapes} and {@code slowQueries} arrays
+     */
+    @NotNull
+    public BsonDocument toBsonDocument() {
+        final BsonArray shapesArray = new BsonArray();
+        for (final ShapeStats stats : shapes) shapesArray.add(stats.toBsonDocument());
+        final BsonArray slowArray = new BsonArray();
+        for (final SlowQuery query : slowQueries) slowArray.add(query.toBsonDocument());
+        return new BsonDocument("shapes", shapesArray).append("slowQueries", slowArray);
+    }
+
+    @Override @NotNull
+    public String toString() {
+        return "ProfilerSnapshot{shapes=" + shapes + ", slowQueries=" + slowQueries + "}";
+    }
+}
@@ -0,0 +1,566 @@
+package xyz.srnyx.magicmongo.profiler;
+
+import org.bson.*;
+import org.bson.conversions.Bson;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import xyz.srnyx.magicmongo.MagicCollection;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+/**
+ * Profiles the filters passed to a {@link MagicCollection}, to find the filter shapes responsible for latency (and missing indexes) without the server profiler
+ * <br>Each filter is normalized into a {@link #shapeOf(BsonDocument) shape} (its fields and operators, without values), and the {@link #capacity} most frequent shapes (per operation) are tracked using the space-saving algorithm: when a new shape arrives and the profiler is full, the least frequent shape is evicted and the new one inherits its count (recorded as its {@link ShapeStats#getCountError() error})
+ * <br>Shapes are looked up by a {@link #shapeHash(BsonDocument) structural hash} of the filter, so the shape itself is only built when a shape is first seen (or a call is slow)
+ * <br>The {@link #capacity} shapes with the highest maximum latency among slow calls are also kept (even if they're evicted from the most frequent ones), so rare but slow shapes aren't lost to frequent fast ones
+ * <br>Calls slower than {@link #slowThresholdNanos} are kept in a log of the last {@value #SLOW_QUERIES}, and if there's an {@link #explainExecutor}, the first slow call of each shape is {@code explain}ed on it (as the command the call ran, like an {@code update} or {@code delete}) with the {@code queryPlanner} verbosity, so the slow call isn't run again and the calling thread doesn't wait for it
+ *
+ * @see MagicCollection#setProfiler(QueryProfiler)
+ */
+public class QueryProfiler {
+    /**
+     * The number of latencies kept per shape to compute percentiles from (the most recent ones)
+     */
+    public static final int LATENCY_SAMPLES = 256;
+    /**
+     * The number of slow calls kept
+     */
+    public static final int SLOW_QUERIES = 100;
+    /**
+     * The value that replaces values in shapes
+     */
+    @NotNull private static final BsonString PLACEHOLDER = new BsonString("?");
+    /**
+     * The hash of {@link #PLACEHOLDER} in {@link #shapeHash(BsonDocument)}
+     */
+    private static final long PLACEHOLDER_HASH = 0x9E3779B97F4A7C15L;
+
+    /**
+     * The maximum number of shapes tracked
+     */
+    public final int capacity;
+    /**
+     * The duration (in nanoseconds) from which a call is considered slow
+     */
+    public final long slowThresholdNanos;
+    /**
+     * The {@link Executor} to {@code explain} the first slow call of each shape on, or null to not {@code explain} them
+     */
+    @Nullable public final Executor explainExecutor;
+    /**
+     * The most frequent shapes, by operation and shape
+     */
+    @NotNull private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+    /**
+     * The shapes with the highest maximum latency among slow calls, by operation and shape
+     */
+    @NotNull private final Map<Key, Entry> slowest = new ConcurrentHashMap<>();
+    /**
+     * The lowest maximum latency in {@link #slowest} once it's full (a slow call must exceed it to enter), or 0 if it isn't full
+     */
+    private volatile long slowestFloor;
+    /**
+     * The last slow calls, oldest first
+     */
+    @NotNull private final Deque<SlowQuery> slowQueries = new ArrayDeque<>();
+
+    /**
+     * Creates a new {@link QueryProfiler} instance
+     *
+     * @param   capacity                    {@link #capacity}
+     * @param   slowThreshold               the duration from which a call is considered slow
+     * @param   slowThresholdUnit           the unit of {@code slowThreshold}
+     * @param   explainExecutor             {@link #explainExecutor}
+     *
+     * @throws  IllegalArgumentException    if the capacity isn't positive or the threshold is negative
+     *
+     * @see                                 xyz.srnyx.magicmongo.MagicMongo#newAsyncExecutor()
+     */
+    public QueryProfiler(int capacity, long slowThreshold, @NotNull TimeUnit slowThresholdUnit, @Nullable Executor explainExecutor) {
+        if (capacity <= 0) throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        if (slowThreshold < 0) throw new IllegalArgumentException("Slow threshold must not be negative: " + slowThreshold);
+        this.capacity = capacity;
+        this.slowThresholdNanos = slowThresholdUnit.toNanos(slowThreshold);
+        this.explainExecutor = explainExecutor;
+    }
+
+    /**
+     * Creates a new {@link QueryProfiler} instance tracking 100 shapes, with a slow threshold of 100 milliseconds and without {@code explain}
+     */
+    public QueryProfiler() {
+        this(100, 100, TimeUnit.MILLISECONDS, null);
+    }
+
+    /**
+     * Records a call without an update
+     *
+     * @param   collection      the collection the call was made on
+     * @param   operation       the name of the operation
+     * @param   filter          the filter of the call
+     * @param   durationNanos   how long the call took, in nanoseconds
+     */
+    public void record(@NotNull MagicCollection<?> collection, @NotNull String operation, @NotNull Bson filter, long durationNanos) {
+        record(collection, operation, filter, null, durationNanos);
+    }
+
+    /**
+     * Records a call
+     *
+     * @param   collection      the collection the call was made on
+     * @param   operation       the name of the operation
+     * @param   filter          the filter of the call
+     * @param   update          the update of the call, or null if it doesn't have one
+     * @param   durationNanos   how long the call took, in nanoseconds
+     */
+    public void record(@NotNull MagicCollection<?> collection, @NotNull String operation, @NotNull Bson filter, @Nullable Bson update, long durationNanos) {
+        final BsonDocument rendered = filter.toBsonDocument(collection.getDocumentClass(), collection.getCodecRegistry());
+        final Key key = new Key(operation, shapeHash(rendered));
+        Entry entry = entries.get(key);
+        if (entry == null) entry = slowest.get(key);
+        if (entry == null) entry = admit(key, operation, rendered);
+        entry.record(durationNanos);
+        if (durationNanos < slowThresholdNanos) return;
+
+        // Slow
+        if (durationNanos > slowestFloor && !slowest.containsKey(key)) offerSlowest(entry);
+        synchronized (slowQueries) {
+            if (slowQueries.size() == SLOW_QUERIES) slowQueries.removeFirst();
+            slowQueries.addLast(new SlowQuery(collection.getNamespace().getFullName(), operation, entry.shape, durationNanos, System.currentTimeMillis()));
+        }
+        final Executor executor = explainExecutor;
+        if (executor == null || !entry.explained.compareAndSet(false, true)) return;
+
+        // Explain
+        final Entry target = entry;
+        final BsonDocument command = new BsonDocument("explain", toExplainedCommand(collection, operation, rendered, update))
+                .append("verbosity", new BsonString("queryPlanner"));
+        try {
+            executor.execute(() -> {
+                try {
+                    target.explain = collection.database.runCommand(command, BsonDocument.class);
+                } catch (final RuntimeException e) {
+                    target.explain = new BsonDocument("error", new BsonString(String.valueOf(e.getMessage())));
+                }
+            });
+        } catch (final RejectedExecutionException e) {
+            // Try again on the next slow call
+            target.explained.set(false);
+        }
+    }
+
+    /**
+     * Creates the command a call ran, to {@code explain} it
+     * <br>{@code findOne} and {@code findMany} are {@code find}s, {@code countDocuments} is the {@code aggregate} the driver runs, the updates are {@code update}s, {@code findOneAndUpdate} and {@code findOneAndUpsert} are {@code findAndModify}s, and the deletes are {@code delete}s. Updates without an update document and unknown operations are explained as a {@code find} with the same filter
+     *
+     * @param   collection  the collection the call was made on
+     * @param   operation   the name of the operation
+     * @param   filter      the rendered filter of the call
+     * @param   update      the update of the call, or null if it doesn't have one
+     *
+     * @return              the command
+     */
+    @NotNull
+    private static BsonDocument toExplainedCommand(@NotNull MagicCollection<?> collection, @NotNull String operation, @NotNull BsonDocument filter, @Nullable Bson update) {
+        final BsonString name = new BsonString(collection.getNamespace().getCollectionName());
+        final BsonDocument renderedUpdate = update == null ? null : update.toBsonDocument(collection.getDocumentClass(), collection.getCodecRegistry());
+        switch (operation) {
+            case "findOne":
+                return new BsonDocument("find", name).append("filter", filter).append("limit", new BsonInt32(1));
+            case "countDocuments":
+                return new BsonDocument("aggregate", name)
+                        .append("pipeline", new BsonArray(Arrays.asList(
+                                new BsonDocument("$match", filter),
+                                new BsonDocument("$group", new BsonDocument("_id", new BsonInt32(1)).append("n", new BsonDocument("$sum", new BsonInt32(1)))))))
+                        .append("cursor", new BsonDocument());
+            case "updateOne":
+            case "upsertOne":
+            case "updateMany":
+                if (renderedUpdate == null) break;
+                return new BsonDocument("update", name).append("updates", new BsonArray(Collections.singletonList(new BsonDocument("q", filter)
+                        .append("u", renderedUpdate)
+                        .append("upsert", BsonBoolean.valueOf(operation.equals("upsertOne")))
+                        .append("multi", BsonBoolean.valueOf(operation.equals("updateMany"))))));
+            case "findOneAndUpdate":
+            case "findOneAndUpsert":
+                if (renderedUpdate == null) break;
+                return new BsonDocument("findAndModify", name)
+                        .append("query", filter)
+                        .append("update", renderedUpdate)
+                        .append("new", BsonBoolean.TRUE)
+                        .append("upsert", BsonBoolean.valueOf(operation.equals("findOneAndUpsert")));
+            case "deleteOne":
+            case "deleteMany":
+                return new BsonDocument("delete", name).append("deletes", new BsonArray(Collections.singletonList(new BsonDocument("q", filter)
+                        .append("limit", new BsonInt32(operation.equals("deleteOne") ? 1 : 0)))));
+        }
+        return new BsonDocument("find", name).append("filter", filter);
+    }
+
+    /**
+     * Starts tracking a shape as one of the most frequent, evicting the least frequent one if full
+     *
+     * @param   key         the key of the shape
+     * @param   operation   the name of the operation
+     * @param   filter      the rendered filter of the call, to build the shape from
+     *
+     * @return              the entry of the shape
+     */
+    @NotNull
+    private synchronized Entry admit(@NotNull Key key, @NotNull String operation, @NotNull BsonDocument filter) {
+        final Entry existing = entries.get(key);
+        if (existing != null) return existing;
+        long inherited = 0;
+        if (entries.size() >= capacity) {
+            Entry min = null;
+            for (final Entry entry : entries.values()) if (min == null || entry.count.get() < min.count.get()) min = entry;
+            if (min != null) {
+                entries.remove(min.key);
+                inherited = min.count.get();
+            }
+        }
+        final Entry entry = new Entry(key, operation, shapeOf(filter), inherited);
+        entries.put(key, entry);
+        return entry;
+    }
+
+    /**
+     * Keeps a shape as one of the slowest if its maximum latency is higher than the fastest of them, evicting the fastest one if full
+     *
+     * @param   entry   the entry of the shape
+     */
+    private void offerSlowest(@NotNull Entry entry) {
+        synchronized (slowest) {
+            if (slowest.containsKey(entry.key)) return;
+            if (slowest.size() >= capacity) {
+                Entry min = null;
+                for (final Entry slow : slowest.values()) if (min == null || slow.maxNanos.get() < min.maxNanos.get()) min = slow;
+                if (min == null || min.maxNanos.get() >= entry.maxNanos.get()) return;
+                slowest.remove(min.key);
+            }
+            slowest.put(entry.key, entry);
+            if (slowest.size() < capacity) return;
+            long floor = Long.MAX_VALUE;
+            for (final Entry slow : slowest.values()) floor = Math.min(floor, slow.maxNanos.get());
+            slowestFloor = floor;
+        }
+    }
+
+    /**
+     * Takes a snapshot of the tracked shapes (the most frequent and the slowest) and the slow calls
+     *
+     * @return  the {@link ProfilerSnapshot}
+     */
+    @NotNull
+    public ProfilerSnapshot snapshot() {
+        final Set<Entry> tracked = new LinkedHashSet<>(entries.values());
+        tracked.addAll(slowest.values());
+        final List<ShapeStats> shapes = new ArrayList<>(tracked.size());
+        for (final Entry entry : tracked) shapes.add(entry.toStats());
+        final List<SlowQuery> slow;
+        synchronized (slowQueries) {
+            slow = new ArrayList<>(slowQueries);
+        }
+        return new ProfilerSnapshot(shapes, slow);
+    }
+
+    /**
+     * Forgets every tracked shape and slow call
+     */
+    public synchronized void reset() {
+        entries.clear();
+        synchronized (slowest) {
+            slowest.clear();
+            slowestFloor = 0;
+        }
+        synchronized (slowQueries) {
+            slowQueries.clear();
+        }
+    }
+
+    /**
+     * Normalizes a filter into its shape: its fields and operators with every value replaced by {@code "?"}
+     * <br>Fields are sorted, so filters with the same fields in a different order have the same shape. {@code $and}, {@code $or}, and {@code $nor} clauses, {@code $elemMatch}, and {@code $not} are normalized recursively
+     * <br>For example, {@code {age: {$gt: 18}, name: "x", $or: [{a: 1}, {b: {$in: [1, 2]}}]}} becomes {@code {$or: [{a: "?"}, {b: {$in: "?"}}], age: {$gt: "?"}, name: "?"}}
+     *
+     * @param   filter  the rendered filter
+     *
+     * @return          the shape
+     */
+    @NotNull
+    public static BsonDocument shapeOf(@NotNull BsonDocument filter) {
+        final BsonDocument shape = new BsonDocument();
+        for (final String field : new TreeSet<>(filter.keySet())) {
+            final BsonValue value = filter.get(field);
+            if ((field.equals("$and") || field.equals("$or") || field.equals("$nor")) && value.isArray()) {
+                final BsonArray clauses = new BsonArray();
+                for (final BsonValue clause : value.asArray()) clauses.add(clause.isDocument() ? shapeOf(clause.asDocument()) : PLACEHOLDER);
+                shape.put(field, clauses);
+            } else if (!field.startsWith("$") && isOperatorDocument(value)) {
+                shape.put(field, shapeOfOperators(value.asDocument()));
+            } else {
+                shape.put(field, PLACEHOLDER);
+            }
+        }
+        return shape;
+    }
+
+    /**
+     * Normalizes a document of query operators
+     *
+     * @param   operators   the operators
+     *
+     * @return              the shape of the operators
+     */
+    @NotNull
+    private static BsonDocument shapeOfOperators(@NotNull BsonDocument operators) {
+        final BsonDocument shape = new BsonDocument();
+        for (final String operator : new TreeSet<>(operators.keySet())) {
+            final BsonValue value = operators.get(operator);
+            if (operator.equals("$elemMatch") && value.isDocument()) {
+                shape.put(operator, isOperatorDocument(value) ? shapeOfOperators(value.asDocument()) : shapeOf(value.asDocument()));
+            } else if (operator.equals("$not") && isOperatorDocument(value)) {
+                shape.put(operator, shapeOfOperators(value.asDocument()));
+            } else {
+                shape.put(operator, PLACEHOLDER);
+            }
+        }
+        return shape;
+    }
+
+    /**
+     * Hashes the shape of a filter without building it, so filters with the same {@link #shapeOf(BsonDocument) shape} have the same hash
+     * <br>Fields are combined with an order-independent sum (like the sorted fields of the shape) and clauses in order, so different shapes only have the same hash by a (64-bit) collision
+     *
+     * @param   filter  the rendered filter
+     *
+     * @return          the hash of its shape
+     */
+    static long shapeHash(@NotNull BsonDocument filter) {
+        long hash = 0;
+        for (final Map.Entry<String, BsonValue> entry : filter.entrySet()) {
+            final String field = entry.getKey();
+            final BsonValue value = entry.getValue();
+            final long child;
+            if ((field.equals("$and") || field.equals("$or") || field.equals("$nor")) && value.isArray()) {
+                long clauses = 1;
+                for (final BsonValue clause : value.asArray()) clauses = clauses * 31 + (clause.isDocument() ? shapeHash(clause.asDocument()) : PLACEHOLDER_HASH);
+                child = mix(clauses);
+            } else if (!field.startsWith("$") && isOperatorDocument(value)) {
+                child = operatorsHash(value.asDocument());
+            } else {
+                child = PLACEHOLDER_HASH;
+            }
+            hash += mix(field.hashCode() * 0x100000001B3L + child);
+        }
+        return mix(hash);
+    }
+
+    /**
+     * Hashes the shape of a document of query operators, like {@link #shapeOfOperators(BsonDocument)}
+     *
+     * @param   operators   the operators
+     *
+     * @return              the hash of their shape
+     */
+    private static long operatorsHash(@NotNull BsonDocument operators) {
+        long hash = 0;
+        for (final Map.Entry<String, BsonValue> entry : operators.entrySet()) {
+            final String operator = entry.getKey();
+            final BsonValue value = entry.getValue();
+            final long child;
+            if (operator.equals("$elemMatch") && value.isDocument()) {
+                child = isOperatorDocument(value) ? operatorsHash(value.asDocument()) : shapeHash(value.asDocument());
+            } else if (operator.equals("$not") && isOperatorDocument(value)) {
+                child = operatorsHash(value.asDocument());
+            } else {
+                child = PLACEHOLDER_HASH;
+            }
+            hash += mix(operator.hashCode() * 0x100000001B3L + child);
+        }
+        return mix(hash);
+    }
+
+    /**
+     * Mixes the bits of a hash (the finalizer of MurmurHash3), so sums of mixed hashes don't collide like sums of plain ones
+     *
+     * @param   hash    the hash
+     *
+     * @return          the mixed hash
+     */
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        return hash ^ hash >>> 33;
+    }
+
+    /**
+     * Checks if a value is a document of query operators (as opposed to a document to match exactly)
+     *
+     * @param   value   the value
+     *
+     * @return          true if the value is a non-empty document whose keys all start with {@code $}
+     */
+    private static boolean isOperatorDocument(@NotNull BsonValue value) {
+        if (!value.isDocument() || value.asDocument().isEmpty()) return false;
+        for (final String key : value.asDocument().keySet()) if (!key.startsWith("$")) return false;
+        return true;
+    }
+
+    @Override @NotNull
+    public String toString() {
+        return "QueryProfiler{capacity=" + capacity + ", slowThresholdNanos=" + slowThresholdNanos + ", explain=" + (explainExecutor != null) + ", shapes=" + entries.size() + ", slowest=" + slowest.size() + "}";
+    }
+
+    /**
+     * The key of a tracked shape: its operation and the {@link #shapeHash(BsonDocument) hash} of its shape
+     */
+    private static final class Key {
+        /**
+         * The name of the operation
+         */
+        @NotNull private final String operation;
+        /**
+         * The hash of the shape
+         */
+        private final long hash;
+
+        /**
+         * Creates a new {@link Key} instance
+         *
+         * @param   operation   {@link #operation}
+         * @param   hash        {@link #hash}
+         */
+        private Key(@NotNull String operation, long hash) {
+            this.operation = operation;
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (this == object) return true;
+            if (!(object instanceof Key)) return false;
+            final Key other = (Key) object;
+            return hash == other.hash && operation.equals(other.operation);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * operation.hashCode() + Long.hashCode(hash);
+        }
+    }
+
+    /**
+     * A tracked shape
+     */
+    private static final class Entry {
+        /**
+         * The key of the shape
+         */
+        @NotNull private final Key key;
+        /**
+         * The name of the operation
+         */
+        @NotNull private final String operation;
+        /**
+         * The shape
+         */
+        @NotNull private final BsonDocument shape;
+        /**
+         * The count inherited from the evicted shape
+         */
+        private final long countError;
+        /**
+         * The number of calls (including {@link #countError})
+         */
+        @NotNull private final AtomicLong count;
+        /**
+         * The total duration of the calls recorded since tracked, in nanoseconds
+         */
+        @NotNull private final AtomicLong totalNanos = new AtomicLong();
+        /**
+         * The number of latencies recorded since tracked
+         */
+        @NotNull private final AtomicLong samples = new AtomicLong();
+        /**
+         * The most recent latencies (a ring buffer)
+         */
+        @NotNull private final AtomicLongArray latencies = new AtomicLongArray(LATENCY_SAMPLES);
+        /**
+         * The highest latency recorded since tracked, in nanoseconds
+         */
+        @NotNull private final AtomicLong maxNanos = new AtomicLong();
+        /**
+         * Whether a slow call of this shape has been explained
+         */
+        @NotNull private final AtomicBoolean explained = new AtomicBoolean();
+        /**
+         * The {@code explain} output of the first slow call, or null if none
+         */
+        @Nullable private volatile BsonDocument explain;
+
+        /**
+         * Creates a new {@link Entry} instance
+         *
+         * @param   key         {@link #key}
+         * @param   operation   {@link #operation}
+         * @param   shape       {@link #shape}
+         * @param   countError  {@link #countError}
+         */
+        private Entry(@NotNull Key key, @NotNull String operation, @NotNull BsonDocument shape, long countError) {
+            this.key = key;
+            this.operation = operation;
+            this.shape = shape;
+            this.countError = countError;
+            this.count = new AtomicLong(countError);
+        }
+
+        /**
+         * Records a call
+         *
+         * @param   durationNanos   how long the call took, in nanoseconds
+         */
+        private void record(long durationNanos) {
+            count.incrementAndGet();
+            totalNanos.addAndGet(durationNanos);
+            latencies.set((int) (samples.getAndIncrement() % LATENCY_SAMPLES), durationNanos);
+            if (durationNanos > maxNanos.get()) maxNanos.accumulateAndGet(durationNanos, Math::max);
+        }
+
+        /**
+         * Creates the {@link ShapeStats} of this shape
+         *
+         * @return  the {@link ShapeStats}
+         */
+        @NotNull
+        private ShapeStats toStats() {
+            final long recorded = samples.get();
+            final long[] sorted = new long[(int) Math.min(recorded, LATENCY_SAMPLES)];
+            for (int i = 0; i < sorted.length; i++) sorted[i] = latencies.get(i);
+            Arrays.sort(sorted);
+            return new ShapeStats(operation, shape.clone(), count.get(), countError, recorded, totalNanos.get(), percentile(sorted, 0.5), percentile(sorted, 0.99), sorted.length == 0 ? 0 : sorted[sorted.length - 1], explain);
+        }
+
+        /**
+         * Gets a percentile of sorted latencies
+         *
+         * @param   sorted      the sorted latencies
+         * @param   percentile  the percentile (0 to 1)
+         *
+         * @return              the latency at that percentile, or 0 if there are none
+         */
+        private static long percentile(@NotNull long[] sorted, double percentile) {
+            if (sorted.length == 0) return 0;
+            return sorted[Math.min(sorted.length - 1, (int) Math.ceil(percentile * sorted.length) - 1)];
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package xyz.srnyx.magicmongo.profiler;
+
+import org.bson.BsonDocument;
+import org.bson.BsonInt64;
+import org.bson.BsonString;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+
+/**
+ * The statistics of a filter shape tracked by a {@link QueryProfiler}
+ * <br>Latency percentiles are computed from the last {@value QueryProfiler#LATENCY_SAMPLES} calls
+ */
+public final class ShapeStats {
+    /**
+     * The name of the operation
+     */
+    @NotNull private final String operation;
+    /**
+     * The shape of the filter
+     */
+    @NotNull private final BsonDocument shape;
+    /**
+     * The number of calls
+     */
+    private final long count;
+    /**
+     * How much {@link #count} may be overestimated by
+     */
+    private final long countError;
+    /**
+     * The number of calls recorded since the shape was tracked
+     */
+    private final long recorded;
+    /**
+     * The total duration of the recorded calls, in nanoseconds
+     */
+    private final long totalNanos;
+    /**
+     * The median latency, in nanoseconds
+     */
+    private final long p50Nanos;
+    /**
+     * The 99th percentile latency, in nanoseconds
+     */
+    private final long p99Nanos;
+    /**
+     * The maximum latency, in nanoseconds
+     */
+    private final long maxNanos;
+    /**
+     * The {@code explain} output of the first slow call, or null if none
+     */
+    @Nullable private final BsonDocument explain;
+
+    /**
+     * Creates a new {@link ShapeStats} instance
+     *
+     * @param   operation   {@link #operation}
+     * @param   shape       {@link #shape}
+     * @param   count       {@link #count}
+     * @param   countError  {@link #countError}
+     * @param   recorded    {@link #recorded}
+     * @param   totalNanos  {@link #totalNanos}
+     * @param   p50Nanos    {@link #p50Nanos}
+     * @param   p99Nanos    {@link #p99Nanos}
+     * @param   maxNanos    {@link #maxNanos}
+     * @param   explain     {@link #explain}
+     */
+    ShapeStats(@NotNull String operation, @NotNull BsonDocument shape, long count, long countError, long recorded, long totalNanos, long p50Nanos, long p99Nanos, long maxNanos, @Nullable BsonDocument explain) {
+        this.operation = operation;
+        this.shape = shape;
+        this.count = count;
+        this.countError = countError;
+        this.recorded = recorded;
+        this.totalNanos = totalNanos;
+        this.p50Nanos = p50Nanos;
+        this.p99Nanos = p99Nanos;
+        this.maxNanos = maxNanos;
+        this.explain = explain;
+    }
+
+    /**
+     * Gets the name of the operation
+     *
+     * @return  the name of the operation
+     */
+    @NotNull
+    public String getOperation() {
+        return operation;
+    }
+
+    /**
+     * Gets the shape of the filter
+     *
+     * @return  the shape
+     *
+     * @see     QueryProfiler#shapeOf(BsonDocument)
+     */
+    @NotNull
+    public BsonDocument getShape() {
+        return shape;
+    }
+
+    /**
+     * Gets the number of calls, which may be overestimated by up to {@link #getCountError()}
+     *
+     * @return  the number of calls
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Gets how much {@link #getCount()} may be overestimated by (the count inherited from the shape it replaced)
+     *
+     * @return  the maximum overestimation
+     */
+    public long getCountError() {
+        return countError;
+    }
+
+    /**
+     * Gets the number of calls recorded since the shape was tracked
+     *
+     * @return  the number of recorded calls
+     */
+    public long getRecorded() {
+        return recorded;
+    }
+
+    /**
+     * Gets the total duration of the recorded calls
+     *
+     * @return  the total duration, in nanoseconds
+     */
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    /**
+     * Gets the median latency of the last calls
+     *
+     * @return  the median latency, in nanoseconds
+     */
+    public long getP50Nanos() {
+        return p50Nanos;
+    }
+
+    /**
+     * Gets the 99th percentile latency of the last calls
+     *
+     * @return  the 99th percentile latency, in nanoseconds
+     */
+    public long getP99Nanos() {
+        return p99Nanos;
+    }
+
+    /**
+     * Gets the maximum latency of the last calls
+     *
+     * @return  the maximum latency, in nanoseconds
+     */
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    /**
+     * Gets the {@code explain} output of the first slow call
+     *
+     * @return  the {@code explain} output, or null if there was no slow call or there's no {@link QueryProfiler#explainExecutor} (or it hasn't finished yet)
+     */
+    @Nullable
+    public BsonDocument getExplain() {
+        return explain;
+    }
+
+    /**
+     * Converts these statistics to a {@link BsonDocument}
+     *
+     * @return  the {@link BsonDocument}
+     */
+    @NotNull
+    public BsonDocument toBsonDocument() {
+        final BsonDocument document = new BsonDocument()
+                .append("operation", new BsonString(operation))
+                .append("shape", shape)
+                .append("count", new BsonInt64(count))
+                .append("countError", new BsonInt64(countError))
+                .append("recorded", new BsonInt64(recorded))
+                .append("totalNanos", new BsonInt64(totalNanos))
+                .append("p50Nanos", new BsonInt64(p50Nanos))
+                .append("p99Nanos", new BsonInt64(p99Nanos))
+                .append("maxNanos", new BsonInt64(maxNanos));
+        if (explain != null) document.append("explain", explain);
+        return document;
+    }
+
+    @Override @NotNull
+    public String toString() {
+        return "ShapeStats{operation=" + operation + ", shape=" + shape.toJson() + ", count=" + count + ", countError=" + countError + ", p50Nanos=" + p50Nanos + ", p99Nanos=" + p99Nanos + ", maxNanos=" + maxNanos + "}";
+    }
+}
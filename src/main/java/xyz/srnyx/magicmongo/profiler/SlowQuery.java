@@ -0,0 +1,119 @@
+package xyz.srnyx.magicmongo.profiler;
+
+import org.bson.BsonDateTime;
+import org.bson.BsonDocument;
+import org.bson.BsonInt64;
+import org.bson.BsonString;
+import org.jetbrains.annotations.NotNull;
+
+
+/**
+ * A call that was slower than the {@link QueryProfiler#slowThresholdNanos threshold} of a {@link QueryProfiler}
+ */
+public final class SlowQuery {
+    /**
+     * The full namespace of the collection
+     */
+    @NotNull private final String namespace;
+    /**
+     * The name of the operation
+     */
+    @NotNull private final String operation;
+    /**
+     * The shape of the filter
+     */
+    @NotNull private final BsonDocument shape;
+    /**
+     * How long the call took, in nanoseconds
+     */
+    private final long durationNanos;
+    /**
+     * When the call completed, in milliseconds since the epoch
+     */
+    private final long timestamp;
+
+    /**
+     * Creates a new {@link SlowQuery} instance
+     *
+     * @param   namespace       {@link #namespace}
+     * @param   operation       {@link #operation}
+     * @param   shape           {@link #shape}
+     * @param   durationNanos   {@link #durationNanos}
+     * @param   timestamp       {@link #timestamp}
+     */
+    SlowQuery(@NotNull String namespace, @NotNull String operation, @NotNull BsonDocument shape, long durationNanos, long timestamp) {
+        this.namespace = namespace;
+        this.operation = operation;
+        this.shape = shape;
+        this.durationNanos = durationNanos;
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * Gets the full namespace of the collection
+     *
+     * @return  the namespace
+     */
+    @NotNull
+    public String getNamespace() {
+        return namespace;
+    }
+
+    /**
+     * Gets the name of the operation
+     *
+     * @return  the name of the operation
+     */
+    @NotNull
+    public String getOperation() {
+        return operation;
+    }
+
+    /**
+     * Gets the shape of the filter
+     *
+     * @return  the shape (shared, must not be modified)
+     */
+    @NotNull
+    public BsonDocument getShape() {
+        return shape;
+    }
+
+    /**
+     * Gets how long the call took
+     *
+     * @return  the duration, in nanoseconds
+     */
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    /**
+     * Gets when the call completed
+     *
+     * @return  the time, in milliseconds since the epoch
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Converts this slow call to a {@link BsonDocument}
+     *
+     * @return  the {@link BsonDocument}
+     */
+    @NotNull
+    public BsonDocument toBsonDocument() {
+        return new BsonDocument()
+                .append("namespace", new BsonString(namespace))
+                .append("operation", new BsonString(operation))
+                .append("shape", shape.clone())
+                .append("durationNanos", new BsonInt64(durationNanos))
+                .append("timestamp", new BsonDateTime(timestamp));
+    }
+
+    @Override @NotNull
+    public String toString() {
+        return "SlowQuery{namespace=" + namespace + ", operation=" + operation + ", shape=" + shape.toJson() + ", durationNanos=" + durationNanos + "}";
+    }
+}
@@ -0,0 +1,269 @@
+package xyz.srnyx.magicmongo.scan;
+
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
+import org.bson.*;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import xyz.srnyx.magicmongo.MagicCollection;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+
+/**
+ * Scans a {@link MagicCollection} with several cursors at once by splitting the range of a field (usually {@code _id}) into {@link ScanPartition partitions}, each of which is drained in order on a {@link ForkJoinPool}
+ * <br>Boundaries are found by bisecting the range between the smallest and largest value if they're {@link ObjectId ObjectIds} (which are roughly evenly distributed over time), otherwise by {@code $sample}-ing the field
+ * <br>Only values of the same BSON type as the largest one are split into ranges, and the documents whose field has another type (or is missing) are scanned in one more partition, so every matching document is scanned
+ * <br>Progress is tracked in a {@link ScanCheckpoint}, which can be used to resume the scan
+ *
+ * @see MagicCollection#parallelScan(Bson, int, ParallelScanOptions, Consumer)
+ */
+public final class ParallelScan {
+    /**
+     * The number of sampled documents per partition if {@link ParallelScanOptions#getSampleSize()} is 0
+     */
+    private static final int SAMPLES_PER_PARTITION = 20;
+
+    /**
+     * This class only has static methods
+     */
+    private ParallelScan() {}
+
+    /**
+     * Scans the documents in a collection that match a filter, passing each of them to a consumer
+     * <br>The consumer is called concurrently from up to {@code parallelism} threads, and the documents are only in order within a partition
+     *
+     * @param   collection                  the collection to scan
+     * @param   filter                      the filter to apply
+     * @param   parallelism                 the number of partitions to scan at once
+     * @param   options                     the {@link ParallelScanOptions}
+     * @param   consumer                    the consumer of each document
+     *
+     * @return                              the {@link ScanCheckpoint}, which is done if this returns normally
+     *
+     * @param   <T>                         the type of the collection
+     *
+     * @throws  IllegalArgumentException    if {@code parallelism} is less than 1 or the checkpoint was planned for another field
+     */
+    @NotNull
+    public static <T> ScanCheckpoint run(@NotNull MagicCollection<T> collection, @NotNull Bson filter, int parallelism, @NotNull ParallelScanOptions options, @NotNull Consumer<? super T> consumer) {
+        if (parallelism < 1) throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        final String field = options.getField();
+
+        // Plan or check checkpoint
+        ScanCheckpoint checkpoint = options.getCheckpoint();
+        if (checkpoint == null) checkpoint = new ScanCheckpoint();
+        if (!checkpoint.isPlanned()) {
+            checkpoint.plan(field, findBoundaries(collection.withDocumentClass(BsonDocument.class), filter, field, parallelism * options.getPartitionsPerWorker(), options.getSampleSize()));
+        } else if (!field.equals(checkpoint.getField())) {
+            throw new IllegalArgumentException("Checkpoint was planned for field " + checkpoint.getField() + ", not " + field);
+        }
+
+        // Scan remaining partitions
+        final MongoCollection<RawBsonDocument> raw = collection.withDocumentClass(RawBsonDocument.class);
+        final Codec<T> codec = collection.getCodecRegistry().get(collection.getDocumentClass());
+        final AtomicBoolean failed = new AtomicBoolean();
+        final ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            final List<ForkJoinTask<?>> tasks = new ArrayList<>();
+            for (final ScanPartition partition : checkpoint.getPartitions()) if (!partition.isDone()) tasks.add(pool.submit(() -> scanPartition(raw, codec, filter, field, partition, options, consumer, failed)));
+            RuntimeException failure = null;
+            for (final ForkJoinTask<?> task : tasks) {
+                try {
+                    task.join();
+                } catch (final RuntimeException e) {
+                    if (failure == null) {
+                        failure = e;
+                    } else {
+                        failure.addSuppressed(e);
+                    }
+                }
+            }
+            if (failure != null) throw failure;
+        } finally {
+            pool.shutdown();
+        }
+        return checkpoint;
+    }
+
+    /**
+     * Drains the remaining part of a partition
+     *
+     * @param   collection  the collection to scan, as {@link RawBsonDocument RawBsonDocuments}
+     * @param   codec       the {@link Codec} to decode the documents with
+     * @param   filter      the filter to apply
+     * @param   field       the scanned field
+     * @param   partition   the partition to drain
+     * @param   options     the {@link ParallelScanOptions}
+     * @param   consumer    the consumer of each document
+     * @param   failed      set if any partition failed, so the others stop early
+     *
+     * @param   <T>         the type of the collection
+     */
+    private static <T> void scanPartition(@NotNull MongoCollection<RawBsonDocument> collection, @NotNull Codec<T> codec, @NotNull Bson filter, @NotNull String field, @NotNull ScanPartition partition, @NotNull ParallelScanOptions options, @NotNull Consumer<? super T> consumer, @NotNull AtomicBoolean failed) {
+        final Consumer<ScanPartition> onProgress = options.getOnProgress();
+        final int progressInterval = options.getProgressInterval();
+        final DecoderContext context = DecoderContext.builder().build();
+        final String keyField = partition.getKeyField(field);
+        final boolean byId = keyField.equals("_id");
+        FindIterable<RawBsonDocument> iterable = collection.find(partition.toFilter(filter, field)).sort(partition.toSort(field));
+        if (options.getBatchSize() > 0) iterable = iterable.batchSize(options.getBatchSize());
+        if (options.getProjection() != null) iterable = iterable.projection(options.getProjection());
+
+        try (final MongoCursor<RawBsonDocument> cursor = iterable.iterator()) {
+            int sinceProgress = 0;
+            while (!failed.get() && cursor.hasNext()) {
+                final RawBsonDocument document = cursor.next();
+                final BsonValue key = getPath(document, keyField);
+                if (key == null) throw new IllegalStateException("Scanned document is missing field " + keyField);
+                final BsonValue id = byId ? null : document.get("_id");
+                if (!byId && id == null) throw new IllegalStateException("Scanned document is missing field _id");
+                final T decoded;
+                try (final BsonReader reader = document.asBsonReader()) {
+                    decoded = codec.decode(reader, context);
+                }
+                consumer.accept(decoded);
+                partition.advance(key, id);
+                if (onProgress != null && ++sinceProgress >= progressInterval) {
+                    sinceProgress = 0;
+                    onProgress.accept(partition);
+                }
+            }
+        } catch (final RuntimeException | Error e) {
+            failed.set(true);
+            throw e;
+        }
+        if (failed.get()) return;
+        partition.markDone();
+        if (onProgress != null) onProgress.accept(partition);
+    }
+
+    /**
+     * Finds the boundaries to split the range of a field into partitions
+     *
+     * @param   collection  the collection to scan
+     * @param   filter      the filter to apply
+     * @param   field       the field to split
+     * @param   partitions  the number of partitions to create
+     * @param   sampleSize  the number of documents to sample, or 0 to choose automatically
+     *
+     * @return              the sorted, distinct boundaries (possibly fewer than {@code partitions - 1}), all of the same {@link ScanPartition#typeOf(BsonValue) comparison bracket}
+     */
+    @NotNull
+    private static List<BsonValue> findBoundaries(@NotNull MongoCollection<BsonDocument> collection, @NotNull Bson filter, @NotNull String field, int partitions, int sampleSize) {
+        if (partitions <= 1) return Collections.emptyList();
+        final BsonValue max = findEdge(collection, filter, field, -1);
+        if (max == null) return Collections.emptyList();
+        // Only split the values of the same type as the largest one
+        final Bson typed = Filters.and(filter, new BsonDocument(field, new BsonDocument("$type", ScanPartition.typeOf(max))));
+        final BsonValue min = findEdge(collection, typed, field, 1);
+        if (min == null || min.equals(max)) return Collections.emptyList();
+        if (min.isObjectId() && max.isObjectId()) return bisect(min.asObjectId().getValue(), max.asObjectId().getValue(), partitions);
+
+        // Sample
+        final List<BsonValue> samples = new ArrayList<>();
+        for (final BsonDocument document : collection.aggregate(Arrays.asList(
+                Aggregates.match(typed),
+                Aggregates.sample(sampleSize > 0 ? sampleSize : partitions * SAMPLES_PER_PARTITION),
+                Aggregates.project(Projections.include(field)),
+                Aggregates.sort(Sorts.ascending(field))))) {
+            final BsonValue value = getPath(document, field);
+            if (value != null) samples.add(value);
+        }
+        final List<BsonValue> boundaries = new ArrayList<>(partitions - 1);
+        for (int i = 1; i < partitions; i++) {
+            final int index = (int) ((long) i * samples.size() / partitions);
+            if (index >= samples.size()) break;
+            final BsonValue value = samples.get(index);
+            if (value.equals(min) || (!boundaries.isEmpty() && boundaries.get(boundaries.size() - 1).equals(value))) continue;
+            boundaries.add(value);
+        }
+        return boundaries;
+    }
+
+    /**
+     * Finds the smallest or largest value of a field
+     *
+     * @param   collection  the collection to search
+     * @param   filter      the filter to apply
+     * @param   field       the field
+     * @param   direction   1 for the smallest value, -1 for the largest
+     *
+     * @return              the value, or null if no document matches
+     */
+    @Nullable
+    private static BsonValue findEdge(@NotNull MongoCollection<BsonDocument> collection, @NotNull Bson filter, @NotNull String field, int direction) {
+        final BsonDocument document = collection.find(filter)
+                .sort(new BsonDocument(field, new BsonInt32(direction)))
+                .projection(Projections.include(field))
+                .limit(1)
+                .first();
+        return document == null ? null : getPath(document, field);
+    }
+
+    /**
+     * Splits the range between two {@link ObjectId ObjectIds} into evenly sized parts
+     *
+     * @param   min         the smallest {@link ObjectId}
+     * @param   max         the largest {@link ObjectId}
+     * @param   partitions  the number of parts
+     *
+     * @return              the sorted, distinct boundaries
+     */
+    @NotNull
+    private static List<BsonValue> bisect(@NotNull ObjectId min, @NotNull ObjectId max, int partitions) {
+        final BigInteger low = new BigInteger(1, min.toByteArray());
+        final BigInteger range = new BigInteger(1, max.toByteArray()).subtract(low);
+        final List<BsonValue> boundaries = new ArrayList<>(partitions - 1);
+        BigInteger previous = low;
+        for (int i = 1; i < partitions; i++) {
+            final BigInteger value = low.add(range.multiply(BigInteger.valueOf(i)).divide(BigInteger.valueOf(partitions)));
+            if (value.equals(previous)) continue;
+            previous = value;
+
+            // To 12 bytes
+            final byte[] bytes = value.toByteArray();
+            final byte[] id = new byte[12];
+            final int length = Math.min(bytes.length, 12);
+            System.arraycopy(bytes, bytes.length - length, id, 12 - length, length);
+            boundaries.add(new BsonObjectId(new ObjectId(id)));
+        }
+        return boundaries;
+    }
+
+    /**
+     * Gets the value at a dotted path in a document
+     *
+     * @param   document    the document
+     * @param   path        the dotted path
+     *
+     * @return              the value, or null if missing
+     */
+    @Nullable
+    private static BsonValue getPath(@NotNull BsonDocument document, @NotNull String path) {
+        BsonValue value = document;
+        for (final String part : path.split("\\.")) {
+            if (!value.isDocument()) return null;
+            value = value.asDocument().get(part);
+            if (value == null) return null;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,257 @@
+package xyz.srnyx.magicmongo.scan;
+
+import org.bson.conversions.Bson;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.function.Consumer;
+
+
+/**
+ * Options for a {@link ParallelScan}
+ */
+public class ParallelScanOptions {
+    /**
+     * The field to partition and sort by
+     */
+    @NotNull private String field = "_id";
+    /**
+     * The batch size of each partition's cursor, or 0 for the server's default
+     */
+    private int batchSize = 0;
+    /**
+     * The number of partitions to create per worker
+     */
+    private int partitionsPerWorker = 4;
+    /**
+     * The number of documents to sample to find boundaries, or 0 to choose automatically
+     */
+    private int sampleSize = 0;
+    /**
+     * The projection to apply, or null to return whole documents
+     */
+    @Nullable private Bson projection;
+    /**
+     * The number of documents after which {@link #onProgress} is called for a partition
+     */
+    private int progressInterval = 10000;
+    /**
+     * Called with a partition's progress
+     */
+    @Nullable private Consumer<ScanPartition> onProgress;
+    /**
+     * The checkpoint to fill in or resume from
+     */
+    @Nullable private ScanCheckpoint checkpoint;
+
+    /**
+     * Creates a new {@link ParallelScanOptions} instance with the default options
+     */
+    public ParallelScanOptions() {}
+
+    /**
+     * Gets the field to partition and sort by
+     * <br>Defaults to {@code _id}
+     *
+     * @return  the field to partition by
+     */
+    @NotNull
+    public String getField() {
+        return field;
+    }
+
+    /**
+     * Sets the field to partition and sort by
+     * <br>The field should be indexed together with {@code _id} (e.g. {@code {field: 1, _id: 1}}), since partitions are sorted by both. It doesn't need to be unique, present in every document, or always of the same BSON type, but only the values of the same type as the largest one are split into ranges (see {@link ScanPartition})
+     *
+     * @param   field   the field to partition by
+     *
+     * @return          this {@link ParallelScanOptions} instance
+     */
+    @NotNull
+    public ParallelScanOptions field(@NotNull String field) {
+        this.field = field;
+        return this;
+    }
+
+    /**
+     * Gets the batch size of each partition's cursor
+     * <br>Defaults to 0 (the server's default)
+     *
+     * @return  the batch size, or 0 for the server's default
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Sets the batch size of each partition's cursor
+     *
+     * @param   batchSize                   the batch size, or 0 for the server's default
+     *
+     * @return                              this {@link ParallelScanOptions} instance
+     *
+     * @throws  IllegalArgumentException    if the batch size is negative
+     */
+    @NotNull
+    public ParallelScanOptions batchSize(int batchSize) {
+        if (batchSize < 0) throw new IllegalArgumentException("Batch size can't be negative: " + batchSize);
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * Gets the number of partitions to create per worker
+     * <br>Defaults to 4
+     *
+     * @return  the number of partitions per worker
+     */
+    public int getPartitionsPerWorker() {
+        return partitionsPerWorker;
+    }
+
+    /**
+     * Sets the number of partitions to create per worker
+     * <br>More partitions than workers let idle workers pick up the remaining ranges if the data isn't evenly distributed
+     *
+     * @param   partitionsPerWorker         the number of partitions per worker
+     *
+     * @return                              this {@link ParallelScanOptions} instance
+     *
+     * @throws  IllegalArgumentException    if the number isn't positive
+     */
+    @NotNull
+    public ParallelScanOptions partitionsPerWorker(int partitionsPerWorker) {
+        if (partitionsPerWorker <= 0) throw new IllegalArgumentException("Partitions per worker must be positive: " + partitionsPerWorker);
+        this.partitionsPerWorker = partitionsPerWorker;
+        return this;
+    }
+
+    /**
+     * Gets the number of documents to {@code $sample} to find boundaries if the field isn't an {@link org.bson.types.ObjectId ObjectId}
+     * <br>Defaults to 0 (20 per partition)
+     *
+     * @return  the sample size, or 0 to choose automatically
+     */
+    public int getSampleSize() {
+        return sampleSize;
+    }
+
+    /**
+     * Sets the number of documents to {@code $sample} to find boundaries if the field isn't an {@link org.bson.types.ObjectId ObjectId}
+     *
+     * @param   sampleSize                  the sample size, or 0 to choose automatically
+     *
+     * @return                              this {@link ParallelScanOptions} instance
+     *
+     * @throws  IllegalArgumentException    if the sample size is negative
+     */
+    @NotNull
+    public ParallelScanOptions sampleSize(int sampleSize) {
+        if (sampleSize < 0) throw new IllegalArgumentException("Sample size can't be negative: " + sampleSize);
+        this.sampleSize = sampleSize;
+        return this;
+    }
+
+    /**
+     * Gets the projection to apply
+     *
+     * @return  the projection, or null to return whole documents
+     */
+    @Nullable
+    public Bson getProjection() {
+        return projection;
+    }
+
+    /**
+     * Sets the projection to apply
+     * <br>The projection must include the scanned field and {@code _id}
+     *
+     * @param   projection  the projection, or null to return whole documents
+     *
+     * @return              this {@link ParallelScanOptions} instance
+     */
+    @NotNull
+    public ParallelScanOptions projection(@Nullable Bson projection) {
+        this.projection = projection;
+        return this;
+    }
+
+    /**
+     * Gets the number of documents after which {@link #getOnProgress()} is called for a partition
+     * <br>Defaults to 10000
+     *
+     * @return  the progress interval
+     */
+    public int getProgressInterval() {
+        return progressInterval;
+    }
+
+    /**
+     * Sets the number of documents after which {@link #getOnProgress()} is called for a partition
+     *
+     * @param   progressInterval            the progress interval
+     *
+     * @return                              this {@link ParallelScanOptions} instance
+     *
+     * @throws  IllegalArgumentException    if the interval isn't positive
+     */
+    @NotNull
+    public ParallelScanOptions progressInterval(int progressInterval) {
+        if (progressInterval <= 0) throw new IllegalArgumentException("Progress interval must be positive: " + progressInterval);
+        this.progressInterval = progressInterval;
+        return this;
+    }
+
+    /**
+     * Gets the progress callback
+     *
+     * @return  the progress callback, or null if none
+     */
+    @Nullable
+    public Consumer<ScanPartition> getOnProgress() {
+        return onProgress;
+    }
+
+    /**
+     * Sets the progress callback, which is called from the worker threads every {@link #getProgressInterval() progress interval} documents of a partition and when a partition is done
+     *
+     * @param   onProgress  the progress callback, or null for none
+     *
+     * @return              this {@link ParallelScanOptions} instance
+     */
+    @NotNull
+    public ParallelScanOptions onProgress(@Nullable Consumer<ScanPartition> onProgress) {
+        this.onProgress = onProgress;
+        return this;
+    }
+
+    /**
+     * Gets the checkpoint to fill in or resume from
+     *
+     * @return  the checkpoint, or null to use a new one
+     */
+    @Nullable
+    public ScanCheckpoint getCheckpoint() {
+        return checkpoint;
+    }
+
+    /**
+     * Sets the checkpoint to fill in or resume from
+     * <br>An empty checkpoint is planned and then updated as the scan progresses, so it can be saved if the scan fails. A planned checkpoint is resumed from, which requires the same filter and field as the scan that planned it
+     *
+     * @param   checkpoint  the checkpoint, or null to use a new one
+     *
+     * @return              this {@link ParallelScanOptions} instance
+     */
+    @NotNull
+    public ParallelScanOptions checkpoint(@Nullable ScanCheckpoint checkpoint) {
+        this.checkpoint = checkpoint;
+        return this;
+    }
+
+    @Override @NotNull
+    public String toString() {
+        return "ParallelScanOptions{field=" + field + ", batchSize=" + batchSize + ", partitionsPerWorker=" + partitionsPerWorker + ", sampleSize=" + sampleSize + ", projection=" + projection + ", progressInterval=" + progressInterval + "}";
+    }
+}
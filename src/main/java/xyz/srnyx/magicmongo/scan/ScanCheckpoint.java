@@ -0,0 +1,145 @@
+package xyz.srnyx.magicmongo.scan;
+
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * The partitions of a {@link ParallelScan} and their progress, which can be used to resume an interrupted scan
+ * <br>Pass an empty checkpoint to {@link ParallelScanOptions#checkpoint(ScanCheckpoint)} to have it filled in, and save it (using {@link #toBsonDocument()}) if the scan fails. Passing the same (or a {@link #fromBsonDocument(BsonDocument) restored}) checkpoint again skips the finished partitions and continues the others after their {@link ScanPartition#getLastKey() last key}
+ */
+public final class ScanCheckpoint {
+    /**
+     * The scanned field, or null if not planned yet
+     */
+    @Nullable private volatile String field;
+    /**
+     * The partitions, or empty if not planned yet
+     */
+    @NotNull private volatile List<ScanPartition> partitions = Collections.emptyList();
+
+    /**
+     * Creates a new empty {@link ScanCheckpoint} instance, to be filled in by a {@link ParallelScan}
+     */
+    public ScanCheckpoint() {}
+
+    /**
+     * Gets the scanned field
+     *
+     * @return  the scanned field, or null if not planned yet
+     */
+    @Nullable
+    public String getField() {
+        return field;
+    }
+
+    /**
+     * Gets the partitions
+     *
+     * @return  the partitions (unmodifiable), or empty if not planned yet
+     */
+    @NotNull
+    public List<ScanPartition> getPartitions() {
+        return partitions;
+    }
+
+    /**
+     * Whether the partitions have been planned
+     *
+     * @return  true if planned
+     */
+    public boolean isPlanned() {
+        return field != null;
+    }
+
+    /**
+     * Whether every partition is done
+     *
+     * @return  true if planned and every partition is done
+     */
+    public boolean isDone() {
+        if (!isPlanned()) return false;
+        for (final ScanPartition partition : partitions) if (!partition.isDone()) return false;
+        return true;
+    }
+
+    /**
+     * Gets the total number of documents scanned over all partitions
+     *
+     * @return  the number of documents scanned
+     */
+    public long getScanned() {
+        long scanned = 0;
+        for (final ScanPartition partition : partitions) scanned += partition.getScanned();
+        return scanned;
+    }
+
+    /**
+     * Creates the partitions from sorted boundaries, {@code n} boundaries resulting in {@code n + 1} ranged partitions and a partition for the documents whose field has another type (or is missing)
+     * <br>No boundaries result in a single partition for the whole collection
+     *
+     * @param   field       the scanned field
+     * @param   boundaries  the sorted, distinct boundaries, all of the same {@link ScanPartition#typeOf(BsonValue) comparison bracket}
+     */
+    void plan(@NotNull String field, @NotNull List<BsonValue> boundaries) {
+        final List<ScanPartition> list = new ArrayList<>(boundaries.size() + 2);
+        for (int i = 0; i <= boundaries.size(); i++) list.add(new ScanPartition(i, i == 0 ? null : boundaries.get(i - 1), i == boundaries.size() ? null : boundaries.get(i), null));
+        if (!boundaries.isEmpty()) list.add(new ScanPartition(list.size(), null, null, ScanPartition.typeOf(boundaries.get(0))));
+        partitions = Collections.unmodifiableList(list);
+        this.field = field;
+    }
+
+    /**
+     * Converts this checkpoint to a {@link BsonDocument}, so it can be stored and {@link #fromBsonDocument(BsonDocument) restored} later
+     *
+     * @return  the {@link BsonDocument}
+     */
+    @NotNull
+    public BsonDocument toBsonDocument() {
+        final BsonArray array = new BsonArray();
+        for (final ScanPartition partition : partitions) array.add(partition.toBsonDocument());
+        final BsonDocument document = new BsonDocument();
+        final String currentField = field;
+        if (currentField != null) document.append("field", new BsonString(currentField));
+        return document.append("partitions", array);
+    }
+
+    /**
+     * Restores a checkpoint written by {@link #toBsonDocument()}
+     *
+     * @param   document                    the {@link BsonDocument}
+     *
+     * @return                              the {@link ScanCheckpoint}
+     *
+     * @throws  IllegalArgumentException    if the document isn't a valid checkpoint
+     */
+    @NotNull
+    public static ScanCheckpoint fromBsonDocument(@NotNull BsonDocument document) {
+        final ScanCheckpoint checkpoint = new ScanCheckpoint();
+        final BsonValue field = document.get("field");
+        if (field == null) return checkpoint;
+        final BsonValue array = document.get("partitions");
+        if (!field.isString() || array == null || !array.isArray()) throw new IllegalArgumentException("Invalid ScanCheckpoint: " + document.toJson());
+        final List<ScanPartition> list = new ArrayList<>();
+        for (final BsonValue partition : array.asArray()) {
+            if (!partition.isDocument()) throw new IllegalArgumentException("Invalid ScanCheckpoint partition: " + partition);
+            list.add(ScanPartition.fromBsonDocument(list.size(), partition.asDocument()));
+        }
+        checkpoint.partitions = Collections.unmodifiableList(list);
+        checkpoint.field = field.asString().getValue();
+        return checkpoint;
+    }
+
+    @Override @NotNull
+    public String toString() {
+        return "ScanCheckpoint{field=" + field + ", partitions=" + partitions + "}";
+    }
+}
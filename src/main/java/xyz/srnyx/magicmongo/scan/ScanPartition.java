@@ -0,0 +1,312 @@
+package xyz.srnyx.magicmongo.scan;
+
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Sorts;
+import org.bson.*;
+import org.bson.conversions.Bson;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ * A range of the scanned field that's drained by one worker of a {@link ParallelScan}, along with its progress
+ * <br>The range is {@code [lower, upper)}, where a null bound means it's unbounded on that side. Since range filters only match values of the same BSON type as their bound, a ranged partition only contains documents whose field has that type
+ * <br>The documents of other types (or missing the field) are in a final partition with an {@link #excludedType}. That partition, and a partition that's the whole collection (no bounds), are scanned in {@code _id} order instead of the scanned field's
+ * <br>Ranged partitions are sorted by the scanned field and then {@code _id}, and resume after both, so the scanned field doesn't need to be unique
+ * <br>Resuming matches the values sorting after the last one in every BSON type, not just the last one's type (which is all {@code $gt} matches), since {@code _id}s can have mixed types
+ */
+public final class ScanPartition {
+    /**
+     * The {@code $type} aliases of each comparison bracket, in the order the server sorts them
+     */
+    @NotNull private static final List<List<String>> BRACKETS = Arrays.asList(
+            Arrays.asList("minKey"),
+            Arrays.asList("null", "undefined"),
+            Arrays.asList("number"),
+            Arrays.asList("string", "symbol"),
+            Arrays.asList("object"),
+            Arrays.asList("array"),
+            Arrays.asList("binData"),
+            Arrays.asList("objectId"),
+            Arrays.asList("bool"),
+            Arrays.asList("date"),
+            Arrays.asList("timestamp"),
+            Arrays.asList("regex"),
+            Arrays.asList("dbPointer"),
+            Arrays.asList("javascript"),
+            Arrays.asList("javascriptWithScope"),
+            Arrays.asList("maxKey"));
+
+    /**
+     * The index of this partition in its {@link ScanCheckpoint}
+     */
+    public final int index;
+    /**
+     * The inclusive lower bound, or null if unbounded
+     */
+    @Nullable public final BsonValue lower;
+    /**
+     * The exclusive upper bound, or null if unbounded
+     */
+    @Nullable public final BsonValue upper;
+    /**
+     * The {@code $type} of the other partitions if this is the partition for the documents with another type (or missing the scanned field), otherwise null
+     */
+    @Nullable public final BsonValue excludedType;
+    /**
+     * The value of the {@link #getKeyField(String) key field} of the last document passed to the consumer
+     */
+    @Nullable private volatile BsonValue lastKey;
+    /**
+     * The {@code _id} of the last document passed to the consumer, if the key field isn't {@code _id}
+     */
+    @Nullable private volatile BsonValue lastId;
+    /**
+     * The number of documents passed to the consumer
+     */
+    private volatile long scanned;
+    /**
+     * Whether every document in the range has been passed to the consumer
+     */
+    private volatile boolean done;
+
+    /**
+     * Creates a new {@link ScanPartition} instance without progress
+     *
+     * @param   index           {@link #index}
+     * @param   lower           {@link #lower}
+     * @param   upper           {@link #upper}
+     * @param   excludedType    {@link #excludedType}
+     */
+    ScanPartition(int index, @Nullable BsonValue lower, @Nullable BsonValue upper, @Nullable BsonValue excludedType) {
+        this.index = index;
+        this.lower = lower;
+        this.upper = upper;
+        this.excludedType = excludedType;
+    }
+
+    /**
+     * Gets the value of the key field of the last document passed to the consumer, which the scan resumes after
+     *
+     * @return  the last key, or null if nothing was scanned yet
+     *
+     * @see     #getKeyField(String)
+     */
+    @Nullable
+    public BsonValue getLastKey() {
+        return lastKey;
+    }
+
+    /**
+     * Gets the {@code _id} of the last document passed to the consumer, which breaks ties between documents with the same {@link #getLastKey() last key}
+     *
+     * @return  the last {@code _id}, or null if nothing was scanned yet or the key field is {@code _id}
+     */
+    @Nullable
+    public BsonValue getLastId() {
+        return lastId;
+    }
+
+    /**
+     * Gets the field this partition is sorted by and resumes after
+     *
+     * @param   field   the scanned field
+     *
+     * @return          the scanned field if this partition is ranged, otherwise {@code _id}
+     */
+    @NotNull
+    public String getKeyField(@NotNull String field) {
+        return lower == null && upper == null ? "_id" : field;
+    }
+
+    /**
+     * Gets the number of documents passed to the consumer, including previous runs that were resumed from
+     *
+     * @return  the number of documents scanned
+     */
+    public long getScanned() {
+        return scanned;
+    }
+
+    /**
+     * Whether every document in the range has been passed to the consumer
+     *
+     * @return  true if this partition is done
+     */
+    public boolean isDone() {
+        return done;
+    }
+
+    /**
+     * Records that a document was passed to the consumer (only called by the partition's worker)
+     *
+     * @param   key the value of the key field of the document
+     * @param   id  the {@code _id} of the document, or null if the key field is {@code _id}
+     */
+    void advance(@NotNull BsonValue key, @Nullable BsonValue id) {
+        lastId = id;
+        lastKey = key;
+        scanned++;
+    }
+
+    /**
+     * Records that every document in the range has been passed to the consumer
+     */
+    void markDone() {
+        done = true;
+    }
+
+    /**
+     * Creates the filter for the remaining part of this partition
+     *
+     * @param   filter  the filter of the scan
+     * @param   field   the scanned field
+     *
+     * @return          the filter
+     */
+    @NotNull
+    Bson toFilter(@NotNull Bson filter, @NotNull String field) {
+        final List<Bson> filters = new ArrayList<>(4);
+        filters.add(filter);
+        if (excludedType != null) filters.add(new BsonDocument(field, new BsonDocument("$not", new BsonDocument("$type", excludedType))));
+        if (lower != null) filters.add(Filters.gte(field, lower));
+        if (upper != null) filters.add(Filters.lt(field, upper));
+
+        // Resume
+        final String keyField = getKeyField(field);
+        final BsonValue resumeKey = lastKey;
+        final BsonValue resumeId = lastId;
+        if (resumeKey != null) {
+            if (keyField.equals("_id") || resumeId == null) {
+                filters.add(after(keyField, resumeKey));
+            } else {
+                filters.add(Filters.or(
+                        after(keyField, resumeKey),
+                        Filters.and(Filters.eq(keyField, resumeKey), after("_id", resumeId))));
+            }
+        }
+        return filters.size() == 1 ? filter : Filters.and(filters);
+    }
+
+    /**
+     * Creates a filter matching the values of a field that sort after a value, including the values of the types that sort after its type
+     *
+     * @param   field   the field
+     * @param   value   the value
+     *
+     * @return          the filter
+     */
+    @NotNull
+    static Bson after(@NotNull String field, @NotNull BsonValue value) {
+        final BsonArray later = new BsonArray();
+        for (int i = bracketOf(value.getBsonType()) + 1; i < BRACKETS.size(); i++) for (final String alias : BRACKETS.get(i)) later.add(new BsonString(alias));
+        if (later.isEmpty()) return Filters.gt(field, value);
+        return Filters.or(Filters.gt(field, value), new BsonDocument(field, new BsonDocument("$type", later)));
+    }
+
+    /**
+     * Gets the index of the comparison bracket of a BSON type in {@link #BRACKETS}
+     *
+     * @param   type    the type
+     *
+     * @return          the index of the bracket
+     */
+    private static int bracketOf(@NotNull BsonType type) {
+        switch (type) {
+            case MIN_KEY: return 0;
+            case NULL:
+            case UNDEFINED: return 1;
+            case INT32:
+            case INT64:
+            case DOUBLE:
+            case DECIMAL128: return 2;
+            case STRING:
+            case SYMBOL: return 3;
+            case DOCUMENT: return 4;
+            case ARRAY: return 5;
+            case BINARY: return 6;
+            case OBJECT_ID: return 7;
+            case BOOLEAN: return 8;
+            case DATE_TIME: return 9;
+            case TIMESTAMP: return 10;
+            case REGULAR_EXPRESSION: return 11;
+            case DB_POINTER: return 12;
+            case JAVASCRIPT: return 13;
+            case JAVASCRIPT_WITH_SCOPE: return 14;
+            default: return 15;
+        }
+    }
+
+    /**
+     * Creates the sort of this partition
+     *
+     * @param   field   the scanned field
+     *
+     * @return          the sort, by the {@link #getKeyField(String) key field} and then {@code _id}
+     */
+    @NotNull
+    Bson toSort(@NotNull String field) {
+        final String keyField = getKeyField(field);
+        return keyField.equals("_id") ? Sorts.ascending("_id") : Sorts.ascending(keyField, "_id");
+    }
+
+    /**
+     * Gets the {@code $type} that range filters on a value are restricted to (its comparison bracket)
+     *
+     * @param   value   the value
+     *
+     * @return          {@code "number"} for numbers (which are compared with each other), otherwise the {@link BsonType#getValue() type code}
+     */
+    @NotNull
+    static BsonValue typeOf(@NotNull BsonValue value) {
+        if (value.isNumber() || value.isDecimal128()) return new BsonString("number");
+        return new BsonInt32(value.getBsonType().getValue());
+    }
+
+    /**
+     * Converts this partition to a {@link BsonDocument}
+     *
+     * @return  the {@link BsonDocument}
+     */
+    @NotNull
+    BsonDocument toBsonDocument() {
+        final BsonDocument document = new BsonDocument();
+        if (lower != null) document.append("lower", lower);
+        if (upper != null) document.append("upper", upper);
+        if (excludedType != null) document.append("excludedType", excludedType);
+        final BsonValue key = lastKey;
+        if (key != null) document.append("lastKey", key);
+        final BsonValue id = lastId;
+        if (id != null) document.append("lastId", id);
+        return document
+                .append("scanned", new BsonInt64(scanned))
+                .append("done", BsonBoolean.valueOf(done));
+    }
+
+    /**
+     * Reads a partition written by {@link #toBsonDocument()}
+     *
+     * @param   index       {@link #index}
+     * @param   document    the {@link BsonDocument}
+     *
+     * @return              the {@link ScanPartition}
+     */
+    @NotNull
+    static ScanPartition fromBsonDocument(int index, @NotNull BsonDocument document) {
+        final ScanPartition partition = new ScanPartition(index, document.get("lower"), document.get("upper"), document.get("excludedType"));
+        partition.lastKey = document.get("lastKey");
+        partition.lastId = document.get("lastId");
+        partition.scanned = document.getNumber("scanned", new BsonInt64(0)).longValue();
+        partition.done = document.getBoolean("done", BsonBoolean.FALSE).getValue();
+        return partition;
+    }
+
+    @Override @NotNull
+    public String toString() {
+        return "ScanPartition{index=" + index + ", lower=" + lower + ", upper=" + upper + ", excludedType=" + excludedType + ", lastKey=" + lastKey + ", lastId=" + lastId + ", scanned=" + scanned + ", done=" + done + "}";
+    }
+}
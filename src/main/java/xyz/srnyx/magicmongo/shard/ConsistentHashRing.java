@@ -0,0 +1,137 @@
+package xyz.srnyx.magicmongo.shard;
+
+import org.bson.BsonBinarySubType;
+import org.bson.BsonValue;
+import org.bson.types.ObjectId;
+import org.jetbrains.annotations.NotNull;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+
+/**
+ * A consistent hash ring mapping keys to named nodes
+ * <br>Each node is placed on the ring {@link #virtualNodes} times (as {@code <name>#<index>}), and a key belongs to the first node at or after its hash (wrapping around). Adding or removing a node only moves about {@code 1 / nodes} of the keys, and virtual nodes spread them evenly
+ * <br>Hashes only depend on the names and the {@link #toKeyString(Object) string form} of the keys, so every process with the same node names routes keys the same way. Only keys with a stable string form are accepted (not arrays or arbitrary objects, whose {@link Object#toString()} can change between runs)
+ *
+ * @param   <N> the type of the nodes
+ */
+public class ConsistentHashRing<N> {
+    /**
+     * The number of times each node is placed on the ring
+     */
+    public final int virtualNodes;
+    /**
+     * The nodes, by name (unmodifiable)
+     */
+    @NotNull public final Map<String, N> nodes;
+    /**
+     * The ring, from hash to node name
+     */
+    @NotNull private final TreeMap<Long, String> ring = new TreeMap<>();
+
+    /**
+     * Creates a new {@link ConsistentHashRing} instance
+     *
+     * @param   nodes                       the nodes, by name
+     * @param   virtualNodes                {@link #virtualNodes}
+     *
+     * @throws  IllegalArgumentException    if there are no nodes or the number of virtual nodes isn't positive
+     */
+    public ConsistentHashRing(@NotNull Map<String, N> nodes, int virtualNodes) {
+        if (nodes.isEmpty()) throw new IllegalArgumentException("Nodes must not be empty");
+        if (virtualNodes <= 0) throw new IllegalArgumentException("Virtual nodes must be positive: " + virtualNodes);
+        this.virtualNodes = virtualNodes;
+        this.nodes = Collections.unmodifiableMap(new LinkedHashMap<>(nodes));
+        // Sorted so hash collisions are resolved the same way regardless of the order of the nodes
+        for (final String name : new TreeSet<>(nodes.keySet())) for (int i = 0; i < virtualNodes; i++) ring.putIfAbsent(hash(name + '#' + i), name);
+    }
+
+    /**
+     * Gets the name of the node a key belongs to
+     *
+     * @param   key                         the key
+     *
+     * @return                              the name of the node
+     *
+     * @throws  IllegalArgumentException    if the key is null or its type isn't {@link #toKeyString(Object) supported}
+     */
+    @NotNull
+    public String getNodeName(Object key) {
+        final Map.Entry<Long, String> entry = ring.ceilingEntry(hash(toKeyString(key)));
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+    }
+
+    /**
+     * Gets the node a key belongs to
+     *
+     * @param   key                         the key
+     *
+     * @return                              the node
+     *
+     * @throws  IllegalArgumentException    if the key is null or its type isn't {@link #toKeyString(Object) supported}
+     */
+    @NotNull
+    public N getNode(Object key) {
+        return nodes.get(getNodeName(key));
+    }
+
+    /**
+     * Gets the string form of a key that's hashed to route it
+     * <br>Supported keys are strings (and other {@link CharSequence CharSequences}), characters, booleans, integral numbers ({@link Integer}, {@link Long}, {@link Short}, {@link Byte}, and {@link BigInteger}, which all use their decimal form so equal values route the same way), {@link ObjectId ObjectIds} (hex), {@link UUID UUIDs}, enums (name), and the {@link BsonValue BsonValues} of those types
+     *
+     * @param   key                         the key
+     *
+     * @return                              the string form of the key
+     *
+     * @throws  IllegalArgumentException    if the key is null or its type isn't supported
+     */
+    @NotNull
+    public static String toKeyString(Object key) {
+        if (key == null) throw new IllegalArgumentException("Key must not be null");
+        if (key instanceof CharSequence || key instanceof Character || key instanceof Boolean || key instanceof UUID) return key.toString();
+        if (key instanceof Integer || key instanceof Long || key instanceof Short || key instanceof Byte || key instanceof BigInteger) return key.toString();
+        if (key instanceof ObjectId) return ((ObjectId) key).toHexString();
+        if (key instanceof Enum) return ((Enum<?>) key).name();
+
+        // BSON
+        if (key instanceof BsonValue) {
+            final BsonValue value = (BsonValue) key;
+            if (value.isString()) return value.asString().getValue();
+            if (value.isInt32()) return String.valueOf(value.asInt32().getValue());
+            if (value.isInt64()) return String.valueOf(value.asInt64().getValue());
+            if (value.isBoolean()) return String.valueOf(value.asBoolean().getValue());
+            if (value.isObjectId()) return value.asObjectId().getValue().toHexString();
+            if (value.isBinary() && value.asBinary().getType() == BsonBinarySubType.UUID_STANDARD.getValue()) return value.asBinary().asUuid().toString();
+            throw new IllegalArgumentException("Unsupported key type: " + value.getBsonType());
+        }
+        throw new IllegalArgumentException("Unsupported key type: " + key.getClass().getName());
+    }
+
+    /**
+     * Hashes a string using 64-bit FNV-1a on its UTF-8 bytes, followed by the MurmurHash3 finalizer to spread similar strings across the ring
+     *
+     * @param   string  the string
+     *
+     * @return          the hash
+     */
+    static long hash(@NotNull String string) {
+        long hash = 0xcbf29ce484222325L;
+        for (final byte b : string.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    @Override @NotNull
+    public String toString() {
+        return "ConsistentHashRing{nodes=" + nodes.keySet() + ", virtualNodes=" + virtualNodes + "}";
+    }
+}
@@ -0,0 +1,244 @@
+package xyz.srnyx.magicmongo.shard;
+
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.InsertManyResult;
+import com.mongodb.client.result.InsertOneResult;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.conversions.Bson;
+import org.jetbrains.annotations.NotNull;
+import xyz.srnyx.magicmongo.FanOut;
+import xyz.srnyx.magicmongo.MagicCollection;
+import xyz.srnyx.magicmongo.MagicMongo;
+
+import java.util.*;
+import java.util.function.Function;
+
+
+/**
+ * A {@link MagicCollection} split across the shards of a {@link ShardedMagicMongo}, with the same database, name, and class on every shard
+ * <br>Documents are routed to a shard by their key (from the {@link #keyExtractor}), and operations taking a key only run on its shard. Operations without a key are scattered to every shard in parallel and their results are gathered
+ *
+ * @param   <T> the type of the collection
+ */
+public class ShardedMagicCollection<T> {
+    /**
+     * The {@link ShardedMagicMongo} of the shards
+     */
+    @NotNull public final ShardedMagicMongo mongo;
+    /**
+     * The name of the database on every shard
+     */
+    @NotNull public final String database;
+    /**
+     * The name of the collection on every shard
+     */
+    @NotNull public final String name;
+    /**
+     * The class of the collection
+     */
+    @NotNull public final Class<T> clazz;
+    /**
+     * The function getting the shard key of a document
+     */
+    @NotNull public final Function<? super T, ?> keyExtractor;
+
+    /**
+     * Creates a new {@link ShardedMagicCollection} instance
+     *
+     * @param   mongo           {@link #mongo}
+     * @param   database        {@link #database}
+     * @param   name            {@link #name}
+     * @param   clazz           {@link #clazz}
+     * @param   keyExtractor    {@link #keyExtractor}
+     *
+     * @see                     ShardedMagicMongo#getCollection(String, String, Class, Function)
+     */
+    public ShardedMagicCollection(@NotNull ShardedMagicMongo mongo, @NotNull String database, @NotNull String name, @NotNull Class<T> clazz, @NotNull Function<? super T, ?> keyExtractor) {
+        this.mongo = mongo;
+        this.database = database;
+        this.name = name;
+        this.clazz = clazz;
+        this.keyExtractor = keyExtractor;
+    }
+
+    /**
+     * Gets the {@link MagicCollection} on the shard a key belongs to
+     *
+     * @param   key                         the key
+     *
+     * @return                              the {@link MagicCollection}
+     *
+     * @throws  IllegalArgumentException    if the key is null or of an {@link ConsistentHashRing#toKeyString(Object) unsupported type}
+     */
+    @NotNull
+    public MagicCollection<T> getShard(Object key) {
+        return getCollection(mongo.getShard(key));
+    }
+
+    /**
+     * Gets the {@link MagicCollection} on every shard
+     *
+     * @return  the {@link MagicCollection MagicCollections}, by shard name
+     */
+    @NotNull
+    public Map<String, MagicCollection<T>> getShards() {
+        final Map<String, MagicCollection<T>> shards = new LinkedHashMap<>();
+        for (final Map.Entry<String, MagicMongo> entry : mongo.getShards().entrySet()) shards.put(entry.getKey(), getCollection(entry.getValue()));
+        return shards;
+    }
+
+    /**
+     * Gets the {@link MagicCollection} on a shard
+     *
+     * @param   shard   the {@link MagicMongo} of the shard
+     *
+     * @return          the {@link MagicCollection}
+     */
+    @NotNull
+    private MagicCollection<T> getCollection(@NotNull MagicMongo shard) {
+        return shard.getOrLoadMagicDatabase(database).getOrLoadMagicCollection(name, clazz);
+    }
+
+    /**
+     * Inserts a document in the shard of its key
+     *
+     * @param   document                    the document to insert
+     *
+     * @return                              the {@link InsertOneResult} of the operation
+     *
+     * @throws  IllegalArgumentException    if the key of the document is null or of an {@link ConsistentHashRing#toKeyString(Object) unsupported type}
+     */
+    @NotNull
+    public InsertOneResult insertOne(@NotNull T document) {
+        return getShard(keyExtractor.apply(document)).insertOne(document);
+    }
+
+    /**
+     * Inserts documents in the shards of their keys, with one {@code insertMany} per shard (in parallel)
+     *
+     * @param   documents                   the documents to insert
+     *
+     * @return                              the {@link InsertManyResult} of each shard, by shard name
+     *
+     * @throws  IllegalArgumentException    if the key of a document is null or of an {@link ConsistentHashRing#toKeyString(Object) unsupported type}
+     */
+    @NotNull
+    public Map<String, InsertManyResult> insertMany(@NotNull List<? extends T> documents) {
+        final Map<String, List<T>> byShard = new LinkedHashMap<>();
+        for (final T document : documents) byShard.computeIfAbsent(mongo.getShardName(keyExtractor.apply(document)), key -> new ArrayList<>()).add(document);
+        final List<String> names = new ArrayList<>(byShard.keySet());
+        final List<InsertManyResult> results = FanOut.run(mongo.executor, names, shard -> getCollection(mongo.getShards().get(shard)).insertMany(byShard.get(shard)));
+        final Map<String, InsertManyResult> resultsByShard = new LinkedHashMap<>();
+        for (int i = 0; i < names.size(); i++) resultsByShard.put(names.get(i), results.get(i));
+        return resultsByShard;
+    }
+
+    /**
+     * Finds one document in the shard of a key
+     *
+     * @param   key                         the key
+     * @param   filter                      the filter to apply
+     *
+     * @return                              the document found, or empty if none was found
+     *
+     * @throws  IllegalArgumentException    if the key is null or of an {@link ConsistentHashRing#toKeyString(Object) unsupported type}
+     */
+    @NotNull
+    public Optional<T> findOne(Object key, @NotNull Bson filter) {
+        return getShard(key).findOne(filter);
+    }
+
+    /**
+     * Finds multiple documents in the shard of a key
+     *
+     * @param   key                         the key
+     * @param   filter                      the filter to apply
+     *
+     * @return                              the documents found
+     *
+     * @throws  IllegalArgumentException    if the key is null or of an {@link ConsistentHashRing#toKeyString(Object) unsupported type}
+     */
+    @NotNull
+    public List<T> findMany(Object key, @NotNull Bson filter) {
+        return getShard(key).findMany(filter);
+    }
+
+    /**
+     * Upserts a document in the shard of a key
+     *
+     * @param   key                         the key
+     * @param   filter                      the filter to apply
+     * @param   update                      the update to apply
+     *
+     * @return                              the {@link UpdateResult} of the operation
+     *
+     * @throws  IllegalArgumentException    if the key is null or of an {@link ConsistentHashRing#toKeyString(Object) unsupported type}
+     */
+    @NotNull
+    public UpdateResult upsertOne(Object key, @NotNull Bson filter, @NotNull Bson update) {
+        return getShard(key).upsertOne(filter, update);
+    }
+
+    /**
+     * Updates a document in the shard of a key
+     *
+     * @param   key                         the key
+     * @param   filter                      the filter to apply
+     * @param   update                      the update to apply
+     *
+     * @return                              the {@link UpdateResult} of the operation
+     *
+     * @throws  IllegalArgumentException    if the key is null or of an {@link ConsistentHashRing#toKeyString(Object) unsupported type}
+     */
+    @NotNull
+    public UpdateResult updateOne(Object key, @NotNull Bson filter, @NotNull Bson update) {
+        return getShard(key).updateOne(filter, update);
+    }
+
+    /**
+     * Deletes a document in the shard of a key
+     *
+     * @param   key                         the key
+     * @param   filter                      the filter to apply
+     *
+     * @return                              the {@link DeleteResult} of the operation
+     *
+     * @throws  IllegalArgumentException    if the key is null or of an {@link ConsistentHashRing#toKeyString(Object) unsupported type}
+     */
+    @NotNull
+    public DeleteResult deleteOne(Object key, @NotNull Bson filter) {
+        return getShard(key).deleteOne(filter);
+    }
+
+    /**
+     * Finds multiple documents on every shard, in parallel
+     *
+     * @param   filter  the filter to apply
+     *
+     * @return          the documents found, grouped by shard (in the order of the shards)
+     */
+    @NotNull
+    public List<T> findMany(@NotNull Bson filter) {
+        final List<List<T>> results = FanOut.run(mongo.executor, new ArrayList<>(getShards().values()), collection -> collection.findMany(filter));
+        return FanOut.flatten(results);
+    }
+
+    /**
+     * Counts the documents on every shard, in parallel
+     *
+     * @param   filter  the filter to apply
+     *
+     * @return          the total number of documents
+     */
+    public long countDocuments(@NotNull Bson filter) {
+        final List<Long> counts = FanOut.run(mongo.executor, new ArrayList<>(getShards().values()), collection -> collection.countDocuments(filter));
+        long count = 0;
+        for (final long shardCount : counts) count += shardCount;
+        return count;
+    }
+
+    @Override @NotNull
+    public String toString() {
+        return "ShardedMagicCollection{database=" + database + ", name=" + name + ", class=" + clazz.getName() + ", shards=" + mongo.getShards().keySet() + "}";
+    }
+}
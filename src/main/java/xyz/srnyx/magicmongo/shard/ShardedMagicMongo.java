@@ -0,0 +1,128 @@
+package xyz.srnyx.magicmongo.shard;
+
+import org.jetbrains.annotations.NotNull;
+import xyz.srnyx.magicmongo.MagicMongo;
+
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+
+/**
+ * Client-side sharding across several independent {@link MagicMongo} clients (for example, one per replica set)
+ * <br>Keys (usually tenant IDs) are routed to a shard using a {@link ConsistentHashRing}, so shards are identified by name and the same names must be used everywhere. Changing the shards moves some keys to another shard, and moving their existing data is up to the caller
+ *
+ * @see #getCollection(String, String, Class, Function)
+ */
+public class ShardedMagicMongo {
+    /**
+     * The default number of virtual nodes per shard
+     */
+    public static final int DEFAULT_VIRTUAL_NODES = 160;
+
+    /**
+     * The {@link ConsistentHashRing} of the shards
+     */
+    @NotNull public final ConsistentHashRing<MagicMongo> ring;
+    /**
+     * The {@link Executor} to run scatter-gather operations on
+     */
+    @NotNull public final Executor executor;
+
+    /**
+     * Creates a new {@link ShardedMagicMongo} instance
+     *
+     * @param   shards                      the {@link MagicMongo} clients, by shard name
+     * @param   virtualNodes                the number of virtual nodes per shard
+     * @param   executor                    {@link #executor}
+     *
+     * @throws  IllegalArgumentException    if there are no shards or the number of virtual nodes isn't positive
+     *
+     * @see                                 MagicMongo#newAsyncExecutor()
+     */
+    public ShardedMagicMongo(@NotNull Map<String, MagicMongo> shards, int virtualNodes, @NotNull Executor executor) {
+        this.ring = new ConsistentHashRing<>(shards, virtualNodes);
+        this.executor = executor;
+    }
+
+    /**
+     * Creates a new {@link ShardedMagicMongo} instance with {@value #DEFAULT_VIRTUAL_NODES} virtual nodes per shard
+     *
+     * @param   shards                      the {@link MagicMongo} clients, by shard name
+     * @param   executor                    {@link #executor}
+     *
+     * @throws  IllegalArgumentException    if there are no shards
+     *
+     * @see                                 MagicMongo#newAsyncExecutor()
+     */
+    public ShardedMagicMongo(@NotNull Map<String, MagicMongo> shards, @NotNull Executor executor) {
+        this(shards, DEFAULT_VIRTUAL_NODES, executor);
+    }
+
+    /**
+     * Gets the shards
+     *
+     * @return  the {@link MagicMongo} clients, by shard name (unmodifiable)
+     */
+    @NotNull
+    public Map<String, MagicMongo> getShards() {
+        return ring.nodes;
+    }
+
+    /**
+     * Gets the name of the shard a key belongs to
+     *
+     * @param   key                         the key
+     *
+     * @return                              the name of the shard
+     *
+     * @throws  IllegalArgumentException    if the key is null or of an {@link ConsistentHashRing#toKeyString(Object) unsupported type}
+     */
+    @NotNull
+    public String getShardName(Object key) {
+        return ring.getNodeName(key);
+    }
+
+    /**
+     * Gets the shard a key belongs to
+     *
+     * @param   key                         the key
+     *
+     * @return                              the {@link MagicMongo} of the shard
+     *
+     * @throws  IllegalArgumentException    if the key is null or of an {@link ConsistentHashRing#toKeyString(Object) unsupported type}
+     */
+    @NotNull
+    public MagicMongo getShard(Object key) {
+        return ring.getNode(key);
+    }
+
+    /**
+     * Gets a {@link ShardedMagicCollection} with the given database, name, and class on every shard
+     *
+     * @param   database        the name of the database
+     * @param   name            the name of the collection
+     * @param   clazz           the class of the collection
+     * @param   keyExtractor    the function getting the shard key of a document
+     *
+     * @return                  the {@link ShardedMagicCollection}
+     *
+     * @param   <T>             the type of the class
+     */
+    @NotNull
+    public <T> ShardedMagicCollection<T> getCollection(@NotNull String database, @NotNull String name, @NotNull Class<T> clazz, @NotNull Function<? super T, ?> keyExtractor) {
+        return new ShardedMagicCollection<>(this, database, name, clazz, keyExtractor);
+    }
+
+    /**
+     * Closes the {@link MagicMongo#client clients} of every shard
+     */
+    public void close() {
+        for (final MagicMongo shard : ring.nodes.values()) shard.client.close();
+    }
+
+    @Override @NotNull
+    public String toString() {
+        return "ShardedMagicMongo{shards=" + ring.nodes.keySet() + ", virtualNodes=" + ring.virtualNodes + "}";
+    }
+}
@@ -0,0 +1,179 @@
+package xyz.srnyx.magicmongo;
+
+import org.bson.Document;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/**
+ * Races {@link MagicMongo#getOrLoadMagicDatabase(String)} and {@link MagicDatabase#getOrLoadMagicCollection(String, Class)} from many threads, checking that exactly one instance is created and returned per name
+ * <br>No server is needed, since the client only connects when an operation is run
+ */
+class GetOrLoadConcurrencyTest {
+    /**
+     * The number of threads racing for each name
+     */
+    private static final int THREADS = 16;
+    /**
+     * The number of names raced for
+     */
+    private static final int NAMES = 8;
+
+    /**
+     * The {@link MagicMongo} counting the databases it creates
+     */
+    private CountingMagicMongo mongo;
+    /**
+     * The {@link ExecutorService} running the racing threads
+     */
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        mongo = new CountingMagicMongo();
+        executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        mongo.client.close();
+    }
+
+    @Test
+    void getOrLoadMagicDatabaseCreatesOneInstancePerName() throws Exception {
+        for (int i = 0; i < NAMES; i++) {
+            final String name = "database" + i;
+            final List<MagicDatabase> results = race(ignored -> mongo.getOrLoadMagicDatabase(name));
+            for (final MagicDatabase result : results) assertSame(results.get(0), result);
+            assertSame(results.get(0), mongo.databases.get(name));
+            assertEquals(1, mongo.created.get(name).get());
+        }
+        assertEquals(NAMES, mongo.databases.size());
+    }
+
+    @Test
+    void getOrLoadMagicCollectionCreatesOneInstancePerName() throws Exception {
+        final CountingMagicDatabase database = new CountingMagicDatabase(mongo);
+        for (int i = 0; i < NAMES; i++) {
+            final String name = "collection" + i;
+            final List<MagicCollection<Document>> results = race(ignored -> database.getOrLoadMagicCollection(name, Document.class));
+            for (final MagicCollection<Document> result : results) assertSame(results.get(0), result);
+            assertSame(results.get(0), database.collectionsByName.get(name));
+            assertEquals(Document.class, database.nameToClass.get(name));
+            assertEquals(1, database.created.get(name).get());
+        }
+        assertEquals(NAMES, database.collectionsByName.size());
+        // The first collection loaded for the class is kept
+        assertSame(database.collectionsByName.get("collection0"), database.collections.get(Document.class));
+    }
+
+    @Test
+    void getOrLoadMagicCollectionRejectsAnotherClass() throws Exception {
+        final CountingMagicDatabase database = new CountingMagicDatabase(mongo);
+        final List<Object> results = race(index -> {
+            try {
+                return index % 2 == 0 ? database.getOrLoadMagicCollection("mixed", Document.class) : database.getOrLoadMagicCollection("mixed", String.class);
+            } catch (final IllegalArgumentException e) {
+                return e;
+            }
+        });
+        assertEquals(1, database.created.get("mixed").get());
+        final MagicCollection<?> loaded = database.collectionsByName.get("mixed");
+        for (final Object result : results) if (result instanceof MagicCollection) {
+            assertSame(loaded, result);
+        } else {
+            assertInstanceOf(IllegalArgumentException.class, result);
+        }
+    }
+
+    /**
+     * Runs a task on {@value #THREADS} threads that all start at the same time
+     *
+     * @param   task        the task, given the index of its thread
+     *
+     * @return              the results of the task, in the order of the threads
+     *
+     * @param   <R>         the type of the results
+     *
+     * @throws  Exception   if a task failed or the threads were interrupted
+     */
+    @NotNull
+    private <R> List<R> race(@NotNull Function<Integer, R> task) throws Exception {
+        final CountDownLatch ready = new CountDownLatch(THREADS);
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Future<R>> futures = new ArrayList<>(THREADS);
+        for (int i = 0; i < THREADS; i++) {
+            final int index = i;
+            futures.add(executor.submit(() -> {
+                ready.countDown();
+                start.await();
+                return task.apply(index);
+            }));
+        }
+        assertTrue(ready.await(10, TimeUnit.SECONDS));
+        start.countDown();
+        final List<R> results = new ArrayList<>(THREADS);
+        for (final Future<R> future : futures) results.add(future.get(10, TimeUnit.SECONDS));
+        return results;
+    }
+
+    /**
+     * A {@link MagicMongo} counting the {@link MagicDatabase MagicDatabases} it creates, by name
+     */
+    private static class CountingMagicMongo extends MagicMongo {
+        /**
+         * The number of databases created, by name
+         */
+        @NotNull private final Map<String, AtomicInteger> created = new ConcurrentHashMap<>();
+
+        /**
+         * Creates a new {@link CountingMagicMongo} instance for a local server
+         */
+        private CountingMagicMongo() {
+            super("mongodb://localhost");
+        }
+
+        @Override @NotNull
+        public MagicDatabase newMagicDatabase(@NotNull String name) {
+            created.computeIfAbsent(name, key -> new AtomicInteger()).incrementAndGet();
+            return super.newMagicDatabase(name);
+        }
+    }
+
+    /**
+     * A {@link MagicDatabase} counting the {@link MagicCollection MagicCollections} it creates, by name
+     */
+    private static class CountingMagicDatabase extends MagicDatabase {
+        /**
+         * The number of collections created, by name
+         */
+        @NotNull private final Map<String, AtomicInteger> created = new ConcurrentHashMap<>();
+
+        /**
+         * Creates a new {@link CountingMagicDatabase} instance
+         *
+         * @param   mongo   the {@link MagicMongo} to get the database from
+         */
+        private CountingMagicDatabase(@NotNull MagicMongo mongo) {
+            super(mongo.client.getDatabase("test"));
+        }
+
+        @Override @NotNull
+        public <T> MagicCollection<T> newMagicCollection(@NotNull String name, @NotNull Class<T> clazz) {
+            created.computeIfAbsent(name, key -> new AtomicInteger()).incrementAndGet();
+            return super.newMagicCollection(name, clazz);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package xyz.srnyx.magicmongo;
+
+import org.bson.BsonObjectId;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.bson.codecs.pojo.annotations.BsonId;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/**
+ * Tests how {@link IdBinding} converts inserted IDs to the type of the ID property
+ */
+class IdBindingTest {
+    @Test
+    void convertsIdsForObjectProperties() {
+        final ObjectId id = new ObjectId();
+        final ObjectDocument document = new ObjectDocument();
+        assertTrue(IdBinding.of(ObjectDocument.class).set(document, new BsonObjectId(id)));
+        assertEquals(id, document.id);
+        assertTrue(IdBinding.of(ObjectDocument.class).set(document, new BsonString("abc")));
+        assertEquals("abc", document.id);
+    }
+
+    @Test
+    void keepsIdsForBsonValueProperties() {
+        final BsonObjectId id = new BsonObjectId(new ObjectId());
+        final BsonValueDocument document = new BsonValueDocument();
+        assertTrue(IdBinding.of(BsonValueDocument.class).set(document, id));
+        assertSame(id, document.id);
+    }
+
+    @Test
+    void rejectsIdsOfAnotherType() {
+        final TypedDocument document = new TypedDocument();
+        assertFalse(IdBinding.of(TypedDocument.class).set(document, new BsonString("abc")));
+        assertNull(document.id);
+    }
+
+    /**
+     * A document with an {@link Object} ID
+     */
+    public static class ObjectDocument {
+        @BsonId public Object id;
+    }
+
+    /**
+     * A document with a {@link BsonValue} ID
+     */
+    public static class BsonValueDocument {
+        @BsonId public BsonValue id;
+    }
+
+    /**
+     * A document with an {@link ObjectId} ID
+     */
+    public static class TypedDocument {
+        @BsonId public ObjectId id;
+    }
+}
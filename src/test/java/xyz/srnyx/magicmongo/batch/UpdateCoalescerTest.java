@@ -0,0 +1,64 @@
+package xyz.srnyx.magicmongo.batch;
+
+import com.mongodb.MongoClientSettings;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+import org.bson.*;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.types.Decimal128;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/**
+ * Tests that {@link UpdateCoalescer} treats IDs the way the server matches them
+ */
+class UpdateCoalescerTest {
+    /**
+     * The {@link CodecRegistry} to render with
+     */
+    private static final CodecRegistry CODEC_REGISTRY = MongoClientSettings.getDefaultCodecRegistry();
+
+    @Test
+    void normalizesNumericallyEqualIds() {
+        final Object one = UpdateCoalescer.normalize(new BsonInt32(1));
+        assertEquals(one, UpdateCoalescer.normalize(new BsonInt64(1)));
+        assertEquals(one, UpdateCoalescer.normalize(new BsonDouble(1.0)));
+        assertEquals(one, UpdateCoalescer.normalize(new BsonDecimal128(new Decimal128(new BigDecimal("1.00")))));
+        assertEquals(UpdateCoalescer.normalize(new BsonDouble(-0.0)), UpdateCoalescer.normalize(new BsonDecimal128(Decimal128.NEGATIVE_ZERO)));
+        assertNotEquals(one, UpdateCoalescer.normalize(new BsonString("1")));
+        assertNotEquals(UpdateCoalescer.normalize(new BsonDouble(0.1)), UpdateCoalescer.normalize(new BsonDecimal128(Decimal128.parse("0.1"))));
+        assertEquals(UpdateCoalescer.normalize(new BsonDocument("a", new BsonInt32(1))), UpdateCoalescer.normalize(new BsonDocument("a", new BsonInt64(1))));
+    }
+
+    @Test
+    void doesNotReorderUpdatesOfNumericallyEqualIds() {
+        final List<WriteModel<Document>> models = Arrays.asList(
+                new UpdateOneModel<>(Filters.eq("_id", 1), Updates.set("x", 1)),
+                new UpdateOneModel<>(Filters.eq("_id", 1L), Updates.set("x", 2)),
+                new UpdateOneModel<>(Filters.eq("_id", 1), Updates.set("x", 3)));
+        final List<WriteModel<Document>> coalesced = UpdateCoalescer.coalesce(models, CODEC_REGISTRY);
+        final WriteModel<Document> last = coalesced.get(coalesced.size() - 1);
+        assertInstanceOf(UpdateOneModel.class, last);
+        final BsonDocument update = ((UpdateOneModel<Document>) last).getUpdate().toBsonDocument(BsonDocument.class, CODEC_REGISTRY);
+        assertEquals(new BsonInt32(3), update.getDocument("$set").get("x"));
+    }
+
+    @Test
+    void mergesUpdatesOfNumericallyEqualIds() {
+        final List<WriteModel<Document>> models = Arrays.asList(
+                new UpdateOneModel<>(Filters.eq("_id", 1), Updates.inc("x", 1)),
+                new UpdateOneModel<>(Filters.eq("_id", 1.0), Updates.inc("x", 2)));
+        final List<WriteModel<Document>> coalesced = UpdateCoalescer.coalesce(models, CODEC_REGISTRY);
+        assertEquals(1, coalesced.size());
+        final BsonDocument update = ((UpdateOneModel<Document>) coalesced.get(0)).getUpdate().toBsonDocument(BsonDocument.class, CODEC_REGISTRY);
+        assertEquals(3, update.getDocument("$inc").get("x").asNumber().intValue());
+    }
+}
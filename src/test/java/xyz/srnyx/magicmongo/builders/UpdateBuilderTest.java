@@ -0,0 +1,50 @@
+package xyz.srnyx.magicmongo.builders;
+
+import com.mongodb.MongoClientSettings;
+import com.mongodb.client.model.Updates;
+import org.bson.BsonDocument;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/**
+ * Tests that {@link UpdateBuilder} merges updates and rejects conflicting ones when they're added
+ */
+class UpdateBuilderTest {
+    /**
+     * The {@link CodecRegistry} to render with
+     */
+    private static final CodecRegistry CODEC_REGISTRY = MongoClientSettings.getDefaultCodecRegistry();
+
+    @Test
+    void mergesOperators() {
+        final BsonDocument rendered = new UpdateBuilder(Updates.set("a", 1))
+                .add(Updates.inc("b", 1))
+                .add(Updates.set("c", 2))
+                .add(Updates.set("a", 3))
+                .toBsonDocument(CODEC_REGISTRY);
+        assertEquals(BsonDocument.parse("{$set: {a: 3, c: 2}, $inc: {b: 1}}"), rendered);
+    }
+
+    @Test
+    void rejectsConflictsWhenAdded() {
+        final UpdateBuilder builder = new UpdateBuilder(Updates.set("a.b", 1));
+        assertThrows(IllegalArgumentException.class, () -> builder.add(Updates.inc("a.b", 1)));
+        assertThrows(IllegalArgumentException.class, () -> builder.add(Updates.set("a", 1)));
+        assertThrows(IllegalArgumentException.class, () -> builder.add(Updates.unset("a.b.c")));
+        assertThrows(IllegalArgumentException.class, () -> builder.add(Updates.rename("x", "a")));
+        assertThrows(IllegalArgumentException.class, () -> new UpdateBuilder(Updates.set("a", 1), Updates.unset("a")));
+        assertThrows(IllegalArgumentException.class, () -> new UpdateBuilder(BsonDocument.parse("{a: 1}")));
+        // Prefix of the name only, not a parent
+        assertDoesNotThrow(() -> builder.add(Updates.set("a.bc", 1)));
+    }
+
+    @Test
+    void defersValuesTheDefaultRegistryCantEncode() {
+        // The conflict can only be found when rendered with a registry that can encode the value
+        final UpdateBuilder builder = new UpdateBuilder(Updates.set("a", 1)).add(Updates.set("b", new Object()));
+        assertDoesNotThrow(() -> builder.add(Updates.inc("a", 1)));
+    }
+}
@@ -0,0 +1,109 @@
+package xyz.srnyx.magicmongo.cache;
+
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/**
+ * Tests the background thread of {@link ChangeStreamInvalidator} through stubbed change streams, so no server is needed
+ */
+class ChangeStreamInvalidatorTest {
+    /**
+     * The resume token returned by the stubbed cursors
+     */
+    @NotNull private static final BsonDocument TOKEN = new BsonDocument("_data", new BsonString("token"));
+
+    @Test
+    void idleStreamDoesNotSpin() throws Exception {
+        final AtomicInteger polls = new AtomicInteger();
+        final MemoryResumeTokenStore tokenStore = new MemoryResumeTokenStore();
+        final ChangeStreamInvalidator<Document> invalidator = new ChangeStreamInvalidator<>(new StripedLruCache(10, 1, TimeUnit.MINUTES), token -> idleStream(polls), tokenStore, namespace -> true, false, null);
+        Thread.sleep(500);
+        invalidator.close();
+        // Without waiting, an idle stub would be polled millions of times
+        assertTrue(polls.get() < 50, "Polled " + polls.get() + " times");
+        assertTrue(polls.get() > 1);
+        assertEquals(TOKEN, tokenStore.load());
+    }
+
+    @Test
+    void closeInterruptsIdleWait() throws Exception {
+        final ChangeStreamInvalidator<Document> invalidator = new ChangeStreamInvalidator<>(new StripedLruCache(10, 1, TimeUnit.MINUTES), token -> idleStream(new AtomicInteger()), new MemoryResumeTokenStore(), namespace -> true, false, null);
+        // Let the idle wait grow to its maximum
+        Thread.sleep(500);
+        final long start = System.nanoTime();
+        invalidator.close();
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(ChangeStreamInvalidator.MAX_IDLE_MILLIS / 2));
+    }
+
+    @Test
+    void closeInterruptsErrorBackoff() throws Exception {
+        final AtomicInteger errors = new AtomicInteger();
+        final Function<BsonDocument, ChangeStreamIterable<Document>> failing = token -> {
+            throw new IllegalStateException("Stubbed failure");
+        };
+        final ChangeStreamInvalidator<Document> invalidator = new ChangeStreamInvalidator<>(new StripedLruCache(10, 1, TimeUnit.MINUTES), failing, new MemoryResumeTokenStore(), namespace -> true, false, error -> errors.incrementAndGet());
+        // Wait for the third error, after which the thread waits 400 milliseconds to reopen the stream
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (errors.get() < 3 && System.nanoTime() < deadline) Thread.sleep(10);
+        assertEquals(3, errors.get());
+        final long start = System.nanoTime();
+        invalidator.close();
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(200));
+        assertEquals(3, errors.get());
+    }
+
+    /**
+     * Creates a stubbed change stream whose cursor never has changes
+     *
+     * @param   polls   incremented every time the cursor is polled
+     *
+     * @return          the stubbed change stream
+     */
+    @NotNull @SuppressWarnings("unchecked")
+    private static ChangeStreamIterable<Document> idleStream(@NotNull AtomicInteger polls) {
+        final MongoChangeStreamCursor<?> cursor = (MongoChangeStreamCursor<?>) Proxy.newProxyInstance(ChangeStreamInvalidatorTest.class.getClassLoader(), new Class<?>[]{MongoChangeStreamCursor.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "tryNext":
+                    polls.incrementAndGet();
+                    return null;
+                case "getResumeToken":
+                    return TOKEN;
+                case "close":
+                    return null;
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                case "toString":
+                    return "IdleCursor";
+            }
+            throw new UnsupportedOperationException(method.getName());
+        });
+        return (ChangeStreamIterable<Document>) Proxy.newProxyInstance(ChangeStreamInvalidatorTest.class.getClassLoader(), new Class<?>[]{ChangeStreamIterable.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "cursor":
+                    return cursor;
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                case "toString":
+                    return "IdleStream";
+            }
+            throw new UnsupportedOperationException(method.getName());
+        });
+    }
+}
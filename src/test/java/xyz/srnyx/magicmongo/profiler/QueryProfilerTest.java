@@ -0,0 +1,92 @@
+package xyz.srnyx.magicmongo.profiler;
+
+import com.mongodb.client.model.Filters;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import xyz.srnyx.magicmongo.MagicCollection;
+import xyz.srnyx.magicmongo.MagicMongo;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/**
+ * Tests the shape keys and the tracked shapes of {@link QueryProfiler}
+ * <br>No server is needed, since the client only connects when an operation is run
+ */
+class QueryProfilerTest {
+    /**
+     * The {@link MagicMongo} the collection is from
+     */
+    private MagicMongo mongo;
+    /**
+     * The collection the calls are recorded for
+     */
+    private MagicCollection<Document> collection;
+
+    @BeforeEach
+    void setUp() {
+        mongo = new MagicMongo("mongodb://localhost");
+        collection = mongo.newMagicDatabase("test").newMagicCollection("profiled", Document.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        mongo.client.close();
+    }
+
+    @Test
+    void hashesEqualShapesEqually() {
+        final BsonDocument first = BsonDocument.parse("{age: {$gt: 18, $lt: 30}, name: 'x', $or: [{a: 1}, {b: {$in: [1, 2]}}]}");
+        final BsonDocument reordered = BsonDocument.parse("{$or: [{a: 5}, {b: {$in: [3]}}], name: 'y', age: {$lt: 1, $gt: 2}}");
+        assertEquals(QueryProfiler.shapeOf(first), QueryProfiler.shapeOf(reordered));
+        assertEquals(QueryProfiler.shapeHash(first), QueryProfiler.shapeHash(reordered));
+
+        // Different shapes
+        final long hash = QueryProfiler.shapeHash(first);
+        assertNotEquals(hash, QueryProfiler.shapeHash(BsonDocument.parse("{age: {$gt: 18}, name: 'x', $or: [{a: 1}, {b: {$in: [1, 2]}}]}")));
+        assertNotEquals(hash, QueryProfiler.shapeHash(BsonDocument.parse("{age: {$gt: 18, $lt: 30}, name: 'x', $or: [{b: {$in: [1, 2]}}, {a: 1}]}")));
+        assertNotEquals(QueryProfiler.shapeHash(BsonDocument.parse("{a: 1, b: {$gt: 1}}")), QueryProfiler.shapeHash(BsonDocument.parse("{a: {$gt: 1}, b: 1}")));
+        assertNotEquals(QueryProfiler.shapeHash(BsonDocument.parse("{a: {$elemMatch: {b: 1}}}")), QueryProfiler.shapeHash(BsonDocument.parse("{a: {$elemMatch: {c: 1}}}")));
+    }
+
+    @Test
+    void groupsCallsByShape() {
+        final QueryProfiler profiler = new QueryProfiler(10, 1, TimeUnit.SECONDS, null);
+        profiler.record(collection, "findOne", Filters.and(Filters.eq("a", 1), Filters.gt("b", 2)), 1000);
+        profiler.record(collection, "findOne", Filters.and(Filters.gt("b", 5), Filters.eq("a", 3)), 1000);
+        profiler.record(collection, "findMany", Filters.eq("a", 1), 1000);
+        final ProfilerSnapshot snapshot = profiler.snapshot();
+        assertEquals(2, snapshot.getShapes().size());
+        assertEquals(2, snapshot.getShapes().get(0).getCount());
+    }
+
+    @Test
+    void keepsRareSlowShapes() {
+        final QueryProfiler profiler = new QueryProfiler(2, 1, TimeUnit.MILLISECONDS, null);
+        final long slow = TimeUnit.SECONDS.toNanos(1);
+        profiler.record(collection, "findOne", Filters.eq("rare", 1), slow);
+        // Frequent fast shapes evict it from the most frequent ones
+        for (int i = 0; i < 100; i++) {
+            profiler.record(collection, "findOne", Filters.eq("a", i), 1000);
+            profiler.record(collection, "findOne", Filters.eq("b", i), 1000);
+            profiler.record(collection, "findOne", Filters.eq("c", i), 1000);
+        }
+        final ShapeStats rare = profiler.snapshot().getTopByP99(1).get(0);
+        assertEquals(BsonDocument.parse("{rare: '?'}"), rare.getShape());
+        assertEquals(slow, rare.getMaxNanos());
+
+        // A faster slow shape doesn't replace it once full
+        profiler.record(collection, "findOne", Filters.eq("other", 1), slow * 2);
+        profiler.record(collection, "findOne", Filters.eq("faster", 1), TimeUnit.MILLISECONDS.toNanos(2));
+        final ProfilerSnapshot snapshot = profiler.snapshot();
+        assertEquals(BsonDocument.parse("{other: '?'}"), snapshot.getTopByP99(1).get(0).getShape());
+        boolean found = false;
+        for (final ShapeStats stats : snapshot.getShapes()) if (stats.getShape().equals(BsonDocument.parse("{rare: '?'}"))) found = true;
+        assertTrue(found);
+    }
+}
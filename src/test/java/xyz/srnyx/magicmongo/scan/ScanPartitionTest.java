@@ -0,0 +1,76 @@
+package xyz.srnyx.magicmongo.scan;
+
+import com.mongodb.MongoClientSettings;
+import org.bson.*;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/**
+ * Tests the resume filters of {@link ScanPartition}
+ */
+class ScanPartitionTest {
+    @Test
+    void resumesIntoLaterTypes() {
+        final List<String> types = getLaterTypes(ScanPartition.after("_id", new BsonInt32(5)));
+        assertFalse(types.contains("minKey"));
+        assertFalse(types.contains("number"));
+        assertTrue(types.contains("string"));
+        assertTrue(types.contains("objectId"));
+        assertTrue(types.contains("maxKey"));
+
+        final List<String> afterObjectId = getLaterTypes(ScanPartition.after("_id", new BsonObjectId(new ObjectId())));
+        assertFalse(afterObjectId.contains("string"));
+        assertTrue(afterObjectId.contains("bool"));
+        assertTrue(afterObjectId.contains("date"));
+    }
+
+    @Test
+    void resumesAfterMaxKeyWithGtOnly() {
+        final BsonDocument filter = render(ScanPartition.after("_id", new BsonMaxKey()));
+        assertEquals(new BsonDocument("_id", new BsonDocument("$gt", new BsonMaxKey())), filter);
+    }
+
+    @Test
+    void resumesUnboundedPartitionsAfterTheLastId() {
+        final ScanPartition partition = new ScanPartition(0, null, null, null);
+        partition.advance(new BsonInt32(5), null);
+        final BsonDocument filter = render(partition.toFilter(new BsonDocument(), "age"));
+        assertTrue(filter.toJson().contains("\"_id\""));
+        assertFalse(filter.toJson().contains("\"age\""));
+        assertTrue(filter.toJson().contains("\"string\""));
+    }
+
+    /**
+     * Gets the {@code $type} aliases matched by a resume filter
+     *
+     * @param   filter  the filter from {@link ScanPartition#after(String, BsonValue)}
+     *
+     * @return          the aliases
+     */
+    private static List<String> getLaterTypes(Bson filter) {
+        final List<String> types = new ArrayList<>();
+        for (final BsonValue clause : render(filter).getArray("$or")) {
+            final BsonValue type = clause.asDocument().getDocument("_id").get("$type");
+            if (type != null) for (final BsonValue alias : type.asArray()) types.add(alias.asString().getValue());
+        }
+        return types;
+    }
+
+    /**
+     * Renders a filter
+     *
+     * @param   filter  the filter
+     *
+     * @return          the rendered filter
+     */
+    private static BsonDocument render(Bson filter) {
+        return filter.toBsonDocument(BsonDocument.class, MongoClientSettings.getDefaultCodecRegistry());
+    }
+}
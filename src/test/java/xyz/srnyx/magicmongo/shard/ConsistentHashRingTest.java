@@ -0,0 +1,128 @@
+package xyz.srnyx.magicmongo.shard;
+
+import org.bson.*;
+import org.bson.types.ObjectId;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/**
+ * Tests the routing, distribution, and rebalancing of {@link ConsistentHashRing}, with plain integers as nodes
+ */
+class ConsistentHashRingTest {
+    /**
+     * The number of keys routed in the distribution and rebalancing tests
+     */
+    private static final int KEYS = 100_000;
+
+    @Test
+    void rejectsInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new ConsistentHashRing<>(Collections.<String, Integer>emptyMap(), 10));
+        assertThrows(IllegalArgumentException.class, () -> new ConsistentHashRing<>(nodes(2), 0));
+    }
+
+    @Test
+    void routesDeterministically() {
+        final ConsistentHashRing<Integer> ring = new ConsistentHashRing<>(nodes(4), ShardedMagicMongo.DEFAULT_VIRTUAL_NODES);
+        // Same nodes in another order
+        final Map<String, Integer> reversed = new LinkedHashMap<>();
+        final List<String> names = new ArrayList<>(nodes(4).keySet());
+        Collections.reverse(names);
+        for (final String name : names) reversed.put(name, ring.nodes.get(name));
+        final ConsistentHashRing<Integer> other = new ConsistentHashRing<>(reversed, ShardedMagicMongo.DEFAULT_VIRTUAL_NODES);
+
+        for (int i = 0; i < 1000; i++) {
+            final String key = "tenant-" + i;
+            final String name = ring.getNodeName(key);
+            assertEquals(name, ring.getNodeName(key));
+            assertEquals(name, other.getNodeName(key));
+            assertEquals(ring.nodes.get(name), ring.getNode(key));
+        }
+    }
+
+    @Test
+    void routesEqualKeysOfDifferentTypesTogether() {
+        final ConsistentHashRing<Integer> ring = new ConsistentHashRing<>(nodes(8), ShardedMagicMongo.DEFAULT_VIRTUAL_NODES);
+        for (int i = 0; i < 1000; i++) {
+            final String name = ring.getNodeName(i);
+            assertEquals(name, ring.getNodeName((long) i));
+            assertEquals(name, ring.getNodeName(BigInteger.valueOf(i)));
+            assertEquals(name, ring.getNodeName(new BsonInt32(i)));
+            assertEquals(name, ring.getNodeName(new BsonInt64(i)));
+            assertEquals(ring.getNodeName("key" + i), ring.getNodeName(new BsonString("key" + i)));
+        }
+        final UUID uuid = UUID.randomUUID();
+        assertEquals(ring.getNodeName(uuid), ring.getNodeName(new BsonBinary(uuid)));
+        final ObjectId id = new ObjectId();
+        assertEquals(ring.getNodeName(id), ring.getNodeName(new BsonObjectId(id)));
+    }
+
+    @Test
+    void rejectsUnstableKeys() {
+        final ConsistentHashRing<Integer> ring = new ConsistentHashRing<>(nodes(2), 10);
+        assertThrows(IllegalArgumentException.class, () -> ring.getNodeName(null));
+        assertThrows(IllegalArgumentException.class, () -> ring.getNodeName(new byte[]{1, 2, 3}));
+        assertThrows(IllegalArgumentException.class, () -> ring.getNodeName(new Object()));
+        assertThrows(IllegalArgumentException.class, () -> ring.getNodeName(new BsonBinary(new byte[]{1, 2, 3})));
+        assertThrows(IllegalArgumentException.class, () -> ring.getNodeName(new BsonDocument("a", new BsonInt32(1))));
+    }
+
+    @Test
+    void distributesKeysEvenly() {
+        final ConsistentHashRing<Integer> ring = new ConsistentHashRing<>(nodes(4), ShardedMagicMongo.DEFAULT_VIRTUAL_NODES);
+        final Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < KEYS; i++) counts.merge(ring.getNodeName("tenant-" + i), 1, Integer::sum);
+        assertEquals(4, counts.size());
+        final double mean = KEYS / 4.0;
+        for (final Map.Entry<String, Integer> entry : counts.entrySet()) assertEquals(mean, entry.getValue(), mean * 0.25, "Keys on " + entry.getKey());
+    }
+
+    @Test
+    void addingANodeOnlyMovesKeysToIt() {
+        final ConsistentHashRing<Integer> before = new ConsistentHashRing<>(nodes(4), ShardedMagicMongo.DEFAULT_VIRTUAL_NODES);
+        final ConsistentHashRing<Integer> after = new ConsistentHashRing<>(nodes(5), ShardedMagicMongo.DEFAULT_VIRTUAL_NODES);
+        int moved = 0;
+        for (int i = 0; i < KEYS; i++) {
+            final String key = "tenant-" + i;
+            final String from = before.getNodeName(key);
+            final String to = after.getNodeName(key);
+            if (from.equals(to)) continue;
+            assertEquals("node4", to, "Key " + key + " moved between existing nodes");
+            moved++;
+        }
+        // About 1 / 5 of the keys
+        assertEquals(0.2, moved / (double) KEYS, 0.07);
+    }
+
+    @Test
+    void removingANodeOnlyMovesItsKeys() {
+        final ConsistentHashRing<Integer> before = new ConsistentHashRing<>(nodes(5), ShardedMagicMongo.DEFAULT_VIRTUAL_NODES);
+        final Map<String, Integer> remaining = nodes(5);
+        remaining.remove("node2");
+        final ConsistentHashRing<Integer> after = new ConsistentHashRing<>(remaining, ShardedMagicMongo.DEFAULT_VIRTUAL_NODES);
+        for (int i = 0; i < KEYS; i++) {
+            final String key = "tenant-" + i;
+            final String from = before.getNodeName(key);
+            if (!from.equals("node2")) assertEquals(from, after.getNodeName(key), "Key " + key + " moved from a remaining node");
+        }
+    }
+
+    /**
+     * Creates nodes named {@code node0} to {@code node<count - 1>}, each being its index
+     *
+     * @param   count   the number of nodes
+     *
+     * @return          the nodes, by name (modifiable)
+     */
+    @NotNull
+    private static Map<String, Integer> nodes(int count) {
+        final Map<String, Integer> nodes = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) nodes.put("node" + i, i);
+        return nodes;
+    }
+}